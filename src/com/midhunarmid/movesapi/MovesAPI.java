@@ -12,13 +12,20 @@ import android.util.Log;
 
 import com.midhunarmid.movesapi.activity.TrackPointsData;
 import com.midhunarmid.movesapi.auth.AuthData;
+import com.midhunarmid.movesapi.auth.MovesBrowserAuth;
 import com.midhunarmid.movesapi.auth.MovesLoginFragment;
+import com.midhunarmid.movesapi.place.StorylinePlacesData;
+import com.midhunarmid.movesapi.profile.ProfileCache;
 import com.midhunarmid.movesapi.profile.ProfileData;
+import com.midhunarmid.movesapi.servercalls.CachedResponse;
 import com.midhunarmid.movesapi.servercalls.HTTPCall;
+import com.midhunarmid.movesapi.servercalls.ValidatorCache;
 import com.midhunarmid.movesapi.storyline.StorylineData;
 import com.midhunarmid.movesapi.summary.SummaryListData;
+import com.midhunarmid.movesapi.util.CallbackDelivery;
 import com.midhunarmid.movesapi.util.MovesAPIPreferences;
 import com.midhunarmid.movesapi.util.MovesStatus;
+import com.midhunarmid.movesapi.util.ParseOptions;
 
 /**
  * This class have static methods to deal with all API calls to Moves Server. Use <code>init()</code> method before 
@@ -69,6 +76,12 @@ public class MovesAPI {
 	/* A singleton object for holding MovesAPI Client App Details */
 	private static MovesAPI mClientDetails = null;
 	
+	/* Options used to parse the responses of all calls */
+	private static volatile ParseOptions mParseOptions = new ParseOptions();
+	
+	/* Thread on which the handlers of all calls are notified */
+	private static volatile CallbackDelivery mCallbackDelivery = CallbackDelivery.direct();
+	
 	/**
 	 * Constructor method for {@link MovesAPI} objects 
 	 * @param clientId : The Client ID you received when registering your application with Moves
@@ -119,6 +132,8 @@ public class MovesAPI {
 			throw new Exception("Moves API is not yet initialized");
 		} else {
 			mClientDetails = null;
+			ProfileCache.invalidate();
+			ValidatorCache.clear();
 		}
 	}
 	
@@ -142,6 +157,20 @@ public class MovesAPI {
 		loginFragment.show(ft, "auth-dialog");
 	}
 	
+	/**
+	 * Use this method to request authorization from Moves in the system browser, or a Custom Tab if the browser supports
+	 * them, instead of the {@link MovesLoginFragment}. No {@link android.webkit.WebView} is created. The redirect URL of
+	 * the client must be handled by {@link com.midhunarmid.movesapi.auth.MovesRedirectActivity}, see its declaration
+	 * there.
+	 * @param handler : An implemented {@link MovesHandler} with {@link AuthData} type. This handler will get notified
+	 * when the request completes.
+	 * @param context : Starts the browser, preferably the current {@link android.app.Activity}
+	 * @see MovesBrowserAuth
+	 */
+	public static void authenticateWithBrowser(MovesHandler<AuthData> handler, Context context) {
+		MovesBrowserAuth.start(context, handler);
+	}
+	
 	/**
 	 * Call this method to get currently authenticated user's {@link AuthData}
 	 * @return {@link AuthData}
@@ -151,13 +180,64 @@ public class MovesAPI {
 	}
 	
 	/**
-	 * Request {@link ProfileData} of authenticated user from Moves Server
+	 * Sets the {@link ParseOptions} used to parse the responses of all following calls. By default everything is
+	 * parsed eagerly, pass options with {@link ParseOptions#setLazy(boolean)} set to parse nested storyline data on
+	 * first access instead.
+	 * @param options : The new default options, <code>null</code> to parse everything eagerly
+	 */
+	public static void setDefaultParseOptions(ParseOptions options) {
+		mParseOptions = options;
+	}
+	
+	/** Gets the {@link ParseOptions} used to parse the responses of all calls, may be <code>null</code> **/
+	public static ParseOptions getDefaultParseOptions() {
+		return mParseOptions;
+	}
+	
+	/**
+	 * Sets the thread on which the {@link MovesHandler}s of all following calls are notified, for example
+	 * {@link CallbackDelivery#mainThread()} to update views straight from the handler. By default handlers are notified
+	 * on the background thread of the call. Calls which fail before reaching the server, because the user is not
+	 * authenticated, still notify their handler right away on the calling thread.
+	 * @param delivery : The new delivery, <code>null</code> to notify on the background thread again
+	 */
+	public static void setCallbackDelivery(CallbackDelivery delivery) {
+		mCallbackDelivery = delivery != null ? delivery : CallbackDelivery.direct();
+	}
+	
+	/** Gets the {@link CallbackDelivery} used to notify the handlers of all calls **/
+	public static CallbackDelivery getCallbackDelivery() {
+		return mCallbackDelivery;
+	}
+	
+	/**
+	 * Request {@link ProfileData} of authenticated user from Moves Server. A profile in {@link ProfileCache} is
+	 * returned right away, through the {@link CallbackDelivery}, and refreshed in the background once it is older than
+	 * {@link ProfileCache#getTimeToLive()}.
 	 * @param handler : An implemented {@link MovesHandler} with {@link ProfileData} type. This handler will get notified
 	 * when the request completes.
 	 */
 	public static void getProfile(MovesHandler<ProfileData> handler) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getProfile(handler);
+			CachedResponse<ProfileData> cached = ProfileCache.getResponse();
+			if (cached == null) {
+				HTTPCall.getProfile(handler);
+				return;
+			}
+			mCallbackDelivery.wrap(handler).onSuccess(cached.getValue());
+			if (!ProfileCache.isFresh(cached)) {
+				/* Stale while revalidate, the refreshed profile is stored in the cache for the next call */
+				HTTPCall.getProfile(new MovesHandler<ProfileData>() {
+					@Override
+					public void onSuccess(ProfileData result) {
+					}
+					
+					@Override
+					public void onFailure(MovesStatus status, String message) {
+						Log.w(TAG, "Profile refresh failed : " + message);
+					}
+				});
+			}
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -268,7 +348,29 @@ public class MovesAPI {
 	 */
 	public static void getStoryline_SingleDay(MovesHandler<ArrayList<StorylineData>> handler, String date, String updatedSince, boolean needTrackPoints) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyStorylineList(handler, "/" + date, null, null, null, updatedSince, needTrackPoints);
+			HTTPCall.getDailyStorylineList(handler, "/" + date, null, null, null, updatedSince, needTrackPoints, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @see SummaryListData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param date : date in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getStoryline_SingleDay(MovesHandler<ArrayList<StorylineData>> handler, String date, String updatedSince, boolean needTrackPoints, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyStorylineList(handler, "/" + date, null, null, null, updatedSince, needTrackPoints, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -288,7 +390,29 @@ public class MovesAPI {
 	 */
 	public static void getStoryline_SpecificWeek(MovesHandler<ArrayList<StorylineData>> handler, String week, String updatedSince, boolean needTrackPoints) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyStorylineList(handler, "/" + week, null, null, null, updatedSince, needTrackPoints);
+			HTTPCall.getDailyStorylineList(handler, "/" + week, null, null, null, updatedSince, needTrackPoints, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @see SummaryListData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param week : A specific week in yyyy-Www format, for example 2013-W09
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getStoryline_SpecificWeek(MovesHandler<ArrayList<StorylineData>> handler, String week, String updatedSince, boolean needTrackPoints, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyStorylineList(handler, "/" + week, null, null, null, updatedSince, needTrackPoints, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -308,7 +432,29 @@ public class MovesAPI {
 	 */
 	public static void getStoryline_SpecificMonth(MovesHandler<ArrayList<StorylineData>> handler, String month, String updatedSince, boolean needTrackPoints) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyStorylineList(handler, "/" + month, null, null, null, updatedSince, needTrackPoints);
+			HTTPCall.getDailyStorylineList(handler, "/" + month, null, null, null, updatedSince, needTrackPoints, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @see SummaryListData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param month : A specific month in yyyyMM or yyyy-MM format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getStoryline_SpecificMonth(MovesHandler<ArrayList<StorylineData>> handler, String month, String updatedSince, boolean needTrackPoints, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyStorylineList(handler, "/" + month, null, null, null, updatedSince, needTrackPoints, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -329,7 +475,30 @@ public class MovesAPI {
 	 */
 	public static void getStoryline_WithinRange(MovesHandler<ArrayList<StorylineData>> handler, String from, String to, String updatedSince, boolean needTrackPoints) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyStorylineList(handler, null, from, to, null, updatedSince, needTrackPoints);
+			HTTPCall.getDailyStorylineList(handler, null, from, to, null, updatedSince, needTrackPoints, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @see SummaryListData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
+	 * @param to : Range end in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getStoryline_WithinRange(MovesHandler<ArrayList<StorylineData>> handler, String from, String to, String updatedSince, boolean needTrackPoints, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyStorylineList(handler, null, from, to, null, updatedSince, needTrackPoints, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -349,7 +518,110 @@ public class MovesAPI {
 	 */
 	public static void getStoryline_PastDays(MovesHandler<ArrayList<StorylineData>> handler, String pastDays, String updatedSince, boolean needTrackPoints) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyStorylineList(handler, null, null, null, pastDays, updatedSince, needTrackPoints);
+			HTTPCall.getDailyStorylineList(handler, null, null, null, pastDays, updatedSince, needTrackPoints, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @see SummaryListData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param pastDays :  How many past days to return, including today (in users current time zone)
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getStoryline_PastDays(MovesHandler<ArrayList<StorylineData>> handler, String pastDays, String updatedSince, boolean needTrackPoints, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyStorylineList(handler, null, null, null, pastDays, updatedSince, needTrackPoints, options);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user, delivered one day at a time as soon as each day is read off the response. Use
+	 * this instead of <code>getStoryline_SpecificWeek()</code> to show the first days while a long range is still downloading.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @param handler : An implemented {@link MovesStreamHandler} of {@link StorylineData}. This handler will get
+	 * notified with each day, the download progress and the completion of the request.
+	 * @param week : A specific week in yyyy-Www format, for example 2013-W09
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 */
+	public static void streamStoryline_SpecificWeek(MovesStreamHandler<StorylineData> handler, String week, String updatedSince, boolean needTrackPoints) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.streamDailyStorylineList(handler, "/" + week, null, null, null, updatedSince, needTrackPoints, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user, delivered one day at a time as soon as each day is read off the response. Use
+	 * this instead of <code>getStoryline_SpecificMonth()</code> to show the first days while a long range is still downloading.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @param handler : An implemented {@link MovesStreamHandler} of {@link StorylineData}. This handler will get
+	 * notified with each day, the download progress and the completion of the request.
+	 * @param month : A specific month in yyyyMM or yyyy-MM format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 */
+	public static void streamStoryline_SpecificMonth(MovesStreamHandler<StorylineData> handler, String month, String updatedSince, boolean needTrackPoints) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.streamDailyStorylineList(handler, "/" + month, null, null, null, updatedSince, needTrackPoints, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user, delivered one day at a time as soon as each day is read off the response. Use
+	 * this instead of <code>getStoryline_WithinRange()</code> to show the first days while a long range is still downloading.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @param handler : An implemented {@link MovesStreamHandler} of {@link StorylineData}. This handler will get
+	 * notified with each day, the download progress and the completion of the request.
+	 * @param from : Range start in yyyyMMdd or yyyy-MM-dd format
+	 * @param to : Range end in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 */
+	public static void streamStoryline_WithinRange(MovesStreamHandler<StorylineData> handler, String from, String to, String updatedSince, boolean needTrackPoints) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.streamDailyStorylineList(handler, null, from, to, null, updatedSince, needTrackPoints, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily storylines for user, delivered one day at a time as soon as each day is read off the response. Use
+	 * this instead of <code>getStoryline_PastDays()</code> to show the first days while a long range is still downloading.
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Daily Storyline</a>
+	 * @param handler : An implemented {@link MovesStreamHandler} of {@link StorylineData}. This handler will get
+	 * notified with each day, the download progress and the completion of the request.
+	 * @param pastDays :  How many past days to return, including today (in users current time zone)
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : if true, the returned activities also include {@link TrackPointsData} information. 
+	 * Including track points limits the query range to 7 days.
+	 */
+	public static void streamStoryline_PastDays(MovesStreamHandler<StorylineData> handler, String pastDays, String updatedSince, boolean needTrackPoints) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.streamDailyStorylineList(handler, null, null, null, pastDays, updatedSince, needTrackPoints, mParseOptions);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -369,7 +641,29 @@ public class MovesAPI {
 	 */
 	public static void getActivities_SingleDay(MovesHandler<ArrayList<StorylineData>> handler, String date, String updatedSince) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyActivitiesList(handler, "/" + date, null, null, null, updatedSince);
+			HTTPCall.getDailyActivitiesList(handler, "/" + date, null, null, null, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily activity breakdown for user. <br><br><i>Location/Trackpoints will not be there (or it will be null) 
+	 * in Activity response</i>
+	 * @see <a href="https://dev.moves-app.com/docs/api_activities">Moves Developer Page for Daily Activities</a>
+	 * @see SummaryListData
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param date : date in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getActivities_SingleDay(MovesHandler<ArrayList<StorylineData>> handler, String date, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyActivitiesList(handler, "/" + date, null, null, null, updatedSince, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -389,7 +683,29 @@ public class MovesAPI {
 	 */
 	public static void getActivities_SpecificWeek(MovesHandler<ArrayList<StorylineData>> handler, String week, String updatedSince) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyActivitiesList(handler, "/" + week, null, null, null, updatedSince);
+			HTTPCall.getDailyActivitiesList(handler, "/" + week, null, null, null, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily activity breakdown for user. <br><br><i>Location/Trackpoints will not be there (or it will be null) 
+	 * in Activity response</i>
+	 * @see <a href="https://dev.moves-app.com/docs/api_activities">Moves Developer Page for Daily Activities</a>
+	 * @see SummaryListData
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param week : A specific week in yyyy-Www format, for example 2013-W09
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getActivities_SpecificWeek(MovesHandler<ArrayList<StorylineData>> handler, String week, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyActivitiesList(handler, "/" + week, null, null, null, updatedSince, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -409,7 +725,29 @@ public class MovesAPI {
 	 */
 	public static void getActivities_SpecificMonth(MovesHandler<ArrayList<StorylineData>> handler, String month, String updatedSince) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyActivitiesList(handler, "/" + month, null, null, null, updatedSince);
+			HTTPCall.getDailyActivitiesList(handler, "/" + month, null, null, null, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily activity breakdown for user. <br><br><i>Location/Trackpoints will not be there (or it will be null) 
+	 * in Activity response</i>
+	 * @see <a href="https://dev.moves-app.com/docs/api_activities">Moves Developer Page for Daily Activities</a>
+	 * @see SummaryListData
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param month : A specific month in yyyyMM or yyyy-MM format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getActivities_SpecificMonth(MovesHandler<ArrayList<StorylineData>> handler, String month, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyActivitiesList(handler, "/" + month, null, null, null, updatedSince, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -430,7 +768,30 @@ public class MovesAPI {
 	 */
 	public static void getActivities_WithinRange(MovesHandler<ArrayList<StorylineData>> handler, String from, String to, String updatedSince) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyActivitiesList(handler, null, from, to, null, updatedSince);
+			HTTPCall.getDailyActivitiesList(handler, null, from, to, null, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily activity breakdown for user. <br><br><i>Location/Trackpoints will not be there (or it will be null) 
+	 * in Activity response</i>
+	 * @see <a href="https://dev.moves-app.com/docs/api_activities">Moves Developer Page for Daily Activities</a>
+	 * @see SummaryListData
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
+	 * @param to : Range end in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getActivities_WithinRange(MovesHandler<ArrayList<StorylineData>> handler, String from, String to, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyActivitiesList(handler, null, from, to, null, updatedSince, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -450,7 +811,221 @@ public class MovesAPI {
 	 */
 	public static void getActivities_PastDays(MovesHandler<ArrayList<StorylineData>> handler, String pastDays, String updatedSince) {
 		if (AuthData.isAuthenticated()) {
-			HTTPCall.getDailyActivitiesList(handler, null, null, null, pastDays, updatedSince);
+			HTTPCall.getDailyActivitiesList(handler, null, null, null, pastDays, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily activity breakdown for user. <br><br><i>Location/Trackpoints will not be there (or it will be null) 
+	 * in Activity response</i>
+	 * @see <a href="https://dev.moves-app.com/docs/api_activities">Moves Developer Page for Daily Activities</a>
+	 * @see SummaryListData
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylineData}. 
+	 * This handler will get notified when the request completes.
+	 * @param pastDays :  How many past days to return, including today (in users current time zone)
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getActivities_PastDays(MovesHandler<ArrayList<StorylineData>> handler, String pastDays, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyActivitiesList(handler, null, null, null, pastDays, updatedSince, options);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param date : date in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 */
+	public static void getPlaces_SingleDay(MovesHandler<ArrayList<StorylinePlacesData>> handler, String date, String updatedSince) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, "/" + date, null, null, null, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param date : date in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getPlaces_SingleDay(MovesHandler<ArrayList<StorylinePlacesData>> handler, String date, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, "/" + date, null, null, null, updatedSince, options);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param week : A specific week in yyyy-Www format, for example 2013-W09
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 */
+	public static void getPlaces_SpecificWeek(MovesHandler<ArrayList<StorylinePlacesData>> handler, String week, String updatedSince) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, "/" + week, null, null, null, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param week : A specific week in yyyy-Www format, for example 2013-W09
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getPlaces_SpecificWeek(MovesHandler<ArrayList<StorylinePlacesData>> handler, String week, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, "/" + week, null, null, null, updatedSince, options);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param month : A specific month in yyyyMM or yyyy-MM format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 */
+	public static void getPlaces_SpecificMonth(MovesHandler<ArrayList<StorylinePlacesData>> handler, String month, String updatedSince) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, "/" + month, null, null, null, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param month : A specific month in yyyyMM or yyyy-MM format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getPlaces_SpecificMonth(MovesHandler<ArrayList<StorylinePlacesData>> handler, String month, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, "/" + month, null, null, null, updatedSince, options);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
+	 * @param to : Range end in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 */
+	public static void getPlaces_WithinRange(MovesHandler<ArrayList<StorylinePlacesData>> handler, String from, String to, String updatedSince) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, null, from, to, null, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
+	 * @param to : Range end in yyyyMMdd or yyyy-MM-dd format
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getPlaces_WithinRange(MovesHandler<ArrayList<StorylinePlacesData>> handler, String from, String to, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, null, from, to, null, updatedSince, options);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param pastDays :  How many past days to return, including today (in users current time zone)
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 */
+	public static void getPlaces_PastDays(MovesHandler<ArrayList<StorylinePlacesData>> handler, String pastDays, String updatedSince) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, null, null, null, pastDays, updatedSince, mParseOptions);
+		} else {
+			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
+		}
+	}
+	
+	/**
+	 * Get daily places for user, the place segments of each day without any activities.
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Daily Places</a>
+	 * @see StorylineData
+	 * @param handler : An implemented {@link MovesHandler} with an {@link ArrayList} of {@link StorylinePlacesData}. 
+	 * This handler will get notified when the request completes.
+	 * @param pastDays :  How many past days to return, including today (in users current time zone)
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since 
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, for example to select only some fields.
+	 * <code>null</code> parses everything eagerly.
+	 */
+	public static void getPlaces_PastDays(MovesHandler<ArrayList<StorylinePlacesData>> handler, String pastDays, String updatedSince, ParseOptions options) {
+		if (AuthData.isAuthenticated()) {
+			HTTPCall.getDailyPlacesList(handler, null, null, null, pastDays, updatedSince, options);
 		} else {
 			handler.onFailure(MovesStatus.NOT_AUTHENTICATED, "You are not yet authenticated with required scopes!");
 		}
@@ -0,0 +1,41 @@
+package com.midhunarmid.movesapi;
+
+import com.midhunarmid.movesapi.util.MovesStatus;
+
+/**
+ * This interface will act as a handler for calls which deliver their result one item at a time, as soon as each
+ * item is read off the response, instead of once the whole response is complete.
+ * @author Midhu
+ *
+ * @param <T> : A generic class, the type of a single item of the result, for example one day
+ * @see MovesHandler
+ * @see MovesStatus
+ */
+public interface MovesStreamHandler<T> {
+	
+	/**
+	 * Implement this method to get each item of the result, in the order of the response
+	 * @param item : The next item of the result
+	 */
+	public void onItem(T item);
+	
+	/**
+	 * Implement this method to follow the download of the response
+	 * @param bytesRead : Number of bytes received so far
+	 * @param total : Length of the whole response in bytes, or -1 if the server did not tell
+	 */
+	public void onProgress(long bytesRead, long total);
+	
+	/**
+	 * Implement this method to get notified once all items are delivered
+	 */
+	public void onComplete();
+	
+	/**
+	 * Implement this method to get failure notifications along with the {@link MovesStatus} code and a brief message.
+	 * Items delivered before the failure stay valid, <code>onComplete()</code> is not called after a failure.
+	 * @param status : Status code of the failure
+	 * @param message : A brief message about the reason behind failure
+	 */
+	public void onFailure(MovesStatus status, String message);
+}
@@ -3,8 +3,17 @@ package com.midhunarmid.movesapi.activity;
 import java.util.ArrayList;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.midhunarmid.movesapi.util.JSONStreamReader;
+import com.midhunarmid.movesapi.util.JSONStreamReader.Token;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+import com.midhunarmid.movesapi.util.ParseOptions;
+import com.midhunarmid.movesapi.util.ParseOptions.Field;
+import com.midhunarmid.movesapi.util.ParsePool;
+import com.midhunarmid.movesapi.util.Utilities;
+
 /**
  * This class holds the Activity Data, and some related methods to handle those data
  * @author Midhu
@@ -21,9 +30,63 @@ public class ActivityData {
 	private String distance;
 	private String steps;
 	private String calories;
-	private ArrayList<TrackPointsData> trackPoints;
+	private volatile ArrayList<TrackPointsData> trackPoints;
+	private ActivityType activityType;
+	
+	/* Raw track points of a lazily parsed activity, until they are first accessed */
+	private JSONArray trackPointsJson;
 	
 	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Specific name of the activity as {@link ActivityType}, or {@link ActivityType#UNKNOWN} if the activity is not
+	 *  known yet. The raw name is always available from <code>getActivity()</code> **/
+	public ActivityType getActivityType() {
+		ActivityType type = activityType;
+		if (type == null) {
+			type = ActivityType.fromString(activity);
+			activityType = type;
+		}
+		return type;
+	}
+	
+	/** Get start time of the activity as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred or the start time is not known **/
+	public long getStartTime_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(startTime, def);
+	}
+	
+	/** Get end time of the activity as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred or the end time is not known **/
+	public long getEndTime_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(endTime, def);
+	}
+	
+	/** Duration of the activity in seconds <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getDuration_Long(long def) {
+		return Utilities.parseLong(duration, def);
+	}
+	
+	/** Distance for the activity in meters <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getDistance_Long(long def) {
+		return Utilities.parseLong(distance, def);
+	}
+	
+	/** Step count for the activity <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getSteps_Long(long def) {
+		return Utilities.parseLong(steps, def);
+	}
+	
+	/** Calories burn for the activity in kcal <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getCalories_Long(long def) {
+		return Utilities.parseLong(calories, def);
+	}
+	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Getter methods    *************************************************************** **/
 	
@@ -82,9 +145,19 @@ public class ActivityData {
 		return calories;
 	}
 	
-	/** {@link TrackPointsData} for this activity **/
+	/** {@link TrackPointsData} for this activity, parsed on first access if this activity was parsed lazily **/
 	public ArrayList<TrackPointsData> getTrackPoints() {
-		return trackPoints;
+		ArrayList<TrackPointsData> result = trackPoints;
+		if (result == null) {
+			synchronized (this) {
+				if (trackPoints == null && trackPointsJson != null) {
+					trackPoints		= TrackPointsData.parseList(trackPointsJson);
+					trackPointsJson	= null;
+				}
+				result = trackPoints;
+			}
+		}
+		return result;
 	}
 	
 	/** ***************************************************************************************************** **/	
@@ -96,6 +169,7 @@ public class ActivityData {
 	 */
 	public void setActivity(String activity) {
 		this.activity = activity;
+		this.activityType = null;
 	}
 	
 	/**
@@ -146,8 +220,9 @@ public class ActivityData {
 	}
 	
 	/** {@link TrackPointsData} for this activity **/
-	public void setTrackPoints(ArrayList<TrackPointsData> trackPoints) {
+	public synchronized void setTrackPoints(ArrayList<TrackPointsData> trackPoints) {
 		this.trackPoints = trackPoints;
+		this.trackPointsJson = null;
 	}
 	
 	/** ***************************************************************************************************** **/	
@@ -160,6 +235,18 @@ public class ActivityData {
 	 * @return corresponding {@link ActivityData}
 	 */
 	public static ActivityData parse(JSONObject jsonObject) {
+		return parse(jsonObject, null);
+	}
+	
+	/**
+	 * Parse a {@link JSONObject} from activities {@link JSONArray}, then return the corresponding 
+	 * {@link ActivityData} object.
+	 * @param jsonObject : the 'activity' JSON object to parse 
+	 * @param options : {@link ParseOptions} to use, or <code>null</code> to parse everything now. If lazy, the 
+	 * track points are parsed on the first call to <code>getTrackPoints()</code>
+	 * @return corresponding {@link ActivityData}
+	 */
+	public static ActivityData parse(JSONObject jsonObject, ParseOptions options) {
 		if (jsonObject != null) {
 			ActivityData activityData = new ActivityData();
 				activityData.activity		= jsonObject.optString("activity");
@@ -173,18 +260,150 @@ public class ActivityData {
 				activityData.calories		= jsonObject.optString("calories");
 				JSONArray trackPointsJSONArray		= jsonObject.optJSONArray("trackPoints");
 				
-				activityData.trackPoints = new ArrayList<TrackPointsData>();
-				if (trackPointsJSONArray != null) {
-					for (int i = 0; i < trackPointsJSONArray.length(); i++) {
-						JSONObject summaryJsonObject = trackPointsJSONArray.optJSONObject(i);
-						if (summaryJsonObject != null) {
-							activityData.trackPoints.add(TrackPointsData.parse(summaryJsonObject));
-						}
-					}
+				if (trackPointsJSONArray != null && ParseOptions.isLazy(options)) {
+					activityData.trackPointsJson	= trackPointsJSONArray;
+				} else {
+					activityData.trackPoints		= TrackPointsData.parseList(trackPointsJSONArray);
 				}
 				
 				return activityData;
 		}
     	return null;
 	}
+	
+	/**
+	 * Parse an activities {@link JSONArray}, then return the corresponding {@link ActivityData} objects.
+	 * @param jsonArray : the 'activities' JSON array to parse, may be <code>null</code>
+	 * @param options : {@link ParseOptions} to use, or <code>null</code> to parse everything now
+	 * @return {@link ArrayList} of {@link ActivityData}, empty if there are no activities
+	 */
+	public static ArrayList<ActivityData> parseList(JSONArray jsonArray, ParseOptions options) {
+		ArrayList<ActivityData> activities = new ArrayList<ActivityData>(jsonArray != null ? jsonArray.length() : 0);
+		if (jsonArray != null) {
+			for (int i = 0; i < jsonArray.length(); i++) {
+				JSONObject activityJsonObject = jsonArray.optJSONObject(i);
+				if (activityJsonObject != null) {
+					activities.add(parse(activityJsonObject, options));
+				}
+			}
+		}
+		return activities;
+	}
+	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"activity", "group", "manual", "startTime", "endTime", "duration",
+			"distance", "steps", "calories", "trackPoints"};
+	
+	/**
+	 * Read an activity JSON object from a {@link JSONStreamReader}, then return the corresponding {@link ActivityData}
+	 * object. Fields which are not selected in the {@link ParseOptions} are skipped and left <code>null</code>.
+	 * Objects and lists are taken from the {@link ParsePool} of the reader, if it has one.
+	 * @param reader : the reader, positioned at an 'activity' JSON object
+	 * @param options : {@link ParseOptions} selecting the fields to read, or <code>null</code> to read all fields
+	 * @return corresponding {@link ActivityData}
+	 */
+	public static ActivityData read(JSONStreamReader reader, ParseOptions options) throws JSONException {
+		ParsePool pool = reader.getPool();
+		ActivityData activityData = ParsePool.obtainActivity(pool);
+		int mask = 0;
+		if (ParseOptions.includes(options, Field.ACTIVITY)) {
+			activityData.activity = activityData.group = "";
+			mask |= 1 | 1 << 1;
+		}
+		if (ParseOptions.includes(options, Field.ACTIVITY_MANUAL)) {
+			activityData.manual = "";
+			mask |= 1 << 2;
+		}
+		if (ParseOptions.includes(options, Field.ACTIVITY_TIMES)) {
+			activityData.startTime = activityData.endTime = "";
+			mask |= 1 << 3 | 1 << 4;
+		}
+		if (ParseOptions.includes(options, Field.ACTIVITY_DURATION)) {
+			activityData.duration = "";
+			mask |= 1 << 5;
+		}
+		if (ParseOptions.includes(options, Field.ACTIVITY_DISTANCE)) {
+			activityData.distance = "";
+			mask |= 1 << 6;
+		}
+		if (ParseOptions.includes(options, Field.ACTIVITY_STEPS)) {
+			activityData.steps = "";
+			mask |= 1 << 7;
+		}
+		if (ParseOptions.includes(options, Field.ACTIVITY_CALORIES)) {
+			activityData.calories = "";
+			mask |= 1 << 8;
+		}
+		if (ParseOptions.includes(options, Field.TRACK_POINTS)) {
+			mask |= 1 << 9;
+		}
+		
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS, mask)) {
+			case 0:
+				activityData.activity	= reader.optString();
+				break;
+			case 1:
+				activityData.group		= reader.optString();
+				break;
+			case 2:
+				activityData.manual		= reader.optString();
+				break;
+			case 3:
+				activityData.startTime	= reader.optString();
+				break;
+			case 4:
+				activityData.endTime	= reader.optString();
+				break;
+			case 5:
+				activityData.duration	= reader.optString();
+				break;
+			case 6:
+				activityData.distance	= reader.optString();
+				break;
+			case 7:
+				activityData.steps		= reader.optString();
+				break;
+			case 8:
+				activityData.calories	= reader.optString();
+				break;
+			case 9:
+				activityData.trackPoints = TrackPointsData.readList(reader);
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		if ((mask & 1 << 9) != 0 && activityData.trackPoints == null) {
+			activityData.trackPoints = ParsePool.obtainList(pool);
+		}
+		return activityData;
+	}
+	
+	/**
+	 * Read an activities JSON array from a {@link JSONStreamReader}, then return the corresponding {@link ActivityData} objects.
+	 * @param reader : the reader, positioned at an 'activities' JSON array
+	 * @param options : {@link ParseOptions} selecting the fields to read, or <code>null</code> to read all fields
+	 * @return {@link ArrayList} of {@link ActivityData}, empty if the value is not an array
+	 */
+	public static ArrayList<ActivityData> readList(JSONStreamReader reader, ParseOptions options) throws JSONException {
+		ArrayList<ActivityData> activities = ParsePool.obtainList(reader.getPool());
+		if (reader.peek() != Token.BEGIN_ARRAY) {
+			reader.skipValue();
+			return activities;
+		}
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (reader.peek() == Token.BEGIN_OBJECT) {
+				activities.add(read(reader, options));
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endArray();
+		return activities;
+	}
 }
@@ -0,0 +1,173 @@
+package com.midhunarmid.movesapi.activity;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.summary.SummaryData;
+
+/**
+ * This class aggregates duration, distance, steps and calories per {@link ActivityType}. All totals are kept in
+ * primitive arrays indexed by the ordinal of the {@link ActivityType}, so adding values never boxes or hashes.
+ * @author Midhu
+ * @see ActivityType
+ * @see StorylineData
+ */
+public class ActivityTotals {
+	private final long[] duration	= new long[ActivityType.COUNT];
+	private final long[] distance	= new long[ActivityType.COUNT];
+	private final long[] steps		= new long[ActivityType.COUNT];
+	private final long[] calories	= new long[ActivityType.COUNT];
+	private final int[] count		= new int[ActivityType.COUNT];
+	
+	/**
+	 * Use this method to compute per activity totals of a list of storylines
+	 * @param storylines : storylines, usually received from one of the storyline or activities calls of Moves API
+	 * @return {@link ActivityTotals} holding the totals of all given days
+	 * @see #addStoryline(StorylineData)
+	 */
+	public static ActivityTotals fromStorylines(List<StorylineData> storylines) {
+		ActivityTotals totals = new ActivityTotals();
+		if (storylines != null) {
+			for (int i = 0; i < storylines.size(); i++) {
+				totals.addStoryline(storylines.get(i));
+			}
+		}
+		return totals;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Aggregation methods  ************************************************************ **/
+	
+	/**
+	 * Adds a day to these totals. The daily <code>summary</code> of the storyline is used when it is available, or else
+	 * the activities of its segments are added one by one.
+	 * @param storyline : the storyline day to add
+	 */
+	public void addStoryline(StorylineData storyline) {
+		if (storyline == null) {
+			return;
+		}
+		ArrayList<SummaryData> summaries = storyline.getSummary();
+		if (summaries != null && summaries.size() > 0) {
+			addSummaries(summaries);
+			return;
+		}
+		ArrayList<SegmentData> segments = storyline.getSegments();
+		if (segments != null) {
+			for (int i = 0; i < segments.size(); i++) {
+				SegmentData segment = segments.get(i);
+				if (segment != null) {
+					addActivities(segment.getActivities());
+				}
+			}
+		}
+	}
+	
+	/** Adds all the given {@link SummaryData} to these totals **/
+	public void addSummaries(List<SummaryData> summaries) {
+		if (summaries != null) {
+			for (int i = 0; i < summaries.size(); i++) {
+				addSummary(summaries.get(i));
+			}
+		}
+	}
+	
+	/** Adds a single {@link SummaryData} to these totals **/
+	public void addSummary(SummaryData summary) {
+		if (summary != null) {
+			add(summary.getActivityType(), summary.geDuration_Long(0), summary.geDistance_Long(0),
+					summary.geSteps_Long(0), summary.geCalories_Long(0));
+		}
+	}
+	
+	/** Adds all the given {@link ActivityData} to these totals **/
+	public void addActivities(List<ActivityData> activities) {
+		if (activities != null) {
+			for (int i = 0; i < activities.size(); i++) {
+				addActivity(activities.get(i));
+			}
+		}
+	}
+	
+	/** Adds a single {@link ActivityData} to these totals **/
+	public void addActivity(ActivityData activity) {
+		if (activity != null) {
+			add(activity.getActivityType(), activity.getDuration_Long(0), activity.getDistance_Long(0),
+					activity.getSteps_Long(0), activity.getCalories_Long(0));
+		}
+	}
+	
+	/** Adds raw values for an {@link ActivityType} to these totals **/
+	public void add(ActivityType type, long durationSeconds, long distanceMeters, long stepCount, long kcal) {
+		int index = (type != null ? type : ActivityType.UNKNOWN).ordinal();
+		duration[index]	+= durationSeconds;
+		distance[index]	+= distanceMeters;
+		steps[index]	+= stepCount;
+		calories[index]	+= kcal;
+		count[index]++;
+	}
+	
+	/** Adds all totals of another {@link ActivityTotals} to these totals **/
+	public void addAll(ActivityTotals other) {
+		if (other == null) {
+			return;
+		}
+		for (int i = 0; i < ActivityType.COUNT; i++) {
+			duration[i]	+= other.duration[i];
+			distance[i]	+= other.distance[i];
+			steps[i]	+= other.steps[i];
+			calories[i]	+= other.calories[i];
+			count[i]	+= other.count[i];
+		}
+	}
+	
+	/** Clears all totals, so that this object can be reused **/
+	public void clear() {
+		for (int i = 0; i < ActivityType.COUNT; i++) {
+			duration[i] = distance[i] = steps[i] = calories[i] = 0;
+			count[i] = 0;
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Getter methods    *************************************************************** **/
+	
+	/** Total duration of the activity in seconds **/
+	public long getDuration(ActivityType type) {
+		return duration[type.ordinal()];
+	}
+	
+	/** Total distance for the activity in meters **/
+	public long getDistance(ActivityType type) {
+		return distance[type.ordinal()];
+	}
+	
+	/** Total step count for the activity **/
+	public long getSteps(ActivityType type) {
+		return steps[type.ordinal()];
+	}
+	
+	/** Total calories burn for the activity in kcal **/
+	public long getCalories(ActivityType type) {
+		return calories[type.ordinal()];
+	}
+	
+	/** Number of summaries or activities added for the activity **/
+	public int getCount(ActivityType type) {
+		return count[type.ordinal()];
+	}
+	
+	/** All {@link ActivityType}s which have at least one summary or activity added **/
+	public EnumSet<ActivityType> getActivityTypes() {
+		EnumSet<ActivityType> types = EnumSet.noneOf(ActivityType.class);
+		for (int i = 0; i < ActivityType.COUNT; i++) {
+			if (count[i] > 0) {
+				types.add(ActivityType.fromOrdinal(i));
+			}
+		}
+		return types;
+	}
+}
@@ -0,0 +1,149 @@
+package com.midhunarmid.movesapi.activity;
+
+import java.util.HashMap;
+
+import com.midhunarmid.movesapi.summary.SummaryData;
+
+/**
+ * This enum contains the activities currently supported by Moves. Use it instead of comparing the raw activity
+ * names of {@link ActivityData} and {@link SummaryData}, the raw name is resolved only once per parsed object.<br><br>
+ *
+ * Moves can add new activities at any time, those will be resolved to {@link #UNKNOWN} and the raw name is still
+ * available from <code>getActivity()</code> of the corresponding data object.
+ * @author Midhu
+ * @see <a href="https://dev.moves-app.com/docs/api_activity_list#activity_table">Moves Developer Page for Activity list</a>
+ * @see ActivityTotals
+ */
+public enum ActivityType {
+	UNKNOWN(""),
+	
+	/* Activity groups, also used as activity names */
+	WALKING("walking"),
+	RUNNING("running"),
+	CYCLING("cycling"),
+	TRANSPORT("transport"),
+	
+	/* Transport activities */
+	AIRPLANE("airplane"),
+	BOAT("boat"),
+	BUS("bus"),
+	CAR("car"),
+	FERRY("ferry"),
+	FUNICULAR("funicular"),
+	MOTORCYCLE("motorcycle"),
+	SCOOTER("scooter"),
+	TRAIN("train"),
+	TRAM("tram"),
+	UNDERGROUND("underground"),
+	
+	/* Workouts and sports */
+	AEROBICS("aerobics"),
+	AMERICAN_FOOTBALL("american_football"),
+	BADMINTON("badminton"),
+	BALLET("ballet"),
+	BANDY("bandy"),
+	BASEBALL("baseball"),
+	BASKETBALL("basketball"),
+	BEACH_VOLLEYBALL("beach_volleyball"),
+	BODY_PUMP("body_pump"),
+	BOWLING("bowling"),
+	BOXING("boxing"),
+	CIRCUIT_TRAINING("circuit_training"),
+	CLEANING("cleaning"),
+	CLIMBING("climbing"),
+	CRICKET("cricket"),
+	CROSS_COUNTRY_SKIING("cross_country_skiing"),
+	CROSS_TRAINING("cross_training"),
+	CURLING("curling"),
+	DANCING("dancing"),
+	DISC_ULTIMATE("disc_ultimate"),
+	DOWNHILL_SKIING("downhill_skiing"),
+	ELLIPTICAL_TRAINING("elliptical_training"),
+	EQUESTRIAN("equestrian"),
+	FLOORBALL("floorball"),
+	GOLFING("golfing"),
+	GYM_TRAINING("gym_training"),
+	HANDBALL("handball"),
+	HOCKEY("hockey"),
+	INDOOR_CYCLING("indoor_cycling"),
+	KAYAKING("kayaking"),
+	KETTLEBELL("kettlebell"),
+	KITE_SURFING("kite_surfing"),
+	MARTIAL_ARTS("martial_arts"),
+	PADDLING("paddling"),
+	PAINTBALL("paintball"),
+	PARKOUR("parkour"),
+	PILATES("pilates"),
+	POLO("polo"),
+	RACQUETBALL("racquetball"),
+	ROCK_CLIMBING("rock_climbing"),
+	ROLLER_SKATING("roller_skating"),
+	ROLLER_SKIING("roller_skiing"),
+	ROWING("rowing"),
+	RUGBY("rugby"),
+	RUNNING_ON_TREADMILL("running_on_treadmill"),
+	SCUBA_DIVING("scuba_diving"),
+	SKATEBOARDING("skateboarding"),
+	SKATING("skating"),
+	SNOWBOARDING("snowboarding"),
+	SNOWSHOEING("snowshoeing"),
+	SOCCER("soccer"),
+	SPINNING("spinning"),
+	SQUASH("squash"),
+	STAIR_CLIMBING("stair_climbing"),
+	STRETCHING("stretching"),
+	SURFING("surfing"),
+	SWIMMING("swimming"),
+	TABLE_TENNIS("table_tennis"),
+	TENNIS("tennis"),
+	VOLLEYBALL("volleyball"),
+	WAKEBOARDING("wakeboarding"),
+	WALKING_ON_TREADMILL("walking_on_treadmill"),
+	WATER_POLO("water_polo"),
+	WEIGHT_TRAINING("weight_training"),
+	WHEEL_CHAIR("wheel_chair"),
+	WINDSURFING("windsurfing"),
+	YOGA("yoga"),
+	ZUMBA("zumba");
+	
+	/* Number of activity types, handy to allocate ordinal indexed arrays */
+	public static final int COUNT = values().length;
+	
+	private static final HashMap<String, ActivityType> mByName = new HashMap<String, ActivityType>(COUNT * 2);
+	private static final ActivityType[] mByOrdinal = values();
+	
+	static {
+		for (ActivityType type : mByOrdinal) {
+			mByName.put(type.activityName, type);
+		}
+	}
+	
+	private final String activityName;
+	
+	private ActivityType(String name) {
+		activityName = name;
+	}
+	
+	/** Name of this activity as used by Moves API, blank for {@link #UNKNOWN} **/
+	public String getActivityName() {
+		return activityName;
+	}
+	
+	/**
+	 * Use this method to resolve a raw activity name received from Moves
+	 * @param name : Activity name, for example <code>walking</code> or <code>car</code>
+	 * @return the corresponding {@link ActivityType}, or {@link #UNKNOWN} if the name is <code>null</code> or not known
+	 */
+	public static ActivityType fromString(String name) {
+		if (name == null || name.length() == 0) {
+			return UNKNOWN;
+		}
+		ActivityType type = mByName.get(name);
+		return type != null ? type : UNKNOWN;
+	}
+	
+	/** Gets the {@link ActivityType} with the given ordinal, without allocating a new <code>values()</code> array **/
+	public static ActivityType fromOrdinal(int ordinal) {
+		return mByOrdinal[ordinal];
+	}
+}
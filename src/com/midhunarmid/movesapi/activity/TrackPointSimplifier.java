@@ -0,0 +1,473 @@
+package com.midhunarmid.movesapi.activity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.util.MovesExecutors;
+import com.midhunarmid.movesapi.util.ParseOptions;
+
+/**
+ * Reduces the number of {@link TrackPointsData} of activities, for map rendering and analysis which do not need every
+ * recorded point. Three methods are supported:<code>
+ * <li>DOUGLAS_PEUCKER, keeps the points which deviate more than a tolerance in meters from the simplified line</li>
+ * <li>VISVALINGAM, removes points whose triangle with their neighbours is smaller than an area in square meters</li>
+ * <li>TIME_INTERVAL, keeps at most one point per interval in milliseconds</li></code><br>
+ * The first and last point of an activity are always kept. The algorithms work on primitive arrays and can be used
+ * directly through the static methods. Set a simplifier with {@link ParseOptions#setTrackPointSimplifier(TrackPointSimplifier)}
+ * to simplify all responses of the storyline calls, activities are then simplified in parallel.
+ * @author Midhu
+ * @see ActivityData
+ */
+public class TrackPointSimplifier {
+	
+	/** Simplification methods, see {@link TrackPointSimplifier} **/
+	public enum Method {
+		DOUGLAS_PEUCKER,
+		VISVALINGAM,
+		TIME_INTERVAL
+	}
+	
+	private static final double EARTH_RADIUS	= 6371008.8d;
+	private static final double TO_RADIANS		= Math.PI / 180d;
+	
+	/* Activities with fewer points than this are not worth a task of their own */
+	private static final int MIN_TASK_POINTS	= 2048;
+	
+	/* Scratch arrays of each thread, grown as needed */
+	private static final ThreadLocal<Scratch> mScratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+	
+	private final Method method;
+	private final double tolerance;
+	
+	/**
+	 * Constructor method of {@link TrackPointSimplifier}
+	 * @param method : The simplification {@link Method}
+	 * @param tolerance : Distance in meters for DOUGLAS_PEUCKER, area in square meters for VISVALINGAM, or interval in
+	 * milliseconds for TIME_INTERVAL
+	 */
+	public TrackPointSimplifier(Method method, double tolerance) {
+		if (method == null) {
+			throw new IllegalArgumentException("Method must not be null");
+		}
+		this.method		= method;
+		this.tolerance	= tolerance;
+	}
+	
+	/** Gets a Douglas-Peucker simplifier with the given tolerance in meters **/
+	public static TrackPointSimplifier douglasPeucker(double toleranceMeters) {
+		return new TrackPointSimplifier(Method.DOUGLAS_PEUCKER, toleranceMeters);
+	}
+	
+	/** Gets a Visvalingam-Whyatt simplifier with the given minimum triangle area in square meters **/
+	public static TrackPointSimplifier visvalingam(double minAreaSquareMeters) {
+		return new TrackPointSimplifier(Method.VISVALINGAM, minAreaSquareMeters);
+	}
+	
+	/** Gets a simplifier which keeps at most one point per interval **/
+	public static TrackPointSimplifier timeInterval(long intervalMillis) {
+		return new TrackPointSimplifier(Method.TIME_INTERVAL, intervalMillis);
+	}
+	
+	/** The simplification {@link Method} **/
+	public Method getMethod() {
+		return method;
+	}
+	
+	/** Distance in meters, area in square meters or interval in milliseconds, depending on the {@link Method} **/
+	public double getTolerance() {
+		return tolerance;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Model methods     *************************************************************** **/
+	
+	/**
+	 * Simplifies the track points of all activities of the given storylines. Activities are simplified in parallel
+	 * on the computation pool of {@link MovesExecutors}.
+	 * @param storylines : Storylines to simplify, their activities are updated in place
+	 */
+	public void simplifyStorylines(List<StorylineData> storylines) throws Exception {
+		if (storylines == null) {
+			return;
+		}
+		final ArrayList<ActivityData> activities = new ArrayList<ActivityData>();
+		long points = 0;
+		for (int i = 0; i < storylines.size(); i++) {
+			List<SegmentData> segments = storylines.get(i).getSegments();
+			if (segments == null) continue;
+			for (int j = 0; j < segments.size(); j++) {
+				List<ActivityData> segmentActivities = segments.get(j).getActivities();
+				if (segmentActivities == null) continue;
+				for (int k = 0; k < segmentActivities.size(); k++) {
+					ActivityData activity = segmentActivities.get(k);
+					List<TrackPointsData> trackPoints = activity.getTrackPoints();
+					if (trackPoints != null && trackPoints.size() > 2) {
+						activities.add(activity);
+						points += trackPoints.size();
+					}
+				}
+			}
+		}
+		if (activities.isEmpty()) {
+			return;
+		}
+		int minPartSize = (int) Math.max(1, MIN_TASK_POINTS * activities.size() / points);
+		MovesExecutors.forEachRange(activities.size(), minPartSize, new MovesExecutors.RangeTask() {
+			@Override
+			public void run(int from, int to) {
+				for (int i = from; i < to; i++) {
+					simplify(activities.get(i));
+				}
+			}
+		});
+	}
+	
+	/** Simplifies the track points of an activity in place **/
+	public void simplify(ActivityData activity) {
+		ArrayList<TrackPointsData> trackPoints = activity.getTrackPoints();
+		if (trackPoints != null && trackPoints.size() > 2) {
+			activity.setTrackPoints(simplify(trackPoints));
+		}
+	}
+	
+	/**
+	 * Simplifies a list of track points. Points are taken as they are, if any point has no valid coordinates or time
+	 * the list is returned unchanged.
+	 * @param trackPoints : Track points in time order
+	 * @return a new list with the kept track points
+	 */
+	public ArrayList<TrackPointsData> simplify(List<TrackPointsData> trackPoints) {
+		int count = trackPoints.size();
+		Scratch scratch = mScratch.get();
+		scratch.ensureCapacity(count);
+		double[] lat	= scratch.lat;
+		double[] lon	= scratch.lon;
+		long[] time		= scratch.time;
+		boolean[] keep	= scratch.keep;
+		for (int i = 0; i < count; i++) {
+			TrackPointsData trackPoint = trackPoints.get(i);
+			if (method == Method.TIME_INTERVAL) {
+				time[i] = trackPoint.getTime_Millis(Long.MIN_VALUE);
+				if (time[i] == Long.MIN_VALUE) {
+					return new ArrayList<TrackPointsData>(trackPoints);
+				}
+			} else {
+				lat[i] = trackPoint.getLat_Double(Double.NaN);
+				lon[i] = trackPoint.getLon_Double(Double.NaN);
+				if (Double.isNaN(lat[i]) || Double.isNaN(lon[i])) {
+					return new ArrayList<TrackPointsData>(trackPoints);
+				}
+			}
+		}
+		int kept = simplify(lat, lon, time, count, keep);
+		ArrayList<TrackPointsData> result = new ArrayList<TrackPointsData>(kept);
+		for (int i = 0; i < count; i++) {
+			if (keep[i]) {
+				result.add(trackPoints.get(i));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Simplifies points given as primitive arrays with the {@link Method} of this simplifier
+	 * @param lat : Latitudes in degrees, not used for TIME_INTERVAL
+	 * @param lon : Longitudes in degrees, not used for TIME_INTERVAL
+	 * @param time : Times in milliseconds, only used for TIME_INTERVAL
+	 * @param count : Number of points
+	 * @param keep : Receives <code>true</code> for each point to keep
+	 * @return number of points to keep
+	 */
+	public int simplify(double[] lat, double[] lon, long[] time, int count, boolean[] keep) {
+		switch (method) {
+		case DOUGLAS_PEUCKER:
+			return douglasPeucker(lat, lon, count, tolerance, keep);
+		case VISVALINGAM:
+			return visvalingam(lat, lon, count, tolerance, keep);
+		default:
+			return timeInterval(time, count, (long) tolerance, keep);
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Algorithm methods    ************************************************************ **/
+	
+	/**
+	 * Douglas-Peucker simplification, iterative so that long tracks can not overflow the stack
+	 * @param lat : Latitudes in degrees
+	 * @param lon : Longitudes in degrees
+	 * @param count : Number of points
+	 * @param toleranceMeters : Largest distance of a dropped point to the simplified line
+	 * @param keep : Receives <code>true</code> for each point to keep
+	 * @return number of points to keep
+	 */
+	public static int douglasPeucker(double[] lat, double[] lon, int count, double toleranceMeters, boolean[] keep) {
+		if (count <= 2) {
+			return keepAll(count, keep);
+		}
+		Scratch scratch = mScratch.get();
+		scratch.ensureCapacity(count);
+		double[] x = scratch.x;
+		double[] y = scratch.y;
+		project(lat, lon, count, x, y);
+		int[] stack = scratch.stack;
+		for (int i = 0; i < count; i++) {
+			keep[i] = false;
+		}
+		keep[0] = keep[count - 1] = true;
+		int kept = 2;
+		double tolerance2 = toleranceMeters * toleranceMeters;
+		int top = 0;
+		stack[top++] = 0;
+		stack[top++] = count - 1;
+		while (top > 0) {
+			int end = stack[--top];
+			int start = stack[--top];
+			int farthest = -1;
+			double max = tolerance2;
+			for (int i = start + 1; i < end; i++) {
+				double distance = segmentDistance2(x[i], y[i], x[start], y[start], x[end], y[end]);
+				if (distance > max) {
+					max = distance;
+					farthest = i;
+				}
+			}
+			if (farthest >= 0) {
+				keep[farthest] = true;
+				kept++;
+				if (farthest - start > 1) {
+					stack[top++] = start;
+					stack[top++] = farthest;
+				}
+				if (end - farthest > 1) {
+					stack[top++] = farthest;
+					stack[top++] = end;
+				}
+			}
+		}
+		return kept;
+	}
+	
+	/**
+	 * Visvalingam-Whyatt simplification, repeatedly removes the point with the smallest effective area
+	 * @param lat : Latitudes in degrees
+	 * @param lon : Longitudes in degrees
+	 * @param count : Number of points
+	 * @param minAreaSquareMeters : Points with a smaller effective area are removed
+	 * @param keep : Receives <code>true</code> for each point to keep
+	 * @return number of points to keep
+	 */
+	public static int visvalingam(double[] lat, double[] lon, int count, double minAreaSquareMeters, boolean[] keep) {
+		if (count <= 2) {
+			return keepAll(count, keep);
+		}
+		Scratch scratch = mScratch.get();
+		scratch.ensureCapacity(count);
+		double[] x		= scratch.x;
+		double[] y		= scratch.y;
+		double[] area	= scratch.area;
+		int[] prev		= scratch.prev;
+		int[] next		= scratch.next;
+		int[] heap		= scratch.stack;
+		int[] position	= scratch.position;
+		project(lat, lon, count, x, y);
+	
+		/* Min heap of the inner points by area */
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			keep[i] = true;
+			prev[i] = i - 1;
+			next[i] = i + 1;
+			if (i > 0 && i < count - 1) {
+				area[i] = triangleArea(x, y, i - 1, i, i + 1);
+				heap[size] = i;
+				position[i] = size;
+				size++;
+			}
+		}
+		for (int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(heap, position, area, size, i);
+		}
+		int kept = count;
+		while (size > 0) {
+			int point = heap[0];
+			double pointArea = area[point];
+			if (pointArea >= minAreaSquareMeters) {
+				break;
+			}
+			size--;
+			heap[0] = heap[size];
+			position[heap[0]] = 0;
+			siftDown(heap, position, area, size, 0);
+			keep[point] = false;
+			kept--;
+	
+			int before	= prev[point];
+			int after	= next[point];
+			next[before]	= after;
+			prev[after]		= before;
+			/* Neighbours never get a smaller area than the removed point */
+			if (before > 0) {
+				updateArea(heap, position, area, size, before,
+						Math.max(pointArea, triangleArea(x, y, prev[before], before, after)));
+			}
+			if (after < count - 1) {
+				updateArea(heap, position, area, size, after,
+						Math.max(pointArea, triangleArea(x, y, before, after, next[after])));
+			}
+		}
+		return kept;
+	}
+	
+	/**
+	 * Time based downsampling, keeps a point only if it is at least an interval after the last kept point
+	 * @param time : Times in milliseconds, in increasing order
+	 * @param count : Number of points
+	 * @param intervalMillis : Smallest time between two kept points
+	 * @param keep : Receives <code>true</code> for each point to keep
+	 * @return number of points to keep
+	 */
+	public static int timeInterval(long[] time, int count, long intervalMillis, boolean[] keep) {
+		if (count <= 2) {
+			return keepAll(count, keep);
+		}
+		int kept = 1;
+		keep[0] = true;
+		long last = time[0];
+		for (int i = 1; i < count - 1; i++) {
+			keep[i] = time[i] - last >= intervalMillis;
+			if (keep[i]) {
+				last = time[i];
+				kept++;
+			}
+		}
+		keep[count - 1] = true;
+		return kept + 1;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Geometry helpers    ************************************************************* **/
+	
+	/** Projects coordinates to meters on a plane touching the earth at the first point **/
+	private static void project(double[] lat, double[] lon, int count, double[] x, double[] y) {
+		double scaleY = EARTH_RADIUS * TO_RADIANS;
+		double scaleX = scaleY * Math.cos(lat[0] * TO_RADIANS);
+		for (int i = 0; i < count; i++) {
+			x[i] = (lon[i] - lon[0]) * scaleX;
+			y[i] = (lat[i] - lat[0]) * scaleY;
+		}
+	}
+	
+	/** Squared distance of point p to the segment a-b **/
+	private static double segmentDistance2(double px, double py, double ax, double ay, double bx, double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double length2 = dx * dx + dy * dy;
+		double t = length2 > 0 ? ((px - ax) * dx + (py - ay) * dy) / length2 : 0;
+		if (t < 0) {
+			t = 0;
+		} else if (t > 1) {
+			t = 1;
+		}
+		double ex = px - (ax + t * dx);
+		double ey = py - (ay + t * dy);
+		return ex * ex + ey * ey;
+	}
+	
+	private static double triangleArea(double[] x, double[] y, int a, int b, int c) {
+		return Math.abs((x[b] - x[a]) * (y[c] - y[a]) - (x[c] - x[a]) * (y[b] - y[a])) * 0.5d;
+	}
+	
+	private static void updateArea(int[] heap, int[] position, double[] area, int size, int point, double value) {
+		double old = area[point];
+		area[point] = value;
+		if (value < old) {
+			siftUp(heap, position, area, position[point]);
+		} else {
+			siftDown(heap, position, area, size, position[point]);
+		}
+	}
+	
+	private static void siftUp(int[] heap, int[] position, double[] area, int index) {
+		int point = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (area[heap[parent]] <= area[point]) {
+				break;
+			}
+			heap[index] = heap[parent];
+			position[heap[index]] = index;
+			index = parent;
+		}
+		heap[index] = point;
+		position[point] = index;
+	}
+	
+	private static void siftDown(int[] heap, int[] position, double[] area, int size, int index) {
+		int point = heap[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && area[heap[child + 1]] < area[heap[child]]) {
+				child++;
+			}
+			if (area[heap[child]] >= area[point]) {
+				break;
+			}
+			heap[index] = heap[child];
+			position[heap[index]] = index;
+			index = child;
+		}
+		heap[index] = point;
+		position[point] = index;
+	}
+	
+	private static int keepAll(int count, boolean[] keep) {
+		for (int i = 0; i < count; i++) {
+			keep[i] = true;
+		}
+		return count;
+	}
+	
+	/** Working arrays of one thread **/
+	private static class Scratch {
+		double[] lat	= new double[0];
+		double[] lon	= new double[0];
+		long[] time		= new long[0];
+		boolean[] keep	= new boolean[0];
+		double[] x		= new double[0];
+		double[] y		= new double[0];
+		double[] area	= new double[0];
+		int[] prev		= new int[0];
+		int[] next		= new int[0];
+		int[] stack		= new int[0];
+		int[] position	= new int[0];
+	
+		void ensureCapacity(int count) {
+			if (x.length >= count) {
+				return;
+			}
+			int size = Math.max(count, x.length * 3 / 2);
+			lat		= new double[size];
+			lon		= new double[size];
+			time	= new long[size];
+			keep	= new boolean[size];
+			x		= new double[size];
+			y		= new double[size];
+			area	= new double[size];
+			prev	= new int[size];
+			next	= new int[size];
+			stack	= new int[2 * size];
+			position= new int[size];
+		}
+	}
+}
@@ -1,9 +1,17 @@
 package com.midhunarmid.movesapi.activity;
 
+import java.util.ArrayList;
+
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
+import com.midhunarmid.movesapi.util.JSONStreamReader.Token;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+import com.midhunarmid.movesapi.util.ParsePool;
+import com.midhunarmid.movesapi.util.Utilities;
 
 /**
  * This class holds the Trackpoints Data (usually used within a {@link ActivityData}), and some related methods to handle those data
@@ -15,6 +23,27 @@ public class TrackPointsData {
 	private String lon;
 	private String time;
 	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Get the time stamp as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getTime_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(time, def);
+	}
+	
+	/** Latitude coordinate in degrees <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public double getLat_Double(double def) {
+		return Utilities.parseDouble(lat, def);
+	}
+	
+	/** Longitude coordinate in degrees <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public double getLon_Double(double def) {
+		return Utilities.parseDouble(lon, def);
+	}
+	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Getter methods    *************************************************************** **/
 	
@@ -72,4 +101,77 @@ public class TrackPointsData {
     	return null;
 	}
 	
+	/**
+	 * Parse a trackPoints {@link JSONArray}, then return the corresponding {@link TrackPointsData} objects.
+	 * @param jsonArray : the 'trackPoints' JSON array to parse, may be <code>null</code>
+	 * @return {@link ArrayList} of {@link TrackPointsData}, empty if there are no track points
+	 */
+	public static ArrayList<TrackPointsData> parseList(JSONArray jsonArray) {
+		ArrayList<TrackPointsData> trackPoints = new ArrayList<TrackPointsData>(jsonArray != null ? jsonArray.length() : 0);
+		if (jsonArray != null) {
+			for (int i = 0; i < jsonArray.length(); i++) {
+				JSONObject trackPointJsonObject = jsonArray.optJSONObject(i);
+				if (trackPointJsonObject != null) {
+					trackPoints.add(parse(trackPointJsonObject));
+				}
+			}
+		}
+		return trackPoints;
+	}
+	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"lat", "lon", "time"};
+	
+	/**
+	 * Read a track point JSON object from a {@link JSONStreamReader}, then return the corresponding {@link TrackPointsData} object.
+	 * The object is taken from the {@link ParsePool} of the reader, if it has one.
+	 * @param reader : the reader, positioned at a 'trackPoint' JSON object
+	 * @return corresponding {@link TrackPointsData}
+	 */
+	public static TrackPointsData read(JSONStreamReader reader) throws JSONException {
+		TrackPointsData trackPointsData = ParsePool.obtainTrackPoint(reader.getPool());
+		trackPointsData.lat = trackPointsData.lon = trackPointsData.time = "";
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS)) {
+			case 0:
+				trackPointsData.lat		= reader.optString();
+				break;
+			case 1:
+				trackPointsData.lon		= reader.optString();
+				break;
+			case 2:
+				trackPointsData.time	= reader.optString();
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		return trackPointsData;
+	}
+	
+	/**
+	 * Read a trackPoints JSON array from a {@link JSONStreamReader}, then return the corresponding {@link TrackPointsData} objects.
+	 * @param reader : the reader, positioned at a 'trackPoints' JSON array
+	 * @return {@link ArrayList} of {@link TrackPointsData}, empty if the value is not an array
+	 */
+	public static ArrayList<TrackPointsData> readList(JSONStreamReader reader) throws JSONException {
+		ArrayList<TrackPointsData> trackPoints = ParsePool.obtainList(reader.getPool());
+		if (reader.peek() != Token.BEGIN_ARRAY) {
+			reader.skipValue();
+			return trackPoints;
+		}
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (reader.peek() == Token.BEGIN_OBJECT) {
+				trackPoints.add(read(reader));
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endArray();
+		return trackPoints;
+	}
 }
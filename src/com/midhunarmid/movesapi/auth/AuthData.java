@@ -2,8 +2,11 @@ package com.midhunarmid.movesapi.auth;
 
 import java.util.Calendar;
 
+import org.json.JSONException;
+
 import com.midhunarmid.movesapi.MovesAPI;
 import com.midhunarmid.movesapi.servercalls.HTTPCall;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
 import com.midhunarmid.movesapi.util.MovesAPIPreferences;
 
 /**
@@ -35,6 +38,40 @@ public class AuthData {
 		mRefreshToken = refreshToken;
 	}
 	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"access_token", "user_id", "expires_in", "refresh_token"};
+	
+	/**
+	 * Read the token response of Moves from a {@link JSONStreamReader}, then return the corresponding {@link AuthData} object.
+	 * @param reader : the reader, positioned at the response JSON object
+	 * @return corresponding {@link AuthData}
+	 */
+	public static AuthData read(JSONStreamReader reader) throws JSONException {
+		String accessToken = "", userID = "", expiresIn = "", refreshToken = "";
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS)) {
+			case 0:
+				accessToken		= reader.optString();
+				break;
+			case 1:
+				userID			= reader.optString();
+				break;
+			case 2:
+				expiresIn		= reader.optString();
+				break;
+			case 3:
+				refreshToken	= reader.optString();
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		return new AuthData(accessToken, userID, expiresIn, refreshToken);
+	}
+	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Utility methods   *************************************************************** **/
 	
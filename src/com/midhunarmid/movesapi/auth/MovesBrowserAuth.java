@@ -0,0 +1,182 @@
+package com.midhunarmid.movesapi.auth;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import android.app.Activity;
+import android.content.ActivityNotFoundException;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.midhunarmid.movesapi.MovesAPI;
+import com.midhunarmid.movesapi.MovesHandler;
+import com.midhunarmid.movesapi.servercalls.HTTPCall;
+import com.midhunarmid.movesapi.servercalls.RequestBuilder;
+import com.midhunarmid.movesapi.util.MovesStatus;
+
+/**
+ * Authorizes with Moves in the system browser instead of an embedded {@link android.webkit.WebView}. Browsers which
+ * support Custom Tabs show the login page in a tab on top of the application. The redirect after login is received
+ * by {@link MovesRedirectActivity} and the authorization code is exchanged through {@link HTTPCall}, then the
+ * {@link MovesHandler} is notified with {@link AuthData} just like after {@link MovesLoginFragment}.<br><br>
+ * 
+ * Every login uses a new random <code>state</code> against CSRF and a PKCE code verifier (RFC 7636), so a code
+ * caught by another application which registered the same redirect URL can not be exchanged without the verifier.
+ * The redirect URL of the client must use a scheme of the application, see {@link MovesRedirectActivity}.
+ * @author Midhu
+ * @see MovesAPI#authenticateWithBrowser(MovesHandler, Context)
+ */
+public class MovesBrowserAuth {
+	
+	/* Custom Tabs protocol, an intent with this extra opens in a Custom Tab if the browser supports it */
+	private static final String EXTRA_CUSTOM_TABS_SESSION = "android.support.customtabs.extra.SESSION";
+	
+	private static final char[] BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+	private static final SecureRandom mRandom = new SecureRandom();
+	
+	/* The login in progress, guarded by the class lock */
+	private static MovesHandler<AuthData> mHandler;
+	private static String mState;
+	private static String mCodeVerifier;
+	
+	/**
+	 * Opens the Moves login page in the browser. A login which is still in progress fails with
+	 * {@link MovesStatus#NOT_GRANTED}, only the latest login completes.
+	 * @param context : Starts the browser, an {@link Activity} keeps the browser in the task of the application
+	 * @param handler : An implemented {@link MovesHandler} with {@link AuthData} type. This handler will get notified
+	 * when the login completes.
+	 */
+	public static void start(Context context, MovesHandler<AuthData> handler) {
+		MovesHandler<AuthData> previous;
+		String url;
+		synchronized (MovesBrowserAuth.class) {
+			previous		= mHandler;
+			mHandler		= handler;
+			mState			= randomToken(16);
+			mCodeVerifier	= randomToken(32);
+			url = RequestBuilder.obtain(RequestBuilder.ENDPOINT_AUTHORIZE)
+					.addParam("response_type", "code")
+					.addParam("redirect_uri", MovesAPI.getClientDetails().getRedirectURL())
+					.addParam("client_id", MovesAPI.getClientDetails().getClientID())
+					.addParam("scope", MovesAPI.getClientDetails().getClientScopes())
+					.addParam("state", mState)
+					.addParam("code_challenge", codeChallenge(mCodeVerifier))
+					.addParam("code_challenge_method", "S256")
+					.build();
+		}
+		if (previous != null) {
+			MovesAPI.getCallbackDelivery().wrap(previous).onFailure(MovesStatus.NOT_GRANTED, "Login replaced by a new login");
+		}
+	
+		Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
+		intent.putExtra(EXTRA_CUSTOM_TABS_SESSION, (Bundle) null);
+		if (!(context instanceof Activity)) {
+			intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+		}
+		try {
+			context.startActivity(intent);
+		} catch (ActivityNotFoundException e) {
+			e.printStackTrace();
+			MovesHandler<AuthData> failed = takePending();
+			if (failed != null) {
+				MovesAPI.getCallbackDelivery().wrap(failed).onFailure(MovesStatus.UNEXPECTED_ERROR, "No browser found to log in with");
+			}
+		}
+	}
+	
+	/**
+	 * Completes the login in progress with the redirect received from the browser. Called by
+	 * {@link MovesRedirectActivity}, call it yourself if the redirect is received by an activity of your own.
+	 * @param uri : The redirect URL with the <code>code</code> and <code>state</code> parameters
+	 * @return <code>true</code> if the URL is a redirect of this client, <code>false</code> otherwise
+	 */
+	public static boolean handleRedirect(Uri uri) {
+		if (uri == null || MovesAPI.getClientDetails() == null
+				|| !uri.toString().startsWith(MovesAPI.getClientDetails().getRedirectURL())) {
+			return false;
+		}
+		MovesHandler<AuthData> handler;
+		String codeVerifier;
+		synchronized (MovesBrowserAuth.class) {
+			/* Check the state value for any CSRF problems. A redirect of no login in progress, a stale one from the
+			 * browser history or a forged one is ignored, and leaves the login in progress waiting for its own */
+			if (mHandler == null || !mState.equals(uri.getQueryParameter("state"))) {
+				return true;
+			}
+			codeVerifier	= mCodeVerifier;
+			handler			= takePending();
+		}
+		handler = MovesAPI.getCallbackDelivery().wrap(handler);
+	
+		String authCode = uri.getQueryParameter("code");
+		if (authCode == null || authCode.length() == 0) {
+			handler.onFailure(MovesStatus.NOT_GRANTED, "Permission not granted");
+			return true;
+		}
+		HTTPCall.exchangeAuthCode(authCode, codeVerifier, handler);
+		return true;
+	}
+	
+	/** Cancels the login in progress, its handler fails with {@link MovesStatus#NOT_GRANTED} **/
+	public static void cancel() {
+		MovesHandler<AuthData> handler = takePending();
+		if (handler != null) {
+			MovesAPI.getCallbackDelivery().wrap(handler).onFailure(MovesStatus.NOT_GRANTED, "Login cancelled");
+		}
+	}
+	
+	/** Whether a login waits for its redirect **/
+	public static synchronized boolean isPending() {
+		return mHandler != null;
+	}
+	
+	private static synchronized MovesHandler<AuthData> takePending() {
+		MovesHandler<AuthData> handler = mHandler;
+		mHandler		= null;
+		mState			= null;
+		mCodeVerifier	= null;
+		return handler;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* PKCE methods      *************************************************************** **/
+	
+	/** A random URL safe token of the given number of bytes **/
+	private static String randomToken(int bytes) {
+		byte[] random = new byte[bytes];
+		mRandom.nextBytes(random);
+		return base64Url(random);
+	}
+	
+	/** The S256 code challenge of a code verifier, <code>BASE64URL(SHA256(verifier))</code> **/
+	private static String codeChallenge(String codeVerifier) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return base64Url(digest.digest(codeVerifier.getBytes("US-ASCII")));
+		} catch (Exception e) {
+			/* SHA-256 and US-ASCII are available on every device */
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/** Base64 with the URL safe alphabet and without padding **/
+	private static String base64Url(byte[] data) {
+		StringBuilder sb = new StringBuilder((data.length * 4 + 2) / 3);
+		int i = 0;
+		for (; i + 2 < data.length; i += 3) {
+			int bits = (data[i] & 0xFF) << 16 | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF);
+			sb.append(BASE64_URL[bits >> 18]).append(BASE64_URL[(bits >> 12) & 0x3F])
+					.append(BASE64_URL[(bits >> 6) & 0x3F]).append(BASE64_URL[bits & 0x3F]);
+		}
+		if (i < data.length) {
+			int bits = (data[i] & 0xFF) << 16 | (i + 1 < data.length ? (data[i + 1] & 0xFF) << 8 : 0);
+			sb.append(BASE64_URL[bits >> 18]).append(BASE64_URL[(bits >> 12) & 0x3F]);
+			if (i + 1 < data.length) {
+				sb.append(BASE64_URL[(bits >> 6) & 0x3F]);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -1,13 +1,8 @@
 package com.midhunarmid.movesapi.auth;
 
 import java.lang.reflect.Method;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.HashMap;
 
-import org.json.JSONObject;
-import org.json.JSONTokener;
-
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.ProgressDialog;
@@ -25,10 +20,13 @@ import android.webkit.CookieManager;
 import android.webkit.WebChromeClient;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
+import android.widget.LinearLayout;
 import android.widget.LinearLayout.LayoutParams;
 
 import com.midhunarmid.movesapi.MovesAPI;
 import com.midhunarmid.movesapi.MovesHandler;
+import com.midhunarmid.movesapi.servercalls.HTTPCall;
+import com.midhunarmid.movesapi.servercalls.RequestBuilder;
 import com.midhunarmid.movesapi.util.MovesStatus;
 import com.midhunarmid.movesapi.util.Utilities;
 
@@ -36,7 +34,10 @@ import com.midhunarmid.movesapi.util.Utilities;
  * This {@link DialogFragment} will take user to Moves login page where user can grant access to application.
  * After successful login, the provided {@link MovesHandler} will get notified in its <code>onSuccess()</code> call back
  * with {@link AuthData} result. If some error occurs or user not authenticated the app, then <code>onFailure()</code> 
- * call back will be invoked with corresponding error information
+ * call back will be invoked with corresponding error information<br><br>
+ * 
+ * The {@link WebView} is only created if the Moves app is not installed, and the connection to the token endpoint
+ * is opened while the user logs in, so the code exchange does not wait for a handshake.
  * @author Midhu
  * @see MovesHandler
  * @see MovesStatus
@@ -55,6 +56,7 @@ public class MovesLoginFragment extends DialogFragment {
 	private ProgressDialog 		mDialog;
 	private boolean isLoginSuccess = false;
 	private boolean isBrowserAuth = true;
+	private LinearLayout mContainer;
 	private WebView mAuthWebView;
 	
 	private static MovesHandler<AuthData> mMovesAPIHandler = null;
@@ -71,14 +73,17 @@ public class MovesLoginFragment extends DialogFragment {
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		setStyle(DialogFragment.STYLE_NO_FRAME, getCurrentActivityTheme(getActivity()));
+		
+		/* Both login flows end with the code exchange, start connecting while the user logs in */
+		HTTPCall.prewarmConnection(RequestBuilder.ENDPOINT_ACCESSTOKEN);
 	}
 
 	@Override
 	public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-		mAuthWebView = new WebView(getActivity());
-		LayoutParams layoutParams = new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-		mAuthWebView.setLayoutParams(layoutParams);
-		return mAuthWebView;
+		/* The WebView is added in makeAuthWithBrowser(), only if the Moves app can not be used */
+		mContainer = new LinearLayout(getActivity());
+		mContainer.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+		return mContainer;
 	}
 	
 	@Override
@@ -101,7 +106,11 @@ public class MovesLoginFragment extends DialogFragment {
 	
 	/** If Moves app is not installed, use this method to complete the auth flow **/
 	private void makeAuthWithBrowser() {
-		mAuthWebView.clearCache(true);
+		mAuthWebView = new WebView(getActivity());
+		mAuthWebView.setLayoutParams(new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+		mContainer.addView(mAuthWebView);
+		
+		/* Only the session is cleared, so another user can log in. Cached scripts and styles of the login page stay */
 		CookieManager.getInstance().removeAllCookie();
 		mAuthWebView.setWebViewClient(new WebViewClient() {
 			@Override
@@ -129,7 +138,7 @@ public class MovesLoginFragment extends DialogFragment {
 				super.onPageFinished(view, url);
 				if (url.contains(MovesAPI.getClientDetails().getRedirectURL()) && !url.contains("code=")) {
 					/** User not authenticated our app **/
-					mMovesAPIHandler.onFailure(MovesStatus.NOT_GRANTED, "Permission not granted");
+					MovesAPI.getCallbackDelivery().wrap(mMovesAPIHandler).onFailure(MovesStatus.NOT_GRANTED, "Permission not granted");
 					dismiss();
 				} else if (!url.contains("code=")) {
 					killProgressDialog();
@@ -157,17 +166,13 @@ public class MovesLoginFragment extends DialogFragment {
 	
     /** This method will return the auth URL to load in browser (use if Moves App is not present) **/
     private String createAuthWithWebUrl() {
-    	String authURL = "";
-		/* Exchange the authorization code we obtained after login to get access token */
-		HashMap<String, String> nameValuePairs = new HashMap<String, String>();
-		nameValuePairs.put("response_type", "code");
-		nameValuePairs.put("redirect_uri", MovesAPI.getClientDetails().getRedirectURL());
-		nameValuePairs.put("client_id", MovesAPI.getClientDetails().getClientID());
-		nameValuePairs.put("scope", MovesAPI.getClientDetails().getClientScopes());
-		nameValuePairs.put("state", mState);
-		
-    	authURL = MovesAPI.API_AUTH_BASE + MovesAPI.API_PATH_AUTHORIZE + "?" + Utilities.encodeUrl(nameValuePairs);
-    	return authURL;
+		return RequestBuilder.obtain(RequestBuilder.ENDPOINT_AUTHORIZE)
+				.addParam("response_type", "code")
+				.addParam("redirect_uri", MovesAPI.getClientDetails().getRedirectURL())
+				.addParam("client_id", MovesAPI.getClientDetails().getClientID())
+				.addParam("scope", MovesAPI.getClientDetails().getClientScopes())
+				.addParam("state", mState)
+				.build();
     }
     
     @Override
@@ -194,7 +199,7 @@ public class MovesLoginFragment extends DialogFragment {
 	            }
         	}
             /* If execution reaches here it means the authentication flow failed due to some reasons */
-            mMovesAPIHandler.onFailure(MovesStatus.NOT_GRANTED, "Permission not granted");
+            MovesAPI.getCallbackDelivery().wrap(mMovesAPIHandler).onFailure(MovesStatus.NOT_GRANTED, "Permission not granted");
             dismiss();
             break;
         }
@@ -206,75 +211,81 @@ public class MovesLoginFragment extends DialogFragment {
      */
 	private void performLoginSuccess(final String authCode) {
 		showProgressDialog();
-		new Thread(new Runnable() {
+		final MovesHandler<AuthData> handler = MovesAPI.getCallbackDelivery().wrap(mMovesAPIHandler);
+		HTTPCall.exchangeAuthCode(authCode, new MovesHandler<AuthData>() {
+			@Override
+			public void onSuccess(AuthData result) {
+				killProgressDialog();
+				handler.onSuccess(result);
+				dismissOnUiThread();
+			}
+			
 			@Override
-			public void run() {
-				try {
-					/* Exchange the authorization code we obtained after login to get access token */
-					HashMap<String, String> nameValuePairs = new HashMap<String, String>();
-					nameValuePairs.put("grant_type", "authorization_code");
-					nameValuePairs.put("code", authCode);
-					nameValuePairs.put("redirect_uri", MovesAPI.getClientDetails().getRedirectURL());
-					nameValuePairs.put("client_id", MovesAPI.getClientDetails().getClientID());
-					nameValuePairs.put("client_secret", MovesAPI.getClientDetails().getClientSecret());
-					
-					URL url 	= new URL(MovesAPI.API_AUTH_BASE + MovesAPI.API_PATH_ACCESSTOKEN + "?" + Utilities.encodeUrl(nameValuePairs));
-					HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-					urlConnection.setRequestMethod("POST");
-					urlConnection.setDoInput(true);
-					urlConnection.connect();
-					
-					if (urlConnection.getResponseCode() != 200) {
-						/* All other HTTP errors from Moves will fall here */
-						mMovesAPIHandler.onFailure(MovesStatus.AUTH_FAILED, "Auth request to Moves server failed");
-						dismiss();
+			public void onFailure(MovesStatus status, String message) {
+				killProgressDialog();
+				handler.onFailure(status, message);
+				dismissOnUiThread();
+			}
+		});
+	}
+	
+	/** The code exchange completes on a background thread, the dialog can only be dismissed on the UI thread **/
+	private void dismissOnUiThread() {
+		Activity activity = getActivity();
+		if (activity != null) {
+			activity.runOnUiThread(new Runnable() {
+				@Override
+				public void run() {
+					if (isAdded()) {
+						dismissAllowingStateLoss();
 					}
-					
-					String response		= Utilities.readStream(urlConnection.getInputStream());
-					JSONObject jsonObj 	= (JSONObject) new JSONTokener(response).nextValue();
-					String token		= jsonObj.optString("access_token");
-					String user_id		= jsonObj.optString("user_id");
-					String expires_in	= jsonObj.optString("expires_in");
-					String refresh_token= jsonObj.optString("refresh_token");
-					
-					AuthData.setAccessExpiryInPreference(token, user_id, expires_in, refresh_token);
-					killProgressDialog();
-					
-					AuthData authData = new AuthData(token, user_id, expires_in, refresh_token);
-					mMovesAPIHandler.onSuccess(authData);
-					dismiss();
-				} catch (Exception ex) {
-					ex.printStackTrace();
-					killProgressDialog();
-					mMovesAPIHandler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
-					dismiss();
 				}
-			}
-		}).start();
+			});
+		}
 	}
 	
 	private void showProgressDialog() {
-		if (mDialog != null && !mDialog.isShowing()) {
-			getActivity().runOnUiThread(new Runnable() {
+		final ProgressDialog dialog = mDialog;
+		Activity activity = getActivity();
+		if (dialog != null && activity != null) {
+			activity.runOnUiThread(new Runnable() {
 				@Override
 				public void run() {
-					mDialog.show();
+					if (!dialog.isShowing()) {
+						dialog.show();
+					}
 				}
 			});
 		}
 	}
 
+	/** May be called from the io thread of the code exchange, the fragment might be detached by then **/
 	private void killProgressDialog() {
-		if (mDialog != null && mDialog.isShowing()) {
-			getActivity().runOnUiThread(new Runnable() {
+		final ProgressDialog dialog = mDialog;
+		Activity activity = getActivity();
+		if (dialog != null && activity != null) {
+			activity.runOnUiThread(new Runnable() {
 				@Override
 				public void run() {
-					mDialog.dismiss();
+					if (dialog.isShowing()) {
+						dialog.dismiss();
+					}
 				}
 			});
 		}
 	}
 
+	@Override
+	public void onDestroyView() {
+		super.onDestroyView();
+		if (mAuthWebView != null) {
+			mAuthWebView.stopLoading();
+			mContainer.removeView(mAuthWebView);
+			mAuthWebView.destroy();
+			mAuthWebView = null;
+		}
+	}
+	
 	@Override
 	public void onDestroy() {
 		super.onDestroy();
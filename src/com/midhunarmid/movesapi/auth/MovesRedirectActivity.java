@@ -0,0 +1,45 @@
+package com.midhunarmid.movesapi.auth;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+
+/**
+ * Receives the redirect of {@link MovesBrowserAuth} from the browser and finishes right away. Declare it in the
+ * manifest of your application with an intent filter for the redirect URL of your client, for example for
+ * <code>myapp://moves-auth</code>:<pre>
+ * &lt;activity android:name="com.midhunarmid.movesapi.auth.MovesRedirectActivity"
+ *     android:launchMode="singleTask"
+ *     android:noHistory="true"
+ *     android:theme="@android:style/Theme.NoDisplay" &gt;
+ *     &lt;intent-filter&gt;
+ *         &lt;action android:name="android.intent.action.VIEW" /&gt;
+ *         &lt;category android:name="android.intent.category.DEFAULT" /&gt;
+ *         &lt;category android:name="android.intent.category.BROWSABLE" /&gt;
+ *         &lt;data android:scheme="myapp" android:host="moves-auth" /&gt;
+ *     &lt;/intent-filter&gt;
+ * &lt;/activity&gt;</pre>
+ * @author Midhu
+ * @see MovesBrowserAuth
+ */
+public class MovesRedirectActivity extends Activity {
+	
+	@Override
+	protected void onCreate(Bundle savedInstanceState) {
+		super.onCreate(savedInstanceState);
+		handleRedirect(getIntent());
+	}
+	
+	@Override
+	protected void onNewIntent(Intent intent) {
+		super.onNewIntent(intent);
+		handleRedirect(intent);
+	}
+	
+	private void handleRedirect(Intent intent) {
+		if (intent != null) {
+			MovesBrowserAuth.handleRedirect(intent.getData());
+		}
+		finish();
+	}
+}
@@ -0,0 +1,107 @@
+package com.midhunarmid.movesapi.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+
+/**
+ * Exports the track points of storylines as CSV, one row per track point with the columns
+ * <code>date,activity,group,time,lat,lon</code>. Times are written in ISO 8601 UTC, coordinates as received.
+ * @author Midhu
+ * @see StorylineExporter
+ */
+public class CsvExporter extends StorylineExporter {
+	
+	/** Creates a CSV exporter writing to an {@link OutputStream} **/
+	public CsvExporter(OutputStream stream) throws IOException {
+		super(stream);
+	}
+	
+	/** Creates a CSV exporter writing to a {@link WritableByteChannel} **/
+	public CsvExporter(WritableByteChannel channel) {
+		super(channel);
+	}
+	
+	@Override
+	protected void writeHeader() throws IOException {
+		mWriter.write("date,activity,group,time,lat,lon\n");
+	}
+	
+	@Override
+	protected void writeDay(StorylineData storyline) throws IOException {
+		ArrayList<SegmentData> segments = storyline.getSegments();
+		if (segments == null) {
+			return;
+		}
+		for (int i = 0; i < segments.size(); i++) {
+			ArrayList<ActivityData> activities = segments.get(i).getActivities();
+			if (activities == null) {
+				continue;
+			}
+			for (int j = 0; j < activities.size(); j++) {
+				writeActivity(storyline.getDate(), activities.get(j));
+			}
+		}
+	}
+	
+	private void writeActivity(String date, ActivityData activity) throws IOException {
+		ArrayList<TrackPointsData> trackPoints = activity.getTrackPoints();
+		if (trackPoints == null) {
+			return;
+		}
+		String name = getActivityName(activity);
+		for (int i = 0; i < trackPoints.size(); i++) {
+			TrackPointsData trackPoint = trackPoints.get(i);
+			if (!hasPosition(trackPoint)) {
+				continue;
+			}
+			writeField(date);
+			mWriter.write(',');
+			writeField(name);
+			mWriter.write(',');
+			writeField(activity.getGroup());
+			mWriter.write(',');
+			writeField(formatTime(trackPoint.getTime()));
+			mWriter.write(',');
+			mWriter.write(trackPoint.getLat());
+			mWriter.write(',');
+			mWriter.write(trackPoint.getLon());
+			mWriter.write('\n');
+		}
+	}
+	
+	@Override
+	protected void writeFooter() throws IOException {
+	}
+	
+	/** Writes a field, quoted if it contains a separator, a quote or a line break **/
+	private void writeField(String value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char ch = value.charAt(i);
+			quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+		}
+		if (!quote) {
+			mWriter.write(value);
+			return;
+		}
+		mWriter.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"') {
+				mWriter.write('"');
+			}
+			mWriter.write(ch);
+		}
+		mWriter.write('"');
+	}
+}
@@ -0,0 +1,182 @@
+package com.midhunarmid.movesapi.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.place.LocationData;
+import com.midhunarmid.movesapi.place.PlaceData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+
+/**
+ * Exports storylines as a GeoJSON <code>FeatureCollection</code>. Every activity with track points becomes a
+ * <code>LineString</code> feature, or a <code>Point</code> feature if only one of its track points has a position.
+ * Every place with a location becomes a <code>Point</code> feature. Features carry the Moves values of the activity
+ * or place as properties.
+ * @author Midhu
+ * @see StorylineExporter
+ */
+public class GeoJsonExporter extends StorylineExporter {
+	
+	private boolean mFirstFeature = true;
+	
+	/** Creates a GeoJSON exporter writing to an {@link OutputStream} **/
+	public GeoJsonExporter(OutputStream stream) throws IOException {
+		super(stream);
+	}
+	
+	/** Creates a GeoJSON exporter writing to a {@link WritableByteChannel} **/
+	public GeoJsonExporter(WritableByteChannel channel) {
+		super(channel);
+	}
+	
+	@Override
+	protected void writeHeader() throws IOException {
+		mWriter.write("{\"type\":\"FeatureCollection\",\"features\":[");
+	}
+	
+	@Override
+	protected void writeDay(StorylineData storyline) throws IOException {
+		ArrayList<SegmentData> segments = storyline.getSegments();
+		if (segments == null) {
+			return;
+		}
+		for (int i = 0; i < segments.size(); i++) {
+			SegmentData segment = segments.get(i);
+			if (segment.getPlace() != null) {
+				writePlace(storyline.getDate(), segment);
+			}
+			ArrayList<ActivityData> activities = segment.getActivities();
+			if (activities == null) {
+				continue;
+			}
+			for (int j = 0; j < activities.size(); j++) {
+				writeActivity(storyline.getDate(), activities.get(j));
+			}
+		}
+	}
+	
+	private void writePlace(String date, SegmentData segment) throws IOException {
+		PlaceData place = segment.getPlace();
+		LocationData location = place.getLocation();
+		if (location == null || !isNumber(location.getLat()) || !isNumber(location.getLon())) {
+			return;
+		}
+		startFeature();
+		mWriter.write("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[");
+		mWriter.write(location.getLon());
+		mWriter.write(',');
+		mWriter.write(location.getLat());
+		mWriter.write("]},\"properties\":{\"date\":");
+		writeString(date);
+		mWriter.write(",\"placeId\":");
+		writeString(place.getId());
+		mWriter.write(",\"name\":");
+		writeString(place.getName());
+		mWriter.write(",\"placeType\":");
+		writeString(place.getType());
+		mWriter.write(",\"startTime\":");
+		writeString(formatTime(segment.getStartTime()));
+		mWriter.write(",\"endTime\":");
+		writeString(formatTime(segment.getEndTime()));
+		mWriter.write("}}");
+	}
+	
+	private void writeActivity(String date, ActivityData activity) throws IOException {
+		ArrayList<TrackPointsData> trackPoints = activity.getTrackPoints();
+		if (trackPoints == null) {
+			return;
+		}
+		int positions = 0;
+		for (int i = 0; i < trackPoints.size(); i++) {
+			if (hasPosition(trackPoints.get(i))) {
+				positions++;
+			}
+		}
+		if (positions == 0) {
+			return;
+		}
+		startFeature();
+		/* A LineString needs two or more positions, a single one is written as a Point */
+		if (positions == 1) {
+			mWriter.write("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":");
+		} else {
+			mWriter.write("{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+		}
+		boolean first = true;
+		for (int i = 0; i < trackPoints.size(); i++) {
+			TrackPointsData trackPoint = trackPoints.get(i);
+			if (!hasPosition(trackPoint)) {
+				continue;
+			}
+			mWriter.write(first ? "[" : ",[");
+			first = false;
+			mWriter.write(trackPoint.getLon());
+			mWriter.write(',');
+			mWriter.write(trackPoint.getLat());
+			mWriter.write(']');
+		}
+		mWriter.write(positions == 1 ? "}" : "]}");
+		mWriter.write(",\"properties\":{\"date\":");
+		writeString(date);
+		mWriter.write(",\"activity\":");
+		writeString(getActivityName(activity));
+		mWriter.write(",\"group\":");
+		writeString(activity.getGroup());
+		mWriter.write(",\"startTime\":");
+		writeString(formatTime(activity.getStartTime()));
+		mWriter.write(",\"endTime\":");
+		writeString(formatTime(activity.getEndTime()));
+		mWriter.write(",\"duration\":");
+		writeNumber(activity.getDuration());
+		mWriter.write(",\"distance\":");
+		writeNumber(activity.getDistance());
+		mWriter.write(",\"steps\":");
+		writeNumber(activity.getSteps());
+		mWriter.write(",\"calories\":");
+		writeNumber(activity.getCalories());
+		mWriter.write("}}");
+	}
+	
+	@Override
+	protected void writeFooter() throws IOException {
+		mWriter.write("]}\n");
+	}
+	
+	private void startFeature() throws IOException {
+		if (mFirstFeature) {
+			mFirstFeature = false;
+			mWriter.write('\n');
+		} else {
+			mWriter.write(",\n");
+		}
+	}
+	
+	private void writeNumber(String value) throws IOException {
+		mWriter.write(isNumber(value) ? value : "null");
+	}
+	
+	private void writeString(String value) throws IOException {
+		if (value == null) {
+			mWriter.write("null");
+			return;
+		}
+		mWriter.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"' || ch == '\\') {
+				mWriter.write('\\');
+				mWriter.write(ch);
+			} else if (ch < 0x20) {
+				mWriter.write(String.format("\\u%04x", (int) ch));
+			} else {
+				mWriter.write(ch);
+			}
+		}
+		mWriter.write('"');
+	}
+}
@@ -0,0 +1,115 @@
+package com.midhunarmid.movesapi.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+
+/**
+ * Exports storylines as GPX 1.1. Every activity with track points becomes a track of one segment, named after the
+ * activity and its start time. Places are not written, GPX needs waypoints before all tracks and days are written
+ * as they come.
+ * @author Midhu
+ * @see StorylineExporter
+ */
+public class GpxExporter extends StorylineExporter {
+	
+	/** Creates a GPX exporter writing to an {@link OutputStream} **/
+	public GpxExporter(OutputStream stream) throws IOException {
+		super(stream);
+	}
+	
+	/** Creates a GPX exporter writing to a {@link WritableByteChannel} **/
+	public GpxExporter(WritableByteChannel channel) {
+		super(channel);
+	}
+	
+	@Override
+	protected void writeHeader() throws IOException {
+		mWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		mWriter.write("<gpx version=\"1.1\" creator=\"moves-android-api-library\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n");
+	}
+	
+	@Override
+	protected void writeDay(StorylineData storyline) throws IOException {
+		ArrayList<SegmentData> segments = storyline.getSegments();
+		if (segments == null) {
+			return;
+		}
+		for (int i = 0; i < segments.size(); i++) {
+			ArrayList<ActivityData> activities = segments.get(i).getActivities();
+			if (activities == null) {
+				continue;
+			}
+			for (int j = 0; j < activities.size(); j++) {
+				writeTrack(activities.get(j));
+			}
+		}
+	}
+	
+	private void writeTrack(ActivityData activity) throws IOException {
+		ArrayList<TrackPointsData> trackPoints = activity.getTrackPoints();
+		if (trackPoints == null || trackPoints.isEmpty()) {
+			return;
+		}
+		String name = getActivityName(activity);
+		String startTime = formatTime(activity.getStartTime());
+		mWriter.write("<trk><name>");
+		writeEscaped(startTime != null ? name + ' ' + startTime : name);
+		mWriter.write("</name><type>");
+		writeEscaped(name);
+		mWriter.write("</type><trkseg>\n");
+		for (int i = 0; i < trackPoints.size(); i++) {
+			TrackPointsData trackPoint = trackPoints.get(i);
+			if (!hasPosition(trackPoint)) {
+				continue;
+			}
+			mWriter.write("<trkpt lat=\"");
+			mWriter.write(trackPoint.getLat());
+			mWriter.write("\" lon=\"");
+			mWriter.write(trackPoint.getLon());
+			String time = formatTime(trackPoint.getTime());
+			if (time != null) {
+				mWriter.write("\"><time>");
+				mWriter.write(time);
+				mWriter.write("</time></trkpt>\n");
+			} else {
+				mWriter.write("\"/>\n");
+			}
+		}
+		mWriter.write("</trkseg></trk>\n");
+	}
+	
+	@Override
+	protected void writeFooter() throws IOException {
+		mWriter.write("</gpx>\n");
+	}
+	
+	private void writeEscaped(String value) throws IOException {
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			switch (ch) {
+			case '<':
+				mWriter.write("&lt;");
+				break;
+			case '>':
+				mWriter.write("&gt;");
+				break;
+			case '&':
+				mWriter.write("&amp;");
+				break;
+			case '"':
+				mWriter.write("&quot;");
+				break;
+			default:
+				mWriter.write(ch);
+				break;
+			}
+		}
+	}
+}
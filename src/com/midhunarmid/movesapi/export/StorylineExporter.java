@@ -0,0 +1,249 @@
+package com.midhunarmid.movesapi.export;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+import com.midhunarmid.movesapi.MovesHandler;
+import com.midhunarmid.movesapi.MovesStreamHandler;
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.util.MovesStatus;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
+/**
+ * Base class of the exporters, which write storylines into a file format one day at a time. Nothing but the day
+ * being written is held, so an export of any length runs in constant memory if the days come from
+ * {@link com.midhunarmid.movesapi.MovesAPI#streamStoryline_WithinRange} through {@link #asStreamHandler(MovesHandler)}
+ * or from a {@link com.midhunarmid.movesapi.storage.StorylineStore} one day at a time.<br><br>
+ * 
+ * The header of the format is written with the first day, the footer by <code>finish()</code> or <code>close()</code>.
+ * Output is UTF-8 and buffered, an exporter is not thread safe.
+ * @author Midhu
+ * @see GpxExporter
+ * @see GeoJsonExporter
+ * @see CsvExporter
+ */
+public abstract class StorylineExporter implements Closeable {
+	
+	private static final int BUFFER_SIZE = 8192;
+	
+	protected final Writer mWriter;
+	private boolean mStarted;
+	private boolean mFinished;
+	private int mDays;
+	
+	/** Creates an exporter writing to an {@link OutputStream} **/
+	protected StorylineExporter(OutputStream stream) throws IOException {
+		this(new OutputStreamWriter(stream, "UTF-8"));
+	}
+	
+	/** Creates an exporter writing to a {@link WritableByteChannel}, for example of a {@link java.io.FileOutputStream} **/
+	protected StorylineExporter(WritableByteChannel channel) {
+		this(Channels.newWriter(channel, "UTF-8"));
+	}
+	
+	private StorylineExporter(Writer writer) {
+		mWriter = new BufferedWriter(writer, BUFFER_SIZE);
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Export methods    *************************************************************** **/
+	
+	/** Writes one day **/
+	public void write(StorylineData storyline) throws IOException {
+		if (mFinished) {
+			throw new IOException("Export is already finished");
+		}
+		if (!mStarted) {
+			mStarted = true;
+			writeHeader();
+		}
+		if (storyline != null) {
+			writeDay(storyline);
+			mDays++;
+		}
+	}
+	
+	/** Writes all the given days, in order **/
+	public void writeAll(List<StorylineData> storylines) throws IOException {
+		if (storylines != null) {
+			for (int i = 0; i < storylines.size(); i++) {
+				write(storylines.get(i));
+			}
+		}
+	}
+	
+	/** Writes the footer and flushes, no more days can be written. The stream is left open **/
+	public void finish() throws IOException {
+		if (!mStarted) {
+			mStarted = true;
+			writeHeader();
+		}
+		if (!mFinished) {
+			mFinished = true;
+			writeFooter();
+		}
+		mWriter.flush();
+	}
+	
+	/** Finishes the export and closes the stream **/
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		} finally {
+			mWriter.close();
+		}
+	}
+	
+	/** Number of days written so far **/
+	public int getDayCount() {
+		return mDays;
+	}
+	
+	/**
+	 * Gets a {@link MovesStreamHandler} which writes every day it receives and closes this exporter once the stream
+	 * completes. The days are written on the thread of the {@link com.midhunarmid.movesapi.util.CallbackDelivery},
+	 * so do not stream exports with the main thread delivery.
+	 * @param handler : Gets the number of days written, or the failure of the request or of writing
+	 */
+	public MovesStreamHandler<StorylineData> asStreamHandler(final MovesHandler<Integer> handler) {
+		return new MovesStreamHandler<StorylineData>() {
+			private boolean failed;
+	
+			@Override
+			public void onItem(StorylineData item) {
+				if (failed) {
+					return;
+				}
+				try {
+					write(item);
+				} catch (IOException e) {
+					e.printStackTrace();
+					failed = true;
+					closeQuietly();
+					handler.onFailure(MovesStatus.UNEXPECTED_ERROR, "Export failed : " + e.getMessage());
+				}
+			}
+	
+			@Override
+			public void onProgress(long bytesRead, long total) {
+			}
+	
+			@Override
+			public void onComplete() {
+				if (failed) {
+					return;
+				}
+				try {
+					close();
+					handler.onSuccess(getDayCount());
+				} catch (IOException e) {
+					e.printStackTrace();
+					handler.onFailure(MovesStatus.UNEXPECTED_ERROR, "Export failed : " + e.getMessage());
+				}
+			}
+	
+			@Override
+			public void onFailure(MovesStatus status, String message) {
+				if (failed) {
+					return;
+				}
+				failed = true;
+				closeQuietly();
+				handler.onFailure(status, message);
+			}
+		};
+	}
+	
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Format methods    *************************************************************** **/
+	
+	/** Writes the start of the file, before the first day **/
+	protected abstract void writeHeader() throws IOException;
+	
+	/** Writes one day **/
+	protected abstract void writeDay(StorylineData storyline) throws IOException;
+	
+	/** Writes the end of the file, after the last day **/
+	protected abstract void writeFooter() throws IOException;
+	
+	/** Whether a track point has a valid position, its coordinates are then written as received, without formatting **/
+	protected static boolean hasPosition(TrackPointsData trackPoint) {
+		return trackPoint != null && isNumber(trackPoint.getLat()) && isNumber(trackPoint.getLon());
+	}
+	
+	/** Whether a value received as text is a number in JSON syntax, and so can be written into any format as it is **/
+	protected static boolean isNumber(String value) {
+		if (value == null) {
+			return false;
+		}
+		int length = value.length();
+		int i = 0;
+		if (i < length && value.charAt(i) == '-') {
+			i++;
+		}
+		int digits = skipDigits(value, i);
+		if (digits == i) {
+			return false;
+		}
+		i = digits;
+		if (i < length && value.charAt(i) == '.') {
+			digits = skipDigits(value, i + 1);
+			if (digits == i + 1) {
+				return false;
+			}
+			i = digits;
+		}
+		if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+			i++;
+			if (i < length && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+				i++;
+			}
+			digits = skipDigits(value, i);
+			if (digits == i) {
+				return false;
+			}
+			i = digits;
+		}
+		return i == length;
+	}
+	
+	private static int skipDigits(String value, int index) {
+		while (index < value.length() && value.charAt(index) >= '0' && value.charAt(index) <= '9') {
+			index++;
+		}
+		return index;
+	}
+	
+	/** Formats a time of Moves in ISO 8601 UTC, or returns <code>null</code> if it is not valid **/
+	protected static String formatTime(String movesTime) {
+		long millis = MovesTimeFormat.parseDateTime(movesTime, Long.MIN_VALUE);
+		return millis == Long.MIN_VALUE ? null : MovesTimeFormat.formatISO8601(millis);
+	}
+	
+	/** The name of an activity, its <code>activity</code> value or its group for old data without one **/
+	protected static String getActivityName(ActivityData activity) {
+		String name = activity.getActivity();
+		if (name == null || name.length() == 0) {
+			name = activity.getGroup();
+		}
+		return name != null ? name : "";
+	}
+}
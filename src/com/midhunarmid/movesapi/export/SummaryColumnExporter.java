@@ -0,0 +1,273 @@
+package com.midhunarmid.movesapi.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.midhunarmid.movesapi.summary.SummaryData;
+import com.midhunarmid.movesapi.summary.SummaryListData;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
+/**
+ * Exports daily summaries as typed columns, for analytics tools which load whole columns into arrays instead of
+ * reading rows. Every {@link SummaryData} is a row with the columns date, activity, duration, distance, steps and
+ * calories. Rows are buffered in primitive arrays and written in batches, so memory stays constant however many
+ * days are exported.<br><br>
+ * 
+ * The file is little endian and has this layout:<pre>
+ * file       : "MVSC" version:int8 batch* end:int32(0)
+ * batch      : rows:int32 dictionary date activity duration distance steps calories
+ * dictionary : count:int32 (length:int32 utf8:int8[length])*  activity names added by this batch
+ * date       : int32[rows]                  days since Jan. 1, 1970
+ * activity   : int32[rows]                  index into all dictionary entries written so far
+ * duration.. : valid:int8[(rows + 7) / 8]   bit (i % 8) of byte (i / 8) set if row i has a value
+ *              int64[rows]                  the values, 0 where not valid</pre>
+ * A {@link SummaryColumnExporter} is not thread safe.
+ * @author Midhu
+ * @see StorylineExporter
+ */
+public class SummaryColumnExporter implements Closeable {
+	
+	public static final byte[] MAGIC		= {'M', 'V', 'S', 'C'};
+	public static final int VERSION			= 1;
+	public static final int DEFAULT_BATCH_ROWS	= 65536;
+	
+	private static final long MILLIS_PER_DAY = 86400000L;
+	private static final int VALUE_COLUMNS = 4;
+	
+	private final WritableByteChannel mChannel;
+	private final int mBatchRows;
+	private boolean mStarted;
+	private boolean mClosed;
+	private long mRowCount;
+	
+	/* Columns of the current batch */
+	private final int[] mDates;
+	private final int[] mActivities;
+	private final long[][] mValues;
+	private final byte[][] mValid;
+	private int mRows;
+	
+	/* Dictionary of activity names, and the names added since the last batch */
+	private final HashMap<String, Integer> mDictionary = new HashMap<String, Integer>();
+	private final ArrayList<String> mNewNames = new ArrayList<String>();
+	
+	private ByteBuffer mBuffer = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+	
+	/** Creates an exporter writing to an {@link OutputStream}, with batches of {@link #DEFAULT_BATCH_ROWS} rows **/
+	public SummaryColumnExporter(OutputStream stream) {
+		this(Channels.newChannel(stream), DEFAULT_BATCH_ROWS);
+	}
+	
+	/**
+	 * Creates an exporter writing to a {@link WritableByteChannel}
+	 * @param channel : Where to write the file
+	 * @param batchRows : Number of rows per batch, larger batches load faster and need more memory
+	 */
+	public SummaryColumnExporter(WritableByteChannel channel, int batchRows) {
+		mChannel	= channel;
+		mBatchRows	= Math.max(1, batchRows);
+		mDates		= new int[mBatchRows];
+		mActivities	= new int[mBatchRows];
+		mValues		= new long[VALUE_COLUMNS][mBatchRows];
+		mValid		= new byte[VALUE_COLUMNS][(mBatchRows + 7) / 8];
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Export methods    *************************************************************** **/
+	
+	/** Writes all summaries of the given days, as received from the summary calls of Moves API **/
+	public void writeAll(List<SummaryListData> days) throws IOException {
+		if (days != null) {
+			for (int i = 0; i < days.size(); i++) {
+				write(days.get(i));
+			}
+		}
+	}
+	
+	/** Writes all summaries of one day, days without a valid date are skipped **/
+	public void write(SummaryListData day) throws IOException {
+		if (day == null || day.getSummaries() == null) {
+			return;
+		}
+		long dateMillis = MovesTimeFormat.parseDateUTC(day.getDate(), Long.MIN_VALUE);
+		if (dateMillis == Long.MIN_VALUE) {
+			return;
+		}
+		int date = (int) (dateMillis / MILLIS_PER_DAY);
+		ArrayList<SummaryData> summaries = day.getSummaries();
+		for (int i = 0; i < summaries.size(); i++) {
+			SummaryData summary = summaries.get(i);
+			if (summary != null) {
+				addRow(date, summary.getActivity(), summary.geDuration_Long(Long.MIN_VALUE),
+						summary.geDistance_Long(Long.MIN_VALUE), summary.geSteps_Long(Long.MIN_VALUE),
+						summary.geCalories_Long(Long.MIN_VALUE));
+			}
+		}
+	}
+	
+	/**
+	 * Writes one row
+	 * @param date : Days since Jan. 1, 1970
+	 * @param activity : Name of the activity, <code>null</code> is written as an empty name
+	 * @param duration : Duration in seconds, {@link Long#MIN_VALUE} if not known. Likewise for the other values
+	 * @param distance : Distance in meters
+	 * @param steps : Step count
+	 * @param calories : Calories in kcal
+	 */
+	public void addRow(int date, String activity, long duration, long distance, long steps, long calories) throws IOException {
+		if (mClosed) {
+			throw new IOException("Exporter is closed");
+		}
+		int row = mRows;
+		mDates[row]			= date;
+		mActivities[row]	= getActivityIndex(activity != null ? activity : "");
+		setValue(0, row, duration);
+		setValue(1, row, distance);
+		setValue(2, row, steps);
+		setValue(3, row, calories);
+		mRowCount++;
+		if (++mRows == mBatchRows) {
+			writeBatch();
+		}
+	}
+	
+	/** Writes the rows buffered so far as a batch and flushes them to the channel **/
+	public void flush() throws IOException {
+		if (mRows > 0) {
+			writeBatch();
+		}
+	}
+	
+	/** Writes the last batch and the end marker, then closes the channel **/
+	@Override
+	public void close() throws IOException {
+		if (mClosed) {
+			return;
+		}
+		try {
+			flush();
+			writeHeaderIfNeeded();
+			ensureCapacity(4);
+			mBuffer.putInt(0);
+			drain();
+		} finally {
+			mClosed = true;
+			mChannel.close();
+		}
+	}
+	
+	/** Number of rows written so far **/
+	public long getRowCount() {
+		return mRowCount;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Encoder methods   *************************************************************** **/
+	
+	private int getActivityIndex(String activity) {
+		Integer index = mDictionary.get(activity);
+		if (index == null) {
+			index = mDictionary.size();
+			mDictionary.put(activity, index);
+			mNewNames.add(activity);
+		}
+		return index;
+	}
+	
+	private void setValue(int column, int row, long value) {
+		byte[] valid = mValid[column];
+		if (value == Long.MIN_VALUE) {
+			mValues[column][row] = 0;
+			valid[row >> 3] &= ~(1 << (row & 7));
+		} else {
+			mValues[column][row] = value;
+			valid[row >> 3] |= 1 << (row & 7);
+		}
+	}
+	
+	private void writeHeaderIfNeeded() throws IOException {
+		if (!mStarted) {
+			mStarted = true;
+			ensureCapacity(MAGIC.length + 1);
+			mBuffer.put(MAGIC);
+			mBuffer.put((byte) VERSION);
+		}
+	}
+	
+	private void writeBatch() throws IOException {
+		writeHeaderIfNeeded();
+		int rows = mRows;
+		ensureCapacity(8);
+		mBuffer.putInt(rows);
+		mBuffer.putInt(mNewNames.size());
+		for (int i = 0; i < mNewNames.size(); i++) {
+			byte[] name = mNewNames.get(i).getBytes("UTF-8");
+			ensureCapacity(4 + name.length);
+			mBuffer.putInt(name.length);
+			mBuffer.put(name);
+		}
+		mNewNames.clear();
+	
+		putInts(mDates, rows);
+		putInts(mActivities, rows);
+		int validBytes = (rows + 7) / 8;
+		for (int column = 0; column < VALUE_COLUMNS; column++) {
+			ensureCapacity(validBytes);
+			mBuffer.put(mValid[column], 0, validBytes);
+			putLongs(mValues[column], rows);
+		}
+		drain();
+		mRows = 0;
+	}
+	
+	/** Copies a column in bulk through an int view of the buffer **/
+	private void putInts(int[] values, int count) throws IOException {
+		int offset = 0;
+		while (offset < count) {
+			ensureCapacity(4);
+			int n = Math.min(count - offset, mBuffer.remaining() / 4);
+			mBuffer.asIntBuffer().put(values, offset, n);
+			mBuffer.position(mBuffer.position() + n * 4);
+			offset += n;
+		}
+	}
+	
+	/** Copies a column in bulk through a long view of the buffer **/
+	private void putLongs(long[] values, int count) throws IOException {
+		int offset = 0;
+		while (offset < count) {
+			ensureCapacity(8);
+			int n = Math.min(count - offset, mBuffer.remaining() / 8);
+			mBuffer.asLongBuffer().put(values, offset, n);
+			mBuffer.position(mBuffer.position() + n * 8);
+			offset += n;
+		}
+	}
+	
+	/** Makes room for the given number of bytes, growing the buffer only for values larger than the buffer **/
+	private void ensureCapacity(int bytes) throws IOException {
+		if (mBuffer.remaining() >= bytes) {
+			return;
+		}
+		drain();
+		if (mBuffer.capacity() < bytes) {
+			mBuffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+	
+	private void drain() throws IOException {
+		mBuffer.flip();
+		while (mBuffer.hasRemaining()) {
+			mChannel.write(mBuffer);
+		}
+		mBuffer.clear();
+	}
+}
@@ -0,0 +1,469 @@
+package com.midhunarmid.movesapi.place;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.util.LongIntHashMap;
+
+/**
+ * A spatial index over place visits and track points, which answers radius and bounding box queries without scanning
+ * all days or parsing coordinate strings again. Place visits are indexed as their {@link SegmentData}, at the location
+ * of the segment's {@link PlaceData}, and track points as their {@link TrackPointsData}.<br><br>
+ * 
+ * Coordinates are bucketed into a grid of cells of a fixed size in degrees, keyed in a {@link LongIntHashMap}. A query
+ * only visits the cells overlapping the queried area, including areas crossing the 180th meridian, and then checks
+ * the exact distance or bounds of each entry in them. Days are indexed by their date, adding a day again replaces
+ * all entries of the earlier version, so the index can be updated as new storyline days arrive.<br><br>
+ * 
+ * All methods are synchronized, visitors are called while holding the lock of the index.
+ * @author Midhu
+ * @see StorylineData
+ * @see StorylinePlacesData
+ */
+public class GeoIndex {
+	
+	/** Receives the entries of a query **/
+	public interface Visitor {
+		/**
+		 * Called once for every entry in the queried area
+		 * @param item : The indexed {@link SegmentData} or {@link TrackPointsData}
+		 * @param lat : Latitude of the entry in degrees
+		 * @param lon : Longitude of the entry in degrees
+		 * @return <code>true</code> to continue with the next entry, <code>false</code> to stop the query
+		 */
+		public boolean onEntry(Object item, double lat, double lon);
+	}
+	
+	public static final int DEFAULT_CELL_METERS		= 500;
+	
+	private static final double EARTH_RADIUS		= 6371008.8d;
+	private static final double METERS_PER_DEGREE	= EARTH_RADIUS * Math.PI / 180d;
+	private static final double TO_RADIANS			= Math.PI / 180d;
+	
+	private final double mCellDegrees;
+	private final int mLatCells;
+	private final int mLonCells;
+	
+	/* First entry of each occupied cell, the other entries of a cell are chained through mNext */
+	private final LongIntHashMap mCells = new LongIntHashMap();
+	private double[] mLat	= new double[64];
+	private double[] mLon	= new double[64];
+	private int[] mNext		= new int[64];
+	private Object[] mItems	= new Object[64];
+	private int mCount;
+	private int mRemoved;
+	
+	/* Entries of a day are added together, so each day is a range [from, to) of entries */
+	private final HashMap<String, int[]> mDays = new HashMap<String, int[]>();
+	
+	/** Creates an empty index with cells of {@value #DEFAULT_CELL_METERS} meters **/
+	public GeoIndex() {
+		this(DEFAULT_CELL_METERS);
+	}
+	
+	/**
+	 * Creates an empty index
+	 * @param cellMeters : Height of a grid cell in meters. Cells around the radius of typical queries work best.
+	 */
+	public GeoIndex(int cellMeters) {
+		if (cellMeters <= 0) {
+			throw new IllegalArgumentException("Cell size must be positive");
+		}
+		mCellDegrees	= Math.min(90d, cellMeters / METERS_PER_DEGREE);
+		mLatCells		= (int) Math.ceil(180d / mCellDegrees) + 1;
+		mLonCells		= (int) Math.ceil(360d / mCellDegrees);
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Update methods    *************************************************************** **/
+	
+	/**
+	 * Indexes the place visits and track points of the given days
+	 * @see #addStoryline(StorylineData)
+	 */
+	public synchronized void addStorylines(List<StorylineData> storylines) {
+		if (storylines != null) {
+			for (int i = 0; i < storylines.size(); i++) {
+				addStoryline(storylines.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Indexes the place visits and track points of a storyline day, replacing any earlier version of the same date.
+	 * Lazily parsed activities and track points are materialized.
+	 * @param storyline : A storyline day, usually received from one of the storyline or activities calls of Moves API
+	 */
+	public synchronized void addStoryline(StorylineData storyline) {
+		if (storyline != null) {
+			addDay(storyline.getDate(), storyline.getSegments(), true);
+		}
+	}
+	
+	/**
+	 * Indexes the place visits of a places day, replacing any earlier version of the same date
+	 * @param places : A places day, usually received from one of the places calls of Moves API
+	 */
+	public synchronized void addPlaces(StorylinePlacesData places) {
+		if (places != null) {
+			addDay(places.getDate(), places.getSegments(), false);
+		}
+	}
+	
+	/**
+	 * Indexes a single place visit, outside of any day. Segments without a place or valid location are ignored.
+	 * @param segment : A segment of type <code>place</code>
+	 */
+	public synchronized void addVisit(SegmentData segment) {
+		PlaceData place = segment != null ? segment.getPlace() : null;
+		LocationData location = place != null ? place.getLocation() : null;
+		if (location != null) {
+			add(location.getLat_Double(Double.NaN), location.getLon_Double(Double.NaN), segment);
+		}
+	}
+	
+	/** Indexes a single track point, outside of any day. Track points without valid coordinates are ignored. **/
+	public synchronized void addTrackPoint(TrackPointsData trackPoint) {
+		if (trackPoint != null) {
+			add(trackPoint.getLat_Double(Double.NaN), trackPoint.getLon_Double(Double.NaN), trackPoint);
+		}
+	}
+	
+	/**
+	 * Removes all entries of a day
+	 * @param date : Date of the day, in format yyyyMMdd
+	 * @return <code>true</code> if the day was indexed
+	 */
+	public synchronized boolean removeDay(String date) {
+		int[] range = mDays.remove(date);
+		if (range == null) {
+			return false;
+		}
+		for (int i = range[0]; i < range[1]; i++) {
+			if (mItems[i] != null) {
+				mItems[i] = null;
+				mRemoved++;
+			}
+		}
+		if (mRemoved > 64 && mRemoved * 2 > mCount) {
+			compact();
+		}
+		return true;
+	}
+	
+	/** Removes all entries **/
+	public synchronized void clear() {
+		mCells.clear();
+		mDays.clear();
+		for (int i = 0; i < mCount; i++) {
+			mItems[i] = null;
+		}
+		mCount = 0;
+		mRemoved = 0;
+	}
+	
+	/** Number of indexed place visits and track points **/
+	public synchronized int size() {
+		return mCount - mRemoved;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Query methods   ***************************************************************** **/
+	
+	/**
+	 * Finds the place visits within a distance of a point
+	 * @param lat : Latitude of the point in degrees
+	 * @param lon : Longitude of the point in degrees
+	 * @param radiusMeters : Maximum distance of a visit from the point in meters
+	 * @return the {@link SegmentData} of the visits, in no particular order
+	 */
+	public ArrayList<SegmentData> findVisitsWithin(double lat, double lon, double radiusMeters) {
+		Collector<SegmentData> collector = new Collector<SegmentData>(SegmentData.class);
+		queryRadius(lat, lon, radiusMeters, collector);
+		return collector.result;
+	}
+	
+	/**
+	 * Finds the place visits inside a bounding box. The box crosses the 180th meridian if <code>west</code> is greater
+	 * than <code>east</code>.
+	 * @return the {@link SegmentData} of the visits, in no particular order
+	 */
+	public ArrayList<SegmentData> findVisitsInBox(double south, double west, double north, double east) {
+		Collector<SegmentData> collector = new Collector<SegmentData>(SegmentData.class);
+		queryBox(south, west, north, east, collector);
+		return collector.result;
+	}
+	
+	/**
+	 * Finds the track points within a distance of a point
+	 * @param lat : Latitude of the point in degrees
+	 * @param lon : Longitude of the point in degrees
+	 * @param radiusMeters : Maximum distance of a track point from the point in meters
+	 * @return the {@link TrackPointsData} found, in no particular order
+	 */
+	public ArrayList<TrackPointsData> findTrackPointsWithin(double lat, double lon, double radiusMeters) {
+		Collector<TrackPointsData> collector = new Collector<TrackPointsData>(TrackPointsData.class);
+		queryRadius(lat, lon, radiusMeters, collector);
+		return collector.result;
+	}
+	
+	/**
+	 * Finds the track points inside a bounding box. The box crosses the 180th meridian if <code>west</code> is greater
+	 * than <code>east</code>.
+	 * @return the {@link TrackPointsData} found, in no particular order
+	 */
+	public ArrayList<TrackPointsData> findTrackPointsInBox(double south, double west, double north, double east) {
+		Collector<TrackPointsData> collector = new Collector<TrackPointsData>(TrackPointsData.class);
+		queryBox(south, west, north, east, collector);
+		return collector.result;
+	}
+	
+	/**
+	 * Visits all entries within a distance of a point, measured along the surface of the earth
+	 * @param lat : Latitude of the point in degrees
+	 * @param lon : Longitude of the point in degrees
+	 * @param radiusMeters : Maximum distance of an entry from the point in meters
+	 * @param visitor : Receives the entries
+	 */
+	public synchronized void queryRadius(double lat, double lon, double radiusMeters, Visitor visitor) {
+		if (radiusMeters < 0 || Double.isNaN(lat) || Double.isNaN(lon)) {
+			return;
+		}
+		double angle = radiusMeters / EARTH_RADIUS;
+		double latSpan = angle / TO_RADIANS;
+		double south = lat - latSpan;
+		double north = lat + latSpan;
+		double west = -180d;
+		double east = 180d;
+		double sinAngle = Math.sin(Math.min(angle, Math.PI / 2));
+		double cosLat = Math.cos(lat * TO_RADIANS);
+		if (north < 90d && south > -90d && sinAngle < cosLat) {
+			/* Widest longitude difference of a circle which does not contain a pole */
+			double lonSpan = Math.asin(sinAngle / cosLat) / TO_RADIANS;
+			west = normalizeLon(lon - lonSpan);
+			east = normalizeLon(lon + lonSpan);
+		}
+		scan(south, west, north, east, lat, lon, radiusMeters, visitor);
+	}
+	
+	/**
+	 * Visits all entries inside a bounding box. The box crosses the 180th meridian if <code>west</code> is greater
+	 * than <code>east</code>.
+	 * @param visitor : Receives the entries
+	 */
+	public synchronized void queryBox(double south, double west, double north, double east, Visitor visitor) {
+		if (Double.isNaN(south) || Double.isNaN(north) || Double.isNaN(west) || Double.isNaN(east) || south > north) {
+			return;
+		}
+		if (east - west >= 360d) {
+			west = -180d;
+			east = 180d;
+		} else {
+			west = normalizeLon(west);
+			east = east == 180d ? east : normalizeLon(east);
+		}
+		scan(south, west, north, east, Double.NaN, Double.NaN, Double.NaN, visitor);
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Index methods   ***************************************************************** **/
+	
+	private void addDay(String date, ArrayList<SegmentData> segments, boolean withTrackPoints) {
+		if (date != null) {
+			removeDay(date);
+		}
+		int from = mCount;
+		if (segments != null) {
+			for (int i = 0; i < segments.size(); i++) {
+				SegmentData segment = segments.get(i);
+				if (segment == null) {
+					continue;
+				}
+				addVisit(segment);
+				ArrayList<ActivityData> activities = withTrackPoints ? segment.getActivities() : null;
+				if (activities == null) {
+					continue;
+				}
+				for (int j = 0; j < activities.size(); j++) {
+					ArrayList<TrackPointsData> trackPoints = activities.get(j) != null ? activities.get(j).getTrackPoints() : null;
+					if (trackPoints != null) {
+						for (int k = 0; k < trackPoints.size(); k++) {
+							addTrackPoint(trackPoints.get(k));
+						}
+					}
+				}
+			}
+		}
+		if (date != null) {
+			mDays.put(date, new int[] {from, mCount});
+		}
+	}
+	
+	private void add(double lat, double lon, Object item) {
+		if (Double.isNaN(lat) || Double.isNaN(lon) || lat < -90d || lat > 90d || lon < -180d || lon > 180d) {
+			return;
+		}
+		if (mCount == mItems.length) {
+			grow();
+		}
+		lon = normalizeLon(lon);
+		int entry = mCount++;
+		mLat[entry]		= lat;
+		mLon[entry]		= lon;
+		mItems[entry]	= item;
+		link(entry);
+	}
+	
+	/** Puts an entry in front of the chain of its cell **/
+	private void link(int entry) {
+		long key = cellKey(latCell(mLat[entry]), lonCell(mLon[entry]));
+		mNext[entry] = mCells.get(key, -1);
+		mCells.put(key, entry);
+	}
+	
+	private void grow() {
+		int capacity = mItems.length * 2;
+		double[] lat = new double[capacity];
+		double[] lon = new double[capacity];
+		int[] next = new int[capacity];
+		Object[] items = new Object[capacity];
+		System.arraycopy(mLat, 0, lat, 0, mCount);
+		System.arraycopy(mLon, 0, lon, 0, mCount);
+		System.arraycopy(mNext, 0, next, 0, mCount);
+		System.arraycopy(mItems, 0, items, 0, mCount);
+		mLat	= lat;
+		mLon	= lon;
+		mNext	= next;
+		mItems	= items;
+	}
+	
+	/** Drops removed entries and rebuilds the cell chains, keeping the order of the entries **/
+	private void compact() {
+		int[] newIndex = new int[mCount + 1];
+		int count = 0;
+		for (int i = 0; i < mCount; i++) {
+			newIndex[i] = count;
+			if (mItems[i] != null) {
+				mLat[count]		= mLat[i];
+				mLon[count]		= mLon[i];
+				mItems[count]	= mItems[i];
+				count++;
+			}
+		}
+		newIndex[mCount] = count;
+		for (int i = count; i < mCount; i++) {
+			mItems[i] = null;
+		}
+		for (int[] range : mDays.values()) {
+			range[0] = newIndex[range[0]];
+			range[1] = newIndex[range[1]];
+		}
+		mCount = count;
+		mRemoved = 0;
+		mCells.clear();
+		for (int i = 0; i < mCount; i++) {
+			link(i);
+		}
+	}
+	
+	/**
+	 * Visits the entries of all cells overlapping a box, checking their exact bounds, and their distance to the
+	 * center if a radius is given. Falls back to scanning all entries when the box covers more cells than there are
+	 * occupied cells.
+	 */
+	private void scan(double south, double west, double north, double east, double centerLat, double centerLon,
+			double radiusMeters, Visitor visitor) {
+		boolean wraps = west > east;
+		int firstLat = latCell(Math.max(-90d, south));
+		int lastLat = latCell(Math.min(90d, north));
+		int firstLon = lonCell(west);
+		int lastLon = lonCell(east);
+		int lonCount = wraps ? mLonCells - firstLon + lastLon + 1 : lastLon - firstLon + 1;
+		double cosCenter = Math.cos(centerLat * TO_RADIANS);
+	
+		if ((long) (lastLat - firstLat + 1) * lonCount > mCells.size()) {
+			for (int entry = 0; entry < mCount; entry++) {
+				if (!check(entry, south, west, north, east, wraps, centerLat, centerLon, cosCenter, radiusMeters, visitor)) {
+					return;
+				}
+			}
+			return;
+		}
+		for (int latCell = firstLat; latCell <= lastLat; latCell++) {
+			for (int i = 0; i < lonCount; i++) {
+				int lonCell = (firstLon + i) % mLonCells;
+				for (int entry = mCells.get(cellKey(latCell, lonCell), -1); entry >= 0; entry = mNext[entry]) {
+					if (!check(entry, south, west, north, east, wraps, centerLat, centerLon, cosCenter, radiusMeters, visitor)) {
+						return;
+					}
+				}
+			}
+		}
+	}
+	
+	/** Passes an entry to the visitor if it is inside the queried area, returns <code>false</code> to stop the query **/
+	private boolean check(int entry, double south, double west, double north, double east, boolean wraps,
+			double centerLat, double centerLon, double cosCenter, double radiusMeters, Visitor visitor) {
+		Object item = mItems[entry];
+		double lat = mLat[entry];
+		double lon = mLon[entry];
+		if (item == null || lat < south || lat > north) {
+			return true;
+		}
+		if (wraps ? (lon < west && lon > east) : (lon < west || lon > east)) {
+			return true;
+		}
+		if (!Double.isNaN(radiusMeters) && distance(centerLat, centerLon, cosCenter, lat, lon) > radiusMeters) {
+			return true;
+		}
+		return visitor.onEntry(item, lat, lon);
+	}
+	
+	/** Haversine distance in meters **/
+	private static double distance(double lat1, double lon1, double cosLat1, double lat2, double lon2) {
+		double sinLat = Math.sin((lat2 - lat1) * TO_RADIANS / 2);
+		double sinLon = Math.sin((lon2 - lon1) * TO_RADIANS / 2);
+		double a = sinLat * sinLat + cosLat1 * Math.cos(lat2 * TO_RADIANS) * sinLon * sinLon;
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1d, Math.sqrt(a)));
+	}
+	
+	private int latCell(double lat) {
+		return Math.min(mLatCells - 1, (int) ((lat + 90d) / mCellDegrees));
+	}
+	
+	private int lonCell(double lon) {
+		return Math.min(mLonCells - 1, (int) ((lon + 180d) / mCellDegrees));
+	}
+	
+	private static long cellKey(int latCell, int lonCell) {
+		return ((long) latCell << 32) | lonCell;
+	}
+	
+	/** Maps a longitude to [-180, 180) **/
+	private static double normalizeLon(double lon) {
+		return lon - 360d * Math.floor((lon + 180d) / 360d);
+	}
+	
+	/** Collects the entries of one type **/
+	private static class Collector<T> implements Visitor {
+		private final Class<T> type;
+		private final ArrayList<T> result = new ArrayList<T>();
+	
+		Collector(Class<T> type) {
+			this.type = type;
+		}
+	
+		@Override
+		public boolean onEntry(Object item, double lat, double lon) {
+			if (type.isInstance(item)) {
+				result.add(type.cast(item));
+			}
+			return true;
+		}
+	}
+}
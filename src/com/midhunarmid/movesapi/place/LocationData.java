@@ -1,9 +1,13 @@
 package com.midhunarmid.movesapi.place;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
+import com.midhunarmid.movesapi.util.ParsePool;
+import com.midhunarmid.movesapi.util.Utilities;
 
 /**
  * This class holds the Location Data (usually used within a {@link PlaceData}), and some related methods to handle those data
@@ -14,6 +18,21 @@ public class LocationData {
 	private String lat;
 	private String lon;
 	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Latitude coordinate in degrees <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public double getLat_Double(double def) {
+		return Utilities.parseDouble(lat, def);
+	}
+	
+	/** Longitude coordinate in degrees <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public double getLon_Double(double def) {
+		return Utilities.parseDouble(lon, def);
+	}
+	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Getter methods    *************************************************************** **/
 	
@@ -60,4 +79,33 @@ public class LocationData {
     	return null;
 	}
 	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"lat", "lon"};
+	
+	/**
+	 * Read a location JSON object from a {@link JSONStreamReader}, then return the corresponding {@link LocationData} object.
+	 * The object is taken from the {@link ParsePool} of the reader, if it has one.
+	 * @param reader : the reader, positioned at a 'location' JSON object
+	 * @return corresponding {@link LocationData}
+	 */
+	public static LocationData read(JSONStreamReader reader) throws JSONException {
+		LocationData locationData = ParsePool.obtainLocation(reader.getPool());
+		locationData.lat = locationData.lon = "";
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS)) {
+			case 0:
+				locationData.lat	= reader.optString();
+				break;
+			case 1:
+				locationData.lon	= reader.optString();
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		return locationData;
+	}
 }
@@ -3,9 +3,15 @@ package com.midhunarmid.movesapi.place;
 import java.util.ArrayList;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
+import com.midhunarmid.movesapi.util.JSONStreamReader.Token;
+import com.midhunarmid.movesapi.util.ParseOptions;
+import com.midhunarmid.movesapi.util.ParseOptions.Field;
+import com.midhunarmid.movesapi.util.ParsePool;
 
 /**
  * This class holds the Place Data (usually for {@link StorylineData}), and some related methods to handle those data
@@ -143,4 +149,85 @@ public class PlaceData {
 		}
     	return null;
 	}
+	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"id", "name", "type", "foursquareId", "foursquareCategoryIds", "location"};
+	
+	/**
+	 * Read a place JSON object from a {@link JSONStreamReader}, then return the corresponding {@link PlaceData} object.
+	 * Fields which are not selected in the {@link ParseOptions} are skipped and left <code>null</code>. Objects and
+	 * lists are taken from the {@link ParsePool} of the reader, if it has one.
+	 * @param reader : the reader, positioned at a 'place' JSON object
+	 * @param options : {@link ParseOptions} selecting the fields to read, or <code>null</code> to read all fields
+	 * @return corresponding {@link PlaceData}
+	 */
+	public static PlaceData read(JSONStreamReader reader, ParseOptions options) throws JSONException {
+		ParsePool pool = reader.getPool();
+		PlaceData placeData = ParsePool.obtainPlace(pool);
+		int mask = 0;
+		if (ParseOptions.includes(options, Field.PLACE_ID)) {
+			placeData.id = "";
+			mask |= 1;
+		}
+		if (ParseOptions.includes(options, Field.PLACE_NAME)) {
+			placeData.name = "";
+			mask |= 1 << 1;
+		}
+		if (ParseOptions.includes(options, Field.PLACE_TYPE)) {
+			placeData.type = "";
+			mask |= 1 << 2;
+		}
+		if (ParseOptions.includes(options, Field.PLACE_FOURSQUARE)) {
+			placeData.foursquareId			= "";
+			placeData.foursquareCategoryIds	= ParsePool.obtainList(pool);
+			mask |= 1 << 3 | 1 << 4;
+		}
+		if (ParseOptions.includes(options, Field.PLACE_LOCATION)) {
+			mask |= 1 << 5;
+		}
+		
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS, mask)) {
+			case 0:
+				placeData.id			= reader.optString();
+				break;
+			case 1:
+				placeData.name			= reader.optString();
+				break;
+			case 2:
+				placeData.type			= reader.optString();
+				break;
+			case 3:
+				placeData.foursquareId	= reader.optString();
+				break;
+			case 4:
+				if (reader.peek() != Token.BEGIN_ARRAY) {
+					reader.skipValue();
+					break;
+				}
+				reader.beginArray();
+				while (reader.hasNext()) {
+					String categoryId = reader.optString();
+					if (categoryId.length() > 0) {
+						placeData.foursquareCategoryIds.add(categoryId);
+					}
+				}
+				reader.endArray();
+				break;
+			case 5:
+				if (reader.peek() == Token.BEGIN_OBJECT) {
+					placeData.location = LocationData.read(reader);
+				} else {
+					reader.skipValue();
+				}
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		return placeData;
+	}
 }
@@ -0,0 +1,314 @@
+package com.midhunarmid.movesapi.place;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.util.LongIntHashMap;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
+/**
+ * This class keeps running visit statistics per place: number of visits, total dwell time, and first and last visit.
+ * Days are consumed one at a time, each place segment is parsed once when its day is added, and every query is a
+ * single hash lookup followed by an array read.<br><br>
+ * 
+ * Places are keyed by {@link PlaceData#getId()}. The numeric ids of Moves are kept in a {@link LongIntHashMap} slot
+ * table and the statistics in primitive arrays indexed by slot, so adding a visit never boxes. A visit spanning
+ * midnight is listed in both days by Moves, it is counted with its full dwell time on the day it starts. Adding a
+ * date again replaces the counts and dwell time of its earlier version, while first and last visit only ever widen.
+ * <br><br>
+ * 
+ * All methods are synchronized.
+ * @author Midhu
+ * @see StorylinePlacesData
+ * @see StorylineData
+ */
+public class PlaceVisitAggregator {
+	
+	/* Slots of numeric place ids, and of any other ids */
+	private final LongIntHashMap mSlots = new LongIntHashMap();
+	private final HashMap<String, Integer> mOtherSlots = new HashMap<String, Integer>();
+	
+	private String[] mIds				= new String[16];
+	private PlaceData[] mPlaces			= new PlaceData[16];
+	private int[] mVisits				= new int[16];
+	private long[] mDwell				= new long[16];
+	private long[] mFirstVisit			= new long[16];
+	private long[] mLastVisit			= new long[16];
+	private int mCount;
+	
+	/* Visits of each added date, so that a newer version of a date can replace them */
+	private final HashMap<String, DayVisits> mDays = new HashMap<String, DayVisits>();
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Aggregation methods  ************************************************************ **/
+	
+	/** Adds the place visits of the given days, see {@link #addPlaces(StorylinePlacesData)} **/
+	public synchronized void addPlacesList(List<StorylinePlacesData> places) {
+		if (places != null) {
+			for (int i = 0; i < places.size(); i++) {
+				addPlaces(places.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Adds the place visits of a places day, replacing an earlier version of the same date
+	 * @param places : A places day, usually received from one of the places calls of Moves API
+	 */
+	public synchronized void addPlaces(StorylinePlacesData places) {
+		if (places != null) {
+			addDay(places.getDate(), places.getSegments());
+		}
+	}
+	
+	/** Adds the place visits of the given days, see {@link #addStoryline(StorylineData)} **/
+	public synchronized void addStorylines(List<StorylineData> storylines) {
+		if (storylines != null) {
+			for (int i = 0; i < storylines.size(); i++) {
+				addStoryline(storylines.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Adds the place visits of a storyline day, replacing an earlier version of the same date
+	 * @param storyline : A storyline day, usually received from one of the storyline calls of Moves API
+	 */
+	public synchronized void addStoryline(StorylineData storyline) {
+		if (storyline != null) {
+			addDay(storyline.getDate(), storyline.getSegments());
+		}
+	}
+	
+	/**
+	 * Adds a single place visit, outside of any day
+	 * @param segment : A segment with a {@link PlaceData}, other segments are ignored
+	 * @return <code>true</code> if the visit was counted
+	 */
+	public synchronized boolean addVisit(SegmentData segment) {
+		return addVisit(segment, null, Long.MIN_VALUE);
+	}
+	
+	/** Removes all statistics **/
+	public synchronized void clear() {
+		mSlots.clear();
+		mOtherSlots.clear();
+		mDays.clear();
+		for (int i = 0; i < mCount; i++) {
+			mIds[i]		= null;
+			mPlaces[i]	= null;
+		}
+		mCount = 0;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Getter methods    *************************************************************** **/
+	
+	/** Number of places with at least one visit added **/
+	public synchronized int size() {
+		return mCount;
+	}
+	
+	/** Ids of all places with at least one visit added, in the order they were first visited **/
+	public synchronized ArrayList<String> getPlaceIds() {
+		ArrayList<String> ids = new ArrayList<String>(mCount);
+		for (int i = 0; i < mCount; i++) {
+			ids.add(mIds[i]);
+		}
+		return ids;
+	}
+	
+	/** The {@link PlaceData} of the most recently added visit of a place, or <code>null</code> if it has no visits **/
+	public synchronized PlaceData getPlace(String placeId) {
+		int slot = findSlot(placeId);
+		return slot >= 0 ? mPlaces[slot] : null;
+	}
+	
+	/** Number of visits of a place, 0 if it has no visits **/
+	public synchronized int getVisitCount(String placeId) {
+		int slot = findSlot(placeId);
+		return slot >= 0 ? mVisits[slot] : 0;
+	}
+	
+	/** Total time spent at a place in milliseconds, 0 if it has no visits **/
+	public synchronized long getDwellTime_Millis(String placeId) {
+		int slot = findSlot(placeId);
+		return slot >= 0 ? mDwell[slot] : 0;
+	}
+	
+	/** Get the start of the first visit of a place as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if the place has no visits **/
+	public synchronized long getFirstVisit_Millis(String placeId, long def) {
+		int slot = findSlot(placeId);
+		return slot >= 0 && mFirstVisit[slot] != Long.MAX_VALUE ? mFirstVisit[slot] : def;
+	}
+	
+	/** Get the end of the last visit of a place as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if the place has no visits **/
+	public synchronized long getLastVisit_Millis(String placeId, long def) {
+		int slot = findSlot(placeId);
+		return slot >= 0 && mLastVisit[slot] != Long.MIN_VALUE ? mLastVisit[slot] : def;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Aggregation helpers  ************************************************************ **/
+	
+	private void addDay(String date, ArrayList<SegmentData> segments) {
+		DayVisits day = null;
+		long dayStart = MovesTimeFormat.parseDateUTC(date, Long.MIN_VALUE);
+		if (date != null) {
+			day = mDays.get(date);
+			if (day != null) {
+				/* A newer version of the day, take back the visits of the earlier one */
+				for (int i = 0; i < day.count; i++) {
+					mVisits[day.slots[i]]--;
+					mDwell[day.slots[i]] -= day.dwell[i];
+				}
+				day.count = 0;
+			} else {
+				day = new DayVisits();
+				mDays.put(date, day);
+			}
+		}
+		if (segments != null) {
+			for (int i = 0; i < segments.size(); i++) {
+				addVisit(segments.get(i), day, dayStart);
+			}
+		}
+	}
+	
+	/**
+	 * Counts a visit for a day, unless it started on the day before
+	 * @param dayStart : Midnight UTC of the day, or {@link Long#MIN_VALUE} for a visit outside of any day
+	 */
+	private boolean addVisit(SegmentData segment, DayVisits day, long dayStart) {
+		PlaceData place = segment != null ? segment.getPlace() : null;
+		if (place == null || place.getId() == null || place.getId().length() == 0) {
+			return false;
+		}
+		long start	= segment.getStartTime_Millis(Long.MIN_VALUE);
+		long end	= segment.getEndTime_Millis(Long.MIN_VALUE);
+		if (start != Long.MIN_VALUE && dayStart != Long.MIN_VALUE
+				&& start < dayStart - MovesTimeFormat.parseOffsetSeconds(segment.getStartTime(), 0) * 1000L) {
+			/* The visit started the day before, it is counted there */
+			return false;
+		}
+		int slot = getOrCreateSlot(place.getId());
+		long dwell = start != Long.MIN_VALUE && end > start ? end - start : 0;
+		mPlaces[slot] = place;
+		mVisits[slot]++;
+		mDwell[slot] += dwell;
+		if (start != Long.MIN_VALUE) {
+			mFirstVisit[slot] = Math.min(mFirstVisit[slot], start);
+		}
+		if (end != Long.MIN_VALUE) {
+			mLastVisit[slot] = Math.max(mLastVisit[slot], end);
+		}
+		if (day != null) {
+			day.add(slot, dwell);
+		}
+		return true;
+	}
+	
+	private int findSlot(String placeId) {
+		long key = parseId(placeId);
+		if (key != INVALID_ID) {
+			return mSlots.get(key, -1);
+		}
+		Integer slot = placeId != null ? mOtherSlots.get(placeId) : null;
+		return slot != null ? slot : -1;
+	}
+	
+	private int getOrCreateSlot(String placeId) {
+		int slot = findSlot(placeId);
+		if (slot >= 0) {
+			return slot;
+		}
+		if (mCount == mIds.length) {
+			grow();
+		}
+		slot = mCount++;
+		mIds[slot]			= placeId;
+		mVisits[slot]		= 0;
+		mDwell[slot]		= 0;
+		mFirstVisit[slot]	= Long.MAX_VALUE;
+		mLastVisit[slot]	= Long.MIN_VALUE;
+		long key = parseId(placeId);
+		if (key != INVALID_ID) {
+			mSlots.put(key, slot);
+		} else {
+			mOtherSlots.put(placeId, slot);
+		}
+		return slot;
+	}
+	
+	private void grow() {
+		int capacity = mIds.length * 2;
+		String[] ids = new String[capacity];
+		PlaceData[] places = new PlaceData[capacity];
+		System.arraycopy(mIds, 0, ids, 0, mCount);
+		System.arraycopy(mPlaces, 0, places, 0, mCount);
+		mIds		= ids;
+		mPlaces		= places;
+		mVisits		= copyOf(mVisits, capacity);
+		mDwell		= copyOf(mDwell, capacity);
+		mFirstVisit	= copyOf(mFirstVisit, capacity);
+		mLastVisit	= copyOf(mLastVisit, capacity);
+	}
+	
+	private static int[] copyOf(int[] values, int capacity) {
+		int[] copy = new int[capacity];
+		System.arraycopy(values, 0, copy, 0, values.length);
+		return copy;
+	}
+	
+	private static long[] copyOf(long[] values, int capacity) {
+		long[] copy = new long[capacity];
+		System.arraycopy(values, 0, copy, 0, values.length);
+		return copy;
+	}
+	
+	/* Returned for ids which are not plain numbers, "0" is not used by Moves as a place id */
+	private static final long INVALID_ID = 0;
+	
+	/**
+	 * Parses a 64 bit unsigned place id into the bits of a long, returns {@link #INVALID_ID} for any other id. Ids
+	 * with leading zeros are not the canonical text of their number, "0123" and "123" must not share a slot.
+	 */
+	private static long parseId(String placeId) {
+		int length = placeId != null ? placeId.length() : 0;
+		if (length == 0 || length > 20 || (length == 20 && placeId.compareTo("18446744073709551615") > 0)
+				|| placeId.charAt(0) == '0') {
+			return INVALID_ID;
+		}
+		long result = 0;
+		for (int i = 0; i < length; i++) {
+			char ch = placeId.charAt(i);
+			if (ch < '0' || ch > '9') {
+				return INVALID_ID;
+			}
+			result = result * 10 + (ch - '0');
+		}
+		return result;
+	}
+	
+	/** The slots and dwell times of the visits counted for one date **/
+	private static class DayVisits {
+		private int[] slots = new int[8];
+		private long[] dwell = new long[8];
+		private int count;
+	
+		void add(int slot, long dwellMillis) {
+			if (count == slots.length) {
+				slots = copyOf(slots, count * 2);
+				dwell = copyOf(dwell, count * 2);
+			}
+			slots[count]	= slot;
+			dwell[count]	= dwellMillis;
+			count++;
+		}
+	}
+}
@@ -3,11 +3,16 @@ package com.midhunarmid.movesapi.place;
 import java.util.ArrayList;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.midhunarmid.movesapi.activity.ActivityData;
 import com.midhunarmid.movesapi.segment.SegmentData;
 import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+import com.midhunarmid.movesapi.util.ParseOptions;
+import com.midhunarmid.movesapi.util.ParseOptions.Field;
 
 /**
  * This class holds the details about daily places for a Moves User, and some related methods to handle those data
@@ -22,6 +27,21 @@ public class StorylinePlacesData {
 	private String lastUpdate;
 	
 	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Get the date as a millisecond value, midnight of that date in the default time zone <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getDate_Millis(long def) {
+		return MovesTimeFormat.parseDate(date, def);
+	}
+	
+	/** Get when the data was last updated as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getLastUpdate_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(lastUpdate, def);
+	}
+	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Getter methods    *************************************************************** **/
 	
@@ -89,4 +109,49 @@ public class StorylinePlacesData {
 		}
     	return null;
 	}
+	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"date", "lastUpdate", "segments"};
+	
+	/**
+	 * Read a places JSON object from a {@link JSONStreamReader}, then return the corresponding {@link StorylinePlacesData}
+	 * object. Fields which are not selected in the {@link ParseOptions} are skipped and left <code>null</code>, the
+	 * date is always read.
+	 * @param reader : the reader, positioned at a places JSON object received from server
+	 * @param options : {@link ParseOptions} selecting the fields to read, or <code>null</code> to read all fields
+	 * @return corresponding {@link StorylinePlacesData}
+	 */
+	public static StorylinePlacesData read(JSONStreamReader reader, ParseOptions options) throws JSONException {
+		StorylinePlacesData placesData = new StorylinePlacesData();
+		placesData.date = "";
+		int mask = 1;
+		if (ParseOptions.includes(options, Field.LAST_UPDATE)) {
+			placesData.lastUpdate = "";
+			mask |= 1 << 1;
+		}
+		if (ParseOptions.includes(options, Field.SEGMENTS)) {
+			placesData.segments = new ArrayList<SegmentData>();
+			mask |= 1 << 2;
+		}
+		
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS, mask)) {
+			case 0:
+				placesData.date			= reader.optString();
+				break;
+			case 1:
+				placesData.lastUpdate	= reader.optString();
+				break;
+			case 2:
+				placesData.segments		= SegmentData.readList(reader, options);
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		return placesData;
+	}
 }
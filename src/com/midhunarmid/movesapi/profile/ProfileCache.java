@@ -0,0 +1,73 @@
+package com.midhunarmid.movesapi.profile;
+
+import com.midhunarmid.movesapi.MovesAPI;
+import com.midhunarmid.movesapi.auth.AuthData;
+import com.midhunarmid.movesapi.servercalls.CachedResponse;
+
+/**
+ * Keeps the {@link ProfileData} of the authenticated user in memory. {@link MovesAPI#getProfile(com.midhunarmid.movesapi.MovesHandler)}
+ * answers from this cache right away; once the cached profile is older than the time to live it is still served,
+ * and refreshed in the background for the next call. Refreshes are conditional requests when the server sent an
+ * <code>ETag</code> or <code>Last-Modified</code> header, so an unchanged profile costs a <code>304</code> response
+ * without a body.
+ * @author Midhu
+ * @see ProfileData
+ */
+public class ProfileCache {
+	
+	/** Default time to live, one hour **/
+	public static final long DEFAULT_TIME_TO_LIVE = 60 * 60 * 1000L;
+	
+	private static volatile long mTimeToLive = DEFAULT_TIME_TO_LIVE;
+	private static CachedResponse<ProfileData> mResponse;
+	private static String mUserID;
+	
+	/**
+	 * Sets how long a cached profile is served before it is refreshed, in milliseconds. 0 refreshes on every call,
+	 * while still serving the cached profile first.
+	 */
+	public static void setTimeToLive(long millis) {
+		mTimeToLive = millis;
+	}
+	
+	/** How long a cached profile is served before it is refreshed, in milliseconds **/
+	public static long getTimeToLive() {
+		return mTimeToLive;
+	}
+	
+	/** Gets the cached profile of the authenticated user, or <code>null</code> if there is none **/
+	public static ProfileData get() {
+		CachedResponse<ProfileData> response = getResponse();
+		return response != null ? response.getValue() : null;
+	}
+	
+	/** Gets the cached profile response of the authenticated user with its validators, or <code>null</code> **/
+	public static synchronized CachedResponse<ProfileData> getResponse() {
+		if (mResponse == null || mUserID == null || !mUserID.equals(currentUserID())) {
+			return null;
+		}
+		return mResponse;
+	}
+	
+	/** Whether a cached profile response is younger than the time to live **/
+	public static boolean isFresh(CachedResponse<ProfileData> response) {
+		return response != null && response.getAge() < mTimeToLive;
+	}
+	
+	/** Stores a fetched or revalidated profile response of the authenticated user **/
+	public static synchronized void put(CachedResponse<ProfileData> response) {
+		mResponse	= response;
+		mUserID		= response != null ? currentUserID() : null;
+	}
+	
+	/** Drops the cached profile, the next call fetches it again **/
+	public static synchronized void invalidate() {
+		mResponse	= null;
+		mUserID		= null;
+	}
+	
+	private static String currentUserID() {
+		AuthData authData = AuthData.getAuthData();
+		return authData != null ? authData.getUserID() : null;
+	}
+}
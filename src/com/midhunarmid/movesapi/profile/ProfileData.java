@@ -2,7 +2,7 @@ package com.midhunarmid.movesapi.profile;
 
 import org.json.JSONObject;
 
-import com.midhunarmid.movesapi.util.Utilities;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
 
 /**
  * This class holds the Profile Data of a Moves User, and some related methods to handle those data
@@ -38,7 +38,7 @@ public class ProfileData {
 	 *  The value is the number of milliseconds since Jan. 1, 1970, midnight GMT.  <br><br> 
 	 *  returns <b><i>def</b></i> if an error occurred **/
 	public long getFirstDate_Millis(long def) {
-		return Utilities.getTimeInMillis(firstDate, "yyyyMMdd", def);
+		return MovesTimeFormat.parseDate(firstDate, def);
 	}
 	
 	/** Get the user's time zone offset to UTC in seconds <br><br> 
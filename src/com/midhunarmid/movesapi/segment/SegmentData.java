@@ -3,10 +3,17 @@ package com.midhunarmid.movesapi.segment;
 import java.util.ArrayList;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.midhunarmid.movesapi.activity.ActivityData;
 import com.midhunarmid.movesapi.place.PlaceData;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
+import com.midhunarmid.movesapi.util.JSONStreamReader.Token;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+import com.midhunarmid.movesapi.util.ParseOptions;
+import com.midhunarmid.movesapi.util.ParseOptions.Field;
+import com.midhunarmid.movesapi.util.ParsePool;
 
 /**
  * This class holds the Segment Data, and some related methods to handle those data
@@ -19,9 +26,34 @@ public class SegmentData {
 	private String startTime;
 	private String endTime;
 	private PlaceData place;
-	private ArrayList<ActivityData> activities;
+	private volatile ArrayList<ActivityData> activities;
 	private String lastUpdate;
 	
+	/* Raw activities of a lazily parsed segment, until they are first accessed */
+	private JSONArray activitiesJson;
+	private ParseOptions options;
+	
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Get segment start time as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getStartTime_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(startTime, def);
+	}
+	
+	/** Get segment end time as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getEndTime_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(endTime, def);
+	}
+	
+	/** Get when the segment was last updated as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getLastUpdate_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(lastUpdate, def);
+	}
 	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Getter methods    *************************************************************** **/
@@ -46,9 +78,19 @@ public class SegmentData {
 		return place;
 	}
 	
-	/** {@link ArrayList} of {@link ActivityData} for this segment **/
+	/** {@link ArrayList} of {@link ActivityData} for this segment, parsed on first access if this segment was parsed lazily **/
 	public ArrayList<ActivityData> getActivities() {
-		return activities;
+		ArrayList<ActivityData> result = activities;
+		if (result == null) {
+			synchronized (this) {
+				if (activities == null && activitiesJson != null) {
+					activities		= ActivityData.parseList(activitiesJson, options);
+					activitiesJson	= null;
+				}
+				result = activities;
+			}
+		}
+		return result;
 	}
 	
 	/** When the segment was last updated in ISO 8601 (yyyyMMddTHHmmssZ) format, always in UTC **/
@@ -81,8 +123,9 @@ public class SegmentData {
 	}
 	
 	/** {@link ArrayList} of {@link ActivityData} for this segment **/
-	public void setActivities(ArrayList<ActivityData> activities) {
+	public synchronized void setActivities(ArrayList<ActivityData> activities) {
 		this.activities = activities;
+		this.activitiesJson = null;
 	}
 	
 	/** When the segment was last updated in ISO 8601 (yyyyMMddTHHmmssZ) format, always in UTC **/
@@ -97,6 +140,17 @@ public class SegmentData {
 	 * @return corresponding {@link SegmentData}
 	 */
 	public static SegmentData parse(JSONObject jsonObject) {
+		return parse(jsonObject, null);
+	}
+	
+	/**
+	 * Parse a {@link JSONObject} from segments {@link JSONArray}, then return the corresponding {@link SegmentData} object.
+	 * @param jsonObject : the 'segment' JSON object to parse 
+	 * @param options : {@link ParseOptions} to use, or <code>null</code> to parse everything now. If lazy, the 
+	 * activities are parsed on the first call to <code>getActivities()</code>
+	 * @return corresponding {@link SegmentData}
+	 */
+	public static SegmentData parse(JSONObject jsonObject, ParseOptions options) {
 		if (jsonObject != null) {
 			SegmentData segmentData = new SegmentData();
 			segmentData.type		= jsonObject.optString("type");
@@ -105,14 +159,11 @@ public class SegmentData {
 			segmentData.lastUpdate 	= jsonObject.optString("lastUpdate");
 			
 			JSONArray activitiesJSONArray = jsonObject.optJSONArray("activities");
-			segmentData.activities = new ArrayList<ActivityData>();
-			if (activitiesJSONArray != null) {
-				for (int i = 0; i < activitiesJSONArray.length(); i++) {
-					JSONObject activityJsonObject = activitiesJSONArray.optJSONObject(i);
-					if (activityJsonObject != null) {
-						segmentData.activities.add(ActivityData.parse(activityJsonObject));
-					}
-				}
+			if (activitiesJSONArray != null && ParseOptions.isLazy(options)) {
+				segmentData.activitiesJson	= activitiesJSONArray;
+				segmentData.options			= options;
+			} else {
+				segmentData.activities		= ActivityData.parseList(activitiesJSONArray, options);
 			}
 			
 			JSONObject placeJsonObject = jsonObject.optJSONObject("place");
@@ -124,4 +175,118 @@ public class SegmentData {
 		}
     	return null;
 	}
+	
+	/**
+	 * Parse a segments {@link JSONArray}, then return the corresponding {@link SegmentData} objects.
+	 * @param jsonArray : the 'segments' JSON array to parse, may be <code>null</code>
+	 * @param options : {@link ParseOptions} to use, or <code>null</code> to parse everything now
+	 * @return {@link ArrayList} of {@link SegmentData}, empty if there are no segments
+	 */
+	public static ArrayList<SegmentData> parseList(JSONArray jsonArray, ParseOptions options) {
+		ArrayList<SegmentData> segments = new ArrayList<SegmentData>(jsonArray != null ? jsonArray.length() : 0);
+		if (jsonArray != null) {
+			for (int i = 0; i < jsonArray.length(); i++) {
+				JSONObject segmentJsonObject = jsonArray.optJSONObject(i);
+				if (segmentJsonObject != null) {
+					segments.add(parse(segmentJsonObject, options));
+				}
+			}
+		}
+		return segments;
+	}
+	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"type", "startTime", "endTime", "lastUpdate", "place", "activities"};
+	
+	/**
+	 * Read a segment JSON object from a {@link JSONStreamReader}, then return the corresponding {@link SegmentData}
+	 * object. Fields which are not selected in the {@link ParseOptions} are skipped and left <code>null</code>.
+	 * Objects and lists are taken from the {@link ParsePool} of the reader, if it has one.
+	 * @param reader : the reader, positioned at a 'segment' JSON object
+	 * @param options : {@link ParseOptions} selecting the fields to read, or <code>null</code> to read all fields
+	 * @return corresponding {@link SegmentData}
+	 */
+	public static SegmentData read(JSONStreamReader reader, ParseOptions options) throws JSONException {
+		ParsePool pool = reader.getPool();
+		SegmentData segmentData = ParsePool.obtainSegment(pool);
+		int mask = 0;
+		if (ParseOptions.includes(options, Field.SEGMENT_TYPE)) {
+			segmentData.type = "";
+			mask |= 1;
+		}
+		if (ParseOptions.includes(options, Field.SEGMENT_TIMES)) {
+			segmentData.startTime = segmentData.endTime = "";
+			mask |= 1 << 1 | 1 << 2;
+		}
+		if (ParseOptions.includes(options, Field.SEGMENT_LAST_UPDATE)) {
+			segmentData.lastUpdate = "";
+			mask |= 1 << 3;
+		}
+		if (ParseOptions.includes(options, Field.PLACE)) {
+			mask |= 1 << 4;
+		}
+		if (ParseOptions.includes(options, Field.ACTIVITIES)) {
+			mask |= 1 << 5;
+		}
+		
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS, mask)) {
+			case 0:
+				segmentData.type		= reader.optString();
+				break;
+			case 1:
+				segmentData.startTime	= reader.optString();
+				break;
+			case 2:
+				segmentData.endTime		= reader.optString();
+				break;
+			case 3:
+				segmentData.lastUpdate	= reader.optString();
+				break;
+			case 4:
+				if (reader.peek() == Token.BEGIN_OBJECT) {
+					segmentData.place = PlaceData.read(reader, options);
+				} else {
+					reader.skipValue();
+				}
+				break;
+			case 5:
+				segmentData.activities	= ActivityData.readList(reader, options);
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		if ((mask & 1 << 5) != 0 && segmentData.activities == null) {
+			segmentData.activities = ParsePool.obtainList(pool);
+		}
+		return segmentData;
+	}
+	
+	/**
+	 * Read a segments JSON array from a {@link JSONStreamReader}, then return the corresponding {@link SegmentData} objects.
+	 * @param reader : the reader, positioned at a 'segments' JSON array
+	 * @param options : {@link ParseOptions} selecting the fields to read, or <code>null</code> to read all fields
+	 * @return {@link ArrayList} of {@link SegmentData}, empty if the value is not an array
+	 */
+	public static ArrayList<SegmentData> readList(JSONStreamReader reader, ParseOptions options) throws JSONException {
+		ArrayList<SegmentData> segments = ParsePool.obtainList(reader.getPool());
+		if (reader.peek() != Token.BEGIN_ARRAY) {
+			reader.skipValue();
+			return segments;
+		}
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (reader.peek() == Token.BEGIN_OBJECT) {
+				segments.add(read(reader, options));
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endArray();
+		return segments;
+	}
 }
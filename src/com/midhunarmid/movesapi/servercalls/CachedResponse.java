@@ -0,0 +1,87 @@
+package com.midhunarmid.movesapi.servercalls;
+
+import java.net.HttpURLConnection;
+
+import android.os.SystemClock;
+
+/**
+ * A parsed response together with the validators the server sent with it. The validators are sent back with the
+ * next request for the same data, so that the server can answer <code>304 Not Modified</code> without a body and the
+ * parsed value can be used again without downloading or parsing anything.
+ * @author Midhu
+ * @param <T> : Type of the parsed value
+ * @see HTTPCall
+ */
+public class CachedResponse<T> {
+	private final T value;
+	private final String eTag;
+	private final String lastModified;
+	private final long fetchedAt;
+	
+	/**
+	 * Constructor method of {@link CachedResponse}
+	 * @param value : The parsed value
+	 * @param eTag : Value of the <code>ETag</code> header, or <code>null</code>
+	 * @param lastModified : Value of the <code>Last-Modified</code> header, or <code>null</code>
+	 */
+	public CachedResponse(T value, String eTag, String lastModified) {
+		this.value			= value;
+		this.eTag			= eTag;
+		this.lastModified	= lastModified;
+		this.fetchedAt		= SystemClock.elapsedRealtime();
+	}
+	
+	/**
+	 * Creates a {@link CachedResponse} for a value parsed from the body of a connection, with the validators of its
+	 * response headers
+	 */
+	public static <T> CachedResponse<T> from(HttpURLConnection connection, T value) {
+		return new CachedResponse<T>(value, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Whether the server sent any validator, without one a request can not be made conditional **/
+	public boolean hasValidators() {
+		return eTag != null || lastModified != null;
+	}
+	
+	/** Adds the validators to a request as <code>If-None-Match</code> and <code>If-Modified-Since</code> headers **/
+	public void applyValidators(HttpURLConnection connection) {
+		if (eTag != null) {
+			connection.setRequestProperty("If-None-Match", eTag);
+		}
+		if (lastModified != null) {
+			connection.setRequestProperty("If-Modified-Since", lastModified);
+		}
+	}
+	
+	/** A copy of this response, fetched now. Used when the server confirmed that the value is not modified. **/
+	public CachedResponse<T> revalidated() {
+		return new CachedResponse<T>(value, eTag, lastModified);
+	}
+	
+	/** Time since the value was fetched or last revalidated, in milliseconds **/
+	public long getAge() {
+		return SystemClock.elapsedRealtime() - fetchedAt;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Getter methods    *************************************************************** **/
+	
+	/** The parsed value **/
+	public T getValue() {
+		return value;
+	}
+	
+	/** Value of the <code>ETag</code> header, or <code>null</code> **/
+	public String getETag() {
+		return eTag;
+	}
+	
+	/** Value of the <code>Last-Modified</code> header, or <code>null</code> **/
+	public String getLastModified() {
+		return lastModified;
+	}
+}
@@ -3,9 +3,9 @@ package com.midhunarmid.movesapi.servercalls;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 
-import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
@@ -13,12 +13,22 @@ import android.util.Log;
 
 import com.midhunarmid.movesapi.MovesAPI;
 import com.midhunarmid.movesapi.MovesHandler;
+import com.midhunarmid.movesapi.MovesStreamHandler;
+import com.midhunarmid.movesapi.activity.TrackPointSimplifier;
 import com.midhunarmid.movesapi.auth.AuthData;
+import com.midhunarmid.movesapi.place.StorylinePlacesData;
+import com.midhunarmid.movesapi.profile.ProfileCache;
 import com.midhunarmid.movesapi.profile.ProfileData;
 import com.midhunarmid.movesapi.storyline.StorylineData;
 import com.midhunarmid.movesapi.summary.SummaryListData;
+import com.midhunarmid.movesapi.util.CallbackDelivery;
+import com.midhunarmid.movesapi.util.JSONArraySplitter;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
 import com.midhunarmid.movesapi.util.MovesAPIPreferences;
+import com.midhunarmid.movesapi.util.MovesExecutors;
 import com.midhunarmid.movesapi.util.MovesStatus;
+import com.midhunarmid.movesapi.util.ParseOptions;
+import com.midhunarmid.movesapi.util.ParsePool;
 import com.midhunarmid.movesapi.util.Utilities;
 
 /**
@@ -42,13 +52,13 @@ public class HTTPCall {
 		String refreshToken = MovesAPIPreferences.getPreference(MovesAPIPreferences.MOVES_REFRESH);
 		
 		/* Use the refresh token to get new access token with extended expiry time */
-		HashMap<String, String> nameValuePairs = new HashMap<String, String>();
-		nameValuePairs.put("grant_type", "refresh_token");
-		nameValuePairs.put("refresh_token", refreshToken);
-		nameValuePairs.put("client_id", MovesAPI.getClientDetails().getClientID());
-		nameValuePairs.put("client_secret", MovesAPI.getClientDetails().getClientSecret());
+		RequestBuilder request = RequestBuilder.obtain(RequestBuilder.ENDPOINT_ACCESSTOKEN)
+				.addParam("grant_type", "refresh_token")
+				.addParam("refresh_token", refreshToken)
+				.addParam("client_id", MovesAPI.getClientDetails().getClientID())
+				.addParam("client_secret", MovesAPI.getClientDetails().getClientSecret());
 		
-		URL url 	= new URL(MovesAPI.API_AUTH_BASE + MovesAPI.API_PATH_ACCESSTOKEN + "?" + Utilities.encodeUrl(nameValuePairs));
+		URL url 	= request.toURL();
 		
 		if (isDebugging) {
 			Log.i(TAG, "API Endpoint : " + url.toString());
@@ -70,23 +80,116 @@ public class HTTPCall {
 			Log.i(TAG, "refreshAccessToken() : " + response);
 		}
 		
-		JSONObject jsonObj 	= (JSONObject) new JSONTokener(response).nextValue();
-		String access_token	= jsonObj.optString("access_token");
-		String user_id		= jsonObj.optString("user_id");
-		String expires_in	= jsonObj.optString("expires_in");
-		String refresh_token= jsonObj.optString("refresh_token");
+		AuthData authData	= AuthData.read(new JSONStreamReader(response));
 		
-		
-		AuthData.setAccessExpiryInPreference(access_token, user_id, expires_in, refresh_token);
-		return access_token;
+		AuthData.setAccessExpiryInPreference(authData.getAccessToken(), authData.getUserID(), authData.getExpiresIn(), authData.getRefreshToken());
+		return authData.getAccessToken();
+	}
+	
+	/**
+	 * Use this method to exchange the authorization code of a successful login for an access token. The request runs
+	 * on the io pool of {@link MovesExecutors}, and the new access details are set in {@link MovesAPIPreferences}
+	 * before the handler is notified.
+	 * @param authCode : The auth code received after the user granted access
+	 * @param handler : A {@link MovesHandler} implementation which will get notified with success/failure, on an io thread
+	 */
+	public static void exchangeAuthCode(String authCode, MovesHandler<AuthData> handler) {
+		exchangeAuthCode(authCode, null, handler);
+	}
+	
+	/**
+	 * Like {@link #exchangeAuthCode(String, MovesHandler)}, for an authorization requested with a PKCE code challenge
+	 * @param authCode : The auth code received after the user granted access
+	 * @param codeVerifier : The PKCE code verifier of the challenge, <code>null</code> if there was none
+	 * @param handler : A {@link MovesHandler} implementation which will get notified with success/failure, on an io thread
+	 */
+	public static void exchangeAuthCode(final String authCode, final String codeVerifier, final MovesHandler<AuthData> handler) {
+		MovesExecutors.io().execute(new Runnable() {
+			@Override
+			public void run() {
+				AuthData authData	= null;
+				MovesStatus status	= MovesStatus.UNEXPECTED_ERROR;
+				String message		= "An unexpected error occured, please check logcat";
+				try {
+					/* Exchange the authorization code we obtained after login to get access token */
+					RequestBuilder request = RequestBuilder.obtain(RequestBuilder.ENDPOINT_ACCESSTOKEN)
+							.addParam("grant_type", "authorization_code")
+							.addParam("code", authCode)
+							.addParam("redirect_uri", MovesAPI.getClientDetails().getRedirectURL())
+							.addParam("client_id", MovesAPI.getClientDetails().getClientID())
+							.addParam("client_secret", MovesAPI.getClientDetails().getClientSecret())
+							.addParam("code_verifier", codeVerifier);
+					
+					HttpURLConnection urlConnection = (HttpURLConnection) request.toURL().openConnection();
+					urlConnection.setRequestMethod("POST");
+					urlConnection.setDoInput(true);
+					urlConnection.connect();
+					
+					if (urlConnection.getResponseCode() != 200) {
+						/* All other HTTP errors from Moves will fall here */
+						Utilities.readStream(urlConnection.getErrorStream());
+						status	= MovesStatus.AUTH_FAILED;
+						message	= "Auth request to Moves server failed";
+					} else {
+						String response	= Utilities.readStream(urlConnection.getInputStream());
+						AuthData data	= AuthData.read(new JSONStreamReader(response));
+						
+						AuthData.setAccessExpiryInPreference(data.getAccessToken(), data.getUserID(), data.getExpiresIn(), data.getRefreshToken());
+						authData = data;
+					}
+				} catch (Exception ex) {
+					ex.printStackTrace();
+				}
+				
+				/* The handler is called outside the try, an exception thrown by onSuccess must not turn into onFailure */
+				if (authData != null) {
+					handler.onSuccess(authData);
+				} else {
+					handler.onFailure(status, message);
+				}
+			}
+		});
 	}
 	
 	/**
-	 * Use this method to fetch the Profile information of a user from Moves Server
+	 * Opens a connection to the host of an endpoint in the background, so DNS lookup and TLS handshake are done and the
+	 * connection waits in the keep-alive pool when the real request is made. Failures are ignored.
+	 * @param endpoint : One of the <code>ENDPOINT_</code> constants of {@link RequestBuilder}
+	 */
+	public static void prewarmConnection(final String endpoint) {
+		MovesExecutors.io().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					HttpURLConnection urlConnection = (HttpURLConnection) new URL(endpoint).openConnection();
+					urlConnection.setRequestMethod("HEAD");
+					int responseCode = urlConnection.getResponseCode();
+					/* Reading the response to its end hands the connection back to the pool instead of closing it */
+					Utilities.readStream(responseCode < 400 ? urlConnection.getInputStream() : urlConnection.getErrorStream());
+				} catch (Exception ex) {
+					if (isDebugging) {
+						Log.i(TAG, "prewarmConnection() : " + ex);
+					}
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Use this method to fetch the Profile information of a user from Moves Server. The request is conditional if
+	 * {@link ProfileCache} holds a profile with validators, a <code>304</code> response then returns the cached profile
+	 * without reading a body. Fetched profiles are stored in {@link ProfileCache}.
 	 * @param handler : A {@link MovesHandler} implementation which will get notified with success/failure
 	 * @see <a href="https://dev.moves-app.com/docs/api_profile">Moves Developer Page for Profile</a>
 	 */
 	public static void getProfile(final MovesHandler<ProfileData> handler) {
+		/* Identical calls which are running already share their fetch with this call */
+		String key = RequestBuilder.obtain(RequestBuilder.ENDPOINT_PROFILE).getCacheKey();
+		final MovesHandler<ProfileData> callHandler = RequestCoalescer.join(key, null, handler);
+		if (callHandler == null) {
+			return;
+		}
+		
 		new Thread(new Runnable() {
 			@Override
 			public void run() {
@@ -94,24 +197,36 @@ public class HTTPCall {
 					/* Refresh access token if only AuthData.MOVES_REFRESHBEFORE days are there to expire current token */
 					AuthData.refreshAccessTokenIfNeeded();
 					
-					/* Exchange the authorization code we obtained after login to get access token */
-					HashMap<String, String> nameValuePairs = new HashMap<String, String>();
-					nameValuePairs.put("access_token", AuthData.getAuthData().getAccessToken());
+					RequestBuilder request = RequestBuilder.obtain(RequestBuilder.ENDPOINT_PROFILE)
+							.addParam("access_token", AuthData.getAuthData().getAccessToken());
 					
-					URL url 	= new URL(MovesAPI.API_BASE + MovesAPI.API_PATH_PROFILE + "?" + Utilities.encodeUrl(nameValuePairs));
+					URL url 	= request.toURL();
 					
 					if (isDebugging) {
 						Log.i(TAG, "API Endpoint : " + url.toString());
 					}
 					
+					CachedResponse<ProfileData> cached = ProfileCache.getResponse();
+					
 					HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
 					urlConnection.setRequestMethod("GET");
 					urlConnection.setDoInput(true);
+					if (cached != null) {
+						cached.applyValidators(urlConnection);
+					}
 					urlConnection.connect();
 					
+					if (cached != null && urlConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+						/* The cached profile is still valid, there is no body to read or parse */
+						urlConnection.disconnect();
+						ProfileCache.put(cached.revalidated());
+						callHandler.onSuccess(cached.getValue());
+						return;
+					}
+					
 					if (urlConnection.getResponseCode() != 200) {
 						/* All other HTTP errors from Moves will fall here */
-						handler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
+						callHandler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
 						return;
 					}
 					
@@ -123,17 +238,21 @@ public class HTTPCall {
 					
 					JSONObject jsonObject 	= (JSONObject) new JSONTokener(response).nextValue();
 					ProfileData profileData = ProfileData.parse(jsonObject);
-					handler.onSuccess(profileData);
+					ProfileCache.put(CachedResponse.from(urlConnection, profileData));
+					callHandler.onSuccess(profileData);
 				} catch (Exception ex) {
 					ex.printStackTrace();
-					handler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
+					callHandler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
 				}
 			}
 		}).start();
 	}
 	
 	/**
-	 * Use this method to fetch the Summary information of a user from Moves Server
+	 * Use this method to fetch the Summary information of a user from Moves Server. The request is conditional if
+	 * {@link ValidatorCache} holds the last response, a <code>304</code> response then hands out the cached summaries
+	 * again. These are the same objects every caller of the request gets, so treat them as read only, see
+	 * {@link ValidatorCache}.
 	 * @param handler : A {@link MovesHandler} implementation which will get notified with success/failure
 	 * @param specificSummary : If present, should be appended with API path
 	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
@@ -149,6 +268,13 @@ public class HTTPCall {
 			final String to,
 			final String pastDays,
 			final String updatedSince) {
+		/* Identical calls which are running already share their fetch with this call */
+		final String key = dailyRequest(RequestBuilder.ENDPOINT_SUMMARY, specificSummary, from, to, pastDays, updatedSince).getCacheKey();
+		final MovesHandler<ArrayList<SummaryListData>> callHandler = RequestCoalescer.join(key, null, handler);
+		if (callHandler == null) {
+			return;
+		}
+		
 		new Thread(new Runnable() {
 			@Override
 			public void run() {
@@ -156,30 +282,36 @@ public class HTTPCall {
 					/* Refresh access token if only AuthData.MOVES_REFRESHBEFORE days are there to expire current token */
 					AuthData.refreshAccessTokenIfNeeded();
 
-					/* Exchange the authorization code we obtained after login to get access token */
-					HashMap<String, String> nameValuePairs = new HashMap<String, String>();
-					nameValuePairs.put("access_token", AuthData.getAuthData().getAccessToken());
-					
-					if (from != null && from.length() > 0) nameValuePairs.put("from", from);
-					if (to != null && to.length() > 0) nameValuePairs.put("to", to);
-					if (pastDays != null && pastDays.length() > 0) nameValuePairs.put("pastDays", pastDays);
-					if (updatedSince != null && updatedSince.length() > 0) nameValuePairs.put("updatedSince", updatedSince);
+					RequestBuilder request = dailyRequest(RequestBuilder.ENDPOINT_SUMMARY, specificSummary, from, to, pastDays, updatedSince)
+							.addParam("access_token", AuthData.getAuthData().getAccessToken());
 					
-					
-					URL url 	= new URL(MovesAPI.API_BASE + MovesAPI.API_PATH_SUMMARY + (specificSummary != null ? specificSummary : "") + "?" + Utilities.encodeUrl(nameValuePairs));
+					URL url 	= request.toURL();
 					
 					if (isDebugging) {
 						Log.i(TAG, "API Endpoint : " + url.toString());
 					}
 					
+					CachedResponse<ArrayList<SummaryListData>> cached = ValidatorCache.get(key, null);
+					
 					HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
 					urlConnection.setRequestMethod("GET");
 					urlConnection.setDoInput(true);
+					if (cached != null) {
+						cached.applyValidators(urlConnection);
+					}
 					urlConnection.connect();
 					
+					if (cached != null && urlConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+						/* Not modified, hand out the days parsed before without reading a body */
+						urlConnection.disconnect();
+						ValidatorCache.put(key, null, cached.revalidated());
+						callHandler.onSuccess(new ArrayList<SummaryListData>(cached.getValue()));
+						return;
+					}
+					
 					if (urlConnection.getResponseCode() != 200) {
 						/* All other HTTP errors from Moves will fall here */
-						handler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
+						callHandler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
 						return;
 					}
 					
@@ -189,33 +321,27 @@ public class HTTPCall {
 						Log.i(TAG, "getDailySummaryList() : " + response);
 					}
 					
-					Object object = new JSONTokener(response).nextValue();
-					if (object instanceof JSONArray) {
-						JSONArray jsonArray = (JSONArray) object;
-						ArrayList<SummaryListData> summaryListData = new ArrayList<SummaryListData>();
-						if (jsonArray != null) {
-							for (int i = 0; i < jsonArray.length(); i++) {
-								JSONObject summaryListJsonObject = jsonArray.optJSONObject(i);
-								if (summaryListJsonObject != null) {
-									summaryListData.add(SummaryListData.parse(summaryListJsonObject));
-								}
-							}
-						}
-						handler.onSuccess(summaryListData);
+					ArrayList<SummaryListData> summaryListData = parseSummaryList(response, MovesAPI.getDefaultParseOptions());
+					if (summaryListData != null) {
+						ValidatorCache.put(key, null, CachedResponse.from(urlConnection, new ArrayList<SummaryListData>(summaryListData)));
+						callHandler.onSuccess(summaryListData);
 					} else {
-						handler.onFailure(MovesStatus.INVALID_RESPONSE, "Expected a JSONArray from server, but failed");;
+						callHandler.onFailure(MovesStatus.INVALID_RESPONSE, "Expected a JSONArray from server, but failed");;
 					}
 					
 				} catch (Exception ex) {
 					ex.printStackTrace();
-					handler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
+					callHandler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
 				}
 			}
 		}).start();
 	}
 	
 	/**
-	 * Use this method to fetch the Storyline information of a user from Moves Server
+	 * Use this method to fetch the Storyline information of a user from Moves Server. The request is conditional if
+	 * {@link ValidatorCache} holds the last response, a <code>304</code> response then hands out the cached storylines
+	 * again. These are the same objects every caller of the request gets, so treat them as read only, see
+	 * {@link ValidatorCache}.
 	 * @param handler : A {@link MovesHandler} implementation which will get notified with success/failure
 	 * @param specificSummary : If present, should be appended with API path
 	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
@@ -225,6 +351,7 @@ public class HTTPCall {
 	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
 	 * @param needTrackPoints : [optional]  if true, the returned activities also include track point information. 
 	 * Including track points limits the query range to 7 days.
+	 * @param options : {@link ParseOptions} used to parse the response, <code>null</code> to parse everything eagerly
 	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Storyline</a>
 	 */
 	public static void getDailyStorylineList(final MovesHandler<ArrayList<StorylineData>> handler, 
@@ -233,7 +360,16 @@ public class HTTPCall {
 			final String to,
 			final String pastDays,
 			final String updatedSince,
-			final boolean needTrackPoints) {
+			final boolean needTrackPoints,
+			final ParseOptions options) {
+		/* Identical calls which are running already share their fetch with this call */
+		final String key = dailyRequest(RequestBuilder.ENDPOINT_STORYLINE, specificSummary, from, to, pastDays, updatedSince)
+				.addParam("trackPoints", needTrackPoints ? "true" : null).getCacheKey();
+		final MovesHandler<ArrayList<StorylineData>> callHandler = RequestCoalescer.join(key, options, handler);
+		if (callHandler == null) {
+			return;
+		}
+		
 		new Thread(new Runnable() {
 			@Override
 			public void run() {
@@ -241,31 +377,37 @@ public class HTTPCall {
 					/* Refresh access token if only AuthData.MOVES_REFRESHBEFORE days are there to expire current token */
 					AuthData.refreshAccessTokenIfNeeded();
 
-					/* Exchange the authorization code we obtained after login to get access token */
-					HashMap<String, String> nameValuePairs = new HashMap<String, String>();
-					nameValuePairs.put("access_token", AuthData.getAuthData().getAccessToken());
-					
-					if (from != null && from.length() > 0) nameValuePairs.put("from", from);
-					if (to != null && to.length() > 0) nameValuePairs.put("to", to);
-					if (pastDays != null && pastDays.length() > 0) nameValuePairs.put("pastDays", pastDays);
-					if (updatedSince != null && updatedSince.length() > 0) nameValuePairs.put("updatedSince", updatedSince);
-					if (needTrackPoints) nameValuePairs.put("trackPoints", "true");
+					RequestBuilder request = dailyRequest(RequestBuilder.ENDPOINT_STORYLINE, specificSummary, from, to, pastDays, updatedSince)
+							.addParam("access_token", AuthData.getAuthData().getAccessToken())
+							.addParam("trackPoints", needTrackPoints ? "true" : null);
 					
-					
-					URL url 	= new URL(MovesAPI.API_BASE + MovesAPI.API_PATH_STORYLINE + (specificSummary != null ? specificSummary : "") + "?" + Utilities.encodeUrl(nameValuePairs));
+					URL url 	= request.toURL();
 					
 					if (isDebugging) {
 						Log.i(TAG, "API Endpoint : " + url.toString());
 					}
 					
+					CachedResponse<ArrayList<StorylineData>> cached = ValidatorCache.get(key, options);
+					
 					HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
 					urlConnection.setRequestMethod("GET");
 					urlConnection.setDoInput(true);
+					if (cached != null) {
+						cached.applyValidators(urlConnection);
+					}
 					urlConnection.connect();
 					
+					if (cached != null && urlConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+						/* Not modified, hand out the days parsed before without reading a body */
+						urlConnection.disconnect();
+						ValidatorCache.put(key, options, cached.revalidated());
+						callHandler.onSuccess(new ArrayList<StorylineData>(cached.getValue()));
+						return;
+					}
+					
 					if (urlConnection.getResponseCode() != 200) {
 						/* All other HTTP errors from Moves will fall here */
-						handler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
+						callHandler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
 						return;
 					}
 					
@@ -275,33 +417,130 @@ public class HTTPCall {
 						Log.i(TAG, "getDailyStorylineList() : " + response);
 					}
 					
-					Object object = new JSONTokener(response).nextValue();
-					if (object instanceof JSONArray) {
-						JSONArray jsonArray = (JSONArray) object;
-						ArrayList<StorylineData> storylineData = new ArrayList<StorylineData>();
-						if (jsonArray != null) {
-							for (int i = 0; i < jsonArray.length(); i++) {
-								JSONObject storylineJsonObject = jsonArray.optJSONObject(i);
-								if (storylineJsonObject != null) {
-									storylineData.add(StorylineData.parse(storylineJsonObject));
-								}
+					ArrayList<StorylineData> storylineData = parseStorylineList(response, options);
+					if (storylineData != null) {
+						ValidatorCache.put(key, options, CachedResponse.from(urlConnection, new ArrayList<StorylineData>(storylineData)));
+						callHandler.onSuccess(storylineData);
+					} else {
+						callHandler.onFailure(MovesStatus.INVALID_RESPONSE, "Expected a JSONArray from server, but failed");;
+					}
+					
+				} catch (Exception ex) {
+					ex.printStackTrace();
+					callHandler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
+				}
+			}
+		}).start();
+	}
+	
+	/**
+	 * Use this method to fetch daily storylines for user from Moves Server, one day at a time. Each day is parsed
+	 * and delivered as soon as it is read off the response, so the first days can be shown while the rest of a long
+	 * range is still downloading. Streamed calls are not coalesced and not revalidated with {@link ValidatorCache}.
+	 * If the options have a {@link ParsePool}, the days are read with objects of the pool and the handler hands
+	 * each day back to the pool when it is done with it.
+	 * @param handler : A {@link MovesStreamHandler} implementation which will get notified with each day, the
+	 * progress, the completion or failure
+	 * @param specificSummary : If present, should be appended with API path
+	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
+	 * @param to : Range end in yyyyMMdd or yyyy-MM-dd format
+	 * @param pastDays :  How many past days to return, including today (in users current time zone)
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param needTrackPoints : [optional]  if true, the returned activities also include track point information. 
+	 * Including track points limits the query range to 7 days.
+	 * @param options : {@link ParseOptions} used to parse the response, <code>null</code> to parse everything eagerly
+	 * @see <a href="https://dev.moves-app.com/docs/api_storyline">Moves Developer Page for Storyline</a>
+	 */
+	public static void streamDailyStorylineList(final MovesStreamHandler<StorylineData> handler, 
+			final String specificSummary,
+			final String from,
+			final String to,
+			final String pastDays,
+			final String updatedSince,
+			final boolean needTrackPoints,
+			final ParseOptions options) {
+		final StreamCall<StorylineData> callHandler = new StreamCall<StorylineData>(MovesAPI.getCallbackDelivery(), handler);
+		
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					/* Refresh access token if only AuthData.MOVES_REFRESHBEFORE days are there to expire current token */
+					AuthData.refreshAccessTokenIfNeeded();
+
+					RequestBuilder request = dailyRequest(RequestBuilder.ENDPOINT_STORYLINE, specificSummary, from, to, pastDays, updatedSince)
+							.addParam("access_token", AuthData.getAuthData().getAccessToken())
+							.addParam("trackPoints", needTrackPoints ? "true" : null);
+					
+					URL url 	= request.toURL();
+					
+					if (isDebugging) {
+						Log.i(TAG, "API Endpoint : " + url.toString());
+					}
+					
+					HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+					urlConnection.setRequestMethod("GET");
+					urlConnection.setDoInput(true);
+					urlConnection.connect();
+					
+					if (urlConnection.getResponseCode() != 200) {
+						/* All other HTTP errors from Moves will fall here */
+						callHandler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
+						return;
+					}
+					
+					long total = urlConnection.getContentLength();
+					TrackPointSimplifier simplifier = options != null ? options.getTrackPointSimplifier() : null;
+					JSONArraySplitter splitter = new JSONArraySplitter(urlConnection.getInputStream());
+					ParsePool pool = ParseOptions.getPool(options);
+					/* One reader for the whole response, reading each day in place from the buffer of the splitter */
+					JSONStreamReader reader = null;
+					if (pool != null || ParseOptions.hasFields(options)) {
+						reader = new JSONStreamReader("").setPool(pool);
+					}
+					int days = 0;
+					try {
+						CharSequence day;
+						while ((day = splitter.nextObjectBuffer()) != null) {
+							StorylineData storyline;
+							if (reader != null) {
+								storyline = StorylineData.read(reader.reset(day, 0, day.length()), options);
+							} else {
+								storyline = StorylineData.parse(parseObject(day.toString(), 0, day.length()), options);
+							}
+							if (simplifier != null) {
+								simplifier.simplifyStorylines(Collections.singletonList(storyline));
 							}
+							callHandler.onItem(storyline);
+							callHandler.onProgress(splitter.getBytesRead(), total);
+							days++;
 						}
-						handler.onSuccess(storylineData);
-					} else {
-						handler.onFailure(MovesStatus.INVALID_RESPONSE, "Expected a JSONArray from server, but failed");;
+					} finally {
+						splitter.close();
+					}
+					
+					if (isDebugging) {
+						Log.i(TAG, "streamDailyStorylineList() : " + days + " days");
 					}
+					callHandler.onComplete();
 					
+				} catch (JSONException ex) {
+					ex.printStackTrace();
+					callHandler.onFailure(MovesStatus.INVALID_RESPONSE, "Expected a JSONArray from server, but failed");
 				} catch (Exception ex) {
 					ex.printStackTrace();
-					handler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
+					callHandler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
 				}
 			}
 		}).start();
 	}
 	
 	/**
-	 * Use this method to fetch daily activity breakdown for user from Moves Server
+	 * Use this method to fetch daily activity breakdown for user from Moves Server. The request is conditional if
+	 * {@link ValidatorCache} holds the last response, a <code>304</code> response then hands out the cached days again.
+	 * These are the same objects every caller of the request gets, so treat them as read only, see
+	 * {@link ValidatorCache}.
 	 * @param handler : A {@link MovesHandler} implementation which will get notified with success/failure
 	 * @param specificSummary : If present, should be appended with API path
 	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
@@ -309,6 +548,7 @@ public class HTTPCall {
 	 * @param pastDays :  How many past days to return, including today (in users current time zone)
 	 * @param updatedSince : [optional] if set, return only days which data has been updated since
 	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, <code>null</code> to parse everything eagerly
 	 * @see <a href="https://dev.moves-app.com/docs/api_activity_list">Moves Developer Page for Activity list</a>
 	 */
 	public static void getDailyActivitiesList(final MovesHandler<ArrayList<StorylineData>> handler, 
@@ -316,7 +556,15 @@ public class HTTPCall {
 			final String from,
 			final String to,
 			final String pastDays,
-			final String updatedSince) {
+			final String updatedSince,
+			final ParseOptions options) {
+		/* Identical calls which are running already share their fetch with this call */
+		final String key = dailyRequest(RequestBuilder.ENDPOINT_ACTIVITIES, specificSummary, from, to, pastDays, updatedSince).getCacheKey();
+		final MovesHandler<ArrayList<StorylineData>> callHandler = RequestCoalescer.join(key, options, handler);
+		if (callHandler == null) {
+			return;
+		}
+		
 		new Thread(new Runnable() {
 			@Override
 			public void run() {
@@ -324,30 +572,36 @@ public class HTTPCall {
 					/* Refresh access token if only AuthData.MOVES_REFRESHBEFORE days are there to expire current token */
 					AuthData.refreshAccessTokenIfNeeded();
 
-					/* Exchange the authorization code we obtained after login to get access token */
-					HashMap<String, String> nameValuePairs = new HashMap<String, String>();
-					nameValuePairs.put("access_token", AuthData.getAuthData().getAccessToken());
+					RequestBuilder request = dailyRequest(RequestBuilder.ENDPOINT_ACTIVITIES, specificSummary, from, to, pastDays, updatedSince)
+							.addParam("access_token", AuthData.getAuthData().getAccessToken());
 					
-					if (from != null && from.length() > 0) nameValuePairs.put("from", from);
-					if (to != null && to.length() > 0) nameValuePairs.put("to", to);
-					if (pastDays != null && pastDays.length() > 0) nameValuePairs.put("pastDays", pastDays);
-					if (updatedSince != null && updatedSince.length() > 0) nameValuePairs.put("updatedSince", updatedSince);
-					
-					
-					URL url 	= new URL(MovesAPI.API_BASE + MovesAPI.API_PATH_ACTIVITIES + (specificSummary != null ? specificSummary : "") + "?" + Utilities.encodeUrl(nameValuePairs));
+					URL url 	= request.toURL();
 					
 					if (isDebugging) {
 						Log.i(TAG, "DailyActivitiesList API Endpoint : " + url.toString());
 					}
 					
+					CachedResponse<ArrayList<StorylineData>> cached = ValidatorCache.get(key, options);
+					
 					HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
 					urlConnection.setRequestMethod("GET");
 					urlConnection.setDoInput(true);
+					if (cached != null) {
+						cached.applyValidators(urlConnection);
+					}
 					urlConnection.connect();
 					
+					if (cached != null && urlConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+						/* Not modified, hand out the days parsed before without reading a body */
+						urlConnection.disconnect();
+						ValidatorCache.put(key, options, cached.revalidated());
+						callHandler.onSuccess(new ArrayList<StorylineData>(cached.getValue()));
+						return;
+					}
+					
 					if (urlConnection.getResponseCode() != 200) {
 						/* All other HTTP errors from Moves will fall here */
-						handler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
+						callHandler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
 						return;
 					}
 					
@@ -357,31 +611,321 @@ public class HTTPCall {
 						Log.i(TAG, "getDailyActivitiesList() : " + response);
 					}
 					
-					Object object = new JSONTokener(response).nextValue();
-					if (object instanceof JSONArray) {
-						JSONArray jsonArray = (JSONArray) object;
-						ArrayList<StorylineData> storylineData = new ArrayList<StorylineData>();
-						if (jsonArray != null) {
-							for (int i = 0; i < jsonArray.length(); i++) {
-								JSONObject storylineJsonObject = jsonArray.optJSONObject(i);
-								if (storylineJsonObject != null) {
-									storylineData.add(StorylineData.parse(storylineJsonObject));
-								}
-							}
-						}
-						handler.onSuccess(storylineData);
+					ArrayList<StorylineData> storylineData = parseStorylineList(response, options);
+					if (storylineData != null) {
+						ValidatorCache.put(key, options, CachedResponse.from(urlConnection, new ArrayList<StorylineData>(storylineData)));
+						callHandler.onSuccess(storylineData);
 					} else {
-						handler.onFailure(MovesStatus.INVALID_RESPONSE, "Expected a JSONArray from server, but failed");;
+						callHandler.onFailure(MovesStatus.INVALID_RESPONSE, "Expected a JSONArray from server, but failed");;
 					}
 					
 				} catch (Exception ex) {
 					ex.printStackTrace();
-					handler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
+					callHandler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
 				}
 			}
 		}).start();
 	}
 	
+	/**
+	 * Use this method to fetch daily places for user from Moves Server. The request is conditional if
+	 * {@link ValidatorCache} holds the last response, a <code>304</code> response then hands out the cached days again.
+	 * These are the same objects every caller of the request gets, so treat them as read only, see
+	 * {@link ValidatorCache}.
+	 * @param handler : A {@link MovesHandler} implementation which will get notified with success/failure
+	 * @param specificSummary : If present, should be appended with API path
+	 * @param from :  Range start in yyyyMMdd or yyyy-MM-dd format
+	 * @param to : Range end in yyyyMMdd or yyyy-MM-dd format
+	 * @param pastDays :  How many past days to return, including today (in users current time zone)
+	 * @param updatedSince : [optional] if set, return only days which data has been updated since
+	 * given time stamp in ISO 8601 (yyyyMMddTHHmmssZ) format, pass <code>null</code> if not required.
+	 * @param options : {@link ParseOptions} used to parse the response, <code>null</code> to parse everything eagerly
+	 * @see <a href="https://dev.moves-app.com/docs/api_places">Moves Developer Page for Places</a>
+	 */
+	public static void getDailyPlacesList(final MovesHandler<ArrayList<StorylinePlacesData>> handler, 
+			final String specificSummary,
+			final String from,
+			final String to,
+			final String pastDays,
+			final String updatedSince,
+			final ParseOptions options) {
+		/* Identical calls which are running already share their fetch with this call */
+		final String key = dailyRequest(RequestBuilder.ENDPOINT_PLACES, specificSummary, from, to, pastDays, updatedSince).getCacheKey();
+		final MovesHandler<ArrayList<StorylinePlacesData>> callHandler = RequestCoalescer.join(key, options, handler);
+		if (callHandler == null) {
+			return;
+		}
+		
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					/* Refresh access token if only AuthData.MOVES_REFRESHBEFORE days are there to expire current token */
+					AuthData.refreshAccessTokenIfNeeded();
+
+					RequestBuilder request = dailyRequest(RequestBuilder.ENDPOINT_PLACES, specificSummary, from, to, pastDays, updatedSince)
+							.addParam("access_token", AuthData.getAuthData().getAccessToken());
+					
+					URL url 	= request.toURL();
+					
+					if (isDebugging) {
+						Log.i(TAG, "API Endpoint : " + url.toString());
+					}
+					
+					CachedResponse<ArrayList<StorylinePlacesData>> cached = ValidatorCache.get(key, options);
+					
+					HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+					urlConnection.setRequestMethod("GET");
+					urlConnection.setDoInput(true);
+					if (cached != null) {
+						cached.applyValidators(urlConnection);
+					}
+					urlConnection.connect();
+					
+					if (cached != null && urlConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+						/* Not modified, hand out the days parsed before without reading a body */
+						urlConnection.disconnect();
+						ValidatorCache.put(key, options, cached.revalidated());
+						callHandler.onSuccess(new ArrayList<StorylinePlacesData>(cached.getValue()));
+						return;
+					}
+					
+					if (urlConnection.getResponseCode() != 200) {
+						/* All other HTTP errors from Moves will fall here */
+						callHandler.onFailure(getErrorStatus(Utilities.readStream(urlConnection.getErrorStream()), urlConnection.getResponseCode()), "Server not responded with success ("+ urlConnection.getResponseCode() +")");
+						return;
+					}
+					
+					String response = Utilities.readStream(urlConnection.getInputStream());
+					
+					if (isDebugging) {
+						Log.i(TAG, "getDailyPlacesList() : " + response);
+					}
+					
+					ArrayList<StorylinePlacesData> placesData = parsePlacesList(response, options);
+					if (placesData != null) {
+						ValidatorCache.put(key, options, CachedResponse.from(urlConnection, new ArrayList<StorylinePlacesData>(placesData)));
+						callHandler.onSuccess(placesData);
+					} else {
+						callHandler.onFailure(MovesStatus.INVALID_RESPONSE, "Expected a JSONArray from server, but failed");;
+					}
+					
+				} catch (Exception ex) {
+					ex.printStackTrace();
+					callHandler.onFailure(MovesStatus.UNEXPECTED_ERROR, "An unexpected error occured, please check logcat");
+				}
+			}
+		}).start();
+	}
+	
+	/**
+	 * Builds a request of one of the daily endpoints, without the access token. Empty values are skipped by the
+	 * request builder.
+	 */
+	private static RequestBuilder dailyRequest(String endpoint, String specificSummary, String from, String to,
+			String pastDays, String updatedSince) {
+		return RequestBuilder.obtain(endpoint)
+				.setPath(specificSummary)
+				.addParam("from", from)
+				.addParam("to", to)
+				.addParam("pastDays", pastDays)
+				.addParam("updatedSince", updatedSince);
+	}
+	
+	/**
+	 * Parses a summary response, see {@link #parseDays(String, ParseOptions, DayParser)}
+	 * @return the parsed days, or <code>null</code> if the response is not a JSON array
+	 */
+	private static ArrayList<SummaryListData> parseSummaryList(String response, ParseOptions options) throws Exception {
+		return parseDays(response, options, new DayParser<SummaryListData>() {
+			@Override
+			SummaryListData parse(String json, int start, int end) throws JSONException {
+				return SummaryListData.parse(parseObject(json, start, end));
+			}
+		});
+	}
+	
+	/**
+	 * Parses a storyline or activities response. When the {@link ParseOptions} select only some fields, the days are
+	 * read with a {@link JSONStreamReader} and all other fields are skipped without being parsed. Track points are
+	 * simplified afterwards if the options have a {@link TrackPointSimplifier}.
+	 * @return the parsed days, or <code>null</code> if the response is not a JSON array
+	 * @see #parseDays(String, ParseOptions, DayParser)
+	 */
+	private static ArrayList<StorylineData> parseStorylineList(String response, final ParseOptions options) throws Exception {
+		ArrayList<StorylineData> storylineData = parseDays(response, options, new DayParser<StorylineData>() {
+			@Override
+			StorylineData parse(String json, int start, int end) throws JSONException {
+				if (ParseOptions.hasFields(options)) {
+					return StorylineData.read(new JSONStreamReader(json, start, end), options);
+				}
+				return StorylineData.parse(parseObject(json, start, end), options);
+			}
+		});
+		
+		/* Optional pipeline stage after parsing */
+		TrackPointSimplifier simplifier = options != null ? options.getTrackPointSimplifier() : null;
+		if (storylineData != null && simplifier != null) {
+			simplifier.simplifyStorylines(storylineData);
+		}
+		return storylineData;
+	}
+	
+	/**
+	 * Parses a places response, see {@link #parseStorylineList(String, ParseOptions)}
+	 * @return the parsed days, or <code>null</code> if the response is not a JSON array
+	 */
+	private static ArrayList<StorylinePlacesData> parsePlacesList(String response, final ParseOptions options) throws Exception {
+		return parseDays(response, options, new DayParser<StorylinePlacesData>() {
+			@Override
+			StorylinePlacesData parse(String json, int start, int end) throws JSONException {
+				if (ParseOptions.hasFields(options)) {
+					return StorylinePlacesData.read(new JSONStreamReader(json, start, end), options);
+				}
+				return StorylinePlacesData.parse(parseObject(json, start, end));
+			}
+		});
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Day parsing methods  ************************************************************ **/
+	
+	/** Parses one day of a response, given as the range of its JSON object in the response text **/
+	private static abstract class DayParser<T> {
+		abstract T parse(String json, int start, int end) throws JSONException;
+	}
+	
+	/**
+	 * Parses the days of a response which is a JSON array of days. The days are independent of each other, so once
+	 * the array is split into the text ranges of its days, responses with at least
+	 * {@link ParseOptions#getParallelThreshold()} days are parsed in parallel on the {@link MovesExecutors} pool.
+	 * Smaller responses are parsed on the calling thread. Elements which are not JSON objects are skipped, and the
+	 * days are returned in the order of the response either way.
+	 * @return the parsed days, or <code>null</code> if the response is not a JSON array
+	 */
+	private static <T> ArrayList<T> parseDays(final String response, ParseOptions options, final DayParser<T> parser) throws Exception {
+		final int[] ranges = splitArray(response);
+		if (ranges == null) {
+			return null;
+		}
+		final int days = ranges.length / 2;
+		final Object[] results = new Object[days];
+		MovesExecutors.RangeTask task = new MovesExecutors.RangeTask() {
+			@Override
+			public void run(int from, int to) throws Exception {
+				for (int i = from; i < to; i++) {
+					results[i] = parser.parse(response, ranges[2 * i], ranges[2 * i + 1]);
+				}
+			}
+		};
+		if (days < ParseOptions.getParallelThreshold(options)) {
+			task.run(0, days);
+		} else {
+			MovesExecutors.forEachRange(days, 1, task);
+		}
+		
+		ArrayList<T> list = new ArrayList<T>(days);
+		for (int i = 0; i < days; i++) {
+			@SuppressWarnings("unchecked")
+			T day = (T) results[i];
+			list.add(day);
+		}
+		return list;
+	}
+	
+	/**
+	 * Finds the JSON objects in a response which is a JSON array. Only brackets and strings are scanned, the values
+	 * are not parsed.
+	 * @return start and end index of each object one after another, or <code>null</code> if the response is not a
+	 * JSON array
+	 */
+	private static int[] splitArray(String response) throws JSONException {
+		JSONStreamReader reader = new JSONStreamReader(response);
+		if (reader.peek() != JSONStreamReader.Token.BEGIN_ARRAY) {
+			return null;
+		}
+		int[] ranges = new int[64];
+		int count = 0;
+		reader.beginArray();
+		while (reader.hasNext()) {
+			boolean isObject = reader.peek() == JSONStreamReader.Token.BEGIN_OBJECT;
+			int start = reader.getPosition();
+			reader.skipValue();
+			if (isObject) {
+				if (count == ranges.length) {
+					int[] grown = new int[count * 2];
+					System.arraycopy(ranges, 0, grown, 0, count);
+					ranges = grown;
+				}
+				ranges[count++] = start;
+				ranges[count++] = reader.getPosition();
+			}
+		}
+		reader.endArray();
+		
+		int[] result = new int[count];
+		System.arraycopy(ranges, 0, result, 0, count);
+		return result;
+	}
+	
+	/**
+	 * Notifies a {@link MovesStreamHandler} through a {@link CallbackDelivery.Batch}, so the callbacks keep their
+	 * order and days parsed while the delivery thread is busy are handed over together.
+	 */
+	private static class StreamCall<T> implements MovesStreamHandler<T> {
+		private final CallbackDelivery.Batch batch;
+		private final MovesStreamHandler<T> handler;
+		
+		StreamCall(CallbackDelivery delivery, MovesStreamHandler<T> handler) {
+			this.batch		= delivery.newBatch();
+			this.handler	= handler;
+		}
+		
+		@Override
+		public void onItem(final T item) {
+			batch.add(new Runnable() {
+				@Override
+				public void run() {
+					handler.onItem(item);
+				}
+			});
+		}
+		
+		@Override
+		public void onProgress(final long bytesRead, final long total) {
+			batch.add(new Runnable() {
+				@Override
+				public void run() {
+					handler.onProgress(bytesRead, total);
+				}
+			});
+		}
+		
+		@Override
+		public void onComplete() {
+			batch.add(new Runnable() {
+				@Override
+				public void run() {
+					handler.onComplete();
+				}
+			});
+		}
+		
+		@Override
+		public void onFailure(final MovesStatus status, final String message) {
+			batch.add(new Runnable() {
+				@Override
+				public void run() {
+					handler.onFailure(status, message);
+				}
+			});
+		}
+	}
+	
+	private static JSONObject parseObject(String json, int start, int end) throws JSONException {
+		return (JSONObject) new JSONTokener(json.substring(start, end)).nextValue();
+	}
+	
 	private static MovesStatus getErrorStatus(String response, int statusCode) {
 		MovesStatus errorStatus = MovesStatus.BAD_RESPONSE;
 		if (statusCode == 401) {
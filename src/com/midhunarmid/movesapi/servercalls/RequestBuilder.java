@@ -0,0 +1,240 @@
+package com.midhunarmid.movesapi.servercalls;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import com.midhunarmid.movesapi.MovesAPI;
+
+/**
+ * A reusable builder for Moves API request URLs. Parameters are kept sorted by name, so the same request always
+ * produces the same URL and {@link #getCacheKey()} can be used to identify a request. Values are percent encoded
+ * in place and only when they contain characters which need encoding.<br><br>
+ *
+ * A {@link RequestBuilder} is not thread safe, use {@link #obtain(String)} to get the preallocated instance of the
+ * current thread.
+ * @author Midhu
+ * @see HTTPCall
+ */
+public class RequestBuilder {
+	
+	/* Constant parts of the Moves API endpoint URLs */
+	public static final String ENDPOINT_ACCESSTOKEN	= MovesAPI.API_AUTH_BASE + MovesAPI.API_PATH_ACCESSTOKEN;
+	public static final String ENDPOINT_AUTHORIZE	= MovesAPI.API_AUTH_BASE + MovesAPI.API_PATH_AUTHORIZE;
+	public static final String ENDPOINT_PROFILE		= MovesAPI.API_BASE + MovesAPI.API_PATH_PROFILE;
+	public static final String ENDPOINT_SUMMARY		= MovesAPI.API_BASE + MovesAPI.API_PATH_SUMMARY;
+	public static final String ENDPOINT_STORYLINE	= MovesAPI.API_BASE + MovesAPI.API_PATH_STORYLINE;
+	public static final String ENDPOINT_ACTIVITIES	= MovesAPI.API_BASE + MovesAPI.API_PATH_ACTIVITIES;
+	public static final String ENDPOINT_PLACES		= MovesAPI.API_BASE + MovesAPI.API_PATH_PLACES;
+	
+	/* Parameters which are left out of the cache key, they identify the user session and not the request */
+	private static final String[] CREDENTIAL_PARAMS = {"access_token", "client_secret", "code", "code_verifier", "refresh_token"};
+	
+	private static final int MAX_PARAMS = 16;
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+	
+	private static final ThreadLocal<RequestBuilder> mThreadBuilder = new ThreadLocal<RequestBuilder>() {
+		@Override
+		protected RequestBuilder initialValue() {
+			return new RequestBuilder();
+		}
+	};
+	
+	private String mEndpoint;
+	private String mPath;
+	private final String[] mNames	= new String[MAX_PARAMS];
+	private final String[] mValues	= new String[MAX_PARAMS];
+	private int mCount;
+	private final StringBuilder mBuffer = new StringBuilder(256);
+	
+	/** Creates a new empty {@link RequestBuilder}, call <code>reset()</code> to set the endpoint before using it **/
+	public RequestBuilder() {
+		super();
+	}
+	
+	/**
+	 * Gets the preallocated {@link RequestBuilder} of the calling thread, reset for a new request. The returned builder
+	 * must not be kept or shared with other threads.
+	 * @param endpoint : The constant endpoint URL, one of the <code>ENDPOINT_</code> constants
+	 * @return An empty builder for the given endpoint
+	 */
+	public static RequestBuilder obtain(String endpoint) {
+		return mThreadBuilder.get().reset(endpoint);
+	}
+	
+	/** Clears all parameters and sets a new endpoint, so that this builder can be reused **/
+	public RequestBuilder reset(String endpoint) {
+		for (int i = 0; i < mCount; i++) {
+			mNames[i]	= null;
+			mValues[i]	= null;
+		}
+		mCount		= 0;
+		mEndpoint	= endpoint;
+		mPath		= null;
+		return this;
+	}
+	
+	/** Appends a path to the endpoint, for example <code>/20131105</code>. <code>null</code> is ignored **/
+	public RequestBuilder setPath(String path) {
+		mPath = path;
+		return this;
+	}
+	
+	/**
+	 * Adds a query parameter, replacing any previous value with the same name.
+	 * @param name : Name of the parameter
+	 * @param value : Value of the parameter, the parameter is skipped if it is <code>null</code> or empty
+	 * @return this builder
+	 */
+	public RequestBuilder addParam(String name, String value) {
+		if (value == null || value.length() == 0) {
+			return this;
+		}
+		/* Insertion sort, requests have only a handful of parameters */
+		int index = 0;
+		while (index < mCount) {
+			int compare = mNames[index].compareTo(name);
+			if (compare == 0) {
+				mValues[index] = value;
+				return this;
+			} else if (compare > 0) {
+				break;
+			}
+			index++;
+		}
+		if (mCount == MAX_PARAMS) {
+			throw new IllegalStateException("Too many request parameters");
+		}
+		System.arraycopy(mNames, index, mNames, index + 1, mCount - index);
+		System.arraycopy(mValues, index, mValues, index + 1, mCount - index);
+		mNames[index]	= name;
+		mValues[index]	= value;
+		mCount++;
+		return this;
+	}
+	
+	/** Gets the complete URL of this request, as {@link String} **/
+	public String build() {
+		return write(false);
+	}
+	
+	/** Gets the complete URL of this request, as {@link URL} **/
+	public URL toURL() throws MalformedURLException {
+		return new URL(write(false));
+	}
+	
+	/** Gets the URL of this request without any credentials, which identifies the request for caching **/
+	public String getCacheKey() {
+		return write(true);
+	}
+	
+	/** Gets the encoded query of this request, without the leading <code>?</code> **/
+	public String getQuery() {
+		StringBuilder sb = mBuffer;
+		sb.setLength(0);
+		appendQuery(sb, false);
+		return sb.toString();
+	}
+	
+	@Override
+	public String toString() {
+		return build();
+	}
+	
+	private String write(boolean skipCredentials) {
+		StringBuilder sb = mBuffer;
+		sb.setLength(0);
+		sb.append(mEndpoint);
+		if (mPath != null) {
+			sb.append(mPath);
+		}
+		if (mCount > 0) {
+			sb.append('?');
+			appendQuery(sb, skipCredentials);
+			if (sb.charAt(sb.length() - 1) == '?') {
+				sb.setLength(sb.length() - 1);
+			}
+		}
+		return sb.toString();
+	}
+	
+	private void appendQuery(StringBuilder sb, boolean skipCredentials) {
+		boolean first = true;
+		for (int i = 0; i < mCount; i++) {
+			if (skipCredentials && isCredential(mNames[i])) {
+				continue;
+			}
+			if (first) {
+				first = false;
+			} else {
+				sb.append('&');
+			}
+			appendEncoded(sb, mNames[i]);
+			sb.append('=');
+			appendEncoded(sb, mValues[i]);
+		}
+	}
+	
+	private static boolean isCredential(String name) {
+		for (String credential : CREDENTIAL_PARAMS) {
+			if (credential.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Encoder methods   *************************************************************** **/
+	
+	/**
+	 * Appends a value to the given {@link StringBuilder}, encoded the same way as
+	 * <code>URLEncoder.encode(value, "UTF-8")</code>. Values which do not need encoding are appended as they are.
+	 * @param sb : Where to append the encoded value
+	 * @param value : The value to encode
+	 */
+	public static void appendEncoded(StringBuilder sb, String value) {
+		int length = value.length();
+		int start = 0;
+		while (start < length && isUnreserved(value.charAt(start))) {
+			start++;
+		}
+		sb.append(value, 0, start);
+		for (int i = start; i < length; i++) {
+			char ch = value.charAt(i);
+			if (isUnreserved(ch)) {
+				sb.append(ch);
+			} else if (ch == ' ') {
+				sb.append('+');
+			} else if (ch < 0x80) {
+				appendEscaped(sb, ch);
+			} else if (ch < 0x800) {
+				appendEscaped(sb, 0xC0 | (ch >> 6));
+				appendEscaped(sb, 0x80 | (ch & 0x3F));
+			} else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(ch, value.charAt(++i));
+				appendEscaped(sb, 0xF0 | (codePoint >> 18));
+				appendEscaped(sb, 0x80 | ((codePoint >> 12) & 0x3F));
+				appendEscaped(sb, 0x80 | ((codePoint >> 6) & 0x3F));
+				appendEscaped(sb, 0x80 | (codePoint & 0x3F));
+			} else if (ch >= '\uD800' && ch <= '\uDFFF') {
+				/* A lone surrogate can not be encoded, URLEncoder writes a '?' for it */
+				appendEscaped(sb, '?');
+			} else {
+				appendEscaped(sb, 0xE0 | (ch >> 12));
+				appendEscaped(sb, 0x80 | ((ch >> 6) & 0x3F));
+				appendEscaped(sb, 0x80 | (ch & 0x3F));
+			}
+		}
+	}
+	
+	private static boolean isUnreserved(char ch) {
+		return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9')
+				|| ch == '.' || ch == '-' || ch == '*' || ch == '_';
+	}
+	
+	private static void appendEscaped(StringBuilder sb, int value) {
+		sb.append('%');
+		sb.append(HEX[(value >> 4) & 0x0F]);
+		sb.append(HEX[value & 0x0F]);
+	}
+}
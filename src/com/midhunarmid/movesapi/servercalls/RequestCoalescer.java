@@ -0,0 +1,133 @@
+package com.midhunarmid.movesapi.servercalls;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.midhunarmid.movesapi.MovesAPI;
+import com.midhunarmid.movesapi.MovesHandler;
+import com.midhunarmid.movesapi.util.CallbackDelivery;
+import com.midhunarmid.movesapi.util.MovesStatus;
+
+/**
+ * Coalesces identical API calls which run at the same time. The first call for a request starts the network fetch,
+ * identical calls made while it is running do not start their own, their {@link MovesHandler}s get the result of the
+ * running call instead. Requests are identified by {@link RequestBuilder#getCacheKey()}, which holds the endpoint and
+ * the sorted, encoded parameters without credentials, together with the parse options of the call.<br><br>
+ * 
+ * All handlers of a coalesced call receive the same result objects, so handlers should not modify the result if the
+ * same request may be made from different places of an application. The handlers are notified through the
+ * {@link CallbackDelivery} which was set when the first call was made, all of them in one batch.
+ * @author Midhu
+ * @see HTTPCall
+ */
+public class RequestCoalescer {
+	
+	private static final HashMap<String, Call<?>> mInFlight = new HashMap<String, Call<?>>();
+	private static volatile boolean mEnabled = true;
+	
+	/**
+	 * Whether identical concurrent calls share one fetch. Default is <code>true</code>.
+	 */
+	public static void setEnabled(boolean enabled) {
+		mEnabled = enabled;
+	}
+	
+	/** Whether identical concurrent calls share one fetch **/
+	public static boolean isEnabled() {
+		return mEnabled;
+	}
+	
+	/**
+	 * Joins a call to an identical call which is already running, or registers it as the running call of its request.
+	 * @param key : Identifies the request, see {@link RequestBuilder#getCacheKey()}
+	 * @param options : Anything else which changes the result of the call, usually its parse options, or <code>null</code>
+	 * @param handler : The handler of the call
+	 * @return <code>null</code> if the call joined a running call and must not fetch anything. Otherwise the handler to
+	 * notify when the fetch completes, which notifies the given handler and all calls joining later through the
+	 * {@link CallbackDelivery} of {@link MovesAPI#getCallbackDelivery()}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> MovesHandler<T> join(String key, Object options, MovesHandler<T> handler) {
+		CallbackDelivery delivery = MovesAPI.getCallbackDelivery();
+		if (!mEnabled) {
+			return new Call<T>(null, options, delivery, handler);
+		}
+		String fullKey = options != null ? key + '#' + System.identityHashCode(options) : key;
+		synchronized (mInFlight) {
+			Call<?> running = mInFlight.get(fullKey);
+			if (running != null) {
+				if (running.options != options) {
+					/* Only the identity hash of the options matched, do not share */
+					return new Call<T>(null, options, delivery, handler);
+				}
+				((Call<T>) running).handlers.add(handler);
+				return null;
+			}
+			Call<T> call = new Call<T>(fullKey, options, delivery, handler);
+			mInFlight.put(fullKey, call);
+			return call;
+		}
+	}
+	
+	/** The running call of a request, notifies all handlers which joined it. A <code>null</code> key is not shared **/
+	private static class Call<T> implements MovesHandler<T> {
+		private final String key;
+		private final Object options;
+		private final CallbackDelivery delivery;
+		private final ArrayList<MovesHandler<T>> handlers = new ArrayList<MovesHandler<T>>(2);
+	
+		Call(String key, Object options, CallbackDelivery delivery, MovesHandler<T> handler) {
+			this.key		= key;
+			this.options	= options;
+			this.delivery	= delivery;
+			handlers.add(handler);
+		}
+	
+		@Override
+		public void onSuccess(final T result) {
+			final ArrayList<MovesHandler<T>> joined = finish();
+			delivery.deliver(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < joined.size(); i++) {
+						try {
+							joined.get(i).onSuccess(result);
+						} catch (RuntimeException e) {
+							/* One failing handler must not keep the result from the others */
+							e.printStackTrace();
+						}
+					}
+				}
+			});
+		}
+	
+		@Override
+		public void onFailure(final MovesStatus status, final String message) {
+			final ArrayList<MovesHandler<T>> joined = finish();
+			delivery.deliver(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < joined.size(); i++) {
+						try {
+							joined.get(i).onFailure(status, message);
+						} catch (RuntimeException e) {
+							e.printStackTrace();
+						}
+					}
+				}
+			});
+		}
+	
+		/** Stops new calls from joining and returns the handlers to notify, only once **/
+		private ArrayList<MovesHandler<T>> finish() {
+			synchronized (mInFlight) {
+				if (key != null && mInFlight.get(key) == this) {
+					mInFlight.remove(key);
+				}
+				ArrayList<MovesHandler<T>> joined = new ArrayList<MovesHandler<T>>(handlers);
+				handlers.clear();
+				return joined;
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.midhunarmid.movesapi.servercalls;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.midhunarmid.movesapi.auth.AuthData;
+
+/**
+ * Keeps the parsed responses of the daily endpoints together with their validators, per request. {@link HTTPCall}
+ * sends the validators of the last response for the same request, and on <code>304 Not Modified</code> hands out the
+ * parsed days again without downloading or parsing a body. Past days rarely change, so polling clients mostly get
+ * <code>304</code> responses.<br><br>
+ * 
+ * Requests are identified by {@link RequestBuilder#getCacheKey()} of the authenticated user. A response is reused
+ * only with the same parse options it was parsed with. Only responses with an <code>ETag</code> or
+ * <code>Last-Modified</code> header are kept, at most {@link #getMaxEntries()}, the least recently used are dropped
+ * first.<br><br>
+ * 
+ * The cached days are the same objects which were handed to the handlers of the call that fetched them, and every
+ * <code>304</code> response hands them out again. Only the list is new for each call, the days are not copied. A day
+ * which is changed through its setters, or a lazily parsed day whose lists are parsed on first access, is therefore
+ * changed for the cache and for all later callers too. Handlers should treat the days as read only, or
+ * {@link #clear()} the cache after modifying them.
+ * @author Midhu
+ * @see CachedResponse
+ */
+public class ValidatorCache {
+	
+	/** Default of {@link #setMaxEntries(int)} **/
+	public static final int DEFAULT_MAX_ENTRIES = 32;
+	
+	private static int mMaxEntries = DEFAULT_MAX_ENTRIES;
+	private static final LinkedHashMap<String, CacheEntry> mEntries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+	
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+			return size() > mMaxEntries;
+		}
+	};
+	
+	/**
+	 * Sets the maximum number of responses kept. Each response holds the parsed days of a request, so keep this low
+	 * when requests span many days with track points. 0 disables conditional requests of the daily endpoints.
+	 */
+	public static synchronized void setMaxEntries(int maxEntries) {
+		mMaxEntries = maxEntries;
+		while (mEntries.size() > maxEntries) {
+			mEntries.remove(mEntries.keySet().iterator().next());
+		}
+	}
+	
+	/** Maximum number of responses kept **/
+	public static synchronized int getMaxEntries() {
+		return mMaxEntries;
+	}
+	
+	/**
+	 * Gets the last response of a request
+	 * @param key : Identifies the request, see {@link RequestBuilder#getCacheKey()}
+	 * @param options : Parse options of the call, the response is only returned if it was parsed with the same options
+	 * @return the cached response, or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	public static synchronized <T> CachedResponse<T> get(String key, Object options) {
+		CacheEntry entry = mEntries.get(key);
+		if (entry == null || entry.options != options || !entry.userID.equals(currentUserID())) {
+			return null;
+		}
+		return (CachedResponse<T>) entry.response;
+	}
+	
+	/**
+	 * Stores the response of a request, responses without validators are not stored
+	 * @param key : Identifies the request, see {@link RequestBuilder#getCacheKey()}
+	 * @param options : Parse options the response was parsed with
+	 * @param response : The response
+	 */
+	public static synchronized void put(String key, Object options, CachedResponse<?> response) {
+		String userID = currentUserID();
+		if (response == null || !response.hasValidators() || userID == null || mMaxEntries <= 0) {
+			mEntries.remove(key);
+			return;
+		}
+		mEntries.put(key, new CacheEntry(response, options, userID));
+	}
+	
+	/** Drops all responses **/
+	public static synchronized void clear() {
+		mEntries.clear();
+	}
+	
+	private static String currentUserID() {
+		AuthData authData = AuthData.getAuthData();
+		return authData != null ? authData.getUserID() : null;
+	}
+	
+	private static class CacheEntry {
+		private final CachedResponse<?> response;
+		private final Object options;
+		private final String userID;
+	
+		CacheEntry(CachedResponse<?> response, Object options, String userID) {
+			this.response	= response;
+			this.options	= options;
+			this.userID		= userID;
+		}
+	}
+}
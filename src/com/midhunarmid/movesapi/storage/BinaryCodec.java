@@ -0,0 +1,135 @@
+package com.midhunarmid.movesapi.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.midhunarmid.movesapi.place.StorylinePlacesData;
+import com.midhunarmid.movesapi.profile.ProfileData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.summary.SummaryListData;
+
+/**
+ * A compact, versioned binary format for caching Moves data on the device. Loading cached data with this codec
+ * is much faster than parsing the original JSON again, and the files are read straight from a memory mapped
+ * {@link ByteBuffer}.<br><br>
+ * 
+ * Every file starts with the 4 byte magic <code>MVSB</code>, a version byte and a content type byte. Repeated
+ * strings are written once and referenced later, time stamps are delta encoded in seconds and coordinates are
+ * stored as fixed point values (1e-7 degrees). Values which would not be restored exactly are kept as strings.
+ * @author Midhu
+ * @see BinaryWriter
+ * @see BinaryReader
+ */
+public class BinaryCodec {
+	
+	public static final byte[] MAGIC			= {'M', 'V', 'S', 'B'};
+	public static final int VERSION				= 1;
+	
+	/** Content types of a binary file **/
+	public static final int TYPE_STORYLINES		= 1;
+	public static final int TYPE_SUMMARIES		= 2;
+	public static final int TYPE_PROFILE		= 3;
+	public static final int TYPE_PLACES			= 4;
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Encoder methods   *************************************************************** **/
+	
+	/** Encodes a list of {@link StorylineData} **/
+	public static byte[] encodeStorylines(List<StorylineData> storylines) {
+		BinaryWriter writer = new BinaryWriter(TYPE_STORYLINES);
+		writer.writeStorylines(storylines);
+		return writer.toByteArray();
+	}
+	
+	/** Encodes a list of {@link SummaryListData} **/
+	public static byte[] encodeSummaries(List<SummaryListData> summaries) {
+		BinaryWriter writer = new BinaryWriter(TYPE_SUMMARIES);
+		writer.writeSummaryLists(summaries);
+		return writer.toByteArray();
+	}
+	
+	/** Encodes a {@link ProfileData} **/
+	public static byte[] encodeProfile(ProfileData profile) {
+		BinaryWriter writer = new BinaryWriter(TYPE_PROFILE);
+		writer.writeProfile(profile);
+		return writer.toByteArray();
+	}
+	
+	/** Encodes a list of {@link StorylinePlacesData} **/
+	public static byte[] encodePlaces(List<StorylinePlacesData> places) {
+		BinaryWriter writer = new BinaryWriter(TYPE_PLACES);
+		writer.writePlaces(places);
+		return writer.toByteArray();
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Decoder methods   *************************************************************** **/
+	
+	/** Decodes a list of {@link StorylineData} written by <code>encodeStorylines()</code> **/
+	public static ArrayList<StorylineData> decodeStorylines(ByteBuffer buffer) throws IOException {
+		return new BinaryReader(buffer, TYPE_STORYLINES).readStorylines();
+	}
+	
+	/** Decodes a list of {@link SummaryListData} written by <code>encodeSummaries()</code> **/
+	public static ArrayList<SummaryListData> decodeSummaries(ByteBuffer buffer) throws IOException {
+		return new BinaryReader(buffer, TYPE_SUMMARIES).readSummaryLists();
+	}
+	
+	/** Decodes a {@link ProfileData} written by <code>encodeProfile()</code> **/
+	public static ProfileData decodeProfile(ByteBuffer buffer) throws IOException {
+		return new BinaryReader(buffer, TYPE_PROFILE).readProfile();
+	}
+	
+	/** Decodes a list of {@link StorylinePlacesData} written by <code>encodePlaces()</code> **/
+	public static ArrayList<StorylinePlacesData> decodePlaces(ByteBuffer buffer) throws IOException {
+		return new BinaryReader(buffer, TYPE_PLACES).readPlaces();
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* File methods      *************************************************************** **/
+	
+	/**
+	 * Writes encoded data to a file. The data is written to a temporary file first, so that a reader never sees a 
+	 * partially written file.
+	 * @param file : Destination file
+	 * @param data : Encoded data, from one of the <code>encode</code> methods
+	 * @throws IOException if the file could not be written
+	 */
+	public static void writeFile(File file, byte[] data) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		try {
+			out.write(data);
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			throw new IOException("Could not replace " + file);
+		}
+	}
+	
+	/**
+	 * Maps a file written by <code>writeFile()</code> into memory, pass the result to one of the <code>decode</code>
+	 * methods.
+	 * @param file : The file to map
+	 * @return A read only {@link ByteBuffer} of the whole file
+	 * @throws IOException if the file could not be mapped
+	 */
+	public static ByteBuffer mapFile(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			/* The mapping stays valid after the channel is closed */
+			in.close();
+		}
+	}
+}
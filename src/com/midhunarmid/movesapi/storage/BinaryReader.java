@@ -0,0 +1,392 @@
+package com.midhunarmid.movesapi.storage;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.place.LocationData;
+import com.midhunarmid.movesapi.place.PlaceData;
+import com.midhunarmid.movesapi.place.StorylinePlacesData;
+import com.midhunarmid.movesapi.profile.ProfileData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.summary.SummaryData;
+import com.midhunarmid.movesapi.summary.SummaryListData;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
+/**
+ * Reads Moves data objects written by {@link BinaryWriter}. The buffer can be a memory mapped file, it is read
+ * from its current position and not modified otherwise. A {@link BinaryReader} reads one file and is not thread safe.
+ * @author Midhu
+ * @see BinaryCodec
+ */
+public class BinaryReader {
+	
+	private final ByteBuffer mBuffer;
+	private final ArrayList<String> mStrings = new ArrayList<String>();
+	private byte[] mScratch = new byte[64];
+	private long mLastSeconds;
+	private long mLastLat;
+	private long mLastLon;
+	
+	/**
+	 * Constructor method of {@link BinaryReader}, checks the file header
+	 * @param buffer : Buffer holding the binary data, positioned at the file header
+	 * @param type : Expected content type, one of the <code>TYPE_</code> constants of {@link BinaryCodec}
+	 * @throws IOException if the buffer does not hold a supported binary file of the expected type
+	 */
+	public BinaryReader(ByteBuffer buffer, int type) throws IOException {
+		mBuffer = buffer;
+		if (buffer.remaining() < BinaryCodec.MAGIC.length + 2) {
+			throw new IOException("Not a Moves binary file");
+		}
+		for (byte b : BinaryCodec.MAGIC) {
+			if (buffer.get() != b) {
+				throw new IOException("Not a Moves binary file");
+			}
+		}
+		int version = buffer.get() & 0xFF;
+		if (version != BinaryCodec.VERSION) {
+			throw new IOException("Unsupported binary version " + version);
+		}
+		int fileType = buffer.get() & 0xFF;
+		if (fileType != type) {
+			throw new IOException("Unexpected content type " + fileType + ", expected " + type);
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Model readers     *************************************************************** **/
+	
+	/** Reads a list of {@link StorylineData} **/
+	public ArrayList<StorylineData> readStorylines() throws IOException {
+		try {
+			int count = readCount();
+			if (count < 0) return null;
+			ArrayList<StorylineData> storylines = new ArrayList<StorylineData>(count);
+			for (int i = 0; i < count; i++) {
+				StorylineData storyline = new StorylineData();
+				storyline.setDate(readString());
+				storyline.setCaloriesIdle(readNumber());
+				storyline.setLastUpdate(readTime());
+				storyline.setSummary(readSummaries());
+				storyline.setSegments(readSegments());
+				storylines.add(storyline);
+			}
+			return storylines;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated binary file");
+		}
+	}
+	
+	/** Reads a list of {@link SummaryListData} **/
+	public ArrayList<SummaryListData> readSummaryLists() throws IOException {
+		try {
+			int count = readCount();
+			if (count < 0) return null;
+			ArrayList<SummaryListData> summaryLists = new ArrayList<SummaryListData>(count);
+			for (int i = 0; i < count; i++) {
+				SummaryListData summaryList = new SummaryListData();
+				summaryList.setDate(readString());
+				summaryList.setCaloriesIdle(readNumber());
+				summaryList.setLastUpdate(readTime());
+				summaryList.setSummaries(readSummaries());
+				summaryLists.add(summaryList);
+			}
+			return summaryLists;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated binary file");
+		}
+	}
+	
+	/** Reads a list of {@link StorylinePlacesData} **/
+	public ArrayList<StorylinePlacesData> readPlaces() throws IOException {
+		try {
+			int count = readCount();
+			if (count < 0) return null;
+			ArrayList<StorylinePlacesData> places = new ArrayList<StorylinePlacesData>(count);
+			for (int i = 0; i < count; i++) {
+				StorylinePlacesData placesData = new StorylinePlacesData();
+				placesData.setDate(readString());
+				placesData.setLastUpdate(readTime());
+				placesData.setSegments(readSegments());
+				places.add(placesData);
+			}
+			return places;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated binary file");
+		}
+	}
+	
+	/** Reads a {@link ProfileData} **/
+	public ProfileData readProfile() throws IOException {
+		try {
+			if (mBuffer.get() == 0) return null;
+			ProfileData profile = new ProfileData();
+			profile.setUserID(readString());
+			profile.setFirstDate(readString());
+			profile.setTimeZoneId(readString());
+			profile.setTimeZoneOffset(readNumber());
+			profile.setLanguage(readString());
+			profile.setLocale(readString());
+			profile.setFirstWeekDay(readString());
+			profile.setMetric(readString());
+			profile.setCaloriesAvailable(readString());
+			profile.setPlatform(readString());
+			return profile;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Truncated binary file");
+		}
+	}
+	
+	private ArrayList<SummaryData> readSummaries() throws IOException {
+		int count = readCount();
+		if (count < 0) return null;
+		ArrayList<SummaryData> summaries = new ArrayList<SummaryData>(count);
+		for (int i = 0; i < count; i++) {
+			SummaryData summary = new SummaryData();
+			summary.setActivity(readString());
+			summary.setGroup(readString());
+			summary.setDuration(readNumber());
+			summary.setDistance(readNumber());
+			summary.setSteps(readNumber());
+			summary.setCalories(readNumber());
+			summaries.add(summary);
+		}
+		return summaries;
+	}
+	
+	private ArrayList<SegmentData> readSegments() throws IOException {
+		int count = readCount();
+		if (count < 0) return null;
+		ArrayList<SegmentData> segments = new ArrayList<SegmentData>(count);
+		for (int i = 0; i < count; i++) {
+			SegmentData segment = new SegmentData();
+			segment.setType(readString());
+			segment.setStartTime(readTime());
+			segment.setEndTime(readTime());
+			segment.setLastUpdate(readTime());
+			segment.setPlace(readPlace());
+			segment.setActivities(readActivities());
+			segments.add(segment);
+		}
+		return segments;
+	}
+	
+	private PlaceData readPlace() throws IOException {
+		if (mBuffer.get() == 0) return null;
+		PlaceData place = new PlaceData();
+		place.setId(readString());
+		place.setName(readString());
+		place.setType(readString());
+		place.setFoursquareId(readString());
+		int count = readCount();
+		if (count >= 0) {
+			ArrayList<String> categoryIds = new ArrayList<String>(count);
+			for (int i = 0; i < count; i++) {
+				categoryIds.add(readString());
+			}
+			place.setFoursquareCategoryIds(categoryIds);
+		}
+		if (mBuffer.get() != 0) {
+			LocationData location = new LocationData();
+			location.setLat(readLat());
+			location.setLon(readLon());
+			place.setLocation(location);
+		}
+		return place;
+	}
+	
+	private ArrayList<ActivityData> readActivities() throws IOException {
+		int count = readCount();
+		if (count < 0) return null;
+		ArrayList<ActivityData> activities = new ArrayList<ActivityData>(count);
+		for (int i = 0; i < count; i++) {
+			ActivityData activity = new ActivityData();
+			activity.setActivity(readString());
+			activity.setGroup(readString());
+			activity.setManual(readString());
+			activity.setStartTime(readTime());
+			activity.setEndTime(readTime());
+			activity.setDuration(readNumber());
+			activity.setDistance(readNumber());
+			activity.setSteps(readNumber());
+			activity.setCalories(readNumber());
+			int trackPointCount = readCount();
+			if (trackPointCount >= 0) {
+				ArrayList<TrackPointsData> trackPoints = new ArrayList<TrackPointsData>(trackPointCount);
+				for (int j = 0; j < trackPointCount; j++) {
+					TrackPointsData trackPoint = new TrackPointsData();
+					trackPoint.setLat(readLat());
+					trackPoint.setLon(readLon());
+					trackPoint.setTime(readTime());
+					trackPoints.add(trackPoint);
+				}
+				activity.setTrackPoints(trackPoints);
+			}
+			activities.add(activity);
+		}
+		return activities;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Value readers     *************************************************************** **/
+	
+	/** Reads a list size written by <code>writeCount()</code>, -1 for a <code>null</code> list **/
+	private int readCount() throws IOException {
+		long count = readVarLong() - 1;
+		if (count > mBuffer.remaining()) {
+			/* Every element takes at least one byte */
+			throw new IOException("Corrupted binary file");
+		}
+		return (int) count;
+	}
+	
+	String readString() throws IOException {
+		long tag = readVarLong();
+		if (tag == BinaryWriter.TAG_NULL) {
+			return null;
+		}
+		if (tag != BinaryWriter.TAG_STRING) {
+			long index = tag - BinaryWriter.TAG_VALUE;
+			if (index >= mStrings.size()) {
+				throw new IOException("Corrupted binary file");
+			}
+			return mStrings.get((int) index);
+		}
+		long length = readVarLong();
+		if (length > mBuffer.remaining()) {
+			throw new IOException("Corrupted binary file");
+		}
+		int size = (int) length;
+		if (mScratch.length < size) {
+			mScratch = new byte[Math.max(size, mScratch.length * 2)];
+		}
+		mBuffer.get(mScratch, 0, size);
+		String value;
+		try {
+			value = new String(mScratch, 0, size, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		mStrings.add(value);
+		return value;
+	}
+	
+	String readTime() throws IOException {
+		long tag = readVarLong();
+		if (tag == BinaryWriter.TAG_NULL) {
+			return null;
+		}
+		if (tag == BinaryWriter.TAG_STRING) {
+			return readString();
+		}
+		long seconds = mLastSeconds + unZigZag(tag - BinaryWriter.TAG_VALUE);
+		int offset = (int) unZigZag(readVarLong()) * BinaryWriter.OFFSET_UNIT;
+		mLastSeconds = seconds;
+		return MovesTimeFormat.formatDateTime(seconds * 1000L, offset);
+	}
+	
+	String readNumber() throws IOException {
+		long tag = readVarLong();
+		if (tag == BinaryWriter.TAG_NULL) {
+			return null;
+		}
+		if (tag == BinaryWriter.TAG_STRING) {
+			return readString();
+		}
+		long value = tag - BinaryWriter.TAG_VALUE;
+		return formatDecimal(unZigZag(value >>> 2), (int) (value & 3));
+	}
+	
+	private String readLat() throws IOException {
+		long tag = readVarLong();
+		if (tag == BinaryWriter.TAG_NULL) {
+			return null;
+		}
+		if (tag == BinaryWriter.TAG_STRING) {
+			return readString();
+		}
+		mLastLat += unZigZag(tag - BinaryWriter.TAG_VALUE);
+		return formatCoordinate(mLastLat);
+	}
+	
+	private String readLon() throws IOException {
+		long tag = readVarLong();
+		if (tag == BinaryWriter.TAG_NULL) {
+			return null;
+		}
+		if (tag == BinaryWriter.TAG_STRING) {
+			return readString();
+		}
+		mLastLon += unZigZag(tag - BinaryWriter.TAG_VALUE);
+		return formatCoordinate(mLastLon);
+	}
+	
+	long readVarLong() throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = mBuffer.get();
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Corrupted binary file");
+	}
+	
+	private static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Formatter methods    ************************************************************ **/
+	
+	/** Formats an unscaled value with the given number of decimals, for example 21090 and 1 as <code>2109.0</code> **/
+	static String formatDecimal(long unscaled, int decimals) {
+		StringBuilder sb = new StringBuilder(20);
+		if (unscaled < 0) {
+			sb.append('-');
+			unscaled = -unscaled;
+		}
+		appendFixed(sb, unscaled, decimals);
+		return sb.toString();
+	}
+	
+	/** Formats a coordinate in 1e-7 degrees like {@link Double#toString(double)} does, for example <code>60.1701</code> **/
+	static String formatCoordinate(long fixed) {
+		StringBuilder sb = new StringBuilder(16);
+		if (fixed < 0) {
+			sb.append('-');
+			fixed = -fixed;
+		}
+		int decimals = 7;
+		while (decimals > 1 && fixed % 10 == 0) {
+			fixed /= 10;
+			decimals--;
+		}
+		appendFixed(sb, fixed, decimals);
+		return sb.toString();
+	}
+	
+	private static void appendFixed(StringBuilder sb, long unscaled, int decimals) {
+		if (decimals == 0) {
+			sb.append(unscaled);
+			return;
+		}
+		long scale = 1;
+		for (int i = 0; i < decimals; i++) {
+			scale *= 10;
+		}
+		sb.append(unscaled / scale).append('.');
+		long fraction = unscaled % scale;
+		for (long digit = scale / 10; digit > fraction && digit > 1; digit /= 10) {
+			sb.append('0');
+		}
+		sb.append(fraction);
+	}
+}
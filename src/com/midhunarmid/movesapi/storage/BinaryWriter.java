@@ -0,0 +1,372 @@
+package com.midhunarmid.movesapi.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.place.LocationData;
+import com.midhunarmid.movesapi.place.PlaceData;
+import com.midhunarmid.movesapi.place.StorylinePlacesData;
+import com.midhunarmid.movesapi.profile.ProfileData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.summary.SummaryData;
+import com.midhunarmid.movesapi.summary.SummaryListData;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
+/**
+ * Writes Moves data objects in the binary format described in {@link BinaryCodec}. A {@link BinaryWriter} writes
+ * one file and is not thread safe.
+ * @author Midhu
+ * @see BinaryReader
+ */
+public class BinaryWriter {
+	
+	/* Value tags, shared with BinaryReader. Encoded values start at TAG_VALUE */
+	static final int TAG_NULL		= 0;
+	static final int TAG_STRING		= 1;
+	static final int TAG_VALUE		= 2;
+	
+	/* Time zone offsets are stored in quarter hours */
+	static final int OFFSET_UNIT	= 900;
+	static final int MAX_DECIMALS	= 3;
+	static final long COORDINATE_SCALE = 10000000L;
+	
+	private byte[] mBuffer = new byte[4096];
+	private int mSize;
+	
+	private final HashMap<String, Integer> mStrings = new HashMap<String, Integer>();
+	private long mLastSeconds;
+	private long mLastLat;
+	private long mLastLon;
+	
+	/**
+	 * Constructor method of {@link BinaryWriter}, writes the file header
+	 * @param type : Content type, one of the <code>TYPE_</code> constants of {@link BinaryCodec}
+	 */
+	public BinaryWriter(int type) {
+		for (byte b : BinaryCodec.MAGIC) {
+			writeByte(b);
+		}
+		writeByte(BinaryCodec.VERSION);
+		writeByte(type);
+	}
+	
+	/** Gets a copy of everything written so far **/
+	public byte[] toByteArray() {
+		byte[] result = new byte[mSize];
+		System.arraycopy(mBuffer, 0, result, 0, mSize);
+		return result;
+	}
+	
+	/** Writes everything written so far to the given {@link OutputStream} **/
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(mBuffer, 0, mSize);
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Model writers     *************************************************************** **/
+	
+	/** Writes a list of {@link StorylineData} **/
+	public void writeStorylines(List<StorylineData> storylines) {
+		writeCount(storylines);
+		if (storylines == null) return;
+		for (int i = 0; i < storylines.size(); i++) {
+			StorylineData storyline = storylines.get(i);
+			writeString(storyline.getDate());
+			writeNumber(storyline.getCaloriesIdle());
+			writeTime(storyline.getLastUpdate());
+			writeSummaries(storyline.getSummary());
+			writeSegments(storyline.getSegments());
+		}
+	}
+	
+	/** Writes a list of {@link SummaryListData} **/
+	public void writeSummaryLists(List<SummaryListData> summaryLists) {
+		writeCount(summaryLists);
+		if (summaryLists == null) return;
+		for (int i = 0; i < summaryLists.size(); i++) {
+			SummaryListData summaryList = summaryLists.get(i);
+			writeString(summaryList.getDate());
+			writeNumber(summaryList.getCaloriesIdle());
+			writeTime(summaryList.getLastUpdate());
+			writeSummaries(summaryList.getSummaries());
+		}
+	}
+	
+	/** Writes a list of {@link StorylinePlacesData} **/
+	public void writePlaces(List<StorylinePlacesData> places) {
+		writeCount(places);
+		if (places == null) return;
+		for (int i = 0; i < places.size(); i++) {
+			StorylinePlacesData placesData = places.get(i);
+			writeString(placesData.getDate());
+			writeTime(placesData.getLastUpdate());
+			writeSegments(placesData.getSegments());
+		}
+	}
+	
+	/** Writes a {@link ProfileData} **/
+	public void writeProfile(ProfileData profile) {
+		writeByte(profile != null ? 1 : 0);
+		if (profile == null) return;
+		writeString(profile.getUserID());
+		writeString(profile.getFirstDate());
+		writeString(profile.getTimeZoneId());
+		writeNumber(profile.getTimeZoneOffset());
+		writeString(profile.getLanguage());
+		writeString(profile.getLocale());
+		writeString(profile.getFirstWeekDay());
+		writeString(profile.getMetric());
+		writeString(profile.getCaloriesAvailable());
+		writeString(profile.getPlatform());
+	}
+	
+	private void writeSummaries(List<SummaryData> summaries) {
+		writeCount(summaries);
+		if (summaries == null) return;
+		for (int i = 0; i < summaries.size(); i++) {
+			SummaryData summary = summaries.get(i);
+			writeString(summary.getActivity());
+			writeString(summary.getGroup());
+			writeNumber(summary.getDuration());
+			writeNumber(summary.getDistance());
+			writeNumber(summary.getSteps());
+			writeNumber(summary.getCalories());
+		}
+	}
+	
+	private void writeSegments(List<SegmentData> segments) {
+		writeCount(segments);
+		if (segments == null) return;
+		for (int i = 0; i < segments.size(); i++) {
+			SegmentData segment = segments.get(i);
+			writeString(segment.getType());
+			writeTime(segment.getStartTime());
+			writeTime(segment.getEndTime());
+			writeTime(segment.getLastUpdate());
+			writePlace(segment.getPlace());
+			writeActivities(segment.getActivities());
+		}
+	}
+	
+	private void writePlace(PlaceData place) {
+		writeByte(place != null ? 1 : 0);
+		if (place == null) return;
+		writeString(place.getId());
+		writeString(place.getName());
+		writeString(place.getType());
+		writeString(place.getFoursquareId());
+		ArrayList<String> categoryIds = place.getFoursquareCategoryIds();
+		writeCount(categoryIds);
+		if (categoryIds != null) {
+			for (int i = 0; i < categoryIds.size(); i++) {
+				writeString(categoryIds.get(i));
+			}
+		}
+		LocationData location = place.getLocation();
+		writeByte(location != null ? 1 : 0);
+		if (location != null) {
+			writeLat(location.getLat());
+			writeLon(location.getLon());
+		}
+	}
+	
+	private void writeActivities(List<ActivityData> activities) {
+		writeCount(activities);
+		if (activities == null) return;
+		for (int i = 0; i < activities.size(); i++) {
+			ActivityData activity = activities.get(i);
+			writeString(activity.getActivity());
+			writeString(activity.getGroup());
+			writeString(activity.getManual());
+			writeTime(activity.getStartTime());
+			writeTime(activity.getEndTime());
+			writeNumber(activity.getDuration());
+			writeNumber(activity.getDistance());
+			writeNumber(activity.getSteps());
+			writeNumber(activity.getCalories());
+			ArrayList<TrackPointsData> trackPoints = activity.getTrackPoints();
+			writeCount(trackPoints);
+			if (trackPoints != null) {
+				for (int j = 0; j < trackPoints.size(); j++) {
+					TrackPointsData trackPoint = trackPoints.get(j);
+					writeLat(trackPoint.getLat());
+					writeLon(trackPoint.getLon());
+					writeTime(trackPoint.getTime());
+				}
+			}
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Value writers     *************************************************************** **/
+	
+	/** Writes the size of a list plus one, or zero for a <code>null</code> list **/
+	private void writeCount(List<?> list) {
+		writeVarLong(list == null ? 0 : list.size() + 1);
+	}
+	
+	/** Writes a string, repeated strings are written as a reference to their first occurrence **/
+	void writeString(String value) {
+		if (value == null) {
+			writeVarLong(TAG_NULL);
+			return;
+		}
+		Integer index = mStrings.get(value);
+		if (index != null) {
+			writeVarLong(TAG_VALUE + index.intValue());
+			return;
+		}
+		mStrings.put(value, Integer.valueOf(mStrings.size()));
+		writeVarLong(TAG_STRING);
+		byte[] bytes;
+		try {
+			bytes = value.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		writeVarLong(bytes.length);
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, mBuffer, mSize, bytes.length);
+		mSize += bytes.length;
+	}
+	
+	/** Writes a time stamp as delta to the previous time stamp in seconds, plus its zone in quarter hours **/
+	void writeTime(String value) {
+		if (value == null) {
+			writeVarLong(TAG_NULL);
+			return;
+		}
+		long millis = MovesTimeFormat.parseDateTime(value, Long.MIN_VALUE);
+		int offset = MovesTimeFormat.parseOffsetSeconds(value, Integer.MIN_VALUE);
+		if (millis == Long.MIN_VALUE || offset % OFFSET_UNIT != 0 
+				|| !value.equals(MovesTimeFormat.formatDateTime(millis, offset))) {
+			/* Would not be restored exactly, keep the original string */
+			writeVarLong(TAG_STRING);
+			writeString(value);
+			return;
+		}
+		long seconds = millis / 1000L;
+		writeVarLong(TAG_VALUE + zigZag(seconds - mLastSeconds));
+		writeVarLong(zigZag(offset / OFFSET_UNIT));
+		mLastSeconds = seconds;
+	}
+	
+	/** Writes a decimal number such as <code>2109.0</code> as unscaled value plus its number of decimals **/
+	void writeNumber(String value) {
+		if (value == null) {
+			writeVarLong(TAG_NULL);
+			return;
+		}
+		long unscaled = 0;
+		int decimals = -1;
+		int length = value.length();
+		int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+		boolean valid = length > start && length - start < 16;
+		for (int i = start; i < length && valid; i++) {
+			char ch = value.charAt(i);
+			if (ch >= '0' && ch <= '9') {
+				unscaled = unscaled * 10 + (ch - '0');
+				if (decimals >= 0) decimals++;
+			} else if (ch == '.' && decimals < 0 && i > start && i < length - 1) {
+				decimals = 0;
+			} else {
+				valid = false;
+			}
+		}
+		if (decimals < 0) decimals = 0;
+		valid = valid && decimals <= MAX_DECIMALS;
+		if (start == 1) unscaled = -unscaled;
+		if (!valid || !value.equals(BinaryReader.formatDecimal(unscaled, decimals))) {
+			writeVarLong(TAG_STRING);
+			writeString(value);
+			return;
+		}
+		writeVarLong(TAG_VALUE + ((zigZag(unscaled) << 2) | decimals));
+	}
+	
+	private void writeLat(String value) {
+		mLastLat = writeCoordinate(value, mLastLat);
+	}
+	
+	private void writeLon(String value) {
+		mLastLon = writeCoordinate(value, mLastLon);
+	}
+	
+	/** Writes a coordinate as fixed point delta to the previous one, returns the new previous value **/
+	private long writeCoordinate(String value, long last) {
+		if (value == null) {
+			writeVarLong(TAG_NULL);
+			return last;
+		}
+		long fixed = parseFixed(value);
+		if (fixed == Long.MIN_VALUE || !value.equals(BinaryReader.formatCoordinate(fixed))) {
+			writeVarLong(TAG_STRING);
+			writeString(value);
+			return last;
+		}
+		writeVarLong(TAG_VALUE + zigZag(fixed - last));
+		return fixed;
+	}
+	
+	/** Parses a coordinate into 1e-7 degrees, returns {@link Long#MIN_VALUE} if it has more precision or is not valid **/
+	private static long parseFixed(String value) {
+		int length = value.length();
+		int start = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+		if (length - start < 3 || length - start > 20) {
+			return Long.MIN_VALUE;
+		}
+		long result = 0;
+		int decimals = -1;
+		for (int i = start; i < length; i++) {
+			char ch = value.charAt(i);
+			if (ch >= '0' && ch <= '9') {
+				result = result * 10 + (ch - '0');
+				if (decimals >= 0) decimals++;
+			} else if (ch == '.' && decimals < 0) {
+				decimals = 0;
+			} else {
+				return Long.MIN_VALUE;
+			}
+		}
+		if (decimals < 1 || decimals > 7) {
+			return Long.MIN_VALUE;
+		}
+		for (; decimals < 7; decimals++) {
+			result *= 10;
+		}
+		return start == 1 ? -result : result;
+	}
+	
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+	
+	void writeVarLong(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			mBuffer[mSize++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		mBuffer[mSize++] = (byte) value;
+	}
+	
+	private void writeByte(int value) {
+		ensureCapacity(1);
+		mBuffer[mSize++] = (byte) value;
+	}
+	
+	private void ensureCapacity(int extra) {
+		if (mSize + extra > mBuffer.length) {
+			byte[] grown = new byte[Math.max(mBuffer.length * 2, mSize + extra)];
+			System.arraycopy(mBuffer, 0, grown, 0, mSize);
+			mBuffer = grown;
+		}
+	}
+}
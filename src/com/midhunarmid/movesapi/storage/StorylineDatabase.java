@@ -0,0 +1,114 @@
+package com.midhunarmid.movesapi.storage;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * This {@link SQLiteOpenHelper} creates the local tables used by {@link StorylineStore}. Storylines are stored
+ * normalized, one table per model class, with indexes on date, activity and place id.
+ * @author Midhu
+ * @see StorylineStore
+ */
+public class StorylineDatabase extends SQLiteOpenHelper {
+	
+	public static final String DATABASE_NAME		= "moves_storyline.db";
+	public static final int DATABASE_VERSION		= 1;
+	
+	/** Table names **/
+	public static final String TABLE_STORYLINE		= "storyline";
+	public static final String TABLE_SUMMARY		= "summary";
+	public static final String TABLE_PLACE			= "place";
+	public static final String TABLE_SEGMENT		= "segment";
+	public static final String TABLE_ACTIVITY		= "activity";
+	public static final String TABLE_TRACKPOINT		= "trackpoint";
+	
+	/**
+	 * Constructor method for {@link StorylineDatabase}
+	 * @param context : A valid application {@link Context}
+	 */
+	public StorylineDatabase(Context context) {
+		super(context, DATABASE_NAME, null, DATABASE_VERSION);
+	}
+	
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+		db.execSQL("CREATE TABLE " + TABLE_STORYLINE + " ("
+				+ "date TEXT PRIMARY KEY, "
+				+ "calories_idle TEXT, "
+				+ "last_update TEXT)");
+	
+		db.execSQL("CREATE TABLE " + TABLE_SUMMARY + " ("
+				+ "date TEXT NOT NULL, "
+				+ "seq INTEGER NOT NULL, "
+				+ "activity TEXT, "
+				+ "activity_group TEXT, "
+				+ "duration TEXT, "
+				+ "distance TEXT, "
+				+ "steps TEXT, "
+				+ "calories TEXT)");
+		db.execSQL("CREATE INDEX idx_summary_date ON " + TABLE_SUMMARY + " (date)");
+	
+		db.execSQL("CREATE TABLE " + TABLE_PLACE + " ("
+				+ "id TEXT PRIMARY KEY, "
+				+ "name TEXT, "
+				+ "type TEXT, "
+				+ "foursquare_id TEXT, "
+				+ "foursquare_category_ids TEXT, "
+				+ "lat TEXT, "
+				+ "lon TEXT)");
+	
+		db.execSQL("CREATE TABLE " + TABLE_SEGMENT + " ("
+				+ "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+				+ "date TEXT NOT NULL, "
+				+ "seq INTEGER NOT NULL, "
+				+ "type TEXT, "
+				+ "start_time TEXT, "
+				+ "end_time TEXT, "
+				+ "start_millis INTEGER, "
+				+ "end_millis INTEGER, "
+				+ "place_id TEXT, "
+				+ "last_update TEXT)");
+		db.execSQL("CREATE INDEX idx_segment_date ON " + TABLE_SEGMENT + " (date)");
+		db.execSQL("CREATE INDEX idx_segment_place ON " + TABLE_SEGMENT + " (place_id, date)");
+	
+		db.execSQL("CREATE TABLE " + TABLE_ACTIVITY + " ("
+				+ "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+				+ "segment_id INTEGER NOT NULL, "
+				+ "date TEXT NOT NULL, "
+				+ "seq INTEGER NOT NULL, "
+				+ "activity TEXT, "
+				+ "activity_group TEXT, "
+				+ "manual TEXT, "
+				+ "start_time TEXT, "
+				+ "end_time TEXT, "
+				+ "start_millis INTEGER, "
+				+ "duration TEXT, "
+				+ "distance TEXT, "
+				+ "steps TEXT, "
+				+ "calories TEXT)");
+		db.execSQL("CREATE INDEX idx_activity_segment ON " + TABLE_ACTIVITY + " (segment_id)");
+		db.execSQL("CREATE INDEX idx_activity_date ON " + TABLE_ACTIVITY + " (date)");
+		db.execSQL("CREATE INDEX idx_activity_activity ON " + TABLE_ACTIVITY + " (activity, date)");
+	
+		db.execSQL("CREATE TABLE " + TABLE_TRACKPOINT + " ("
+				+ "activity_id INTEGER NOT NULL, "
+				+ "seq INTEGER NOT NULL, "
+				+ "lat TEXT, "
+				+ "lon TEXT, "
+				+ "time TEXT)");
+		db.execSQL("CREATE INDEX idx_trackpoint_activity ON " + TABLE_TRACKPOINT + " (activity_id, seq)");
+	}
+	
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		/* The local store is only a cache of Moves data, it can always be downloaded again */
+		db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRACKPOINT);
+		db.execSQL("DROP TABLE IF EXISTS " + TABLE_ACTIVITY);
+		db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEGMENT);
+		db.execSQL("DROP TABLE IF EXISTS " + TABLE_PLACE);
+		db.execSQL("DROP TABLE IF EXISTS " + TABLE_SUMMARY);
+		db.execSQL("DROP TABLE IF EXISTS " + TABLE_STORYLINE);
+		onCreate(db);
+	}
+}
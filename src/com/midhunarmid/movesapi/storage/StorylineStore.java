@@ -0,0 +1,585 @@
+package com.midhunarmid.movesapi.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.place.LocationData;
+import com.midhunarmid.movesapi.place.PlaceData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.summary.SummaryData;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
+/**
+ * A local store for storyline history. Use it to keep the {@link StorylineData} received from Moves, so that later
+ * queries can be answered from the device instead of downloading the same days again.<br><br>
+ * 
+ * Days are replaced as a whole when they are saved again with a different <code>lastUpdate</code>, days which did
+ * not change are skipped. All dates can be given in yyyyMMdd or yyyy-MM-dd format.
+ * @author Midhu
+ * @see StorylineDatabase
+ */
+public class StorylineStore {
+	
+	private static final String SQL_INSERT_STORYLINE	= "INSERT OR REPLACE INTO " + StorylineDatabase.TABLE_STORYLINE
+			+ " (date, calories_idle, last_update) VALUES (?, ?, ?)";
+	private static final String SQL_INSERT_SUMMARY		= "INSERT INTO " + StorylineDatabase.TABLE_SUMMARY
+			+ " (date, seq, activity, activity_group, duration, distance, steps, calories) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String SQL_INSERT_PLACE		= "INSERT OR REPLACE INTO " + StorylineDatabase.TABLE_PLACE
+			+ " (id, name, type, foursquare_id, foursquare_category_ids, lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?)";
+	private static final String SQL_INSERT_SEGMENT		= "INSERT INTO " + StorylineDatabase.TABLE_SEGMENT
+			+ " (date, seq, type, start_time, end_time, start_millis, end_millis, place_id, last_update)"
+			+ " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String SQL_INSERT_ACTIVITY		= "INSERT INTO " + StorylineDatabase.TABLE_ACTIVITY
+			+ " (segment_id, date, seq, activity, activity_group, manual, start_time, end_time, start_millis,"
+			+ " duration, distance, steps, calories) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String SQL_INSERT_TRACKPOINT	= "INSERT INTO " + StorylineDatabase.TABLE_TRACKPOINT
+			+ " (activity_id, seq, lat, lon, time) VALUES (?, ?, ?, ?, ?)";
+	private static final String SQL_LAST_UPDATE			= "SELECT last_update FROM " + StorylineDatabase.TABLE_STORYLINE
+			+ " WHERE date = ?";
+	
+	private static final String ACTIVITY_COLUMNS		= "a._id, a.activity, a.activity_group, a.manual, a.start_time,"
+			+ " a.end_time, a.duration, a.distance, a.steps, a.calories";
+	private static final String SEGMENT_COLUMNS			= "s._id, s.type, s.start_time, s.end_time, s.last_update,"
+			+ " p.id, p.name, p.type, p.foursquare_id, p.foursquare_category_ids, p.lat, p.lon";
+	
+	private final StorylineDatabase mDatabase;
+	
+	/**
+	 * Constructor method for {@link StorylineStore}
+	 * @param context : A valid application {@link Context}, used to open the database
+	 */
+	public StorylineStore(Context context) {
+		mDatabase = new StorylineDatabase(context.getApplicationContext());
+	}
+	
+	/** Use when you finished dealing with this store, closes the underlying database **/
+	public void close() {
+		mDatabase.close();
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Write methods     *************************************************************** **/
+	
+	/**
+	 * Saves the given storylines, replacing any previously stored data of the same dates. Days which are already
+	 * stored with the same <code>lastUpdate</code> are skipped, unless they contain track points.
+	 * @param storylines : storylines received from Moves API
+	 * @return Number of days actually written
+	 */
+	public synchronized int saveStorylines(List<StorylineData> storylines) {
+		if (storylines == null || storylines.isEmpty()) {
+			return 0;
+		}
+		int written = 0;
+		SQLiteDatabase db = mDatabase.getWritableDatabase();
+		Statements statements = new Statements(db);
+		db.beginTransaction();
+		try {
+			for (int i = 0; i < storylines.size(); i++) {
+				StorylineData storyline = storylines.get(i);
+				if (storyline != null && writeStoryline(db, statements, storyline)) {
+					written++;
+				}
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+			statements.close();
+		}
+		return written;
+	}
+	
+	/** Deletes all locally stored data **/
+	public synchronized void clear() {
+		SQLiteDatabase db = mDatabase.getWritableDatabase();
+		db.beginTransaction();
+		try {
+			db.delete(StorylineDatabase.TABLE_TRACKPOINT, null, null);
+			db.delete(StorylineDatabase.TABLE_ACTIVITY, null, null);
+			db.delete(StorylineDatabase.TABLE_SEGMENT, null, null);
+			db.delete(StorylineDatabase.TABLE_PLACE, null, null);
+			db.delete(StorylineDatabase.TABLE_SUMMARY, null, null);
+			db.delete(StorylineDatabase.TABLE_STORYLINE, null, null);
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+	
+	private boolean writeStoryline(SQLiteDatabase db, Statements st, StorylineData storyline) {
+		String date = normalizeDate(storyline.getDate());
+		if (date == null) {
+			return false;
+		}
+		String lastUpdate = storyline.getLastUpdate();
+		if (lastUpdate != null && lastUpdate.length() > 0 && lastUpdate.equals(queryLastUpdate(st, date))
+				&& !hasTrackPoints(storyline)) {
+			/* Nothing changed since we stored this day. A day fetched with track points is always written, 
+			 * it may have been stored before without them */
+			return false;
+		}
+		deleteDay(db, date);
+	
+		st.storyline.bindString(1, date);
+		bindString(st.storyline, 2, storyline.getCaloriesIdle());
+		bindString(st.storyline, 3, lastUpdate);
+		st.storyline.executeInsert();
+	
+		ArrayList<SummaryData> summaries = storyline.getSummary();
+		if (summaries != null) {
+			for (int i = 0; i < summaries.size(); i++) {
+				SummaryData summary = summaries.get(i);
+				if (summary == null) continue;
+				st.summary.bindString(1, date);
+				st.summary.bindLong(2, i);
+				bindString(st.summary, 3, summary.getActivity());
+				bindString(st.summary, 4, summary.getGroup());
+				bindString(st.summary, 5, summary.getDuration());
+				bindString(st.summary, 6, summary.getDistance());
+				bindString(st.summary, 7, summary.getSteps());
+				bindString(st.summary, 8, summary.getCalories());
+				st.summary.executeInsert();
+			}
+		}
+	
+		ArrayList<SegmentData> segments = storyline.getSegments();
+		if (segments != null) {
+			for (int i = 0; i < segments.size(); i++) {
+				SegmentData segment = segments.get(i);
+				if (segment != null) {
+					writeSegment(st, date, i, segment);
+				}
+			}
+		}
+		return true;
+	}
+	
+	private void writeSegment(Statements st, String date, int seq, SegmentData segment) {
+		PlaceData place = segment.getPlace();
+		String placeId = null;
+		if (place != null && place.getId() != null && place.getId().length() > 0) {
+			placeId = place.getId();
+			writePlace(st, place);
+		}
+	
+		st.segment.bindString(1, date);
+		st.segment.bindLong(2, seq);
+		bindString(st.segment, 3, segment.getType());
+		bindString(st.segment, 4, segment.getStartTime());
+		bindString(st.segment, 5, segment.getEndTime());
+		st.segment.bindLong(6, segment.getStartTime_Millis(0));
+		st.segment.bindLong(7, segment.getEndTime_Millis(0));
+		bindString(st.segment, 8, placeId);
+		bindString(st.segment, 9, segment.getLastUpdate());
+		long segmentId = st.segment.executeInsert();
+	
+		ArrayList<ActivityData> activities = segment.getActivities();
+		if (activities == null) {
+			return;
+		}
+		for (int i = 0; i < activities.size(); i++) {
+			ActivityData activity = activities.get(i);
+			if (activity == null) continue;
+			st.activity.bindLong(1, segmentId);
+			st.activity.bindString(2, date);
+			st.activity.bindLong(3, i);
+			bindString(st.activity, 4, activity.getActivity());
+			bindString(st.activity, 5, activity.getGroup());
+			bindString(st.activity, 6, activity.getManual());
+			bindString(st.activity, 7, activity.getStartTime());
+			bindString(st.activity, 8, activity.getEndTime());
+			st.activity.bindLong(9, activity.getStartTime_Millis(0));
+			bindString(st.activity, 10, activity.getDuration());
+			bindString(st.activity, 11, activity.getDistance());
+			bindString(st.activity, 12, activity.getSteps());
+			bindString(st.activity, 13, activity.getCalories());
+			long activityId = st.activity.executeInsert();
+	
+			ArrayList<TrackPointsData> trackPoints = activity.getTrackPoints();
+			if (trackPoints == null) continue;
+			for (int j = 0; j < trackPoints.size(); j++) {
+				TrackPointsData trackPoint = trackPoints.get(j);
+				if (trackPoint == null) continue;
+				st.trackPoint.bindLong(1, activityId);
+				st.trackPoint.bindLong(2, j);
+				bindString(st.trackPoint, 3, trackPoint.getLat());
+				bindString(st.trackPoint, 4, trackPoint.getLon());
+				bindString(st.trackPoint, 5, trackPoint.getTime());
+				st.trackPoint.executeInsert();
+			}
+		}
+	}
+	
+	private void writePlace(Statements st, PlaceData place) {
+		StringBuilder categories = new StringBuilder();
+		ArrayList<String> categoryIds = place.getFoursquareCategoryIds();
+		if (categoryIds != null) {
+			for (int i = 0; i < categoryIds.size(); i++) {
+				if (i > 0) categories.append(',');
+				categories.append(categoryIds.get(i));
+			}
+		}
+		LocationData location = place.getLocation();
+		st.place.bindString(1, place.getId());
+		bindString(st.place, 2, place.getName());
+		bindString(st.place, 3, place.getType());
+		bindString(st.place, 4, place.getFoursquareId());
+		bindString(st.place, 5, categories.toString());
+		bindString(st.place, 6, location != null ? location.getLat() : null);
+		bindString(st.place, 7, location != null ? location.getLon() : null);
+		st.place.executeInsert();
+	}
+	
+	private static boolean hasTrackPoints(StorylineData storyline) {
+		ArrayList<SegmentData> segments = storyline.getSegments();
+		if (segments == null) {
+			return false;
+		}
+		for (int i = 0; i < segments.size(); i++) {
+			ArrayList<ActivityData> activities = segments.get(i) != null ? segments.get(i).getActivities() : null;
+			if (activities == null) continue;
+			for (int j = 0; j < activities.size(); j++) {
+				ArrayList<TrackPointsData> trackPoints = activities.get(j) != null ? activities.get(j).getTrackPoints() : null;
+				if (trackPoints != null && !trackPoints.isEmpty()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private static void deleteDay(SQLiteDatabase db, String date) {
+		String[] args = new String[] {date};
+		db.delete(StorylineDatabase.TABLE_TRACKPOINT, "activity_id IN (SELECT _id FROM "
+				+ StorylineDatabase.TABLE_ACTIVITY + " WHERE date = ?)", args);
+		db.delete(StorylineDatabase.TABLE_ACTIVITY, "date = ?", args);
+		db.delete(StorylineDatabase.TABLE_SEGMENT, "date = ?", args);
+		db.delete(StorylineDatabase.TABLE_SUMMARY, "date = ?", args);
+		db.delete(StorylineDatabase.TABLE_STORYLINE, "date = ?", args);
+	}
+	
+	private static String queryLastUpdate(Statements st, String date) {
+		st.lastUpdate.bindString(1, date);
+		try {
+			return st.lastUpdate.simpleQueryForString();
+		} catch (SQLiteDoneException e) {
+			/* Day is not stored yet */
+			return null;
+		}
+	}
+	
+	private static void bindString(SQLiteStatement statement, int index, String value) {
+		if (value == null) {
+			statement.bindNull(index);
+		} else {
+			statement.bindString(index, value);
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Query methods     *************************************************************** **/
+	
+	/**
+	 * Gets the <code>lastUpdate</code> value of a stored day, useful as <code>updatedSince</code> parameter of the
+	 * next request for that day.
+	 * @param date : date in yyyyMMdd or yyyy-MM-dd format
+	 * @return the stored last update time, or <code>null</code> if the day is not stored or the date is not valid
+	 */
+	public String getLastUpdate(String date) {
+		String day = normalizeDate(date);
+		if (day == null) {
+			return null;
+		}
+		Cursor cursor = mDatabase.getReadableDatabase().rawQuery(SQL_LAST_UPDATE, new String[] {day});
+		try {
+			return cursor.moveToNext() ? cursor.getString(0) : null;
+		} finally {
+			cursor.close();
+		}
+	}
+	
+	/**
+	 * Gets the stored storylines within a date range, ordered by date.
+	 * @param from : Range start in yyyyMMdd or yyyy-MM-dd format, <code>null</code> for no lower limit
+	 * @param to : Range end (inclusive) in yyyyMMdd or yyyy-MM-dd format, <code>null</code> for no upper limit
+	 * @param withTrackPoints : whether the {@link TrackPointsData} of activities should be loaded as well
+	 * @return An {@link ArrayList} of {@link StorylineData}, empty if nothing is stored for the range
+	 */
+	public ArrayList<StorylineData> getStorylines(String from, String to, boolean withTrackPoints) {
+		SQLiteDatabase db = mDatabase.getReadableDatabase();
+		ArrayList<String> args = new ArrayList<String>();
+		String dateRange = dateRange("date", from, to, args);
+		String[] selectionArgs = args.toArray(new String[args.size()]);
+	
+		ArrayList<StorylineData> storylines = new ArrayList<StorylineData>();
+		HashMap<String, StorylineData> byDate = new HashMap<String, StorylineData>();
+		Cursor cursor = db.rawQuery("SELECT date, calories_idle, last_update FROM " + StorylineDatabase.TABLE_STORYLINE
+				+ " WHERE " + dateRange + " ORDER BY date", selectionArgs);
+		try {
+			while (cursor.moveToNext()) {
+				StorylineData storyline = new StorylineData();
+				storyline.setDate(cursor.getString(0));
+				storyline.setCaloriesIdle(cursor.getString(1));
+				storyline.setLastUpdate(cursor.getString(2));
+				storyline.setSummary(new ArrayList<SummaryData>());
+				storyline.setSegments(new ArrayList<SegmentData>());
+				storylines.add(storyline);
+				byDate.put(storyline.getDate(), storyline);
+			}
+		} finally {
+			cursor.close();
+		}
+		if (storylines.isEmpty()) {
+			return storylines;
+		}
+	
+		cursor = db.rawQuery("SELECT date, activity, activity_group, duration, distance, steps, calories FROM "
+				+ StorylineDatabase.TABLE_SUMMARY + " WHERE " + dateRange + " ORDER BY date, seq", selectionArgs);
+		try {
+			while (cursor.moveToNext()) {
+				SummaryData summary = new SummaryData();
+				summary.setActivity(cursor.getString(1));
+				summary.setGroup(cursor.getString(2));
+				summary.setDuration(cursor.getString(3));
+				summary.setDistance(cursor.getString(4));
+				summary.setSteps(cursor.getString(5));
+				summary.setCalories(cursor.getString(6));
+				byDate.get(cursor.getString(0)).getSummary().add(summary);
+			}
+		} finally {
+			cursor.close();
+		}
+	
+		HashMap<Long, SegmentData> segmentsById = new HashMap<Long, SegmentData>();
+		cursor = db.rawQuery("SELECT " + SEGMENT_COLUMNS + ", s.date FROM " + StorylineDatabase.TABLE_SEGMENT
+				+ " s LEFT JOIN " + StorylineDatabase.TABLE_PLACE + " p ON p.id = s.place_id WHERE "
+				+ dateRange("s.date", from, to, null) + " ORDER BY s.date, s.seq", selectionArgs);
+		try {
+			while (cursor.moveToNext()) {
+				SegmentData segment = readSegment(cursor);
+				segmentsById.put(cursor.getLong(0), segment);
+				byDate.get(cursor.getString(12)).getSegments().add(segment);
+			}
+		} finally {
+			cursor.close();
+		}
+	
+		HashMap<Long, ActivityData> activitiesById = new HashMap<Long, ActivityData>();
+		cursor = db.rawQuery("SELECT " + ACTIVITY_COLUMNS + ", a.segment_id FROM " + StorylineDatabase.TABLE_ACTIVITY
+				+ " a WHERE " + dateRange("a.date", from, to, null) + " ORDER BY a.segment_id, a.seq", selectionArgs);
+		try {
+			while (cursor.moveToNext()) {
+				ActivityData activity = readActivity(cursor);
+				SegmentData segment = segmentsById.get(cursor.getLong(10));
+				if (segment != null) {
+					segment.getActivities().add(activity);
+					activitiesById.put(cursor.getLong(0), activity);
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+	
+		if (withTrackPoints) {
+			cursor = db.rawQuery("SELECT t.activity_id, t.lat, t.lon, t.time FROM " + StorylineDatabase.TABLE_TRACKPOINT
+					+ " t JOIN " + StorylineDatabase.TABLE_ACTIVITY + " a ON a._id = t.activity_id WHERE "
+					+ dateRange("a.date", from, to, null) + " ORDER BY t.activity_id, t.seq", selectionArgs);
+			try {
+				while (cursor.moveToNext()) {
+					ActivityData activity = activitiesById.get(cursor.getLong(0));
+					if (activity != null) {
+						TrackPointsData trackPoint = new TrackPointsData();
+						trackPoint.setLat(cursor.getString(1));
+						trackPoint.setLon(cursor.getString(2));
+						trackPoint.setTime(cursor.getString(3));
+						activity.getTrackPoints().add(trackPoint);
+					}
+				}
+			} finally {
+				cursor.close();
+			}
+		}
+		return storylines;
+	}
+	
+	/**
+	 * Gets the stored activities matching all given conditions, ordered by time. For example all walking activities
+	 * at a place in March 2014 are returned by <code>getActivities("walking", placeId, "20140301", "20140331")</code>.
+	 * Track points are not loaded.
+	 * @param activity : name of the activity, for example <code>walking</code>, <code>null</code> for any activity
+	 * @param placeId : {@link PlaceData} id of the segment the activity belongs to, <code>null</code> for any place
+	 * @param from : Range start in yyyyMMdd or yyyy-MM-dd format, <code>null</code> for no lower limit
+	 * @param to : Range end (inclusive) in yyyyMMdd or yyyy-MM-dd format, <code>null</code> for no upper limit
+	 * @return An {@link ArrayList} of matching {@link ActivityData}
+	 */
+	public ArrayList<ActivityData> getActivities(String activity, String placeId, String from, String to) {
+		ArrayList<String> args = new ArrayList<String>();
+		StringBuilder sql = new StringBuilder("SELECT ").append(ACTIVITY_COLUMNS)
+				.append(" FROM ").append(StorylineDatabase.TABLE_ACTIVITY).append(" a");
+		if (placeId != null) {
+			sql.append(" JOIN ").append(StorylineDatabase.TABLE_SEGMENT).append(" s ON s._id = a.segment_id");
+		}
+		sql.append(" WHERE ").append(dateRange("a.date", from, to, args));
+		if (activity != null) {
+			sql.append(" AND a.activity = ?");
+			args.add(activity);
+		}
+		if (placeId != null) {
+			sql.append(" AND s.place_id = ?");
+			args.add(placeId);
+		}
+		sql.append(" ORDER BY a.date, a.start_millis");
+	
+		ArrayList<ActivityData> activities = new ArrayList<ActivityData>();
+		Cursor cursor = mDatabase.getReadableDatabase().rawQuery(sql.toString(), args.toArray(new String[args.size()]));
+		try {
+			while (cursor.moveToNext()) {
+				activities.add(readActivity(cursor));
+			}
+		} finally {
+			cursor.close();
+		}
+		return activities;
+	}
+	
+	/**
+	 * Gets the stored segments at a place, ordered by time. The activities of the segments are not loaded.
+	 * @param placeId : {@link PlaceData} id of the place
+	 * @param from : Range start in yyyyMMdd or yyyy-MM-dd format, <code>null</code> for no lower limit
+	 * @param to : Range end (inclusive) in yyyyMMdd or yyyy-MM-dd format, <code>null</code> for no upper limit
+	 * @return An {@link ArrayList} of {@link SegmentData} at the place, empty if <code>placeId</code> is <code>null</code>
+	 */
+	public ArrayList<SegmentData> getPlaceSegments(String placeId, String from, String to) {
+		ArrayList<SegmentData> segments = new ArrayList<SegmentData>();
+		if (placeId == null) {
+			return segments;
+		}
+		ArrayList<String> args = new ArrayList<String>();
+		args.add(placeId);
+		String sql = "SELECT " + SEGMENT_COLUMNS + " FROM " + StorylineDatabase.TABLE_SEGMENT + " s JOIN "
+				+ StorylineDatabase.TABLE_PLACE + " p ON p.id = s.place_id WHERE s.place_id = ? AND "
+				+ dateRange("s.date", from, to, args) + " ORDER BY s.date, s.seq";
+	
+		Cursor cursor = mDatabase.getReadableDatabase().rawQuery(sql, args.toArray(new String[args.size()]));
+		try {
+			while (cursor.moveToNext()) {
+				segments.add(readSegment(cursor));
+			}
+		} finally {
+			cursor.close();
+		}
+		return segments;
+	}
+	
+	private static SegmentData readSegment(Cursor cursor) {
+		SegmentData segment = new SegmentData();
+		segment.setType(cursor.getString(1));
+		segment.setStartTime(cursor.getString(2));
+		segment.setEndTime(cursor.getString(3));
+		segment.setLastUpdate(cursor.getString(4));
+		segment.setActivities(new ArrayList<ActivityData>());
+		if (!cursor.isNull(5)) {
+			PlaceData place = new PlaceData();
+			place.setId(cursor.getString(5));
+			place.setName(cursor.getString(6));
+			place.setType(cursor.getString(7));
+			place.setFoursquareId(cursor.getString(8));
+			ArrayList<String> categoryIds = new ArrayList<String>();
+			String categories = cursor.getString(9);
+			if (categories != null && categories.length() > 0) {
+				for (String categoryId : categories.split(",")) {
+					categoryIds.add(categoryId);
+				}
+			}
+			place.setFoursquareCategoryIds(categoryIds);
+			if (!cursor.isNull(10)) {
+				LocationData location = new LocationData();
+				location.setLat(cursor.getString(10));
+				location.setLon(cursor.getString(11));
+				place.setLocation(location);
+			}
+			segment.setPlace(place);
+		}
+		return segment;
+	}
+	
+	private static ActivityData readActivity(Cursor cursor) {
+		ActivityData activity = new ActivityData();
+		activity.setActivity(cursor.getString(1));
+		activity.setGroup(cursor.getString(2));
+		activity.setManual(cursor.getString(3));
+		activity.setStartTime(cursor.getString(4));
+		activity.setEndTime(cursor.getString(5));
+		activity.setDuration(cursor.getString(6));
+		activity.setDistance(cursor.getString(7));
+		activity.setSteps(cursor.getString(8));
+		activity.setCalories(cursor.getString(9));
+		activity.setTrackPoints(new ArrayList<TrackPointsData>());
+		return activity;
+	}
+	
+	/** Builds a date range condition on the given column, the dates are added to <code>args</code> if not null **/
+	private static String dateRange(String column, String from, String to, List<String> args) {
+		StringBuilder condition = new StringBuilder("1 = 1");
+		String fromDate = normalizeDate(from);
+		String toDate = normalizeDate(to);
+		if (fromDate != null) {
+			condition.append(" AND ").append(column).append(" >= ?");
+			if (args != null) args.add(fromDate);
+		}
+		if (toDate != null) {
+			condition.append(" AND ").append(column).append(" <= ?");
+			if (args != null) args.add(toDate);
+		}
+		return condition.toString();
+	}
+	
+	/** Converts a date in yyyyMMdd or yyyy-MM-dd format to yyyyMMdd, returns <code>null</code> if it is not valid **/
+	private static String normalizeDate(String date) {
+		if (date == null || MovesTimeFormat.parseDateUTC(date, Long.MIN_VALUE) == Long.MIN_VALUE) {
+			return null;
+		}
+		return date.length() == 8 ? date : date.replace("-", "");
+	}
+	
+	/** Compiled insert statements, reused for all rows written within one transaction **/
+	private static class Statements {
+		final SQLiteStatement storyline;
+		final SQLiteStatement summary;
+		final SQLiteStatement place;
+		final SQLiteStatement segment;
+		final SQLiteStatement activity;
+		final SQLiteStatement trackPoint;
+		final SQLiteStatement lastUpdate;
+	
+		Statements(SQLiteDatabase db) {
+			storyline	= db.compileStatement(SQL_INSERT_STORYLINE);
+			summary		= db.compileStatement(SQL_INSERT_SUMMARY);
+			place		= db.compileStatement(SQL_INSERT_PLACE);
+			segment		= db.compileStatement(SQL_INSERT_SEGMENT);
+			activity	= db.compileStatement(SQL_INSERT_ACTIVITY);
+			trackPoint	= db.compileStatement(SQL_INSERT_TRACKPOINT);
+			lastUpdate	= db.compileStatement(SQL_LAST_UPDATE);
+		}
+	
+		void close() {
+			storyline.close();
+			summary.close();
+			place.close();
+			segment.close();
+			activity.close();
+			trackPoint.close();
+			lastUpdate.close();
+		}
+	}
+}
@@ -0,0 +1,341 @@
+package com.midhunarmid.movesapi.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import android.content.Context;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+
+/**
+ * An append-only archive of GPS history, for histories too large to keep as {@link TrackPointsData} on the heap.
+ * Track points are stored as fixed width records in a file and read through a memory mapping, so a query for a time
+ * window only touches the pages holding that window.<br><br>
+ * 
+ * The file holds a 16 byte header (magic <code>MVTP</code>, version, record size) followed by 16 byte records of
+ * time (milliseconds since Jan. 1, 1970 GMT), latitude and longitude (both in 1e-7 degrees). Records are kept in
+ * time order, points older than the last archived point are skipped when appending. The time of every
+ * {@value #INDEX_INTERVAL}th record is kept in memory as a sparse index.
+ * @author Midhu
+ * @see TrackPointsData
+ */
+public class TrackPointArchive {
+	
+	/** Receives the track points of a query, without creating any objects per point **/
+	public interface Visitor {
+		/**
+		 * Called once for every track point in the queried window, in time order
+		 * @param timeMillis : Time of the track point in milliseconds since Jan. 1, 1970, midnight GMT
+		 * @param latE7 : Latitude in 1e-7 degrees
+		 * @param lonE7 : Longitude in 1e-7 degrees
+		 * @return <code>true</code> to continue with the next track point, <code>false</code> to stop the query
+		 */
+		public boolean onTrackPoint(long timeMillis, int latE7, int lonE7);
+	}
+	
+	public static final int INDEX_INTERVAL	= 256;
+	public static final double E7			= 10000000d;
+	
+	private static final int MAGIC			= 0x4D565450;	// MVTP
+	private static final int VERSION		= 1;
+	private static final int HEADER_SIZE	= 16;
+	private static final int RECORD_SIZE	= 16;
+	private static final int WRITE_BATCH	= 256;
+	
+	private final RandomAccessFile mFile;
+	private final FileChannel mChannel;
+	private final ByteBuffer mWriteBuffer = ByteBuffer.allocateDirect(WRITE_BATCH * RECORD_SIZE).order(ByteOrder.BIG_ENDIAN);
+	
+	private MappedByteBuffer mMap;
+	private int mMappedCount;
+	private int mCount;
+	private long[] mIndex = new long[16];
+	private long mLastTime = Long.MIN_VALUE;
+	private int mLastLat;
+	private int mLastLon;
+	
+	/**
+	 * Gets the archive file of a user, in the private files directory of the application
+	 * @param context : A valid {@link Context}
+	 * @param userId : Moves user id, see {@link com.midhunarmid.movesapi.profile.ProfileData#getUserID()}
+	 * @return the archive file of the user, which may not exist yet
+	 */
+	public static File getUserFile(Context context, String userId) {
+		return new File(context.getFilesDir(), "moves_trackpoints_" + userId + ".bin");
+	}
+	
+	/**
+	 * Opens an archive, creating the file if it does not exist. Call {@link #close()} when the archive is not needed any more.
+	 * @param file : The archive file
+	 * @throws IOException if the file could not be opened or is not a track point archive
+	 */
+	public TrackPointArchive(File file) throws IOException {
+		mFile		= new RandomAccessFile(file, "rw");
+		mChannel	= mFile.getChannel();
+		try {
+			open();
+		} catch (IOException e) {
+			mFile.close();
+			throw e;
+		}
+	}
+	
+	private void open() throws IOException {
+		long length = mChannel.size();
+		if (length < HEADER_SIZE) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0).flip();
+			mChannel.truncate(0);
+			mChannel.write(header, 0);
+			length = HEADER_SIZE;
+		} else {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			mChannel.read(header, 0);
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getInt() != RECORD_SIZE) {
+				throw new IOException("Not a track point archive");
+			}
+		}
+		/* A partly written last record is dropped */
+		mCount = (int) ((length - HEADER_SIZE) / RECORD_SIZE);
+		if (HEADER_SIZE + (long) mCount * RECORD_SIZE != length) {
+			mChannel.truncate(HEADER_SIZE + (long) mCount * RECORD_SIZE);
+		}
+		if (mCount > 0) {
+			ensureMapped();
+			int indexSize = (mCount + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+			mIndex = new long[Math.max(16, indexSize)];
+			for (int i = 0; i < indexSize; i++) {
+				mIndex[i] = timeAt(i * INDEX_INTERVAL);
+			}
+			int last = (mCount - 1) * RECORD_SIZE;
+			mLastTime	= mMap.getLong(last);
+			mLastLat	= mMap.getInt(last + 8);
+			mLastLon	= mMap.getInt(last + 12);
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Append methods    *************************************************************** **/
+	
+	/**
+	 * Appends all track points of the given storylines, see {@link #append(List)}
+	 * @return number of track points appended
+	 */
+	public synchronized int appendStorylines(List<StorylineData> storylines) throws IOException {
+		int appended = 0;
+		if (storylines == null) {
+			return appended;
+		}
+		for (int i = 0; i < storylines.size(); i++) {
+			StorylineData storyline = storylines.get(i);
+			List<SegmentData> segments = storyline != null ? storyline.getSegments() : null;
+			if (segments == null) continue;
+			for (int j = 0; j < segments.size(); j++) {
+				List<ActivityData> activities = segments.get(j).getActivities();
+				if (activities == null) continue;
+				for (int k = 0; k < activities.size(); k++) {
+					appended += append(activities.get(k).getTrackPoints());
+				}
+			}
+		}
+		return appended;
+	}
+	
+	/**
+	 * Appends track points to the end of the archive. Points which are older than the last archived point, repeat it,
+	 * or have no valid time or coordinates are skipped, so appending the same days again is harmless.
+	 * @param trackPoints : Track points in time order
+	 * @return number of track points appended
+	 */
+	public synchronized int append(List<TrackPointsData> trackPoints) throws IOException {
+		int appended = 0;
+		if (trackPoints == null) {
+			return appended;
+		}
+		for (int i = 0; i < trackPoints.size(); i++) {
+			TrackPointsData trackPoint = trackPoints.get(i);
+			long time	= trackPoint.getTime_Millis(Long.MIN_VALUE);
+			long lat	= toE7(trackPoint.getLat());
+			long lon	= toE7(trackPoint.getLon());
+			if (time != Long.MIN_VALUE && lat != Long.MIN_VALUE && lon != Long.MIN_VALUE
+					&& addRecord(time, (int) lat, (int) lon)) {
+				appended++;
+			}
+		}
+		flush();
+		return appended;
+	}
+	
+	/**
+	 * Appends a single track point, see {@link #append(List)}
+	 * @return <code>true</code> if the point was appended
+	 */
+	public synchronized boolean append(long timeMillis, int latE7, int lonE7) throws IOException {
+		boolean added = addRecord(timeMillis, latE7, lonE7);
+		flush();
+		return added;
+	}
+	
+	private boolean addRecord(long time, int lat, int lon) throws IOException {
+		if (time < mLastTime || (time == mLastTime && lat == mLastLat && lon == mLastLon)) {
+			return false;
+		}
+		if (!mWriteBuffer.hasRemaining()) {
+			flush();
+		}
+		int record = mCount + mWriteBuffer.position() / RECORD_SIZE;
+		if (record % INDEX_INTERVAL == 0) {
+			int slot = record / INDEX_INTERVAL;
+			if (slot == mIndex.length) {
+				long[] grown = new long[mIndex.length * 2];
+				System.arraycopy(mIndex, 0, grown, 0, mIndex.length);
+				mIndex = grown;
+			}
+			mIndex[slot] = time;
+		}
+		mWriteBuffer.putLong(time).putInt(lat).putInt(lon);
+		mLastTime	= time;
+		mLastLat	= lat;
+		mLastLon	= lon;
+		return true;
+	}
+	
+	private void flush() throws IOException {
+		if (mWriteBuffer.position() == 0) {
+			return;
+		}
+		int records = mWriteBuffer.position() / RECORD_SIZE;
+		long position = HEADER_SIZE + (long) mCount * RECORD_SIZE;
+		mWriteBuffer.flip();
+		while (mWriteBuffer.hasRemaining()) {
+			position += mChannel.write(mWriteBuffer, position);
+		}
+		mWriteBuffer.clear();
+		mCount += records;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Query methods     *************************************************************** **/
+	
+	/**
+	 * Streams all track points within a time window to the given {@link Visitor}
+	 * @param fromMillis : Start of the window, inclusive
+	 * @param toMillis : End of the window, exclusive
+	 * @param visitor : Receives the track points in time order
+	 * @return number of track points passed to the visitor
+	 */
+	public synchronized int query(long fromMillis, long toMillis, Visitor visitor) throws IOException {
+		if (mCount == 0 || fromMillis >= toMillis) {
+			return 0;
+		}
+		ensureMapped();
+		int visited = 0;
+		for (int i = firstIndexOf(fromMillis); i < mCount; i++) {
+			int offset = i * RECORD_SIZE;
+			long time = mMap.getLong(offset);
+			if (time >= toMillis) {
+				break;
+			}
+			visited++;
+			if (!visitor.onTrackPoint(time, mMap.getInt(offset + 8), mMap.getInt(offset + 12))) {
+				break;
+			}
+		}
+		return visited;
+	}
+	
+	/** Number of track points within a time window, <code>toMillis</code> is exclusive **/
+	public synchronized int count(long fromMillis, long toMillis) throws IOException {
+		if (mCount == 0 || fromMillis >= toMillis) {
+			return 0;
+		}
+		ensureMapped();
+		return firstIndexOf(toMillis) - firstIndexOf(fromMillis);
+	}
+	
+	/** Number of track points in this archive **/
+	public synchronized int getCount() {
+		return mCount;
+	}
+	
+	/** Time of the first track point, or <b><i>def</b></i> if the archive is empty **/
+	public synchronized long getFirstTime(long def) {
+		return mCount > 0 ? mIndex[0] : def;
+	}
+	
+	/** Time of the last track point, or <b><i>def</b></i> if the archive is empty **/
+	public synchronized long getLastTime(long def) {
+		return mCount > 0 ? mLastTime : def;
+	}
+	
+	/** Closes the archive file **/
+	public synchronized void close() throws IOException {
+		flush();
+		mMap = null;
+		mFile.close();
+	}
+	
+	/** Index of the first record at or after the given time, found with the sparse index and the mapped records **/
+	private int firstIndexOf(long time) {
+		/* Last index block starting before the time */
+		int low = 0;
+		int high = (mCount - 1) / INDEX_INTERVAL;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (mIndex[mid] < time) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		int from = low * INDEX_INTERVAL;
+		int to = Math.min(mCount, from + INDEX_INTERVAL + 1);
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (timeAt(mid) < time) {
+				from = mid + 1;
+			} else {
+				to = mid;
+			}
+		}
+		return from;
+	}
+	
+	private long timeAt(int record) {
+		return mMap.getLong(record * RECORD_SIZE);
+	}
+	
+	/** Maps all records written so far, the mapping is renewed only after the archive has grown **/
+	private void ensureMapped() throws IOException {
+		if (mMap == null || mMappedCount != mCount) {
+			mMap = mChannel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) mCount * RECORD_SIZE);
+			mMappedCount = mCount;
+		}
+	}
+	
+	/** Converts a coordinate to 1e-7 degrees, returns {@link Long#MIN_VALUE} if it is not valid **/
+	private static long toE7(String value) {
+		if (value == null || value.length() == 0) {
+			return Long.MIN_VALUE;
+		}
+		try {
+			double degrees = Double.parseDouble(value);
+			if (degrees < -180 || degrees > 180) {
+				return Long.MIN_VALUE;
+			}
+			return Math.round(degrees * E7);
+		} catch (NumberFormatException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+}
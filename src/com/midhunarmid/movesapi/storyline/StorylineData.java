@@ -3,11 +3,17 @@ package com.midhunarmid.movesapi.storyline;
 import java.util.ArrayList;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import com.midhunarmid.movesapi.segment.SegmentData;
 import com.midhunarmid.movesapi.summary.SummaryData;
 import com.midhunarmid.movesapi.summary.SummaryListData;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+import com.midhunarmid.movesapi.util.ParseOptions;
+import com.midhunarmid.movesapi.util.ParseOptions.Field;
+import com.midhunarmid.movesapi.util.ParsePool;
 
 /**
  * This class holds the Storyline Data of a Moves User, and some related methods to handle those data
@@ -18,10 +24,29 @@ import com.midhunarmid.movesapi.summary.SummaryListData;
 public class StorylineData {
 	private String date;
 	private ArrayList<SummaryData> summary;
-	private ArrayList<SegmentData> segments;
+	private volatile ArrayList<SegmentData> segments;
 	private String caloriesIdle;
 	private String lastUpdate;
 	
+	/* Raw segments of a lazily parsed storyline, until they are first accessed */
+	private JSONArray segmentsJson;
+	private ParseOptions options;
+	
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Get the date as a millisecond value, midnight of that date in the default time zone <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getDate_Millis(long def) {
+		return MovesTimeFormat.parseDate(date, def);
+	}
+	
+	/** Get when the data was last updated as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getLastUpdate_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(lastUpdate, def);
+	}
 	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Getter methods    *************************************************************** **/
@@ -36,9 +61,19 @@ public class StorylineData {
 		return summary;
 	}
 	
-	/** {@link ArrayList} of {@link SegmentData} **/
+	/** {@link ArrayList} of {@link SegmentData}, parsed on first access if this storyline was parsed lazily **/
 	public ArrayList<SegmentData> getSegments() {
-		return segments;
+		ArrayList<SegmentData> result = segments;
+		if (result == null) {
+			synchronized (this) {
+				if (segments == null && segmentsJson != null) {
+					segments		= SegmentData.parseList(segmentsJson, options);
+					segmentsJson	= null;
+				}
+				result = segments;
+			}
+		}
+		return result;
 	}
 	
 	/** Daily idle burn in kcal. Available if user has at least once enabled calories **/
@@ -66,8 +101,9 @@ public class StorylineData {
 	}
 	
 	/** {@link ArrayList} of {@link SegmentData} **/
-	public void setSegments(ArrayList<SegmentData> segments) {
+	public synchronized void setSegments(ArrayList<SegmentData> segments) {
 		this.segments = segments;
+		this.segmentsJson = null;
 	}
 	
 	/** Daily idle burn in kcal. Available if user has at least once enabled calories **/
@@ -89,6 +125,17 @@ public class StorylineData {
 	 * @return corresponding {@link StorylineData}
 	 */
 	public static StorylineData parse(JSONObject jsonObject) {
+		return parse(jsonObject, null);
+	}
+	
+	/**
+	 * Parse a {@link JSONObject} from storyline {@link JSONArray}, then return the corresponding {@link StorylineData} object.
+	 * @param jsonObject : the storyline JSON object received from server 
+	 * @param options : {@link ParseOptions} to use, or <code>null</code> to parse everything now. If lazy, the 
+	 * segments are parsed on the first call to <code>getSegments()</code>
+	 * @return corresponding {@link StorylineData}
+	 */
+	public static StorylineData parse(JSONObject jsonObject, ParseOptions options) {
 		if (jsonObject != null) {
 			StorylineData storylineData = new StorylineData();
 				
@@ -96,7 +143,6 @@ public class StorylineData {
 			storylineData.caloriesIdle	= jsonObject.optString("caloriesIdle");
 			storylineData.lastUpdate	= jsonObject.optString("lastUpdate");
 			storylineData.summary		= new ArrayList<SummaryData>();
-			storylineData.segments		= new ArrayList<SegmentData>();
 			
 			JSONArray summariesJsonArray= jsonObject.optJSONArray("summary");
 			if (summariesJsonArray != null) {
@@ -109,17 +155,81 @@ public class StorylineData {
 			}
 			
 			JSONArray segmentsJsonArray= jsonObject.optJSONArray("segments");
-			if (segmentsJsonArray != null) {
-				for (int i = 0; i < segmentsJsonArray.length(); i++) {
-					JSONObject segment = segmentsJsonArray.optJSONObject(i);
-					if (segment != null) {
-						storylineData.segments.add(SegmentData.parse(segment));
-					}
-				}
+			if (segmentsJsonArray != null && ParseOptions.isLazy(options)) {
+				storylineData.segmentsJson	= segmentsJsonArray;
+				storylineData.options		= options;
+			} else {
+				storylineData.segments		= SegmentData.parseList(segmentsJsonArray, options);
 			}
 				
 			return storylineData;
 		}
     	return null;
 	}
+	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"date", "caloriesIdle", "lastUpdate", "summary", "segments"};
+	
+	/**
+	 * Read a storyline JSON object from a {@link JSONStreamReader}, then return the corresponding {@link StorylineData}
+	 * object. Fields which are not selected in the {@link ParseOptions} are skipped and left <code>null</code>, the
+	 * date is always read. Objects and lists are taken from the {@link ParsePool} of the reader, if it has one.
+	 * @param reader : the reader, positioned at a storyline JSON object received from server
+	 * @param options : {@link ParseOptions} selecting the fields to read, or <code>null</code> to read all fields
+	 * @return corresponding {@link StorylineData}
+	 */
+	public static StorylineData read(JSONStreamReader reader, ParseOptions options) throws JSONException {
+		ParsePool pool = reader.getPool();
+		StorylineData storylineData = ParsePool.obtainStoryline(pool);
+		storylineData.date = "";
+		int mask = 1;
+		if (ParseOptions.includes(options, Field.CALORIES_IDLE)) {
+			storylineData.caloriesIdle = "";
+			mask |= 1 << 1;
+		}
+		if (ParseOptions.includes(options, Field.LAST_UPDATE)) {
+			storylineData.lastUpdate = "";
+			mask |= 1 << 2;
+		}
+		if (ParseOptions.includes(options, Field.SUMMARY)) {
+			mask |= 1 << 3;
+		}
+		if (ParseOptions.includes(options, Field.SEGMENTS)) {
+			mask |= 1 << 4;
+		}
+		
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS, mask)) {
+			case 0:
+				storylineData.date			= reader.optString();
+				break;
+			case 1:
+				storylineData.caloriesIdle	= reader.optString();
+				break;
+			case 2:
+				storylineData.lastUpdate	= reader.optString();
+				break;
+			case 3:
+				storylineData.summary		= SummaryData.readList(reader);
+				break;
+			case 4:
+				storylineData.segments		= SegmentData.readList(reader, options);
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		
+		/* Selected lists are empty rather than null when the response has none */
+		if ((mask & 1 << 3) != 0 && storylineData.summary == null) {
+			storylineData.summary = ParsePool.obtainList(pool);
+		}
+		if ((mask & 1 << 4) != 0 && storylineData.segments == null) {
+			storylineData.segments = ParsePool.obtainList(pool);
+		}
+		return storylineData;
+	}
 }
@@ -0,0 +1,330 @@
+package com.midhunarmid.movesapi.storyline;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.util.ParseOptions;
+import com.midhunarmid.movesapi.util.ParseOptions.Field;
+
+/**
+ * Merges storyline days from overlapping fetches, for example <code>getStoryline_PastDays</code> followed by
+ * <code>getStoryline_SpecificWeek</code>, into one version per date. Of two versions of a date the one with the newer
+ * <code>lastUpdate</code> is kept. With equal <code>lastUpdate</code> the version already merged stays, unless the
+ * other one carries more data, like track points or fields left out by {@link ParseOptions#setFields(Field...)}.<br><br>
+ * 
+ * When a version replaces a day, its segments which did not change (same type, times, <code>lastUpdate</code>, place
+ * and activities) are replaced by the instances of the earlier version, and so are unchanged activities of changed
+ * segments. Repeated polling therefore keeps one object tree per date, and only the parts Moves actually updated are
+ * new. Fetched days may be shared with other callers, so they are never modified: when parts are shared, a copy of
+ * the day with its own segment and activity lists is merged instead. All methods are synchronized.
+ * @author Midhu
+ * @see StorylineData
+ */
+public class StorylineMerger {
+	
+	/* Merged days, sorted by date (yyyyMMdd sorts like the dates it stands for) */
+	private final TreeMap<String, StorylineData> mDays = new TreeMap<String, StorylineData>();
+	private final int mMaxDays;
+	
+	/** Creates a merger which keeps all merged dates **/
+	public StorylineMerger() {
+		this(0);
+	}
+	
+	/**
+	 * Creates a merger which keeps at most the given number of dates, dropping the earliest dates first
+	 * @param maxDays : Maximum number of dates to keep, 0 for no limit
+	 */
+	public StorylineMerger(int maxDays) {
+		mMaxDays = maxDays;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Merge methods   ***************************************************************** **/
+	
+	/**
+	 * Merges a fetched list of days
+	 * @param storylines : Days, usually received from one of the storyline or activities calls of Moves API
+	 * @return the merged version of each date in the list, in the order of their first occurrence
+	 */
+	public synchronized ArrayList<StorylineData> merge(List<StorylineData> storylines) {
+		ArrayList<StorylineData> result = new ArrayList<StorylineData>();
+		if (storylines == null) {
+			return result;
+		}
+		HashMap<String, Integer> positions = new HashMap<String, Integer>();
+		for (int i = 0; i < storylines.size(); i++) {
+			StorylineData merged = merge(storylines.get(i));
+			if (merged == null) {
+				continue;
+			}
+			Integer position = positions.get(merged.getDate());
+			if (position == null) {
+				positions.put(merged.getDate(), result.size());
+				result.add(merged);
+			} else {
+				result.set(position, merged);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Merges a single day
+	 * @param storyline : A fetched day
+	 * @return the merged version of the date, which is either the given day, a copy of it sharing parts of the version
+	 * merged before, or the version merged before. <code>null</code> if the day has no date.
+	 */
+	public synchronized StorylineData merge(StorylineData storyline) {
+		String date = storyline != null ? storyline.getDate() : null;
+		if (date == null || date.length() == 0) {
+			return null;
+		}
+		StorylineData existing = mDays.get(date);
+		if (existing == storyline) {
+			return existing;
+		}
+		if (existing != null && !isNewer(storyline, existing)) {
+			return existing;
+		}
+		StorylineData merged = existing != null ? shareSegments(storyline, existing) : storyline;
+		mDays.put(date, merged);
+		while (mMaxDays > 0 && mDays.size() > mMaxDays) {
+			mDays.remove(mDays.firstKey());
+		}
+		return merged;
+	}
+	
+	/** Removes a date, returns the merged version it had or <code>null</code> **/
+	public synchronized StorylineData remove(String date) {
+		return mDays.remove(date);
+	}
+	
+	/** Removes all dates **/
+	public synchronized void clear() {
+		mDays.clear();
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Getter methods    *************************************************************** **/
+	
+	/** Number of merged dates **/
+	public synchronized int size() {
+		return mDays.size();
+	}
+	
+	/** The merged version of a date (yyyyMMdd), or <code>null</code> **/
+	public synchronized StorylineData getDay(String date) {
+		return mDays.get(date);
+	}
+	
+	/** All merged days, sorted by date **/
+	public synchronized ArrayList<StorylineData> getDays() {
+		return new ArrayList<StorylineData>(mDays.values());
+	}
+	
+	/**
+	 * Gets the merged days of a range of dates
+	 * @param from : First date, in format yyyyMMdd
+	 * @param to : Last date, in format yyyyMMdd
+	 * @return the merged days from <code>from</code> to <code>to</code>, both included, sorted by date
+	 */
+	public synchronized ArrayList<StorylineData> getDays(String from, String to) {
+		if (from.compareTo(to) > 0) {
+			return new ArrayList<StorylineData>();
+		}
+		/* The smallest key after "to", the inclusive subMap() needs API level 9 */
+		return new ArrayList<StorylineData>(mDays.subMap(from, to + '\0').values());
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Sharing helpers   *************************************************************** **/
+	
+	/** Whether the candidate replaces the current version, newer or equally new but carrying more data **/
+	private static boolean isNewer(StorylineData candidate, StorylineData current) {
+		long candidateUpdate	= candidate.getLastUpdate_Millis(Long.MIN_VALUE);
+		long currentUpdate		= current.getLastUpdate_Millis(Long.MIN_VALUE);
+		if (candidateUpdate != currentUpdate) {
+			return candidateUpdate > currentUpdate;
+		}
+		return dataCount(candidate) > dataCount(current);
+	}
+	
+	/** Number of fields and track points a day holds, to tell a full version from a projected one **/
+	private static int dataCount(StorylineData storyline) {
+		int count = count(storyline.getCaloriesIdle()) + count(storyline.getLastUpdate());
+		if (storyline.getSummary() != null) {
+			count += 1 + storyline.getSummary().size();
+		}
+		ArrayList<SegmentData> segments = storyline.getSegments();
+		if (segments == null) {
+			return count;
+		}
+		count++;
+		for (int i = 0; i < segments.size(); i++) {
+			SegmentData segment = segments.get(i);
+			if (segment == null) {
+				continue;
+			}
+			count += count(segment.getType()) + count(segment.getStartTime()) + count(segment.getEndTime())
+					+ count(segment.getLastUpdate()) + (segment.getPlace() != null ? 1 : 0);
+			ArrayList<ActivityData> activities = segment.getActivities();
+			if (activities == null) {
+				continue;
+			}
+			count++;
+			for (int j = 0; j < activities.size(); j++) {
+				ActivityData activity = activities.get(j);
+				if (activity != null) {
+					count += count(activity.getActivity()) + count(activity.getManual()) + count(activity.getStartTime())
+							+ count(activity.getEndTime()) + count(activity.getDuration()) + count(activity.getDistance())
+							+ count(activity.getSteps()) + count(activity.getCalories()) + trackPointCount(activity) + 1;
+				}
+			}
+		}
+		return count;
+	}
+	
+	private static int count(String value) {
+		return value != null ? 1 : 0;
+	}
+	
+	/**
+	 * Shares unchanged segments of the earlier version with a replacing version
+	 * @return the replacing version if nothing is shared, or else a copy of it holding the shared segments
+	 */
+	private static StorylineData shareSegments(StorylineData newer, StorylineData earlier) {
+		ArrayList<SegmentData> newerSegments = newer.getSegments();
+		ArrayList<SegmentData> earlierSegments = earlier.getSegments();
+		if (newerSegments == null || earlierSegments == null || earlierSegments.isEmpty()) {
+			return newer;
+		}
+		HashMap<String, SegmentData> byStart = new HashMap<String, SegmentData>(earlierSegments.size() * 2);
+		for (int i = 0; i < earlierSegments.size(); i++) {
+			SegmentData segment = earlierSegments.get(i);
+			if (segment != null && segment.getStartTime() != null) {
+				byStart.put(segment.getStartTime(), segment);
+			}
+		}
+		ArrayList<SegmentData> segments = null;
+		for (int i = 0; i < newerSegments.size(); i++) {
+			SegmentData segment = newerSegments.get(i);
+			SegmentData earlierSegment = segment != null ? byStart.get(segment.getStartTime()) : null;
+			if (earlierSegment == null || earlierSegment == segment) {
+				continue;
+			}
+			SegmentData shared = isSameSegment(segment, earlierSegment) ? earlierSegment : shareActivities(segment, earlierSegment);
+			if (shared != segment) {
+				if (segments == null) {
+					segments = new ArrayList<SegmentData>(newerSegments);
+				}
+				segments.set(i, shared);
+			}
+		}
+		if (segments == null) {
+			return newer;
+		}
+		StorylineData copy = new StorylineData();
+		copy.setDate(newer.getDate());
+		copy.setSummary(newer.getSummary());
+		copy.setCaloriesIdle(newer.getCaloriesIdle());
+		copy.setLastUpdate(newer.getLastUpdate());
+		copy.setSegments(segments);
+		return copy;
+	}
+	
+	/**
+	 * Shares unchanged activities of the earlier version of a changed segment
+	 * @return the newer segment if nothing is shared, or else a copy of it holding the shared activities
+	 */
+	private static SegmentData shareActivities(SegmentData newer, SegmentData earlier) {
+		ArrayList<ActivityData> newerActivities = newer.getActivities();
+		ArrayList<ActivityData> earlierActivities = earlier.getActivities();
+		if (newerActivities == null || earlierActivities == null || earlierActivities.isEmpty()) {
+			return newer;
+		}
+		ArrayList<ActivityData> activities = null;
+		int next = 0;
+		for (int i = 0; i < newerActivities.size(); i++) {
+			ActivityData activity = newerActivities.get(i);
+			/* Activities are in time order in both versions, so one pass over the earlier ones is enough */
+			while (next < earlierActivities.size() && activity != null
+					&& compare(earlierActivities.get(next), activity) < 0) {
+				next++;
+			}
+			if (next < earlierActivities.size() && isSameActivity(activity, earlierActivities.get(next))) {
+				if (activities == null) {
+					activities = new ArrayList<ActivityData>(newerActivities);
+				}
+				activities.set(i, earlierActivities.get(next++));
+			}
+		}
+		if (activities == null) {
+			return newer;
+		}
+		SegmentData copy = new SegmentData();
+		copy.setType(newer.getType());
+		copy.setStartTime(newer.getStartTime());
+		copy.setEndTime(newer.getEndTime());
+		copy.setPlace(newer.getPlace());
+		copy.setLastUpdate(newer.getLastUpdate());
+		copy.setActivities(activities);
+		return copy;
+	}
+	
+	/** Whether a segment did not change, including its place and all of its activities and their track points **/
+	private static boolean isSameSegment(SegmentData a, SegmentData b) {
+		if (a.getLastUpdate() == null || a.getLastUpdate().length() == 0
+				|| !equal(a.getLastUpdate(), b.getLastUpdate()) || !equal(a.getType(), b.getType())
+				|| !equal(a.getStartTime(), b.getStartTime()) || !equal(a.getEndTime(), b.getEndTime())
+				|| (a.getPlace() == null) != (b.getPlace() == null)) {
+			return false;
+		}
+		ArrayList<ActivityData> activities = a.getActivities();
+		ArrayList<ActivityData> earlierActivities = b.getActivities();
+		if (activities == null || earlierActivities == null) {
+			return activities == earlierActivities;
+		}
+		if (activities.size() != earlierActivities.size()) {
+			return false;
+		}
+		for (int i = 0; i < activities.size(); i++) {
+			if (!isSameActivity(activities.get(i), earlierActivities.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean isSameActivity(ActivityData a, ActivityData b) {
+		if (a == null || b == null) {
+			return false;
+		}
+		return equal(a.getStartTime(), b.getStartTime()) && equal(a.getEndTime(), b.getEndTime())
+				&& equal(a.getActivity(), b.getActivity()) && equal(a.getManual(), b.getManual())
+				&& equal(a.getDuration(), b.getDuration()) && equal(a.getDistance(), b.getDistance())
+				&& equal(a.getSteps(), b.getSteps()) && equal(a.getCalories(), b.getCalories())
+				&& trackPointCount(a) == trackPointCount(b);
+	}
+	
+	private static int compare(ActivityData earlier, ActivityData activity) {
+		if (earlier == null) {
+			return -1;
+		}
+		String a = earlier.getStartTime();
+		String b = activity.getStartTime();
+		return a == null || b == null ? 0 : a.compareTo(b);
+	}
+	
+	private static int trackPointCount(ActivityData activity) {
+		return activity.getTrackPoints() != null ? activity.getTrackPoints().size() : -1;
+	}
+	
+	private static boolean equal(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+}
@@ -0,0 +1,277 @@
+package com.midhunarmid.movesapi.summary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.midhunarmid.movesapi.activity.ActivityType;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
+/**
+ * Rolling window statistics over daily summaries, for example the totals and averages of the last 7, 30 or 365 days.
+ * Each {@link SummaryListData} is ingested once, its values are kept as prefix sums per {@link Metric} and
+ * {@link ActivityType} in primitive arrays, so the total of any window is the difference of two array reads.<br><br>
+ * 
+ * Days can arrive in any order and again with newer data, as they do through incremental sync. A newer version of a
+ * day only updates the prefix sums from that day on, which is cheap for the recent days that usually change. A day
+ * with an older <code>lastUpdate</code> than the one already ingested is ignored. All methods are synchronized.
+ * @author Midhu
+ * @see SummaryListData
+ * @see com.midhunarmid.movesapi.activity.ActivityTotals
+ */
+public class RollingSummaryStats {
+	
+	/** Values of a summary which can be queried **/
+	public enum Metric {
+		/** Duration in seconds **/
+		DURATION,
+		/** Distance in meters **/
+		DISTANCE,
+		/** Step count **/
+		STEPS,
+		/** Calories burn in kcal **/
+		CALORIES
+	}
+	
+	private static final int METRICS		= Metric.values().length;
+	/* Series of each metric: one per activity type, and the total of all activities */
+	private static final int TYPES			= ActivityType.COUNT + 1;
+	private static final int SERIES			= METRICS * TYPES;
+	private static final long MILLIS_PER_DAY	= 86400000L;
+	
+	/* Prefix sums per series, mPrefix[series][i] is the sum of days [0, i). Series stay null until they have a value */
+	private final long[][] mPrefix = new long[SERIES][];
+	/* Prefix count of days with data */
+	private int[] mDataDays;
+	/* Last update of each day, Long.MIN_VALUE for days without data */
+	private long[] mUpdated;
+	private long mFirstDay;
+	private int mLength;
+	private final long[] mDayValues = new long[SERIES];
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Update methods    *************************************************************** **/
+	
+	/** Ingests all given days, see {@link #addDay(SummaryListData)} **/
+	public synchronized void addDays(List<SummaryListData> days) {
+		if (days != null) {
+			for (int i = 0; i < days.size(); i++) {
+				addDay(days.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Ingests a day, replacing an earlier version of the same date
+	 * @param day : A daily summary, usually received from one of the summary calls of Moves API
+	 * @return <code>true</code> if the day was ingested, <code>false</code> if it has no valid date or is older than
+	 * the version already ingested
+	 */
+	public synchronized boolean addDay(SummaryListData day) {
+		long utc = day != null ? MovesTimeFormat.parseDateUTC(day.getDate(), Long.MIN_VALUE) : Long.MIN_VALUE;
+		if (utc == Long.MIN_VALUE) {
+			return false;
+		}
+		long epochDay = utc / MILLIS_PER_DAY;
+		long updated = day.getLastUpdate_Millis(Long.MIN_VALUE + 1);
+		int index = ensureDay(epochDay);
+		boolean existed = mUpdated[index] != Long.MIN_VALUE;
+		if (existed && updated < mUpdated[index]) {
+			return false;
+		}
+		mUpdated[index] = updated;
+	
+		long[] values = mDayValues;
+		Arrays.fill(values, 0);
+		ArrayList<SummaryData> summaries = day.getSummaries();
+		if (summaries != null) {
+			for (int i = 0; i < summaries.size(); i++) {
+				SummaryData summary = summaries.get(i);
+				if (summary != null) {
+					int type = summary.getActivityType().ordinal();
+					addValue(values, Metric.DURATION, type, summary.geDuration_Long(0));
+					addValue(values, Metric.DISTANCE, type, summary.geDistance_Long(0));
+					addValue(values, Metric.STEPS, type, summary.geSteps_Long(0));
+					addValue(values, Metric.CALORIES, type, summary.geCalories_Long(0));
+				}
+			}
+		}
+		for (int series = 0; series < SERIES; series++) {
+			long[] prefix = mPrefix[series];
+			long delta = values[series] - (prefix != null ? prefix[index + 1] - prefix[index] : 0);
+			if (delta != 0) {
+				if (prefix == null) {
+					prefix = mPrefix[series] = new long[mDataDays.length];
+				}
+				for (int i = index + 1; i <= mLength; i++) {
+					prefix[i] += delta;
+				}
+			}
+		}
+		if (!existed) {
+			for (int i = index + 1; i <= mLength; i++) {
+				mDataDays[i]++;
+			}
+		}
+		return true;
+	}
+	
+	/** Removes all days **/
+	public synchronized void clear() {
+		Arrays.fill(mPrefix, null);
+		mDataDays = null;
+		mUpdated = null;
+		mLength = 0;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Query methods   ***************************************************************** **/
+	
+	/**
+	 * Gets the total of a window of days
+	 * @param metric : The {@link Metric} to sum
+	 * @param type : The {@link ActivityType} to sum, or <code>null</code> for all activities
+	 * @param lastDate : Last date of the window, in format yyyyMMdd
+	 * @param days : Length of the window in days, for example 7 for a week ending on <code>lastDate</code>
+	 * @return the sum of the metric over all days of the window, 0 for an invalid date
+	 */
+	public synchronized long getTotal(Metric metric, ActivityType type, String lastDate, int days) {
+		long utc = MovesTimeFormat.parseDateUTC(lastDate, Long.MIN_VALUE);
+		if (utc == Long.MIN_VALUE || mLength == 0) {
+			return 0;
+		}
+		long[] prefix = mPrefix[series(metric, type)];
+		return prefix != null ? windowSum(prefix, utc / MILLIS_PER_DAY, days) : 0;
+	}
+	
+	/**
+	 * Gets the total of a window of days ending on the last ingested day
+	 * @see #getTotal(Metric, ActivityType, String, int)
+	 */
+	public synchronized long getTotal(Metric metric, ActivityType type, int days) {
+		long[] prefix = mPrefix[series(metric, type)];
+		return prefix != null && mLength > 0 ? windowSum(prefix, mFirstDay + mLength - 1, days) : 0;
+	}
+	
+	/**
+	 * Gets the daily average of a window of days. Only days which were ingested count, so a window reaching before the
+	 * first synced day is not diluted by days without data.
+	 * @param metric : The {@link Metric} to average
+	 * @param type : The {@link ActivityType} to average, or <code>null</code> for all activities
+	 * @param lastDate : Last date of the window, in format yyyyMMdd
+	 * @param days : Length of the window in days
+	 * @return the average of the metric per day with data, 0 if the window has no data
+	 */
+	public synchronized double getAverage(Metric metric, ActivityType type, String lastDate, int days) {
+		int dataDays = getDayCount(lastDate, days);
+		return dataDays > 0 ? getTotal(metric, type, lastDate, days) / (double) dataDays : 0;
+	}
+	
+	/**
+	 * Gets the daily average of a window of days ending on the last ingested day
+	 * @see #getAverage(Metric, ActivityType, String, int)
+	 */
+	public synchronized double getAverage(Metric metric, ActivityType type, int days) {
+		int dataDays = mLength > 0 ? windowCount(mFirstDay + mLength - 1, days) : 0;
+		return dataDays > 0 ? getTotal(metric, type, days) / (double) dataDays : 0;
+	}
+	
+	/** Number of ingested days in a window of days ending on <code>lastDate</code> (yyyyMMdd) **/
+	public synchronized int getDayCount(String lastDate, int days) {
+		long utc = MovesTimeFormat.parseDateUTC(lastDate, Long.MIN_VALUE);
+		return utc != Long.MIN_VALUE && mLength > 0 ? windowCount(utc / MILLIS_PER_DAY, days) : 0;
+	}
+	
+	/** First ingested date in format yyyyMMdd, or <code>null</code> if no day was ingested **/
+	public synchronized String getFirstDate() {
+		return mLength > 0 ? MovesTimeFormat.formatDate(mFirstDay * MILLIS_PER_DAY, 0) : null;
+	}
+	
+	/** Last ingested date in format yyyyMMdd, or <code>null</code> if no day was ingested **/
+	public synchronized String getLastDate() {
+		return mLength > 0 ? MovesTimeFormat.formatDate((mFirstDay + mLength - 1) * MILLIS_PER_DAY, 0) : null;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Prefix sum helpers   ************************************************************ **/
+	
+	private static int series(Metric metric, ActivityType type) {
+		return metric.ordinal() * TYPES + (type != null ? type.ordinal() : ActivityType.COUNT);
+	}
+	
+	private static void addValue(long[] values, Metric metric, int type, long value) {
+		values[metric.ordinal() * TYPES + type] += value;
+		values[metric.ordinal() * TYPES + ActivityType.COUNT] += value;
+	}
+	
+	private long windowSum(long[] prefix, long lastDay, int days) {
+		int to = clamp(lastDay + 1 - mFirstDay);
+		int from = clamp(lastDay + 1 - days - mFirstDay);
+		return prefix[to] - prefix[from];
+	}
+	
+	private int windowCount(long lastDay, int days) {
+		int to = clamp(lastDay + 1 - mFirstDay);
+		int from = clamp(lastDay + 1 - days - mFirstDay);
+		return mDataDays[to] - mDataDays[from];
+	}
+	
+	private int clamp(long index) {
+		return (int) Math.max(0, Math.min(mLength, index));
+	}
+	
+	/** Makes room for a day, extending the range of days at either end, and returns the index of the day **/
+	private int ensureDay(long epochDay) {
+		if (mLength == 0) {
+			allocate(16, 0);
+			mFirstDay = epochDay;
+			mLength = 1;
+			return 0;
+		}
+		if (epochDay < mFirstDay) {
+			/* Days before the first day, shift everything so that the new day becomes index 0 */
+			int shift = (int) (mFirstDay - epochDay);
+			allocate(Math.max(mUpdated.length, mLength + shift) + shift, shift);
+			mFirstDay = epochDay;
+			mLength += shift;
+			return 0;
+		}
+		long index = epochDay - mFirstDay;
+		if (index >= mLength) {
+			if (index >= mUpdated.length) {
+				allocate((int) Math.max(index + 1, mUpdated.length * 2L), 0);
+			}
+			/* The days in between have no data, the prefix sums stay flat */
+			for (int i = mLength + 1; i <= index + 1; i++) {
+				mDataDays[i] = mDataDays[mLength];
+				for (long[] prefix : mPrefix) {
+					if (prefix != null) {
+						prefix[i] = prefix[mLength];
+					}
+				}
+			}
+			mLength = (int) index + 1;
+		}
+		return (int) index;
+	}
+	
+	/** Grows all arrays to a capacity in days, moving the existing days <code>shift</code> days later **/
+	private void allocate(int capacity, int shift) {
+		long[] updated = new long[capacity];
+		Arrays.fill(updated, Long.MIN_VALUE);
+		int[] dataDays = new int[capacity + 1];
+		if (mUpdated != null) {
+			System.arraycopy(mUpdated, 0, updated, shift, mLength);
+			System.arraycopy(mDataDays, 0, dataDays, shift, mLength + 1);
+		}
+		mUpdated = updated;
+		mDataDays = dataDays;
+		for (int series = 0; series < SERIES; series++) {
+			if (mPrefix[series] != null) {
+				long[] prefix = new long[capacity + 1];
+				System.arraycopy(mPrefix[series], 0, prefix, shift, mLength + 1);
+				mPrefix[series] = prefix;
+			}
+		}
+	}
+}
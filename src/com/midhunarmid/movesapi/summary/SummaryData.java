@@ -1,8 +1,17 @@
 package com.midhunarmid.movesapi.summary;
 
+import java.util.ArrayList;
+
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.midhunarmid.movesapi.activity.ActivityType;
+import com.midhunarmid.movesapi.util.JSONStreamReader;
+import com.midhunarmid.movesapi.util.JSONStreamReader.Token;
+import com.midhunarmid.movesapi.util.ParsePool;
+import com.midhunarmid.movesapi.util.Utilities;
+
 /**
  * This class holds the Summary Data of a Moves User, and some related methods to handle those data
  * @author Midhu
@@ -16,48 +25,44 @@ public class SummaryData {
 	private String 		distance;
 	private String 		steps;
 	private String 		calories;
+	private ActivityType activityType;
 	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Utility methods   *************************************************************** **/
 	
+	/** Specific name of the activity as {@link ActivityType}, or {@link ActivityType#UNKNOWN} if the activity is not
+	 *  known yet. The raw name is always available from <code>getActivity()</code> **/
+	public ActivityType getActivityType() {
+		ActivityType type = activityType;
+		if (type == null) {
+			type = ActivityType.fromString(activity);
+			activityType = type;
+		}
+		return type;
+	}
+	
 	/** Duration of the activity in seconds <br><br> 
 	 *  returns <b><i>def</b></i> if an error occurred **/
 	public long geDuration_Long(long def) {
-		try {
-			return Long.parseLong(duration);
-		} catch (Exception e) {
-			return def;
-		}
+		return Utilities.parseLong(duration, def);
 	}
 	
 	/** Distance for the activity in meters <br><br> 
 	 *  returns <b><i>def</b></i> if an error occurred **/
 	public long geDistance_Long(long def) {
-		try {
-			return Long.parseLong(distance);
-		} catch (Exception e) {
-			return def;
-		}
+		return Utilities.parseLong(distance, def);
 	}
 	
 	/** Step count for the activity <br><br> 
 	 *  returns <b><i>def</b></i> if an error occurred **/
 	public long geSteps_Long(long def) {
-		try {
-			return Long.parseLong(steps);
-		} catch (Exception e) {
-			return def;
-		}
+		return Utilities.parseLong(steps, def);
 	}
 	
 	/** Calories burn for the activity (if applicable) in kcal <br><br> 
 	 *  returns <b><i>def</b></i> if an error occurred **/
 	public long geCalories_Long(long def) {
-		try {
-			return Long.parseLong(calories);
-		} catch (Exception e) {
-			return def;
-		}
+		return Utilities.parseLong(calories, def);
 	}
 	
 	/** ***************************************************************************************************** **/	
@@ -112,6 +117,7 @@ public class SummaryData {
 	 */
 	public void setActivity(String activity) {
 		this.activity = activity;
+		this.activityType = null;
 	}
 
 	/**
@@ -167,4 +173,70 @@ public class SummaryData {
 		}
     	return null;
 	}
+	
+	/** Names of the JSON fields read by <code>read()</code> **/
+	private static final String[] JSON_FIELDS = {"activity", "group", "duration", "distance", "steps", "calories"};
+	
+	/**
+	 * Read a summary JSON object from a {@link JSONStreamReader}, then return the corresponding {@link SummaryData} object.
+	 * The object is taken from the {@link ParsePool} of the reader, if it has one.
+	 * @param reader : the reader, positioned at a 'summary' JSON object
+	 * @return corresponding {@link SummaryData}
+	 */
+	public static SummaryData read(JSONStreamReader reader) throws JSONException {
+		SummaryData summary = ParsePool.obtainSummary(reader.getPool());
+		summary.activity	= summary.group = "";
+		summary.duration	= summary.distance = summary.steps = summary.calories = "";
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.selectName(JSON_FIELDS)) {
+			case 0:
+				summary.activity	= reader.optString();
+				break;
+			case 1:
+				summary.group		= reader.optString();
+				break;
+			case 2:
+				summary.duration	= reader.optString();
+				break;
+			case 3:
+				summary.distance	= reader.optString();
+				break;
+			case 4:
+				summary.steps		= reader.optString();
+				break;
+			case 5:
+				summary.calories	= reader.optString();
+				break;
+			default:
+				reader.skipValue();
+				break;
+			}
+		}
+		reader.endObject();
+		return summary;
+	}
+	
+	/**
+	 * Read a summary JSON array from a {@link JSONStreamReader}, then return the corresponding {@link SummaryData} objects.
+	 * @param reader : the reader, positioned at a 'summary' JSON array
+	 * @return {@link ArrayList} of {@link SummaryData}, empty if the value is not an array
+	 */
+	public static ArrayList<SummaryData> readList(JSONStreamReader reader) throws JSONException {
+		ArrayList<SummaryData> summaries = ParsePool.obtainList(reader.getPool());
+		if (reader.peek() != Token.BEGIN_ARRAY) {
+			reader.skipValue();
+			return summaries;
+		}
+		reader.beginArray();
+		while (reader.hasNext()) {
+			if (reader.peek() == Token.BEGIN_OBJECT) {
+				summaries.add(read(reader));
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endArray();
+		return summaries;
+	}
 }
@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
 /**
  * Get daily activity summaries for user, including step count, distance and duration for each activity (if applicable).
  * Final summary for a particular date will only be available at earliest after midnight in the users current time zone.
@@ -20,6 +22,21 @@ public class SummaryListData {
 	private String					lastUpdate;
 	private ArrayList<SummaryData> 	summaries;
 	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Get the date as a millisecond value, midnight of that date in the default time zone <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getDate_Millis(long def) {
+		return MovesTimeFormat.parseDate(date, def);
+	}
+	
+	/** Get when the data was last updated as a millisecond value since Jan. 1, 1970, midnight GMT <br><br> 
+	 *  returns <b><i>def</b></i> if an error occurred **/
+	public long getLastUpdate_Millis(long def) {
+		return MovesTimeFormat.parseDateTime(lastUpdate, def);
+	}
+	
 	/** ***************************************************************************************************** **/	
 	/** ******************* Getter methods    *************************************************************** **/
 	
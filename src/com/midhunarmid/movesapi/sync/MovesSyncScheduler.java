@@ -0,0 +1,586 @@
+package com.midhunarmid.movesapi.sync;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Random;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import com.midhunarmid.movesapi.MovesAPI;
+import com.midhunarmid.movesapi.MovesHandler;
+import com.midhunarmid.movesapi.place.StorylinePlacesData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.summary.SummaryListData;
+import com.midhunarmid.movesapi.util.MovesAPIPreferences;
+import com.midhunarmid.movesapi.util.MovesExecutors;
+import com.midhunarmid.movesapi.util.MovesStatus;
+import com.midhunarmid.movesapi.util.MovesTimeFormat;
+
+/**
+ * Syncs the daily endpoints of Moves API in the background, on a schedule. Every run fetches only the days updated
+ * since the last successful run of each endpoint, using <code>pastDays</code> and <code>updatedSince</code>, and
+ * hands all results of the run to the {@link Listener} together.<br><br>
+ * 
+ * Runs are spread by a random jitter, so many devices do not hit the server at the same moment. They are timed with
+ * inexact {@link AlarmManager} alarms, which the system batches with the alarms of other applications, and all
+ * endpoints are fetched in one run, so a sync wakes the device at most once. While a run is in progress a partial
+ * wake lock keeps the device awake, if the application holds the <code>android.permission.WAKE_LOCK</code>
+ * permission. Without it a run may pause while the device sleeps. A run which is due while one of the
+ * {@link SyncConstraint}s is not satisfied is put off by the retry delay. Runs never overlap, a run asked for while
+ * another is in progress is merged into one follow up run.<br><br>
+ * 
+ * The alarms are delivered to a receiver registered by the started scheduler, so runs only happen while the process
+ * of the application is alive. A scheduler does not outlive its process, create and start it again when the
+ * application starts, for example in <code>Application.onCreate()</code>. The time of the last successful run of
+ * each endpoint is kept in {@link MovesAPIPreferences}, so syncs stay incremental across restarts of the application.
+ * {@link MovesAPI#init} must be called before starting a scheduler.
+ * @author Midhu
+ * @see SyncConstraint
+ */
+public class MovesSyncScheduler {
+	
+	/** Daily endpoints which can be synced **/
+	public enum Endpoint {
+		SUMMARY,
+		STORYLINE,
+		PLACES
+	}
+	
+	/** Gets notified with the results of each run, on the thread of the {@link com.midhunarmid.movesapi.util.CallbackDelivery} **/
+	public interface Listener {
+	
+		/**
+		 * Called when all endpoints of a run are synced
+		 * @param result : The days updated since the previous run
+		 */
+		public void onSyncComplete(Result result);
+	
+		/**
+		 * Called when any endpoint of a run failed. No endpoint of the run counts as synced, the same days are fetched
+		 * again by the retry.
+		 * @param status : Status code of the first failure
+		 * @param message : A brief message about the reason behind failure
+		 */
+		public void onSyncFailed(MovesStatus status, String message);
+	}
+	
+	public static final long DEFAULT_INTERVAL		= 6 * 60 * 60 * 1000L;
+	public static final long DEFAULT_RETRY_DELAY	= 15 * 60 * 1000L;
+	public static final float DEFAULT_JITTER		= 0.1f;
+	public static final int DEFAULT_INITIAL_DAYS	= 7;
+	
+	/* Largest pastDays value accepted by Moves API */
+	private static final int MAX_PAST_DAYS = 31;
+	
+	/* Runs ask for updates from a bit before the previous run, so a clock difference to the server loses no update */
+	private static final long UPDATE_OVERLAP = 10 * 60 * 1000L;
+	private static final long MILLIS_PER_DAY = 86400000L;
+	
+	private static final String PREF_LAST_SYNC = "moves_last_sync_";
+	
+	/* Upper bound for holding the wake lock, in case a run never completes */
+	private static final long WAKE_LOCK_TIMEOUT = 10 * 60 * 1000L;
+	
+	private final Context mContext;
+	private final Listener mListener;
+	private final ArrayList<SyncConstraint> mConstraints = new ArrayList<SyncConstraint>();
+	private final EnumSet<Endpoint> mEndpoints = EnumSet.allOf(Endpoint.class);
+	private long mInterval		= DEFAULT_INTERVAL;
+	private long mRetryDelay	= DEFAULT_RETRY_DELAY;
+	private float mJitter		= DEFAULT_JITTER;
+	private int mInitialDays	= DEFAULT_INITIAL_DAYS;
+	private final Random mRandom = new Random();
+	
+	/* Alarms of this scheduler, with an action of its own so that several schedulers do not share alarms */
+	private final String mAction;
+	private final AlarmManager mAlarmManager;
+	private final PendingIntent mAlarm;
+	private final PowerManager.WakeLock mWakeLock;
+	
+	/* State of the schedule, guarded by this */
+	private boolean mStarted;
+	private boolean mRunning;
+	private boolean mPending;
+	
+	private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+		@Override
+		public void onReceive(Context context, Intent intent) {
+			/* The system keeps the device awake only until this returns, hold on until the run is decided */
+			acquireWakeLock();
+			MovesExecutors.scheduler().execute(mScheduledRun);
+		}
+	};
+	
+	private final Runnable mScheduledRun = new Runnable() {
+		@Override
+		public void run() {
+			runIfAllowed(false);
+		}
+	};
+	
+	private final Runnable mRequestedRun = new Runnable() {
+		@Override
+		public void run() {
+			runIfAllowed(true);
+		}
+	};
+	
+	/**
+	 * Creates a new scheduler which syncs all daily endpoints, call <code>start()</code> to begin
+	 * @param context : A valid {@link Context}, used to check the constraints
+	 * @param listener : Gets the results of every run
+	 */
+	public MovesSyncScheduler(Context context, Listener listener) {
+		if (context == null || listener == null) {
+			throw new IllegalArgumentException("Context and listener must not be null");
+		}
+		mContext	= context.getApplicationContext();
+		mListener	= listener;
+		mAction		= mContext.getPackageName() + ".MOVES_SYNC." + Integer.toHexString(System.identityHashCode(this));
+		mAlarmManager	= (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
+		mAlarm			= PendingIntent.getBroadcast(mContext, 0, new Intent(mAction).setPackage(mContext.getPackageName()),
+				PendingIntent.FLAG_UPDATE_CURRENT);
+		
+		PowerManager.WakeLock wakeLock = null;
+		if (mContext.checkCallingOrSelfPermission("android.permission.WAKE_LOCK") == PackageManager.PERMISSION_GRANTED) {
+			PowerManager power = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+			if (power != null) {
+				wakeLock = power.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "MovesSyncScheduler");
+				wakeLock.setReferenceCounted(false);
+			}
+		}
+		mWakeLock = wakeLock;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Setter methods    *************************************************************** **/
+	
+	/** Sets the time between two runs in milliseconds. Default is {@link #DEFAULT_INTERVAL} **/
+	public synchronized MovesSyncScheduler setInterval(long intervalMillis) {
+		mInterval = Math.max(60 * 1000L, intervalMillis);
+		return this;
+	}
+	
+	/** Sets the delay before a run which failed or was put off by a constraint is tried again. Default is {@link #DEFAULT_RETRY_DELAY} **/
+	public synchronized MovesSyncScheduler setRetryDelay(long retryDelayMillis) {
+		mRetryDelay = Math.max(1000L, retryDelayMillis);
+		return this;
+	}
+	
+	/**
+	 * Sets how much later than due a run may start, as a fraction of its delay but at least of the retry delay.
+	 * Default is {@link #DEFAULT_JITTER}
+	 */
+	public synchronized MovesSyncScheduler setJitter(float jitter) {
+		mJitter = Math.max(0f, jitter);
+		return this;
+	}
+	
+	/** Sets the number of past days fetched by the first run of an endpoint. Default is {@link #DEFAULT_INITIAL_DAYS} **/
+	public synchronized MovesSyncScheduler setInitialDays(int days) {
+		mInitialDays = Math.max(1, Math.min(MAX_PAST_DAYS, days));
+		return this;
+	}
+	
+	/** Sets which endpoints are synced, all of them by default **/
+	public synchronized MovesSyncScheduler setEndpoints(EnumSet<Endpoint> endpoints) {
+		mEndpoints.clear();
+		if (endpoints != null) {
+			mEndpoints.addAll(endpoints);
+		}
+		return this;
+	}
+	
+	/** Adds a {@link SyncConstraint} which must be satisfied for scheduled runs **/
+	public synchronized MovesSyncScheduler addConstraint(SyncConstraint constraint) {
+		if (constraint != null) {
+			mConstraints.add(constraint);
+		}
+		return this;
+	}
+	
+	/** Removes all constraints **/
+	public synchronized MovesSyncScheduler clearConstraints() {
+		mConstraints.clear();
+		return this;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Schedule methods  *************************************************************** **/
+	
+	/**
+	 * Starts the schedule. The first run is due one interval after the last successful run, or right away if there
+	 * was none yet. Call it again after the process of the application was restarted.
+	 */
+	public synchronized void start() {
+		if (mStarted) {
+			return;
+		}
+		mStarted = true;
+		mContext.registerReceiver(mReceiver, new IntentFilter(mAction));
+		long lastSync = Long.MAX_VALUE;
+		for (Endpoint endpoint : mEndpoints) {
+			lastSync = Math.min(lastSync, getLastSync(endpoint));
+		}
+		long delay = lastSync == Long.MAX_VALUE ? 0 : lastSync + mInterval - System.currentTimeMillis();
+		schedule(Math.max(0, delay), true);
+	}
+	
+	/** Stops the schedule. A run in progress still completes and notifies the listener **/
+	public synchronized void stop() {
+		if (!mStarted) {
+			return;
+		}
+		mStarted = false;
+		mPending = false;
+		cancelAlarm();
+		mContext.unregisterReceiver(mReceiver);
+	}
+	
+	/** Whether the schedule is started **/
+	public synchronized boolean isStarted() {
+		return mStarted;
+	}
+	
+	/** Whether a run is in progress **/
+	public synchronized boolean isRunning() {
+		return mRunning;
+	}
+	
+	/**
+	 * Runs a sync right away, without checking the constraints, for example when the user asks for a refresh. If a
+	 * run is in progress, one more run follows it. The next scheduled run is due one interval after this run.
+	 */
+	public synchronized void requestSync() {
+		if (mRunning) {
+			mPending = true;
+			return;
+		}
+		cancelAlarm();
+		MovesExecutors.scheduler().execute(mRequestedRun);
+	}
+	
+	/** Forgets the last successful runs, so the next run fetches the initial days again **/
+	public void reset() {
+		for (Endpoint endpoint : Endpoint.values()) {
+			setLastSync(endpoint, 0);
+		}
+	}
+	
+	/** Gets the time of the last successful run which synced the endpoint, 0 if there was none **/
+	public long getLastSync(Endpoint endpoint) {
+		try {
+			String value = MovesAPIPreferences.getPreference(PREF_LAST_SYNC + endpoint.name().toLowerCase());
+			return value.length() > 0 ? Long.parseLong(value) : 0;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+	
+	private void setLastSync(Endpoint endpoint, long millis) {
+		try {
+			MovesAPIPreferences.setPreference(PREF_LAST_SYNC + endpoint.name().toLowerCase(), millis > 0 ? String.valueOf(millis) : "");
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Sets the alarm of the next scheduled run, replacing any earlier alarm. Must be called holding the lock.
+	 * @param delay : Time until the run is due, the jitter is added to it
+	 * @param repeating : Whether the run is on the regular interval. Those alarms repeat in case a run is lost, and use
+	 * <code>setInexactRepeating()</code>, which the system batches on all API levels.
+	 */
+	private void schedule(long delay, boolean repeating) {
+		delay += (long) (mRandom.nextFloat() * mJitter * Math.max(delay, mRetryDelay));
+		long triggerAt = SystemClock.elapsedRealtime() + delay;
+		if (repeating) {
+			mAlarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, mInterval, mAlarm);
+		} else {
+			mAlarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP, triggerAt, mAlarm);
+		}
+	}
+	
+	private void cancelAlarm() {
+		mAlarmManager.cancel(mAlarm);
+	}
+	
+	private void acquireWakeLock() {
+		if (mWakeLock != null) {
+			mWakeLock.acquire(WAKE_LOCK_TIMEOUT);
+		}
+	}
+	
+	/** Releases the wake lock once no run is in progress, must be called holding the lock **/
+	private void releaseWakeLock() {
+		if (mWakeLock != null && !mRunning && mWakeLock.isHeld()) {
+			mWakeLock.release();
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Sync methods      *************************************************************** **/
+	
+	private void runIfAllowed(boolean requested) {
+		EnumSet<Endpoint> endpoints = null;
+		SecurityException missingPermission = null;
+		synchronized (this) {
+			if (mRunning) {
+				mPending = true;
+				return;
+			}
+			if (!requested && !mStarted) {
+				releaseWakeLock();
+				return;
+			}
+			boolean satisfied = true;
+			if (!requested) {
+				try {
+					satisfied = isSatisfied();
+				} catch (SecurityException e) {
+					/* A missing permission does not go away by waiting, report it instead of retrying soon */
+					e.printStackTrace();
+					missingPermission = e;
+				}
+			}
+			if (missingPermission != null) {
+				schedule(mInterval, true);
+				releaseWakeLock();
+			} else if (!satisfied) {
+				schedule(mRetryDelay, false);
+				releaseWakeLock();
+				return;
+			} else if (mEndpoints.isEmpty()) {
+				if (mStarted) {
+					schedule(mInterval, true);
+				}
+				releaseWakeLock();
+				return;
+			} else {
+				mRunning	= true;
+				endpoints	= EnumSet.copyOf(mEndpoints);
+				acquireWakeLock();
+			}
+		}
+		if (missingPermission != null) {
+			notifyFailed(MovesStatus.MISSING_PERMISSION, "A sync constraint needs a permission the application does not hold: "
+					+ missingPermission.getMessage());
+			return;
+		}
+		new Run(endpoints).start();
+	}
+	
+	/**
+	 * Checks all constraints, must be called holding the lock
+	 * @throws SecurityException if a constraint needs a permission the application does not hold
+	 */
+	private boolean isSatisfied() {
+		for (int i = 0; i < mConstraints.size(); i++) {
+			try {
+				if (!mConstraints.get(i).isSatisfied(mContext)) {
+					return false;
+				}
+			} catch (SecurityException e) {
+				throw e;
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** Notifies the listener of a run which could not start, on the thread of the callback delivery **/
+	private void notifyFailed(final MovesStatus status, final String message) {
+		MovesAPI.getCallbackDelivery().deliver(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					mListener.onSyncFailed(status, message);
+				} catch (RuntimeException e) {
+					/* A failing listener must not stop the schedule */
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+	
+	/** Called once a run completed, schedules the next one **/
+	private synchronized void finishRun(boolean success) {
+		mRunning = false;
+		if (mPending) {
+			mPending = false;
+			cancelAlarm();
+			/* The follow up run starts right away, keep the device awake for it */
+			MovesExecutors.scheduler().execute(mRequestedRun);
+			return;
+		}
+		if (mStarted) {
+			schedule(success ? mInterval : mRetryDelay, success);
+		}
+		releaseWakeLock();
+	}
+	
+	/** One run, fetches all its endpoints at the same time and completes when the last one returns **/
+	private class Run {
+		private final EnumSet<Endpoint> endpoints;
+		private final long startTime = System.currentTimeMillis();
+		private int remaining;
+		private ArrayList<SummaryListData> summaries;
+		private ArrayList<StorylineData> storylines;
+		private ArrayList<StorylinePlacesData> places;
+		private MovesStatus failureStatus;
+		private String failureMessage;
+	
+		Run(EnumSet<Endpoint> endpoints) {
+			this.endpoints	= endpoints;
+			this.remaining	= endpoints.size();
+		}
+	
+		void start() {
+			for (Endpoint endpoint : endpoints) {
+				long lastSync		= getLastSync(endpoint);
+				String pastDays		= String.valueOf(getPastDays(lastSync));
+				String updatedSince	= lastSync > 0 ? MovesTimeFormat.formatDateTime(lastSync - UPDATE_OVERLAP, 0) : null;
+				switch (endpoint) {
+					case SUMMARY:
+						MovesAPI.getSummary_PastDays(new MovesHandler<ArrayList<SummaryListData>>() {
+							@Override
+							public void onSuccess(ArrayList<SummaryListData> result) {
+								synchronized (Run.this) {
+									summaries = result;
+								}
+								onEndpointDone(null, null);
+							}
+	
+							@Override
+							public void onFailure(MovesStatus status, String message) {
+								onEndpointDone(status, message);
+							}
+						}, pastDays, updatedSince);
+						break;
+					case STORYLINE:
+						MovesAPI.getStoryline_PastDays(new MovesHandler<ArrayList<StorylineData>>() {
+							@Override
+							public void onSuccess(ArrayList<StorylineData> result) {
+								synchronized (Run.this) {
+									storylines = result;
+								}
+								onEndpointDone(null, null);
+							}
+	
+							@Override
+							public void onFailure(MovesStatus status, String message) {
+								onEndpointDone(status, message);
+							}
+						}, pastDays, updatedSince, false);
+						break;
+					case PLACES:
+						MovesAPI.getPlaces_PastDays(new MovesHandler<ArrayList<StorylinePlacesData>>() {
+							@Override
+							public void onSuccess(ArrayList<StorylinePlacesData> result) {
+								synchronized (Run.this) {
+									places = result;
+								}
+								onEndpointDone(null, null);
+							}
+	
+							@Override
+							public void onFailure(MovesStatus status, String message) {
+								onEndpointDone(status, message);
+							}
+						}, pastDays, updatedSince);
+						break;
+				}
+			}
+		}
+	
+		/** Days to fetch, from the day of the last run until today **/
+		private int getPastDays(long lastSync) {
+			if (lastSync <= 0) {
+				synchronized (MovesSyncScheduler.this) {
+					return mInitialDays;
+				}
+			}
+			long days = (startTime - lastSync + UPDATE_OVERLAP) / MILLIS_PER_DAY + 2;
+			return (int) Math.max(1, Math.min(MAX_PAST_DAYS, days));
+		}
+	
+		private void onEndpointDone(MovesStatus status, String message) {
+			Result result = null;
+			synchronized (this) {
+				if (status != null && failureStatus == null) {
+					failureStatus	= status;
+					failureMessage	= message;
+				}
+				if (--remaining > 0) {
+					return;
+				}
+				if (failureStatus == null) {
+					result = new Result(summaries, storylines, places, startTime);
+				}
+			}
+			if (result != null) {
+				for (Endpoint endpoint : endpoints) {
+					setLastSync(endpoint, startTime);
+				}
+			}
+			try {
+				if (result != null) {
+					mListener.onSyncComplete(result);
+				} else {
+					mListener.onSyncFailed(failureStatus, failureMessage);
+				}
+			} catch (RuntimeException e) {
+				/* A failing listener must not stop the schedule */
+				e.printStackTrace();
+			}
+			finishRun(result != null);
+		}
+	}
+	
+	/** The days fetched by one run. Endpoints which were not synced have <code>null</code> lists **/
+	public static class Result {
+		private final ArrayList<SummaryListData> summaries;
+		private final ArrayList<StorylineData> storylines;
+		private final ArrayList<StorylinePlacesData> places;
+		private final long syncTime;
+	
+		Result(ArrayList<SummaryListData> summaries, ArrayList<StorylineData> storylines,
+				ArrayList<StorylinePlacesData> places, long syncTime) {
+			this.summaries	= summaries;
+			this.storylines	= storylines;
+			this.places		= places;
+			this.syncTime	= syncTime;
+		}
+	
+		/** Updated daily summaries, or <code>null</code> if summaries were not synced **/
+		public ArrayList<SummaryListData> getSummaries() {
+			return summaries;
+		}
+	
+		/** Updated daily storylines without track points, or <code>null</code> if storylines were not synced **/
+		public ArrayList<StorylineData> getStorylines() {
+			return storylines;
+		}
+	
+		/** Updated daily places, or <code>null</code> if places were not synced **/
+		public ArrayList<StorylinePlacesData> getPlaces() {
+			return places;
+		}
+	
+		/** Time the run started, in milliseconds since Jan. 1, 1970, midnight GMT **/
+		public long getSyncTime() {
+			return syncTime;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.midhunarmid.movesapi.sync;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+
+import com.midhunarmid.movesapi.util.MovesStatus;
+
+/**
+ * A condition which must hold for a {@link MovesSyncScheduler} to run a sync. A sync which is due while any of its
+ * constraints is not satisfied is put off to a later check. Extend this class for conditions of your own, for
+ * example a setting of your application.<br><br>
+ * 
+ * The built in constraints only read the current state of the device, so checking them never registers receivers
+ * or keeps the device awake.
+ * @author Midhu
+ * @see MovesSyncScheduler#addConstraint(SyncConstraint)
+ */
+public abstract class SyncConstraint {
+	
+	/**
+	 * Checks the constraint, called on the scheduler thread right before a sync
+	 * @param context : The application {@link Context} of the scheduler
+	 * @return <code>true</code> if a sync may run now
+	 * @throws SecurityException if the application lacks a permission the check needs. The scheduler reports it with
+	 * {@link MovesStatus#MISSING_PERMISSION} to {@link MovesSyncScheduler.Listener#onSyncFailed(MovesStatus, String)}
+	 */
+	public abstract boolean isSatisfied(Context context);
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Built in constraints  *********************************************************** **/
+	
+	/**
+	 * Satisfied when any network is connected. Needs the <code>android.permission.ACCESS_NETWORK_STATE</code>
+	 * permission in the manifest of the application.
+	 */
+	public static SyncConstraint networkConnected() {
+		return new SyncConstraint() {
+			@Override
+			public boolean isSatisfied(Context context) {
+				NetworkInfo network = getActiveNetwork(context);
+				return network != null && network.isConnected();
+			}
+		};
+	}
+	
+	/**
+	 * Satisfied when the device is connected through Wi-Fi, so syncs do not use a metered mobile network. Needs the
+	 * <code>android.permission.ACCESS_NETWORK_STATE</code> permission in the manifest of the application.
+	 */
+	public static SyncConstraint wifiConnected() {
+		return new SyncConstraint() {
+			@Override
+			public boolean isSatisfied(Context context) {
+				NetworkInfo network = getActiveNetwork(context);
+				return network != null && network.isConnected() && network.getType() == ConnectivityManager.TYPE_WIFI;
+			}
+		};
+	}
+	
+	/**
+	 * Satisfied when the device is charging, or its battery level is at least the given percentage
+	 * @param minPercent : Lowest battery level at which syncs may run on battery, for example 20
+	 */
+	public static SyncConstraint batteryNotBelow(final int minPercent) {
+		return new SyncConstraint() {
+			@Override
+			public boolean isSatisfied(Context context) {
+				Intent battery = getBatteryStatus(context);
+				if (battery == null) {
+					return true;
+				}
+				if (battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0) {
+					return true;
+				}
+				int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+				int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+				return level < 0 || scale <= 0 || level * 100 >= minPercent * scale;
+			}
+		};
+	}
+	
+	/** Satisfied when the device is plugged in **/
+	public static SyncConstraint charging() {
+		return new SyncConstraint() {
+			@Override
+			public boolean isSatisfied(Context context) {
+				Intent battery = getBatteryStatus(context);
+				return battery != null && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+			}
+		};
+	}
+	
+	/** Satisfied when the screen is off, so syncs do not compete with the user for network and CPU **/
+	@SuppressWarnings("deprecation")
+	public static SyncConstraint deviceIdle() {
+		return new SyncConstraint() {
+			@Override
+			public boolean isSatisfied(Context context) {
+				PowerManager power = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+				return power == null || !power.isScreenOn();
+			}
+		};
+	}
+	
+	private static NetworkInfo getActiveNetwork(Context context) {
+		ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+		return connectivity != null ? connectivity.getActiveNetworkInfo() : null;
+	}
+	
+	/** Reads the sticky battery broadcast, no receiver stays registered **/
+	private static Intent getBatteryStatus(Context context) {
+		try {
+			return context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
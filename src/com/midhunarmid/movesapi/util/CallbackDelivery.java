@@ -0,0 +1,185 @@
+package com.midhunarmid.movesapi.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.midhunarmid.movesapi.MovesAPI;
+import com.midhunarmid.movesapi.MovesHandler;
+
+/**
+ * Decides on which thread the {@link MovesHandler}s of API calls are notified. Set it for all calls with
+ * {@link MovesAPI#setCallbackDelivery(CallbackDelivery)}:<code>
+ * <li>{@link #direct()} notifies on the background thread of the call, the default</li>
+ * <li>{@link #mainThread()} notifies on the main thread, so UI code needs no posting of its own</li>
+ * <li>{@link #executor(Executor)} notifies through any {@link Executor}</li></code><br>
+ * Callbacks which belong together, like the handlers of coalesced calls or the days of a streamed response, are
+ * handed over as one batch, so they cost a single thread hop. Callbacks made on the delivery thread already run
+ * right away.
+ * @author Midhu
+ * @see MovesHandler
+ */
+public abstract class CallbackDelivery {
+	
+	private static final CallbackDelivery DIRECT = new CallbackDelivery() {
+		@Override
+		public void execute(Runnable runnable) {
+			runnable.run();
+		}
+	
+		@Override
+		public boolean isDeliveryThread() {
+			return true;
+		}
+	};
+	
+	private static CallbackDelivery mMainThread;
+	
+	/** Notifies handlers on the thread which completed the call **/
+	public static CallbackDelivery direct() {
+		return DIRECT;
+	}
+	
+	/** Notifies handlers on the main thread of the application **/
+	public static synchronized CallbackDelivery mainThread() {
+		if (mMainThread == null) {
+			final Handler handler = new Handler(Looper.getMainLooper());
+			mMainThread = new CallbackDelivery() {
+				@Override
+				public void execute(Runnable runnable) {
+					handler.post(runnable);
+				}
+	
+				@Override
+				public boolean isDeliveryThread() {
+					return Looper.myLooper() == Looper.getMainLooper();
+				}
+			};
+		}
+		return mMainThread;
+	}
+	
+	/**
+	 * Notifies handlers through the given {@link Executor}
+	 * @param executor : Runs the callbacks, for example a single thread executor of the application
+	 */
+	public static CallbackDelivery executor(final Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor must not be null");
+		}
+		return new CallbackDelivery() {
+			@Override
+			public void execute(Runnable runnable) {
+				executor.execute(runnable);
+			}
+		};
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Delivery methods  *************************************************************** **/
+	
+	/** Hands a callback over to the delivery thread **/
+	public abstract void execute(Runnable runnable);
+	
+	/** Whether the calling thread is the delivery thread, callbacks then run right away **/
+	public boolean isDeliveryThread() {
+		return false;
+	}
+	
+	/** Runs a callback right away on the delivery thread, or hands it over otherwise **/
+	public void deliver(Runnable runnable) {
+		if (isDeliveryThread()) {
+			runnable.run();
+		} else {
+			execute(runnable);
+		}
+	}
+	
+	/**
+	 * Wraps a handler, so that it is notified through this delivery
+	 * @param handler : The handler to notify
+	 * @return a handler which can be notified from any thread
+	 */
+	public <T> MovesHandler<T> wrap(final MovesHandler<T> handler) {
+		if (this == DIRECT) {
+			return handler;
+		}
+		return new MovesHandler<T>() {
+			@Override
+			public void onSuccess(final T result) {
+				deliver(new Runnable() {
+					@Override
+					public void run() {
+						handler.onSuccess(result);
+					}
+				});
+			}
+	
+			@Override
+			public void onFailure(final MovesStatus status, final String message) {
+				deliver(new Runnable() {
+					@Override
+					public void run() {
+						handler.onFailure(status, message);
+					}
+				});
+			}
+		};
+	}
+	
+	/** Creates a new {@link Batch} delivering through this delivery **/
+	public Batch newBatch() {
+		return new Batch(this);
+	}
+	
+	/**
+	 * Collects callbacks and delivers them in order with as few thread hops as possible. Callbacks added while an
+	 * earlier hand over has not run yet join that hand over instead of making another one.
+	 */
+	public static class Batch {
+		private final CallbackDelivery delivery;
+		private ArrayList<Runnable> pending = new ArrayList<Runnable>();
+		private ArrayList<Runnable> running = new ArrayList<Runnable>();
+		private boolean scheduled;
+	
+		private final Runnable drain = new Runnable() {
+			@Override
+			public void run() {
+				ArrayList<Runnable> callbacks;
+				synchronized (Batch.this) {
+					callbacks	= pending;
+					pending		= running;
+					running		= callbacks;
+					scheduled	= false;
+				}
+				for (int i = 0; i < callbacks.size(); i++) {
+					try {
+						callbacks.get(i).run();
+					} catch (RuntimeException e) {
+						/* One failing callback must not keep the others from running */
+						e.printStackTrace();
+					}
+				}
+				callbacks.clear();
+			}
+		};
+	
+		Batch(CallbackDelivery delivery) {
+			this.delivery = delivery;
+		}
+	
+		/** Adds a callback, it runs after all callbacks added before **/
+		public void add(Runnable callback) {
+			synchronized (this) {
+				pending.add(callback);
+				if (scheduled) {
+					return;
+				}
+				scheduled = true;
+			}
+			delivery.execute(drain);
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package com.midhunarmid.movesapi.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import org.json.JSONException;
+
+/**
+ * Splits a JSON array read from a stream into the texts of its objects, one at a time, while the rest of the stream
+ * is still being received. Only brackets and strings are scanned, the objects are not parsed, so every object can be
+ * handed to a parser as soon as its closing bracket arrives. Elements which are not objects are skipped.<br><br>
+ * 
+ * A {@link JSONArraySplitter} reads one array and is not thread safe.
+ * @author Midhu
+ * @see JSONStreamReader
+ */
+public class JSONArraySplitter {
+	
+	private final CountingInputStream mStream;
+	private final Reader mReader;
+	private final char[] mBuffer = new char[8192];
+	private int mPos;
+	private int mLimit;
+	private final StringBuilder mElement = new StringBuilder(4096);
+	private boolean mStarted;
+	private boolean mFinished;
+	
+	/**
+	 * Creates a new splitter reading a UTF-8 encoded JSON array
+	 * @param stream : The stream to read, usually the input stream of a connection
+	 */
+	public JSONArraySplitter(InputStream stream) throws IOException {
+		mStream = new CountingInputStream(stream);
+		mReader = new InputStreamReader(mStream, "UTF-8");
+	}
+	
+	/**
+	 * Reads the next object of the array
+	 * @return the JSON text of the object, or <code>null</code> once the end of the array is reached
+	 * @throws JSONException if the stream is not a JSON array or ends before the array is closed
+	 */
+	public String nextObject() throws IOException, JSONException {
+		CharSequence element = nextObjectBuffer();
+		return element != null ? element.toString() : null;
+	}
+	
+	/**
+	 * Like {@link #nextObject()}, but returns the buffer of this splitter instead of a new {@link String}. The buffer
+	 * is reused for every object, so it is only valid until the next call. Read it in place with
+	 * {@link JSONStreamReader#reset(CharSequence, int, int)} to split a response without copying its days.
+	 * @return the JSON text of the object, or <code>null</code> once the end of the array is reached
+	 * @throws JSONException if the stream is not a JSON array or ends before the array is closed
+	 */
+	public CharSequence nextObjectBuffer() throws IOException, JSONException {
+		if (mFinished) {
+			return null;
+		}
+		if (!mStarted) {
+			if (nextNonWhitespace() != '[') {
+				throw new JSONException("Expected a JSONArray");
+			}
+			mStarted = true;
+		}
+		while (true) {
+			int ch = nextNonWhitespace();
+			if (ch == -1) {
+				throw new JSONException("Unterminated array");
+			} else if (ch == ']') {
+				mFinished = true;
+				return null;
+			} else if (ch == ',') {
+				continue;
+			}
+			boolean isObject = ch == '{';
+			mElement.setLength(0);
+			readElement((char) ch, isObject);
+			if (isObject) {
+				return mElement;
+			}
+		}
+	}
+	
+	/** Number of bytes read from the stream so far, including bytes buffered but not scanned yet **/
+	public long getBytesRead() {
+		return mStream.count;
+	}
+	
+	/** Closes the underlying stream **/
+	public void close() throws IOException {
+		mReader.close();
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Scanner methods   *************************************************************** **/
+	
+	/** Reads an element starting with the given character, appending its text if <code>capture</code> is set **/
+	private void readElement(char first, boolean capture) throws IOException, JSONException {
+		if (capture) {
+			mElement.append(first);
+		}
+		if (first == '"') {
+			readString(capture);
+			return;
+		}
+		if (first != '{' && first != '[') {
+			/* A number or a literal, ends before the next separator */
+			int ch;
+			while ((ch = read()) != -1) {
+				if (ch == ',' || ch == ']' || ch == '}' || ch <= ' ') {
+					mPos--;
+					return;
+				}
+			}
+			return;
+		}
+		int depth = 1;
+		while (depth > 0) {
+			int ch = read();
+			if (ch == -1) {
+				throw new JSONException("Unterminated element");
+			}
+			if (capture) {
+				mElement.append((char) ch);
+			}
+			if (ch == '"') {
+				readString(capture);
+			} else if (ch == '{' || ch == '[') {
+				depth++;
+			} else if (ch == '}' || ch == ']') {
+				depth--;
+			}
+		}
+	}
+	
+	/** Reads the rest of a string after its opening quote **/
+	private void readString(boolean capture) throws IOException, JSONException {
+		while (true) {
+			int ch = read();
+			if (ch == -1) {
+				throw new JSONException("Unterminated string");
+			}
+			if (capture) {
+				mElement.append((char) ch);
+			}
+			if (ch == '"') {
+				return;
+			} else if (ch == '\\') {
+				int escaped = read();
+				if (escaped == -1) {
+					throw new JSONException("Unterminated string");
+				}
+				if (capture) {
+					mElement.append((char) escaped);
+				}
+			}
+		}
+	}
+	
+	private int nextNonWhitespace() throws IOException {
+		int ch;
+		while ((ch = read()) != -1 && ch <= ' ') {
+			/* Skip whitespace */
+		}
+		return ch;
+	}
+	
+	private int read() throws IOException {
+		if (mPos == mLimit) {
+			mLimit = mReader.read(mBuffer, 0, mBuffer.length);
+			mPos = 0;
+			if (mLimit <= 0) {
+				mLimit = 0;
+				return -1;
+			}
+		}
+		return mBuffer[mPos++];
+	}
+	
+	/** Counts the bytes read from the wrapped stream **/
+	private static class CountingInputStream extends FilterInputStream {
+		private volatile long count;
+	
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+	
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				count++;
+			}
+			return b;
+		}
+	
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				count += read;
+			}
+			return read;
+		}
+	
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+}
@@ -0,0 +1,555 @@
+package com.midhunarmid.movesapi.util;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * A pull parser for JSON text, used to read Moves responses without building a tree of {@link JSONObject}s first.
+ * Values which are not needed are skipped at the token level with {@link #skipValue()}, so their strings and
+ * nested objects are never created.<br><br>
+ * 
+ * Scalar values are returned as text, the same way <code>JSONObject.optString()</code> returns them, so both
+ * parsers give the same strings for a response. A {@link JSONStreamReader} reads one document at a time and is not thread safe,
+ * {@link #reset(CharSequence, int, int)} reuses it for the next document.
+ * @author Midhu
+ * @see ParseOptions
+ */
+public class JSONStreamReader {
+	
+	/** Kinds of tokens returned by {@link JSONStreamReader#peek()} **/
+	public enum Token {
+		BEGIN_ARRAY,
+		END_ARRAY,
+		BEGIN_OBJECT,
+		END_OBJECT,
+		NAME,
+		STRING,
+		NUMBER,
+		BOOLEAN,
+		NULL,
+		END_DOCUMENT
+	}
+	
+	/* States of the enclosing scopes */
+	private static final int EMPTY_DOCUMENT		= 0;
+	private static final int NONEMPTY_DOCUMENT	= 1;
+	private static final int EMPTY_ARRAY		= 2;
+	private static final int NONEMPTY_ARRAY		= 3;
+	private static final int EMPTY_OBJECT		= 4;
+	private static final int NONEMPTY_OBJECT	= 5;
+	private static final int DANGLING_NAME		= 6;
+	
+	private CharSequence mJson;
+	private int mLength;
+	private int mPos;
+	private Token mPeeked;
+	private int[] mStack = new int[32];
+	private int mStackSize;
+	private StringBuilder mBuilder;
+	private ParsePool mPool;
+	
+	/**
+	 * Constructor method of {@link JSONStreamReader}
+	 * @param json : The JSON text to read
+	 */
+	public JSONStreamReader(CharSequence json) {
+		this(json, 0, json.length());
+	}
+	
+	/**
+	 * Constructor method of {@link JSONStreamReader}, reading only a part of the given text
+	 * @param json : The JSON text holding the document
+	 * @param start : Index of the first character of the document
+	 * @param end : Index after the last character of the document
+	 */
+	public JSONStreamReader(CharSequence json, int start, int end) {
+		reset(json, start, end);
+	}
+	
+	/**
+	 * Resets this reader to read another document, keeping its buffers and its {@link ParsePool}. The text is read in
+	 * place, so a reused buffer like a {@link StringBuilder} must not change until the document is read.
+	 * @param json : The JSON text holding the document
+	 * @param start : Index of the first character of the document
+	 * @param end : Index after the last character of the document
+	 * @return this reader
+	 */
+	public JSONStreamReader reset(CharSequence json, int start, int end) {
+		mJson		= json;
+		mPos		= start;
+		mLength		= end;
+		mPeeked		= null;
+		mStackSize	= 0;
+		mStack[mStackSize++] = EMPTY_DOCUMENT;
+		return this;
+	}
+	
+	/**
+	 * Sets the {@link ParsePool} the <code>read()</code> methods of the data classes take their objects from while
+	 * reading with this reader. Default is <code>null</code>, every object is newly created.
+	 */
+	public JSONStreamReader setPool(ParsePool pool) {
+		mPool = pool;
+		return this;
+	}
+	
+	/** The {@link ParsePool} of this reader, or <code>null</code> **/
+	public ParsePool getPool() {
+		return mPool;
+	}
+	
+	/**
+	 * Gets the index of the reader in the JSON text. After {@link #peek()} this is the first character of the next
+	 * token, after {@link #skipValue()} the character after the skipped value.
+	 */
+	public int getPosition() {
+		return mPos;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Structure methods    ************************************************************ **/
+	
+	/** Gets the kind of the next token, without consuming it **/
+	public Token peek() throws JSONException {
+		if (mPeeked != null) {
+			return mPeeked;
+		}
+		int top = mStackSize - 1;
+		char ch;
+		switch (mStack[top]) {
+		case EMPTY_DOCUMENT:
+			mStack[top] = NONEMPTY_DOCUMENT;
+			ch = nextNonWhitespace();
+			break;
+		case NONEMPTY_DOCUMENT:
+			skipWhitespace();
+			if (mPos < mLength) {
+				throw syntaxError("Unexpected data after the document");
+			}
+			return mPeeked = Token.END_DOCUMENT;
+		case EMPTY_ARRAY:
+			mStack[top] = NONEMPTY_ARRAY;
+			ch = nextNonWhitespace();
+			if (ch == ']') {
+				return mPeeked = Token.END_ARRAY;
+			}
+			break;
+		case NONEMPTY_ARRAY:
+			ch = nextNonWhitespace();
+			if (ch == ']') {
+				return mPeeked = Token.END_ARRAY;
+			} else if (ch != ',') {
+				throw syntaxError("Expected ',' or ']'");
+			}
+			mPos++;
+			ch = nextNonWhitespace();
+			break;
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			ch = nextNonWhitespace();
+			if (ch == '}') {
+				return mPeeked = Token.END_OBJECT;
+			}
+			if (mStack[top] == NONEMPTY_OBJECT) {
+				if (ch != ',') {
+					throw syntaxError("Expected ',' or '}'");
+				}
+				mPos++;
+				ch = nextNonWhitespace();
+			}
+			if (ch != '"') {
+				throw syntaxError("Expected a name");
+			}
+			mStack[top] = DANGLING_NAME;
+			return mPeeked = Token.NAME;
+		default:
+			/* DANGLING_NAME, the value of a name */
+			mStack[top] = NONEMPTY_OBJECT;
+			ch = nextNonWhitespace();
+			break;
+		}
+		switch (ch) {
+		case '{':
+			return mPeeked = Token.BEGIN_OBJECT;
+		case '[':
+			return mPeeked = Token.BEGIN_ARRAY;
+		case '"':
+			return mPeeked = Token.STRING;
+		case 't':
+		case 'f':
+			return mPeeked = Token.BOOLEAN;
+		case 'n':
+			return mPeeked = Token.NULL;
+		default:
+			if (ch == '-' || (ch >= '0' && ch <= '9')) {
+				return mPeeked = Token.NUMBER;
+			}
+			throw syntaxError("Unexpected character '" + ch + "'");
+		}
+	}
+	
+	/** Whether the current array or object has more elements **/
+	public boolean hasNext() throws JSONException {
+		Token token = peek();
+		return token != Token.END_ARRAY && token != Token.END_OBJECT && token != Token.END_DOCUMENT;
+	}
+	
+	/** Consumes the start of an array **/
+	public void beginArray() throws JSONException {
+		expect(Token.BEGIN_ARRAY);
+		mPos++;
+		push(EMPTY_ARRAY);
+	}
+	
+	/** Consumes the end of the current array **/
+	public void endArray() throws JSONException {
+		expect(Token.END_ARRAY);
+		mPos++;
+		mStackSize--;
+	}
+	
+	/** Consumes the start of an object **/
+	public void beginObject() throws JSONException {
+		expect(Token.BEGIN_OBJECT);
+		mPos++;
+		push(EMPTY_OBJECT);
+	}
+	
+	/** Consumes the end of the current object **/
+	public void endObject() throws JSONException {
+		expect(Token.END_OBJECT);
+		mPos++;
+		mStackSize--;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Value methods     *************************************************************** **/
+	
+	/** Consumes the next name of the current object **/
+	public String nextName() throws JSONException {
+		expect(Token.NAME);
+		String name = readString();
+		consumeColon();
+		return name;
+	}
+	
+	/**
+	 * Consumes the next name of the current object and looks it up in the given names, without creating a
+	 * {@link String} for it.
+	 * @param names : Names to look for
+	 * @return index of the name in <code>names</code>, or -1 if it is none of them
+	 */
+	public int selectName(String[] names) throws JSONException {
+		return selectName(names, -1);
+	}
+	
+	/**
+	 * Like {@link #selectName(String[])}, but only looks for the names which have their bit set in <code>mask</code>
+	 * @param names : Names to look for, at most 32
+	 * @param mask : Bit <code>i</code> set if <code>names[i]</code> is wanted
+	 * @return index of the name in <code>names</code>, or -1 if it is none of the wanted names
+	 */
+	public int selectName(String[] names, int mask) throws JSONException {
+		expect(Token.NAME);
+		int start = mPos + 1;
+		int end = start;
+		while (end < mLength) {
+			char ch = mJson.charAt(end);
+			if (ch == '"' || ch == '\\') {
+				break;
+			}
+			end++;
+		}
+		if (end >= mLength || mJson.charAt(end) == '\\') {
+			/* Escaped names are rare, compare them the slow way */
+			String name = readString();
+			consumeColon();
+			for (int i = 0; i < names.length; i++) {
+				if ((mask & (1 << i)) != 0 && names[i].equals(name)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		mPos = end + 1;
+		consumeColon();
+		int length = end - start;
+		for (int i = 0; i < names.length; i++) {
+			if ((mask & (1 << i)) != 0 && names[i].length() == length && regionMatches(start, names[i], length)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	/** Consumes the next scalar value and returns it as text, <code>null</code> values are returned as "null" **/
+	public String nextString() throws JSONException {
+		Token token = peek();
+		if (token == Token.STRING) {
+			mPeeked = null;
+			return readString();
+		} else if (token == Token.NUMBER) {
+			mPeeked = null;
+			return normalizeNumber(readLiteral());
+		} else if (token == Token.BOOLEAN || token == Token.NULL) {
+			mPeeked = null;
+			return readLiteral();
+		}
+		throw syntaxError("Expected a value but was " + token);
+	}
+	
+	/** Like {@link #nextString()}, but skips an array or object value and returns an empty string for it **/
+	public String optString() throws JSONException {
+		Token token = peek();
+		if (token == Token.BEGIN_ARRAY || token == Token.BEGIN_OBJECT) {
+			skipValue();
+			return "";
+		}
+		return nextString();
+	}
+	
+	/** Consumes the next value, including all nested values of an array or object, without parsing it **/
+	public void skipValue() throws JSONException {
+		Token token = peek();
+		mPeeked = null;
+		switch (token) {
+		case NAME:
+			readString();
+			consumeColon();
+			skipValue();
+			break;
+		case STRING:
+			skipString();
+			break;
+		case BEGIN_ARRAY:
+		case BEGIN_OBJECT:
+			skipNested();
+			break;
+		case NUMBER:
+		case BOOLEAN:
+		case NULL:
+			skipLiteral();
+			break;
+		default:
+			mPeeked = token;
+			throw syntaxError("Expected a value but was " + token);
+		}
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Scanner methods   *************************************************************** **/
+	
+	private void expect(Token expected) throws JSONException {
+		Token token = peek();
+		if (token != expected) {
+			throw syntaxError("Expected " + expected + " but was " + token);
+		}
+		mPeeked = null;
+	}
+	
+	private void push(int state) {
+		if (mStackSize == mStack.length) {
+			int[] grown = new int[mStack.length * 2];
+			System.arraycopy(mStack, 0, grown, 0, mStackSize);
+			mStack = grown;
+		}
+		mStack[mStackSize++] = state;
+	}
+	
+	private void consumeColon() throws JSONException {
+		if (nextNonWhitespace() != ':') {
+			throw syntaxError("Expected ':'");
+		}
+		mPos++;
+	}
+	
+	private void skipWhitespace() {
+		while (mPos < mLength) {
+			char ch = mJson.charAt(mPos);
+			if (ch != ' ' && ch != '\n' && ch != '\r' && ch != '\t') {
+				return;
+			}
+			mPos++;
+		}
+	}
+	
+	/** Skips whitespace and returns the next character, without consuming it **/
+	private char nextNonWhitespace() throws JSONException {
+		skipWhitespace();
+		if (mPos >= mLength) {
+			throw syntaxError("Unexpected end of input");
+		}
+		return mJson.charAt(mPos);
+	}
+	
+	/** Reads a string starting at its opening quote **/
+	private String readString() throws JSONException {
+		int start = ++mPos;
+		while (mPos < mLength) {
+			char ch = mJson.charAt(mPos);
+			if (ch == '"') {
+				return mJson.subSequence(start, mPos++).toString();
+			} else if (ch == '\\') {
+				break;
+			}
+			mPos++;
+		}
+		StringBuilder sb = mBuilder;
+		if (sb == null) {
+			sb = mBuilder = new StringBuilder(64);
+		}
+		sb.setLength(0);
+		sb.append(mJson, start, mPos);
+		while (mPos < mLength) {
+			char ch = mJson.charAt(mPos++);
+			if (ch == '"') {
+				return sb.toString();
+			} else if (ch != '\\') {
+				sb.append(ch);
+				continue;
+			}
+			if (mPos >= mLength) {
+				break;
+			}
+			ch = mJson.charAt(mPos++);
+			switch (ch) {
+			case 'b':
+				sb.append('\b');
+				break;
+			case 'f':
+				sb.append('\f');
+				break;
+			case 'n':
+				sb.append('\n');
+				break;
+			case 'r':
+				sb.append('\r');
+				break;
+			case 't':
+				sb.append('\t');
+				break;
+			case 'u':
+				if (mPos + 4 > mLength) {
+					throw syntaxError("Unterminated escape sequence");
+				}
+				try {
+					sb.append((char) Integer.parseInt(mJson.subSequence(mPos, mPos + 4).toString(), 16));
+				} catch (NumberFormatException e) {
+					throw syntaxError("Invalid escape sequence");
+				}
+				mPos += 4;
+				break;
+			default:
+				sb.append(ch);
+				break;
+			}
+		}
+		throw syntaxError("Unterminated string");
+	}
+	
+	private void skipString() throws JSONException {
+		mPos++;
+		while (mPos < mLength) {
+			char ch = mJson.charAt(mPos++);
+			if (ch == '"') {
+				return;
+			} else if (ch == '\\') {
+				mPos++;
+			}
+		}
+		throw syntaxError("Unterminated string");
+	}
+	
+	/** Skips an array or object starting at its opening bracket, by counting brackets outside of strings **/
+	private void skipNested() throws JSONException {
+		int depth = 0;
+		while (mPos < mLength) {
+			char ch = mJson.charAt(mPos);
+			if (ch == '"') {
+				skipString();
+				continue;
+			}
+			mPos++;
+			if (ch == '{' || ch == '[') {
+				depth++;
+			} else if ((ch == '}' || ch == ']') && --depth == 0) {
+				return;
+			}
+		}
+		throw syntaxError("Unterminated array or object");
+	}
+	
+	private String readLiteral() {
+		int start = mPos;
+		skipLiteral();
+		int length = mPos - start;
+		/* Avoid creating strings for the common literals */
+		if (length == 4 && regionMatches(start, "null", 4)) {
+			return "null";
+		} else if (length == 4 && regionMatches(start, "true", 4)) {
+			return "true";
+		} else if (length == 5 && regionMatches(start, "false", 5)) {
+			return "false";
+		}
+		return mJson.subSequence(start, mPos).toString();
+	}
+	
+	/**
+	 * Formats a number literal the way <code>JSONObject.optString()</code> does. <code>JSONObject</code> keeps
+	 * integers as <code>int</code> or <code>long</code> and all other numbers as <code>double</code>, so for example
+	 * "1E2" is returned as "100.0" and "1.50" as "1.5".
+	 */
+	private static String normalizeNumber(String literal) {
+		int length = literal.length();
+		boolean integer = length > 0;
+		for (int i = 0; i < length && integer; i++) {
+			char ch = literal.charAt(i);
+			integer = (ch >= '0' && ch <= '9') || (ch == '-' && i == 0);
+		}
+		if (integer) {
+			/* Most values are plain integers which are already in their canonical form */
+			boolean negative = literal.charAt(0) == '-';
+			int digits = negative ? length - 1 : length;
+			if (digits > 0 && digits < 19 && (literal.charAt(negative ? 1 : 0) != '0' || digits == 1)) {
+				return digits == 1 && negative && literal.charAt(1) == '0' ? "0" : literal;
+			}
+			try {
+				return String.valueOf(Long.parseLong(literal));
+			} catch (NumberFormatException e) {
+				/* Too large for a long, parsed as a double like below */
+			}
+		}
+		try {
+			return String.valueOf(Double.valueOf(literal));
+		} catch (NumberFormatException e) {
+			return literal;
+		}
+	}
+	
+	/** Whether the text at <code>start</code> is the first <code>length</code> characters of <code>other</code> **/
+	private boolean regionMatches(int start, String other, int length) {
+		if (start + length > mLength) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (mJson.charAt(start + i) != other.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void skipLiteral() {
+		while (mPos < mLength) {
+			char ch = mJson.charAt(mPos);
+			if (ch == ',' || ch == '}' || ch == ']' || ch == ':' || ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t') {
+				return;
+			}
+			mPos++;
+		}
+	}
+	
+	private JSONException syntaxError(String message) {
+		return new JSONException(message + " at character " + mPos);
+	}
+}
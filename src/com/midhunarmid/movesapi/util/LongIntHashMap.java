@@ -0,0 +1,157 @@
+package com.midhunarmid.movesapi.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from <code>long</code> keys to <code>int</code> values, for indexes which would otherwise box every key
+ * and value into a {@link java.util.HashMap}. Keys are kept in one open addressing table with linear probing, so a
+ * lookup touches one or two adjacent array slots and never allocates.<br><br>
+ * 
+ * Entries can not be removed, use {@link #clear()} to start over. This class is not thread safe.
+ * @author Midhu
+ */
+public class LongIntHashMap {
+	
+	/* Marks a free slot, the key with this value is kept apart */
+	private static final long FREE = Long.MIN_VALUE;
+	
+	private long[] mKeys;
+	private int[] mValues;
+	private int mMask;
+	private int mSize;
+	private boolean mHasFreeKey;
+	private int mFreeKeyValue;
+	
+	/** Creates an empty map **/
+	public LongIntHashMap() {
+		this(16);
+	}
+	
+	/**
+	 * Creates an empty map
+	 * @param expectedSize : Number of entries the map can hold before it has to grow
+	 */
+	public LongIntHashMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Map methods   ******************************************************************* **/
+	
+	/**
+	 * Gets the value of a key
+	 * @param key : The key to look up
+	 * @param def : Default value to be returned, if the key is not in the map
+	 * @return the value of the key, or <b><i>def</i></b>
+	 */
+	public int get(long key, int def) {
+		if (key == FREE) {
+			return mHasFreeKey ? mFreeKeyValue : def;
+		}
+		int mask = mMask;
+		for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+			long current = mKeys[slot];
+			if (current == key) {
+				return mValues[slot];
+			} else if (current == FREE) {
+				return def;
+			}
+		}
+	}
+	
+	/** Whether the key is in the map **/
+	public boolean containsKey(long key) {
+		if (key == FREE) {
+			return mHasFreeKey;
+		}
+		int mask = mMask;
+		for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+			long current = mKeys[slot];
+			if (current == key) {
+				return true;
+			} else if (current == FREE) {
+				return false;
+			}
+		}
+	}
+	
+	/**
+	 * Sets the value of a key, replacing any previous value
+	 * @param key : The key
+	 * @param value : The new value of the key
+	 */
+	public void put(long key, int value) {
+		if (key == FREE) {
+			if (!mHasFreeKey) {
+				mHasFreeKey = true;
+				mSize++;
+			}
+			mFreeKeyValue = value;
+			return;
+		}
+		int mask = mMask;
+		int slot = hash(key) & mask;
+		while (mKeys[slot] != FREE) {
+			if (mKeys[slot] == key) {
+				mValues[slot] = value;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		mKeys[slot]		= key;
+		mValues[slot]	= value;
+		if (++mSize * 2 > mKeys.length) {
+			rehash(mKeys.length * 2);
+		}
+	}
+	
+	/** Number of keys in the map **/
+	public int size() {
+		return mSize;
+	}
+	
+	/** Removes all keys from the map, keeping the allocated table **/
+	public void clear() {
+		Arrays.fill(mKeys, FREE);
+		mSize = 0;
+		mHasFreeKey = false;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Table methods   ***************************************************************** **/
+	
+	private void allocate(int capacity) {
+		mKeys	= new long[capacity];
+		mValues	= new int[capacity];
+		mMask	= capacity - 1;
+		Arrays.fill(mKeys, FREE);
+	}
+	
+	private void rehash(int capacity) {
+		long[] keys = mKeys;
+		int[] values = mValues;
+		allocate(capacity);
+		int mask = mMask;
+		for (int i = 0; i < keys.length; i++) {
+			long key = keys[i];
+			if (key != FREE) {
+				int slot = hash(key) & mask;
+				while (mKeys[slot] != FREE) {
+					slot = (slot + 1) & mask;
+				}
+				mKeys[slot]		= key;
+				mValues[slot]	= values[i];
+			}
+		}
+	}
+	
+	/** Spreads the bits of a key, so that keys differing only in their high bits do not collide **/
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,146 @@
+package com.midhunarmid.movesapi.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared thread pools of this library. The computation pool has one thread per core and is used to split CPU bound
+ * work like parsing and track point simplification across cores. The io pool grows on demand and runs blocking network
+ * work. The scheduler has a single thread and runs timed work like periodic syncs.
+ * @author Midhu
+ */
+public class MovesExecutors {
+	
+	/** A piece of work over a range of indexes, see {@link MovesExecutors#forEachRange(int, int, RangeTask)} **/
+	public interface RangeTask {
+		/**
+		 * Called with a part of the whole range, possibly on another thread
+		 * @param from : First index of the part, inclusive
+		 * @param to : Last index of the part, exclusive
+		 */
+		public void run(int from, int to) throws Exception;
+	}
+	
+	private static final int PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors());
+	
+	/* Set on the threads of the computation pool, so nested work runs inline instead of waiting for the pool */
+	private static final ThreadLocal<Boolean> mIsComputationThread = new ThreadLocal<Boolean>();
+	
+	private static ExecutorService mComputation;
+	private static ExecutorService mIO;
+	private static ScheduledExecutorService mScheduler;
+	
+	/** Number of threads of the computation pool **/
+	public static int getParallelism() {
+		return PARALLELISM;
+	}
+	
+	/** Gets the computation pool, created on first use. Its threads are daemon threads **/
+	public static synchronized ExecutorService computation() {
+		if (mComputation == null) {
+			mComputation = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+				private final AtomicInteger mCount = new AtomicInteger();
+	
+				@Override
+				public Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							mIsComputationThread.set(Boolean.TRUE);
+							runnable.run();
+						}
+					}, "MovesAPI-compute-" + mCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return mComputation;
+	}
+	
+	/** Gets the io pool, created on first use. Idle threads are kept for a while, so back to back calls reuse them **/
+	public static synchronized ExecutorService io() {
+		if (mIO == null) {
+			mIO = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger mCount = new AtomicInteger();
+	
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "MovesAPI-io-" + mCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return mIO;
+	}
+	
+	/** Gets the scheduler, created on first use. Its thread is a daemon thread **/
+	public static synchronized ScheduledExecutorService scheduler() {
+		if (mScheduler == null) {
+			mScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "MovesAPI-scheduler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return mScheduler;
+	}
+	
+	/**
+	 * Runs a task over the indexes <code>0</code> to <code>count</code>, split into parts which run in parallel on the
+	 * computation pool. The calling thread works on the first part itself and returns when all parts are done. Small
+	 * ranges, and calls from a thread of the computation pool, run on the calling thread only.
+	 * @param count : Number of indexes
+	 * @param minPartSize : Smallest number of indexes worth sending to another thread
+	 * @param task : The work to do
+	 * @throws Exception the first exception thrown by any part
+	 */
+	public static void forEachRange(int count, int minPartSize, final RangeTask task) throws Exception {
+		int parts = Math.min(PARALLELISM, count / Math.max(1, minPartSize));
+		if (parts <= 1 || mIsComputationThread.get() != null) {
+			task.run(0, count);
+			return;
+		}
+		ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>(parts - 1);
+		for (int part = 1; part < parts; part++) {
+			final int from	= (int) ((long) count * part / parts);
+			final int to	= (int) ((long) count * (part + 1) / parts);
+			futures.add(computation().submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					task.run(from, to);
+					return null;
+				}
+			}));
+		}
+		Exception failure = null;
+		try {
+			task.run(0, count / parts);
+		} catch (Exception e) {
+			failure = e;
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				futures.get(i).get();
+			} catch (ExecutionException e) {
+				if (failure == null) {
+					failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+}
@@ -15,7 +15,8 @@ public enum MovesStatus {
 	UNEXPECTED_ERROR(""),
 	BAD_RESPONSE(""),
 	INVALID_RESPONSE(""),
-	NOT_AUTHENTICATED("");
+	NOT_AUTHENTICATED(""),
+	MISSING_PERMISSION("");
 	
 	String statusMessage;
 	
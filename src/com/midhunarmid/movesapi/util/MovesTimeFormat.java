@@ -0,0 +1,302 @@
+package com.midhunarmid.movesapi.util;
+
+import java.util.TimeZone;
+
+/**
+ * A fast parser and formatter for the date and time formats used by Moves API. Unlike {@link java.text.SimpleDateFormat}
+ * these methods are thread safe, parse without allocating any objects and never throw on invalid input.<br><br>
+ *
+ * Supported formats are:<code>
+ * <li>yyyyMMdd'T'HHmmssZ, for example 20131105T083000+0200 or 20131105T063000Z</li>
+ * <li>yyyyMMdd, for example 20131105 (yyyy-MM-dd is accepted as well)</li></code>
+ * @author Midhu
+ * @see Utilities
+ */
+public class MovesTimeFormat {
+	
+	public static final String FORMAT_DATE		= "yyyyMMdd";
+	public static final String FORMAT_DATETIME	= "yyyyMMdd'T'HHmmssZ";
+	
+	private static final long MILLIS_PER_DAY	= 86400000L;
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Parser methods    *************************************************************** **/
+	
+	/**
+	 * Use this method to parse either a date or a date time value of Moves into milliseconds.
+	 * @param value : A value in yyyyMMdd'T'HHmmssZ or yyyyMMdd format
+	 * @param def : Default value to be returned, if the value could not be parsed
+	 * @return The number of milliseconds since Jan. 1, 1970, midnight GMT
+	 */
+	public static long parse(String value, long def) {
+		if (value == null) {
+			return def;
+		}
+		return value.length() > 10 ? parseDateTime(value, def) : parseDate(value, def);
+	}
+	
+	/**
+	 * Use this method to parse a time stamp in yyyyMMdd'T'HHmmssZ format, the zone can be given as <code>Z</code>,
+	 * <code>+HHmm</code>, <code>+HH:mm</code> or <code>+HH</code>.
+	 * @param value : Time stamp to parse, for example 20131105T083000+0200
+	 * @param def : Default value to be returned, if the value could not be parsed
+	 * @return The number of milliseconds since Jan. 1, 1970, midnight GMT
+	 */
+	public static long parseDateTime(String value, long def) {
+		if (value == null || value.length() < 16 || value.charAt(8) != 'T') {
+			return def;
+		}
+		int year	= digits(value, 0, 4);
+		int month	= digits(value, 4, 2);
+		int day		= digits(value, 6, 2);
+		int hour	= digits(value, 9, 2);
+		int minute	= digits(value, 11, 2);
+		int second	= digits(value, 13, 2);
+		int offset	= parseOffset(value, 15);
+		if (!isValidDate(year, month, day) || hour < 0 || hour > 23 || minute < 0 || minute > 59
+				|| second < 0 || second > 60 || offset == Integer.MIN_VALUE) {
+			return def;
+		}
+		long days = daysFromCivil(year, month, day);
+		return (days * 86400L + hour * 3600L + minute * 60L + second - offset) * 1000L;
+	}
+	
+	/**
+	 * Use this method to parse a date in yyyyMMdd or yyyy-MM-dd format. Like {@link java.text.SimpleDateFormat} the
+	 * result is the midnight of that date in the default time zone of the device.
+	 * @param value : Date to parse, for example 20131105
+	 * @param def : Default value to be returned, if the value could not be parsed
+	 * @return The number of milliseconds since Jan. 1, 1970, midnight GMT
+	 */
+	public static long parseDate(String value, long def) {
+		long utc = parseDateUTC(value, Long.MIN_VALUE);
+		if (utc == Long.MIN_VALUE) {
+			return def;
+		}
+		TimeZone timeZone = TimeZone.getDefault();
+		long guess = utc - timeZone.getOffset(utc);
+		return utc - timeZone.getOffset(guess);
+	}
+	
+	/**
+	 * Use this method to parse a date in yyyyMMdd or yyyy-MM-dd format at midnight UTC. Useful for date arithmetic
+	 * which should not depend on the time zone of the device.
+	 * @param value : Date to parse, for example 20131105
+	 * @param def : Default value to be returned, if the value could not be parsed
+	 * @return The number of milliseconds since Jan. 1, 1970, midnight GMT
+	 */
+	public static long parseDateUTC(String value, long def) {
+		if (value == null) {
+			return def;
+		}
+		int year, month, day;
+		if (value.length() == 8) {
+			year	= digits(value, 0, 4);
+			month	= digits(value, 4, 2);
+			day		= digits(value, 6, 2);
+		} else if (value.length() == 10 && value.charAt(4) == '-' && value.charAt(7) == '-') {
+			year	= digits(value, 0, 4);
+			month	= digits(value, 5, 2);
+			day		= digits(value, 8, 2);
+		} else {
+			return def;
+		}
+		if (!isValidDate(year, month, day)) {
+			return def;
+		}
+		return daysFromCivil(year, month, day) * MILLIS_PER_DAY;
+	}
+	
+	/**
+	 * Use this method to get the zone offset of a time stamp in yyyyMMdd'T'HHmmssZ format
+	 * @param value : Time stamp to parse, for example 20131105T083000+0200
+	 * @param def : Default value to be returned, if the value has no valid zone
+	 * @return The offset to UTC in seconds, for example 7200 for +0200
+	 */
+	public static int parseOffsetSeconds(String value, int def) {
+		if (value == null || value.length() < 16) {
+			return def;
+		}
+		int offset = parseOffset(value, 15);
+		return offset == Integer.MIN_VALUE ? def : offset;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Formatter methods    ************************************************************ **/
+	
+	/**
+	 * Use this method to format a time in yyyyMMdd'T'HHmmssZ format
+	 * @param millis : The number of milliseconds since Jan. 1, 1970, midnight GMT
+	 * @param offsetSeconds : The zone offset to format with, in seconds. A zero offset is written as <code>Z</code>
+	 * @return formatted time stamp, for example 20131105T083000+0200
+	 */
+	public static String formatDateTime(long millis, int offsetSeconds) {
+		char[] buffer = new char[20];
+		long local = floorDiv(millis, 1000L) + offsetSeconds;
+		long days = floorDiv(local, 86400L);
+		int secondOfDay = (int) (local - days * 86400L);
+		writeDate(buffer, days);
+		buffer[8] = 'T';
+		writeTwoDigits(buffer, 9, secondOfDay / 3600);
+		writeTwoDigits(buffer, 11, (secondOfDay / 60) % 60);
+		writeTwoDigits(buffer, 13, secondOfDay % 60);
+		if (offsetSeconds == 0) {
+			buffer[15] = 'Z';
+			return new String(buffer, 0, 16);
+		}
+		int absOffset = Math.abs(offsetSeconds) / 60;
+		buffer[15] = offsetSeconds < 0 ? '-' : '+';
+		writeTwoDigits(buffer, 16, absOffset / 60);
+		writeTwoDigits(buffer, 18, absOffset % 60);
+		return new String(buffer, 0, 20);
+	}
+	
+	/**
+	 * Use this method to format a time in the extended ISO 8601 format used by GPX and most other exchange formats
+	 * @param millis : The number of milliseconds since Jan. 1, 1970, midnight GMT
+	 * @return formatted time stamp in UTC, for example 2013-11-05T06:30:00Z
+	 */
+	public static String formatISO8601(long millis) {
+		char[] date = new char[8];
+		char[] buffer = new char[20];
+		long seconds = floorDiv(millis, 1000L);
+		long days = floorDiv(seconds, 86400L);
+		int secondOfDay = (int) (seconds - days * 86400L);
+		writeDate(date, days);
+		System.arraycopy(date, 0, buffer, 0, 4);
+		buffer[4] = '-';
+		System.arraycopy(date, 4, buffer, 5, 2);
+		buffer[7] = '-';
+		System.arraycopy(date, 6, buffer, 8, 2);
+		buffer[10] = 'T';
+		writeTwoDigits(buffer, 11, secondOfDay / 3600);
+		buffer[13] = ':';
+		writeTwoDigits(buffer, 14, (secondOfDay / 60) % 60);
+		buffer[16] = ':';
+		writeTwoDigits(buffer, 17, secondOfDay % 60);
+		buffer[19] = 'Z';
+		return new String(buffer);
+	}
+	
+	/**
+	 * Use this method to format a time in yyyyMMdd format
+	 * @param millis : The number of milliseconds since Jan. 1, 1970, midnight GMT
+	 * @param offsetSeconds : The zone offset of the wanted date, in seconds
+	 * @return formatted date, for example 20131105
+	 */
+	public static String formatDate(long millis, int offsetSeconds) {
+		char[] buffer = new char[8];
+		writeDate(buffer, floorDiv(floorDiv(millis, 1000L) + offsetSeconds, 86400L));
+		return new String(buffer);
+	}
+	
+	/**
+	 * Use this method to format a time in yyyyMMdd format using the default time zone of the device
+	 * @param millis : The number of milliseconds since Jan. 1, 1970, midnight GMT
+	 * @return formatted date, for example 20131105
+	 */
+	public static String formatDate(long millis) {
+		return formatDate(millis, TimeZone.getDefault().getOffset(millis) / 1000);
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Calendar helpers    ************************************************************* **/
+	
+	/** Number of days since Jan. 1, 1970 of a date in the proleptic Gregorian calendar **/
+	public static long daysFromCivil(int year, int month, int day) {
+		year -= month <= 2 ? 1 : 0;
+		long era = (year >= 0 ? year : year - 399) / 400;
+		int yearOfEra = (int) (year - era * 400);
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+	
+	private static void writeDate(char[] buffer, long epochDays) {
+		long z = epochDays + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		int dayOfEra = (int) (z - era * 146097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+		writeTwoDigits(buffer, 0, (year / 100) % 100);
+		writeTwoDigits(buffer, 2, year % 100);
+		writeTwoDigits(buffer, 4, month);
+		writeTwoDigits(buffer, 6, day);
+	}
+	
+	private static void writeTwoDigits(char[] buffer, int index, int value) {
+		buffer[index]		= (char) ('0' + value / 10);
+		buffer[index + 1]	= (char) ('0' + value % 10);
+	}
+	
+	private static boolean isValidDate(int year, int month, int day) {
+		if (year < 0 || month < 1 || month > 12 || day < 1) {
+			return false;
+		}
+		int maxDay;
+		if (month == 2) {
+			boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+			maxDay = leap ? 29 : 28;
+		} else if (month == 4 || month == 6 || month == 9 || month == 11) {
+			maxDay = 30;
+		} else {
+			maxDay = 31;
+		}
+		return day <= maxDay;
+	}
+	
+	/** Parses <code>count</code> digits starting at <code>start</code>, returns -1 if there is any non digit **/
+	private static int digits(String value, int start, int count) {
+		int result = 0;
+		for (int i = start; i < start + count; i++) {
+			char ch = value.charAt(i);
+			if (ch < '0' || ch > '9') {
+				return -1;
+			}
+			result = result * 10 + (ch - '0');
+		}
+		return result;
+	}
+	
+	/** Parses the zone part of a time stamp into seconds, returns {@link Integer#MIN_VALUE} if it is not valid **/
+	private static int parseOffset(String value, int start) {
+		int length = value.length() - start;
+		char sign = value.charAt(start);
+		if (sign == 'Z' && length == 1) {
+			return 0;
+		}
+		if (sign != '+' && sign != '-') {
+			return Integer.MIN_VALUE;
+		}
+		int hours, minutes;
+		if (length == 3) {
+			hours	= digits(value, start + 1, 2);
+			minutes	= 0;
+		} else if (length == 5) {
+			hours	= digits(value, start + 1, 2);
+			minutes	= digits(value, start + 3, 2);
+		} else if (length == 6 && value.charAt(start + 3) == ':') {
+			hours	= digits(value, start + 1, 2);
+			minutes	= digits(value, start + 4, 2);
+		} else {
+			return Integer.MIN_VALUE;
+		}
+		if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+			return Integer.MIN_VALUE;
+		}
+		int offset = hours * 3600 + minutes * 60;
+		return sign == '-' ? -offset : offset;
+	}
+	
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			q--;
+		}
+		return q;
+	}
+}
@@ -0,0 +1,82 @@
+package com.midhunarmid.movesapi.util;
+
+/**
+ * A bounded pool of reusable objects. {@link #obtain()} hands out a free object, or creates a new one when the pool
+ * is empty, and {@link #recycle(Object)} resets an object and keeps it for the next <code>obtain()</code>. Objects
+ * recycled while the pool is full are left to the garbage collector, so a pool never holds more than its capacity.<br><br>
+ * 
+ * The pool does not track the objects it hands out. Recycling an object which is still in use, or recycling it twice,
+ * hands the same object to two users. This class is thread safe.
+ * @author Midhu
+ * @see ParsePool
+ */
+public abstract class ObjectPool<T> {
+	private final Object[] mFree;
+	private int mSize;
+	private int mCreated;
+	
+	/**
+	 * Creates an empty pool
+	 * @param capacity : Maximum number of free objects kept by the pool
+	 */
+	public ObjectPool(int capacity) {
+		mFree = new Object[capacity];
+	}
+	
+	/** Creates a new object, called by {@link #obtain()} when there are no free objects **/
+	protected abstract T create();
+	
+	/** Clears an object before it is kept for reuse, so it does not hold on to any of its previous values **/
+	protected abstract void reset(T object);
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Pool methods   ****************************************************************** **/
+	
+	/** Gets a free object of this pool, or a new one if there are no free objects **/
+	public T obtain() {
+		synchronized (this) {
+			if (mSize > 0) {
+				@SuppressWarnings("unchecked")
+				T object = (T) mFree[--mSize];
+				mFree[mSize] = null;
+				return object;
+			}
+			mCreated++;
+		}
+		return create();
+	}
+	
+	/**
+	 * Resets an object and keeps it for reuse. The object must not be used anymore after calling this method.
+	 * @param object : An object, usually obtained from this pool. <code>null</code> is ignored
+	 */
+	public void recycle(T object) {
+		if (object == null) {
+			return;
+		}
+		reset(object);
+		synchronized (this) {
+			if (mSize < mFree.length) {
+				mFree[mSize++] = object;
+			}
+		}
+	}
+	
+	/** Drops all free objects of this pool **/
+	public synchronized void clear() {
+		for (int i = 0; i < mSize; i++) {
+			mFree[i] = null;
+		}
+		mSize = 0;
+	}
+	
+	/** Number of free objects kept by this pool **/
+	public synchronized int getFreeCount() {
+		return mSize;
+	}
+	
+	/** Number of objects created by this pool because there was no free object, a measure of how well it is sized **/
+	public synchronized int getCreatedCount() {
+		return mCreated;
+	}
+}
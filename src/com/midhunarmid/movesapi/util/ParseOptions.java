@@ -0,0 +1,236 @@
+package com.midhunarmid.movesapi.util;
+
+import java.util.EnumSet;
+
+import com.midhunarmid.movesapi.MovesAPI;
+import com.midhunarmid.movesapi.activity.TrackPointSimplifier;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+
+/**
+ * This class holds the options used to turn Moves responses into data objects. Set default options for all calls
+ * with {@link MovesAPI#setDefaultParseOptions(ParseOptions)}, or pass them to the <code>parse()</code> methods of the
+ * data classes directly. Passing <code>null</code> to a <code>parse()</code> method parses everything eagerly.<br><br>
+ * 
+ * Options are read while parsing and when lazy parts are materialized later, so do not change an instance which is
+ * already in use.
+ * @author Midhu
+ * @see StorylineData
+ * @see JSONStreamReader
+ */
+public class ParseOptions {
+	
+	/**
+	 * Fields of the storyline, activities and places responses which can be selected with
+	 * {@link ParseOptions#setFields(Field...)}. The date of a day is always kept.
+	 */
+	public enum Field {
+		/* Fields of a day */
+		SUMMARY(null),
+		CALORIES_IDLE(null),
+		LAST_UPDATE(null),
+		SEGMENTS(null),
+		
+		/* Fields of a segment */
+		SEGMENT_TYPE(SEGMENTS),
+		SEGMENT_TIMES(SEGMENTS),
+		SEGMENT_LAST_UPDATE(SEGMENTS),
+		PLACE(SEGMENTS),
+		ACTIVITIES(SEGMENTS),
+		
+		/* Fields of a place */
+		PLACE_ID(PLACE),
+		PLACE_NAME(PLACE),
+		PLACE_TYPE(PLACE),
+		PLACE_FOURSQUARE(PLACE),
+		PLACE_LOCATION(PLACE),
+		
+		/* Fields of an activity, ACTIVITY is the activity name and its group */
+		ACTIVITY(ACTIVITIES),
+		ACTIVITY_MANUAL(ACTIVITIES),
+		ACTIVITY_TIMES(ACTIVITIES),
+		ACTIVITY_DURATION(ACTIVITIES),
+		ACTIVITY_DISTANCE(ACTIVITIES),
+		ACTIVITY_STEPS(ACTIVITIES),
+		ACTIVITY_CALORIES(ACTIVITIES),
+		TRACK_POINTS(ACTIVITIES);
+		
+		private final Field parent;
+		
+		private Field(Field parent) {
+			this.parent = parent;
+		}
+		
+		/** The field holding this field, or <code>null</code> for the fields of a day **/
+		public Field getParent() {
+			return parent;
+		}
+	}
+	
+	/** Default of {@link #setParallelThreshold(int)} **/
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 8;
+	
+	private boolean lazy = false;
+	private EnumSet<Field> fields;
+	private TrackPointSimplifier trackPointSimplifier;
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private ParsePool pool;
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Getter methods    *************************************************************** **/
+	
+	/**
+	 * Whether nested parts are parsed on demand. When lazy, the segments of a {@link StorylineData}, the activities
+	 * of a segment and the track points of an activity are kept as JSON and turned into data objects on first access.
+	 */
+	public boolean isLazy() {
+		return lazy;
+	}
+	
+	/** The selected fields, or <code>null</code> if all fields are parsed **/
+	public EnumSet<Field> getFields() {
+		return fields == null ? null : EnumSet.copyOf(fields);
+	}
+	
+	/** The {@link TrackPointSimplifier} applied to all track points after parsing, or <code>null</code> **/
+	public TrackPointSimplifier getTrackPointSimplifier() {
+		return trackPointSimplifier;
+	}
+	
+	/** Minimum number of days in a response before the days are parsed in parallel **/
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/** The {@link ParsePool} streamed calls read their days with, or <code>null</code> **/
+	public ParsePool getPool() {
+		return pool;
+	}
+	
+	/** Whether the given field is parsed with these options **/
+	public boolean includes(Field field) {
+		return fields == null || fields.contains(field);
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Setter methods    *************************************************************** **/
+	
+	/**
+	 * Whether nested parts are parsed on demand. When lazy, the segments of a {@link StorylineData}, the activities
+	 * of a segment and the track points of an activity are kept as JSON and turned into data objects on first access.
+	 * Lazy parts hold their JSON until then, and are parsed on the thread which first reads them. Default is
+	 * <code>false</code>, everything is parsed eagerly.
+	 */
+	public ParseOptions setLazy(boolean lazy) {
+		this.lazy = lazy;
+		return this;
+	}
+	
+	/**
+	 * Sets a {@link TrackPointSimplifier} which is applied to the track points of all activities after a storyline
+	 * response is parsed. Simplifying needs the track points, so lazily parsed track points are materialized right
+	 * away, in parallel across activities. Default is <code>null</code>, no simplification.
+	 */
+	public ParseOptions setTrackPointSimplifier(TrackPointSimplifier trackPointSimplifier) {
+		this.trackPointSimplifier = trackPointSimplifier;
+		return this;
+	}
+	
+	/**
+	 * Sets the minimum number of days in a response before the days are parsed in parallel on the
+	 * {@link MovesExecutors#computation()} pool. Smaller responses are parsed on the calling thread, where the cost of
+	 * handing days to other threads would outweigh the gain. Default is {@value #DEFAULT_PARALLEL_THRESHOLD}, use
+	 * {@link Integer#MAX_VALUE} to always parse on the calling thread.
+	 */
+	public ParseOptions setParallelThreshold(int days) {
+		this.parallelThreshold = days;
+		return this;
+	}
+	
+	/**
+	 * Sets a {@link ParsePool} which the streamed storyline calls take their data objects and lists from. Days are
+	 * then read eagerly with a {@link JSONStreamReader}, and the caller hands each day back to the pool with
+	 * {@link ParsePool#release(StorylineData)} once it is done with it. Calls which are not streamed ignore the pool,
+	 * as their days may be cached or shared. Default is <code>null</code>, every object is newly created.
+	 */
+	public ParseOptions setPool(ParsePool pool) {
+		this.pool = pool;
+		return this;
+	}
+	
+	/**
+	 * Selects the fields to parse, all other fields are skipped while reading and left <code>null</code>. Selecting a
+	 * field also selects the fields holding it, and selecting a field like {@link Field#PLACE} without any of its own
+	 * fields selects all of them. For example <code>setFields(Field.ACTIVITY, Field.ACTIVITY_DURATION, Field.PLACE_NAME)</code>
+	 * keeps only the activity names, durations and place names of each segment.<br><br>
+	 * 
+	 * Fields are applied when responses are read with a {@link JSONStreamReader}, which the API calls do as soon as
+	 * fields are selected.
+	 * @param selected : Fields to parse, none to parse all fields
+	 */
+	public ParseOptions setFields(Field... selected) {
+		if (selected == null || selected.length == 0) {
+			fields = null;
+			return this;
+		}
+		EnumSet<Field> requested = EnumSet.noneOf(Field.class);
+		for (Field field : selected) {
+			requested.add(field);
+		}
+		EnumSet<Field> result = EnumSet.copyOf(requested);
+		for (Field field : Field.values()) {
+			/* Fields of a requested container without any requested fields nested in it */
+			for (Field parent = field.parent; parent != null; parent = parent.parent) {
+				if (requested.contains(parent) && !hasRequestedDescendant(requested, parent)) {
+					result.add(field);
+				}
+			}
+		}
+		for (Field field : requested) {
+			for (Field parent = field.parent; parent != null; parent = parent.parent) {
+				result.add(parent);
+			}
+		}
+		fields = result;
+		return this;
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Utility methods   *************************************************************** **/
+	
+	/** Whether the given options ask for lazy parsing, <code>null</code> options are eager **/
+	public static boolean isLazy(ParseOptions options) {
+		return options != null && options.lazy;
+	}
+	
+	/** Whether the given options parse a field, <code>null</code> options parse all fields **/
+	public static boolean includes(ParseOptions options, Field field) {
+		return options == null || options.includes(field);
+	}
+	
+	/** The parallel threshold of the given options, the default for <code>null</code> options **/
+	public static int getParallelThreshold(ParseOptions options) {
+		return options != null ? options.parallelThreshold : DEFAULT_PARALLEL_THRESHOLD;
+	}
+	
+	/** Whether the given options select only some of the fields **/
+	public static boolean hasFields(ParseOptions options) {
+		return options != null && options.fields != null;
+	}
+	
+	/** The {@link ParsePool} of the given options, or <code>null</code> **/
+	public static ParsePool getPool(ParseOptions options) {
+		return options != null ? options.pool : null;
+	}
+	
+	/** Whether any field nested in the container is requested, at any depth **/
+	private static boolean hasRequestedDescendant(EnumSet<Field> requested, Field container) {
+		for (Field field : requested) {
+			for (Field parent = field.parent; parent != null; parent = parent.parent) {
+				if (parent == container) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,320 @@
+package com.midhunarmid.movesapi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.midhunarmid.movesapi.MovesStreamHandler;
+import com.midhunarmid.movesapi.activity.ActivityData;
+import com.midhunarmid.movesapi.activity.TrackPointsData;
+import com.midhunarmid.movesapi.place.LocationData;
+import com.midhunarmid.movesapi.place.PlaceData;
+import com.midhunarmid.movesapi.segment.SegmentData;
+import com.midhunarmid.movesapi.storyline.StorylineData;
+import com.midhunarmid.movesapi.summary.SummaryData;
+
+/**
+ * Pools of the data objects and lists created while reading storylines, so that a client polling the same days
+ * over and over reuses the objects of earlier responses instead of creating new ones for every response. Set a pool
+ * with {@link ParseOptions#setPool(ParsePool)}, then hand every day back with {@link #release(StorylineData)} once
+ * it is not used anymore, for example at the end of {@link MovesStreamHandler#onItem(Object)}. Days which are
+ * never released are simply left to the garbage collector.<br><br>
+ * 
+ * Only the streamed storyline calls read their days with the pool. All other calls may cache their days or share
+ * them between identical calls, so they never take objects from a pool. A released day and all objects within it
+ * must not be used anymore, neither by the caller nor by anyone the day was handed to. This class is thread safe.
+ * @author Midhu
+ * @see ObjectPool
+ * @see JSONStreamReader#setPool(ParsePool)
+ */
+public class ParsePool {
+	
+	/** Default of the capacity, the maximum number of free objects kept of each type **/
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	private final ObjectPool<StorylineData> mStorylines;
+	private final ObjectPool<SummaryData> mSummaries;
+	private final ObjectPool<SegmentData> mSegments;
+	private final ObjectPool<PlaceData> mPlaces;
+	private final ObjectPool<LocationData> mLocations;
+	private final ObjectPool<ActivityData> mActivities;
+	private final ObjectPool<TrackPointsData> mTrackPoints;
+	private final ObjectPool<ArrayList<?>> mLists;
+	
+	/** Creates an empty pool which keeps up to {@value #DEFAULT_CAPACITY} free objects of each type **/
+	public ParsePool() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates an empty pool
+	 * @param capacity : Maximum number of free objects kept of each type. Track points are the most numerous
+	 * objects, use at least the number of track points of a response when reading track points.
+	 */
+	public ParsePool(int capacity) {
+		mStorylines = new ObjectPool<StorylineData>(capacity) {
+			@Override
+			protected StorylineData create() {
+				return new StorylineData();
+			}
+	
+			@Override
+			protected void reset(StorylineData storyline) {
+				storyline.setDate(null);
+				storyline.setSummary(null);
+				storyline.setSegments(null);
+				storyline.setCaloriesIdle(null);
+				storyline.setLastUpdate(null);
+			}
+		};
+		mSummaries = new ObjectPool<SummaryData>(capacity) {
+			@Override
+			protected SummaryData create() {
+				return new SummaryData();
+			}
+	
+			@Override
+			protected void reset(SummaryData summary) {
+				summary.setActivity(null);
+				summary.setGroup(null);
+				summary.setDuration(null);
+				summary.setDistance(null);
+				summary.setSteps(null);
+				summary.setCalories(null);
+			}
+		};
+		mSegments = new ObjectPool<SegmentData>(capacity) {
+			@Override
+			protected SegmentData create() {
+				return new SegmentData();
+			}
+	
+			@Override
+			protected void reset(SegmentData segment) {
+				segment.setType(null);
+				segment.setStartTime(null);
+				segment.setEndTime(null);
+				segment.setPlace(null);
+				segment.setActivities(null);
+				segment.setLastUpdate(null);
+			}
+		};
+		mPlaces = new ObjectPool<PlaceData>(capacity) {
+			@Override
+			protected PlaceData create() {
+				return new PlaceData();
+			}
+	
+			@Override
+			protected void reset(PlaceData place) {
+				place.setId(null);
+				place.setName(null);
+				place.setType(null);
+				place.setFoursquareId(null);
+				place.setFoursquareCategoryIds(null);
+				place.setLocation(null);
+			}
+		};
+		mLocations = new ObjectPool<LocationData>(capacity) {
+			@Override
+			protected LocationData create() {
+				return new LocationData();
+			}
+	
+			@Override
+			protected void reset(LocationData location) {
+				location.setLat(null);
+				location.setLon(null);
+			}
+		};
+		mActivities = new ObjectPool<ActivityData>(capacity) {
+			@Override
+			protected ActivityData create() {
+				return new ActivityData();
+			}
+	
+			@Override
+			protected void reset(ActivityData activity) {
+				activity.setActivity(null);
+				activity.setGroup(null);
+				activity.setManual(null);
+				activity.setStartTime(null);
+				activity.setEndTime(null);
+				activity.setDuration(null);
+				activity.setDistance(null);
+				activity.setSteps(null);
+				activity.setCalories(null);
+				activity.setTrackPoints(null);
+			}
+		};
+		mTrackPoints = new ObjectPool<TrackPointsData>(capacity) {
+			@Override
+			protected TrackPointsData create() {
+				return new TrackPointsData();
+			}
+	
+			@Override
+			protected void reset(TrackPointsData trackPoint) {
+				trackPoint.setLat(null);
+				trackPoint.setLon(null);
+				trackPoint.setTime(null);
+			}
+		};
+		/* Lists keep their grown backing arrays, so a reused list does not grow again for a similar response */
+		mLists = new ObjectPool<ArrayList<?>>(capacity) {
+			@Override
+			protected ArrayList<?> create() {
+				return new ArrayList<Object>();
+			}
+	
+			@Override
+			protected void reset(ArrayList<?> list) {
+				list.clear();
+			}
+		};
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Release methods   *************************************************************** **/
+	
+	/**
+	 * Hands all given days back to this pool, see {@link #release(StorylineData)}
+	 * @param storylines : Days read with this pool, the list itself is not released
+	 */
+	public void releaseAll(List<StorylineData> storylines) {
+		if (storylines != null) {
+			for (int i = 0; i < storylines.size(); i++) {
+				release(storylines.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * Hands a day back to this pool, together with its summaries, segments, places, activities, track points and all
+	 * their lists. The day must have been read with this pool, or else be eagerly parsed and not used anywhere else.
+	 * @param storyline : The day to release, <code>null</code> is ignored
+	 */
+	public void release(StorylineData storyline) {
+		if (storyline == null) {
+			return;
+		}
+		ArrayList<SummaryData> summaries = storyline.getSummary();
+		if (summaries != null) {
+			for (int i = 0; i < summaries.size(); i++) {
+				mSummaries.recycle(summaries.get(i));
+			}
+			mLists.recycle(summaries);
+		}
+		ArrayList<SegmentData> segments = storyline.getSegments();
+		if (segments != null) {
+			for (int i = 0; i < segments.size(); i++) {
+				release(segments.get(i));
+			}
+			mLists.recycle(segments);
+		}
+		mStorylines.recycle(storyline);
+	}
+	
+	/** Hands a segment back to this pool, together with its place, activities and track points **/
+	public void release(SegmentData segment) {
+		if (segment == null) {
+			return;
+		}
+		PlaceData place = segment.getPlace();
+		if (place != null) {
+			mLocations.recycle(place.getLocation());
+			if (place.getFoursquareCategoryIds() != null) {
+				mLists.recycle(place.getFoursquareCategoryIds());
+			}
+			mPlaces.recycle(place);
+		}
+		ArrayList<ActivityData> activities = segment.getActivities();
+		if (activities != null) {
+			for (int i = 0; i < activities.size(); i++) {
+				release(activities.get(i));
+			}
+			mLists.recycle(activities);
+		}
+		mSegments.recycle(segment);
+	}
+	
+	/** Hands an activity back to this pool, together with its track points **/
+	public void release(ActivityData activity) {
+		if (activity == null) {
+			return;
+		}
+		ArrayList<TrackPointsData> trackPoints = activity.getTrackPoints();
+		if (trackPoints != null) {
+			for (int i = 0; i < trackPoints.size(); i++) {
+				mTrackPoints.recycle(trackPoints.get(i));
+			}
+			mLists.recycle(trackPoints);
+		}
+		mActivities.recycle(activity);
+	}
+	
+	/** Drops all free objects of this pool, for example when the app is asked to trim its memory **/
+	public void clear() {
+		mStorylines.clear();
+		mSummaries.clear();
+		mSegments.clear();
+		mPlaces.clear();
+		mLocations.clear();
+		mActivities.clear();
+		mTrackPoints.clear();
+		mLists.clear();
+	}
+	
+	/**
+	 * Number of objects and lists created by this pool because there was no free one. Once the days of each response
+	 * are released, this stays the same in a steady polling loop.
+	 */
+	public int getCreatedCount() {
+		return mStorylines.getCreatedCount() + mSummaries.getCreatedCount() + mSegments.getCreatedCount()
+				+ mPlaces.getCreatedCount() + mLocations.getCreatedCount() + mActivities.getCreatedCount()
+				+ mTrackPoints.getCreatedCount() + mLists.getCreatedCount();
+	}
+	
+	/** ***************************************************************************************************** **/	
+	/** ******************* Obtain methods   **************************************************************** **/
+	
+	/** A {@link StorylineData} of the given pool, or a new one if the pool is <code>null</code> **/
+	public static StorylineData obtainStoryline(ParsePool pool) {
+		return pool != null ? pool.mStorylines.obtain() : new StorylineData();
+	}
+	
+	/** A {@link SummaryData} of the given pool, or a new one if the pool is <code>null</code> **/
+	public static SummaryData obtainSummary(ParsePool pool) {
+		return pool != null ? pool.mSummaries.obtain() : new SummaryData();
+	}
+	
+	/** A {@link SegmentData} of the given pool, or a new one if the pool is <code>null</code> **/
+	public static SegmentData obtainSegment(ParsePool pool) {
+		return pool != null ? pool.mSegments.obtain() : new SegmentData();
+	}
+	
+	/** A {@link PlaceData} of the given pool, or a new one if the pool is <code>null</code> **/
+	public static PlaceData obtainPlace(ParsePool pool) {
+		return pool != null ? pool.mPlaces.obtain() : new PlaceData();
+	}
+	
+	/** A {@link LocationData} of the given pool, or a new one if the pool is <code>null</code> **/
+	public static LocationData obtainLocation(ParsePool pool) {
+		return pool != null ? pool.mLocations.obtain() : new LocationData();
+	}
+	
+	/** An {@link ActivityData} of the given pool, or a new one if the pool is <code>null</code> **/
+	public static ActivityData obtainActivity(ParsePool pool) {
+		return pool != null ? pool.mActivities.obtain() : new ActivityData();
+	}
+	
+	/** A {@link TrackPointsData} of the given pool, or a new one if the pool is <code>null</code> **/
+	public static TrackPointsData obtainTrackPoint(ParsePool pool) {
+		return pool != null ? pool.mTrackPoints.obtain() : new TrackPointsData();
+	}
+	
+	/** An empty {@link ArrayList} of the given pool, or a new one if the pool is <code>null</code> **/
+	@SuppressWarnings("unchecked")
+	public static <T> ArrayList<T> obtainList(ParsePool pool) {
+		return pool != null ? (ArrayList<T>) pool.mLists.obtain() : new ArrayList<T>();
+	}
+}
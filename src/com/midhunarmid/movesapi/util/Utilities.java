@@ -2,16 +2,17 @@ package com.midhunarmid.movesapi.util;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import android.annotation.SuppressLint;
 
+import com.midhunarmid.movesapi.servercalls.RequestBuilder;
+
 /**
  * A collection of utility functions, commonly used throughout this application
  * @author Midhu
@@ -47,17 +48,14 @@ public class Utilities {
 
 		StringBuilder sb = new StringBuilder();
 		boolean first = true;
-		for (String key : parameters.keySet()) {
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
 			if (first)
 				first = false;
 			else
-				sb.append("&");
-			try {
-				sb.append(URLEncoder.encode(key,"UTF-8") + "=" + URLEncoder.encode(parameters.get(key), "UTF-8"));
-			} catch (UnsupportedEncodingException e) {
-				e.printStackTrace();
-				return "";
-			}
+				sb.append('&');
+			RequestBuilder.appendEncoded(sb, parameter.getKey());
+			sb.append('=');
+			RequestBuilder.appendEncoded(sb, parameter.getValue());
 		}
 		return sb.toString();
 	}
@@ -84,12 +82,120 @@ public class Utilities {
 	 * @return A {@link String} representation of converted date in given format
 	 */
 	public static String timeMilisToString(long milis, String format) throws Exception {
+		if (MovesTimeFormat.FORMAT_DATE.equals(format)) {
+			/* Most common format, no need to create a formatter and a calendar for it */
+			return MovesTimeFormat.formatDate(milis);
+		}
 		SimpleDateFormat sd = new SimpleDateFormat(format, Locale.getDefault());
 		Calendar calendar   = Calendar.getInstance();
 		calendar.setTimeInMillis(milis);
 		return sd.format(calendar.getTime());
 	}
 	
+	/**
+	 * Use this method to parse a numeric value received from Moves, such as duration or distance, without
+	 * throwing and catching exceptions. A fraction part is accepted and truncated, so both <code>"125"</code> 
+	 * and <code>"125.6"</code> will return <code>125</code>.
+	 * @param value : Number to be parsed, as String
+	 * @param def : Default value to be returned, if the value is empty or not a valid number
+	 * @return The parsed value, or <b><i>def</i></b> if an error occurred
+	 */
+	public static long parseLong(String value, long def) {
+		if (value == null) {
+			return def;
+		}
+		int length = value.length();
+		int index = 0;
+		boolean negative = false;
+		if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+			negative = value.charAt(0) == '-';
+			index++;
+		}
+		if (index == length) {
+			return def;
+		}
+		long result = 0;
+		int digits = 0;
+		for (; index < length; index++) {
+			char ch = value.charAt(index);
+			if (ch >= '0' && ch <= '9') {
+				if (result > (Long.MAX_VALUE - (ch - '0')) / 10) {
+					return def;
+				}
+				result = result * 10 + (ch - '0');
+				digits++;
+			} else {
+				break;
+			}
+		}
+		if (index < length) {
+			/* Only a fraction part is allowed after the digits */
+			if (value.charAt(index) != '.') {
+				return def;
+			}
+			for (index++; index < length; index++) {
+				char ch = value.charAt(index);
+				if (ch < '0' || ch > '9') {
+					return def;
+				}
+			}
+		}
+		if (digits == 0) {
+			return def;
+		}
+		return negative ? -result : result;
+	}
+	
+	/**
+	 * Use this method to parse a decimal value received from Moves, such as a latitude or longitude. Plain decimals
+	 * with up to 15 digits, like all coordinates of Moves, are parsed without creating any objects; the result is the
+	 * same as {@link Double#parseDouble(String)} would return.
+	 * @param value : Number to be parsed, as String
+	 * @param def : Default value to be returned, if the value is empty or not a valid number
+	 * @return The parsed value, or <b><i>def</i></b> if an error occurred
+	 */
+	public static double parseDouble(String value, double def) {
+		if (value == null || value.length() == 0) {
+			return def;
+		}
+		int length = value.length();
+		int index = 0;
+		boolean negative = false;
+		if (value.charAt(0) == '-' || value.charAt(0) == '+') {
+			negative = value.charAt(0) == '-';
+			index++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = -1;
+		for (; index < length; index++) {
+			char ch = value.charAt(index);
+			if (ch >= '0' && ch <= '9') {
+				mantissa = mantissa * 10 + (ch - '0');
+				digits++;
+				if (decimals >= 0) {
+					decimals++;
+				}
+			} else if (ch == '.' && decimals < 0) {
+				decimals = 0;
+			} else {
+				break;
+			}
+		}
+		if (index == length && digits > 0 && digits <= 15) {
+			/* Both the mantissa and the power of ten are exact doubles, so a single division rounds correctly */
+			double result = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+			return negative ? -result : result;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return def;
+		}
+	}
+	
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+	
 	/**
 	 * Use this method to get convert a {@link String} representation of Date into milliseconds.
 	 * @param dateValue : Date to be converted, as String
@@ -99,6 +205,12 @@ public class Utilities {
 	 */
 	@SuppressLint("SimpleDateFormat")
 	public static Long getTimeInMillis(String dateValue, String currentFormat, long def) {
+		/* Moves formats are handled by the allocation free parser */
+		if (MovesTimeFormat.FORMAT_DATE.equals(currentFormat)) {
+			return MovesTimeFormat.parseDate(dateValue, def);
+		} else if (MovesTimeFormat.FORMAT_DATETIME.equals(currentFormat)) {
+			return MovesTimeFormat.parseDateTime(dateValue, def);
+		}
 		try {
 			SimpleDateFormat sdf = new SimpleDateFormat(currentFormat);
 			Date dt;